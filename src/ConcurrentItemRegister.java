@@ -0,0 +1,407 @@
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Class representing an item register that can be shared between several threads.
+ * Reading from the register never waits for a lock. Every change locks only the stripe the
+ * item number belongs to, so changes to items in different stripes can be made at the same
+ * time. A change to the number of items in stock only takes the shared lock of the stripe
+ * and is made with compare-and-set, so many threads can change the stock of the same item
+ * at once, while the change can still not be made on an item another thread has just deleted.
+ *
+ * <p>Only the basic operations of the ItemRegister class are supported: adding, deleting
+ * and finding items by number, description or category, and changing their stock, price
+ * and description. The items are kept in a hash map, so they are not listed in the order
+ * they were added. Everything that depends on the item table or the indexes of
+ * ItemRegister is not supported: copies of the register, keeping the items off the heap,
+ * pages, search() and searchPlan(), finding items by price or number in stock, bulk price
+ * and stock changes, inventory totals, reorder thresholds and low stock listeners, the
+ * log, the change feed, metrics and price history. Use an ItemRegister owned by one
+ * thread, or guarded by a lock, when these are needed.
+ */
+public class ConcurrentItemRegister {
+
+  /**
+   * Defining the variables. The items are keyed by their normalized item number, the same
+   * way as in the ItemRegister class. Every item number belongs to one of the locks in
+   * stripes. Its write lock must be held when the item is added, deleted, or its price or
+   * description is changed, and its read lock when the number of items in stock is changed.
+   */
+  private final ConcurrentHashMap<String, Item> items;
+  private final ReentrantReadWriteLock[] stripes;
+
+  /**
+   * Constructor for concurrent item register, with four stripes per available processor.
+   */
+  public ConcurrentItemRegister() {
+    this(4 * Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Constructor for concurrent item register. Checks for illegal arguments.
+   * The number of stripes is rounded up to the nearest power of two.
+
+   * @param numberOfStripes Number of locks the item numbers are spread over.
+   */
+  public ConcurrentItemRegister(int numberOfStripes) {
+    if (numberOfStripes < 1) {
+      throw new IllegalArgumentException("Number of stripes must be at least 1.");
+    }
+    int size = Integer.highestOneBit(numberOfStripes);
+    if (size < numberOfStripes) {
+      size <<= 1;
+    }
+    items = new ConcurrentHashMap<>();
+    stripes = new ReentrantReadWriteLock[size];
+
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = new ReentrantReadWriteLock();
+    }
+  }
+
+  /**
+   * Method to find the lock for an item number.
+
+   * @param key Normalized item number.
+   * @return Lock of the stripe the item number belongs to.
+   */
+  private ReentrantReadWriteLock stripe(String key) {
+    int hash = key.hashCode();
+    return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+  }
+
+  /**
+   * Boolean to check if an item already exists or not.
+
+   * @param itemNumber Unique item number.
+   * @return True if the item does not exist.
+   */
+  public boolean itemNotExists(String itemNumber) {
+    return itemByNumber(itemNumber) == null;
+  }
+
+  /**
+   * Method to print items using the toString method in the item class.
+   * The items are not printed in any particular order.
+
+   * @return Items converted to a string.
+   */
+  public String printItems() {
+    StringBuilder allItems = new StringBuilder();
+
+    for (Item item : items.values()) {
+      allItems.append(item.toString()).append("\n");
+    }
+    return allItems.toString();
+  }
+
+  /**
+   * Method to print items using the toStringShort method in the item class.
+   * The items are not printed in any particular order.
+
+   * @return Items converted to string.
+   */
+  public String printItemsShortVersion() {
+    StringBuilder itemsShort = new StringBuilder();
+
+    for (Item item : items.values()) {
+      itemsShort.append(item.toStringShort());
+    }
+    return itemsShort.toString();
+  }
+
+  /**
+   * Method to find the number of registered items.
+
+   * @return Number of registered items.
+   */
+  public int numberOfItems() {
+    return items.size();
+  }
+
+  /**
+   * Method to add a new item to the register. Checks for illegal arguments.
+
+   * @param item Item.
+   */
+  public void addItem(Item item) {
+    if (item.getCategory() == null) {
+      throw new IllegalArgumentException("Item category can not be empty.");
+    }
+    String key = ItemRegister.normalizedItemNumber(item.getItemNumber());
+    Lock lock = stripe(key).writeLock();
+
+    lock.lock();
+    try {
+      if (items.putIfAbsent(key, item) != null) {
+        throw new IllegalArgumentException("Item with item number "
+            + item.getItemNumber() + " already exists.\n");
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Method to delete an item. Checks for illegal arguments.
+
+   * @param itemNumber Item number of the item you want to delete.
+   */
+  public void deleteItem(String itemNumber) {
+    if (itemNumber.isBlank()) {
+      throw new IllegalArgumentException("Item number can not be empty.");
+    }
+    String key = ItemRegister.normalizedItemNumber(itemNumber);
+    Lock lock = stripe(key).writeLock();
+
+    lock.lock();
+    try {
+      if (items.remove(key) == null) {
+        throw new IllegalArgumentException("Item with item number "
+            + itemNumber + " does not exist.");
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Method to increase the number of items in stock of a specific item.
+   * Checks for illegal arguments.
+
+   * @param itemNumber Item number, used to identify the item you want to change.
+   * @param increasedNumber The number added to stock.
+   */
+  public void increaseNumberOfItemInStock(String itemNumber, int increasedNumber) {
+    if (increasedNumber <= 0) {
+      throw new IllegalArgumentException("Number of added items in stock must be greater than 0.");
+    }
+    String key = ItemRegister.normalizedItemNumber(itemNumber);
+    Lock lock = stripe(key).readLock();
+
+    lock.lock();
+    try {
+      existingItem(key, itemNumber).release(increasedNumber);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Method to decrease the number of items in stock of a specific item.
+   * Checks for illegal arguments. The decreased number can not be greater
+   * than the number of items already in stock.
+
+   * @param itemNumber Item number, used to identify the item you want to change.
+   * @param decreasedNumber The number decreased from stock.
+   */
+  public void decreaseNumberOfItemInStock(String itemNumber, int decreasedNumber) {
+    if (decreasedNumber <= 0) {
+      throw new IllegalArgumentException("Number of added items in stock must be greater than 0.");
+    }
+    String key = ItemRegister.normalizedItemNumber(itemNumber);
+    Lock lock = stripe(key).readLock();
+
+    lock.lock();
+    try {
+      if (!existingItem(key, itemNumber).tryReserve(decreasedNumber)) {
+        throw new IllegalArgumentException(
+            "The number of items decreased can not be greater than the number already in stock.");
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Method to reserve a number of items from stock. Checks for illegal arguments.
+   * The number of items in stock never becomes negative, even when many threads reserve
+   * the same item at once.
+
+   * @param itemNumber Item number, used to identify the item you want to reserve.
+   * @param quantity Number of items to reserve.
+   * @return True if the items were reserved, false if there are not enough items in stock.
+   */
+  public boolean tryReserve(String itemNumber, int quantity) {
+    if (quantity <= 0) {
+      throw new IllegalArgumentException("Number of reserved items must be greater than 0.");
+    }
+    String key = ItemRegister.normalizedItemNumber(itemNumber);
+    Lock lock = stripe(key).readLock();
+
+    lock.lock();
+    try {
+      return existingItem(key, itemNumber).tryReserve(quantity);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Method to put reserved items back in stock. Checks for illegal arguments.
+
+   * @param itemNumber Item number, used to identify the item you want to release.
+   * @param quantity Number of items to put back in stock.
+   */
+  public void release(String itemNumber, int quantity) {
+    if (quantity <= 0) {
+      throw new IllegalArgumentException("Number of released items must be greater than 0.");
+    }
+    String key = ItemRegister.normalizedItemNumber(itemNumber);
+    Lock lock = stripe(key).readLock();
+
+    lock.lock();
+    try {
+      existingItem(key, itemNumber).release(quantity);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Method to change the price of a specific item. Checks for illegal arguments.
+
+   * @param itemNumber Item number, used to identify the item you want to change.
+   * @param newPrice Updated price of the item with the given item number.
+   */
+  public void changePrice(String itemNumber, int newPrice) {
+    if (newPrice < 0) {
+      throw new IllegalArgumentException("Price must be greater than 0.");
+    }
+    String key = ItemRegister.normalizedItemNumber(itemNumber);
+    Lock lock = stripe(key).writeLock();
+
+    lock.lock();
+    try {
+      existingItem(key, itemNumber).setPrice(newPrice);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Method to give an item a discount price. Checks for illegal arguments.
+
+   * @param itemNumber Item number, used to identify the item you want to change.
+   * @param discount Discount that will be given to the price, given in percentage.
+   */
+  public void discountPrice(String itemNumber, double discount) {
+    if (discount <= 0 || discount >= 100) {
+      throw new IllegalArgumentException("Discount percentage must be greater than 0.");
+    }
+    String key = ItemRegister.normalizedItemNumber(itemNumber);
+    Lock lock = stripe(key).writeLock();
+
+    lock.lock();
+    try {
+      Item item = existingItem(key, itemNumber);
+      item.setPrice((int) ((1 - (discount / 100)) * item.getPrice()));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Method to change description of a specific item. Checks for illegal arguments.
+
+   * @param itemNumber Item number, used to identify the item you want to change.
+   * @param newItemDescription Updated item description of the item with the given item number.
+   */
+  public void changeDescription(String itemNumber, String newItemDescription) {
+    if (newItemDescription.isBlank()) {
+      throw new IllegalArgumentException("Item description can not be empty.");
+    }
+    String key = ItemRegister.normalizedItemNumber(itemNumber);
+    Lock lock = stripe(key).writeLock();
+
+    lock.lock();
+    try {
+      existingItem(key, itemNumber).setItemDescription(newItemDescription);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Method to find an item that is going to be changed. Must be called while holding the
+   * read or write lock for the item number, so the item can not be deleted in the meantime
+   * and the change is never made on an item that is no longer in the register.
+
+   * @param key Normalized item number.
+   * @param itemNumber Item number as given by the user, used in the error message.
+   * @return Item with the given item number.
+   */
+  private Item existingItem(String key, String itemNumber) {
+    if (itemNumber.isBlank()) {
+      throw new IllegalArgumentException("Item number can not be empty.");
+    }
+    Item item = items.get(key);
+
+    if (item == null) {
+      throw new IllegalArgumentException("Item with item number "
+          + itemNumber + " does not exist.");
+    }
+    return item;
+  }
+
+  /**
+   * Method to find an item by the item number. Checks for illegal arguments.
+   * Does not wait for any lock.
+
+   * @param itemNumber Item number of the item you want to find.
+   * @return Item with the given item number, or null if it is not in the register.
+   */
+  public Item itemByNumber(String itemNumber) {
+    if (itemNumber.isBlank()) {
+      throw new IllegalArgumentException("Item number can not be empty.");
+    }
+    return items.get(ItemRegister.normalizedItemNumber(itemNumber));
+  }
+
+  /**
+   * Method to find an item or items by the item description. Checks for
+   * illegal arguments. Does not wait for any lock, so items changed while
+   * searching may or may not be found.
+
+   * @param itemDescription Item description of the item you want to find.
+   * @return ArrayList consisting of the item, or items, that contains the
+   *         same item description as input.
+   */
+  public ArrayList<Item> itemsByDescription(String itemDescription) {
+    if (itemDescription.isBlank()) {
+      throw new IllegalArgumentException("Item description can not be empty.");
+    }
+    ArrayList<Item> foundItems = new ArrayList<Item>();
+    String loweredItemDescription = itemDescription.toLowerCase();
+
+    for (Item item : items.values()) {
+      if (item.getItemDescription().toLowerCase().contains(loweredItemDescription)) {
+        foundItems.add(item);
+      }
+    }
+    return foundItems;
+  }
+
+  /**
+   * Method to find an item or items by the category. Checks for illegal arguments.
+   * Does not wait for any lock.
+
+   * @param itemCategory The category from where you want to find items.
+   * @return ArrayList containing the item, or items, in the given category.
+   */
+  public ArrayList<Item> itemByCategory(ItemCategory itemCategory) {
+    if (itemCategory == null) {
+      throw new IllegalArgumentException("Item category can not be empty.");
+    }
+    ArrayList<Item> foundItems = new ArrayList<Item>();
+
+    for (Item item : items.values()) {
+      if (item.getCategory() == itemCategory) {
+        foundItems.add(item);
+      }
+    }
+    return foundItems;
+  }
+}
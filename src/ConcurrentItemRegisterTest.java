@@ -0,0 +1,181 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import org.junit.Test;
+
+/**
+ * Class for testing the concurrent item register with several threads.
+ */
+public class ConcurrentItemRegisterTest {
+
+  private static final int NUMBER_OF_THREADS = 8;
+  private static final int NUMBER_OF_ITEMS = 16;
+  private static final int ROUNDS = 20000;
+
+  ConcurrentItemRegister itemRegister = new ConcurrentItemRegister();
+
+  /**
+   * Method to add the items used in the tests, each with 1000 items in stock.
+   */
+  private void addItems() {
+    for (int i = 0; i < NUMBER_OF_ITEMS; i++) {
+      itemRegister.addItem(new Item("ITEM" + i, "Door", "Tall and big",
+          2000, "IKEA", 12.3, 1.1, 3.1, "black", 1000, ItemCategory.DOORS));
+    }
+  }
+
+  /**
+   * Method to run the same task in several threads at once, and wait until all are done.
+
+   * @param task Task to run, given the number of the thread.
+   */
+  private void runInThreads(IntConsumer task) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+    CountDownLatch start = new CountDownLatch(1);
+    ArrayList<Future<?>> futures = new ArrayList<>();
+
+    for (int thread = 0; thread < NUMBER_OF_THREADS; thread++) {
+      int threadNumber = thread;
+      futures.add(executor.submit(() -> {
+        start.await();
+        task.accept(threadNumber);
+        return null;
+      }));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+    executor.awaitTermination(1, TimeUnit.MINUTES);
+  }
+
+  /**
+   * Test to check that no stock updates are lost when several threads
+   * increase and decrease the stock of the same items at the same time.
+   */
+  @Test
+  public void testNoLostStockUpdates() throws Exception {
+    System.out.println("Testing concurrent stock updates");
+    addItems();
+
+    runInThreads(thread -> {
+      for (int round = 0; round < ROUNDS; round++) {
+        String itemNumber = "item" + ((thread + round) % NUMBER_OF_ITEMS);
+        itemRegister.increaseNumberOfItemInStock(itemNumber, 3);
+        itemRegister.decreaseNumberOfItemInStock(itemNumber, 1);
+      }
+    });
+
+    int totalStock = 0;
+    for (int i = 0; i < NUMBER_OF_ITEMS; i++) {
+      totalStock += itemRegister.itemByNumber("ITEM" + i).getNumberOfItemsInStock();
+    }
+    assertEquals(totalStock, NUMBER_OF_ITEMS * 1000 + NUMBER_OF_THREADS * ROUNDS * 2);
+  }
+
+  /**
+   * Test to check that items added and deleted by several threads at the
+   * same time leave the register in the expected state.
+   */
+  @Test
+  public void testConcurrentAddAndDelete() throws Exception {
+    System.out.println("Testing concurrent add and delete");
+
+    runInThreads(thread -> {
+      for (int i = 0; i < 1000; i++) {
+        String itemNumber = "T" + thread + "-" + i;
+        itemRegister.addItem(new Item(itemNumber, "Window", "Wide", 1000, "IKEA",
+            5, 2, 1, "white", 10, ItemCategory.WINDOWS));
+        if (i % 2 == 0) {
+          itemRegister.deleteItem(itemNumber.toLowerCase());
+        }
+      }
+    });
+
+    assertEquals(itemRegister.numberOfItems(), NUMBER_OF_THREADS * 500);
+    assertEquals(itemRegister.itemByCategory(ItemCategory.WINDOWS).size(),
+        NUMBER_OF_THREADS * 500);
+    assertNull(itemRegister.itemByNumber("T0-0"));
+    assertEquals(itemRegister.itemByNumber("t0-1").getItemNumber(), "T0-1");
+  }
+
+  /**
+   * Test to check that reserving items from the same item in several threads
+   * never reserves more items than there are in stock.
+   */
+  @Test
+  public void testReservationsNeverOversell() throws Exception {
+    System.out.println("Testing concurrent reservations");
+    addItems();
+    AtomicInteger reserved = new AtomicInteger();
+
+    runInThreads(thread -> {
+      for (int round = 0; round < 500; round++) {
+        if (itemRegister.tryReserve("ITEM0", 1)) {
+          reserved.incrementAndGet();
+        }
+        if (itemRegister.tryReserve("ITEM1", 3)) {
+          itemRegister.release("ITEM1", 3);
+        }
+      }
+    });
+
+    assertEquals(reserved.get(), 1000);
+    assertEquals(itemRegister.itemByNumber("ITEM0").getNumberOfItemsInStock(), 0);
+    assertEquals(itemRegister.itemByNumber("ITEM1").getNumberOfItemsInStock(), 1000);
+    assertFalse(itemRegister.tryReserve("ITEM0", 1));
+  }
+
+  /**
+   * Test to check that a stock change racing with the delete of the item is either made
+   * before the delete, or fails because the item does not exist, and never changes the
+   * deleted item afterwards.
+   */
+  @Test
+  public void testStockChangesDuringDelete() throws Exception {
+    System.out.println("Testing stock changes during delete");
+    itemRegister.addItem(new Item("ITEM0", "Door", "Tall and big",
+        2000, "IKEA", 12.3, 1.1, 3.1, "black", 0, ItemCategory.DOORS));
+    AtomicInteger increased = new AtomicInteger();
+    ArrayList<Item> deletedItems = new ArrayList<>();
+    ArrayList<Integer> stockWhenDeleted = new ArrayList<>();
+
+    runInThreads(thread -> {
+      for (int round = 0; round < ROUNDS; round++) {
+        if (thread == 0) {
+          Item item = itemRegister.itemByNumber("ITEM0");
+          itemRegister.deleteItem("ITEM0");
+          deletedItems.add(item);
+          stockWhenDeleted.add(item.getNumberOfItemsInStock());
+          itemRegister.addItem(new Item("ITEM0", "Door", "Tall and big",
+              2000, "IKEA", 12.3, 1.1, 3.1, "black", 0, ItemCategory.DOORS));
+        } else {
+          try {
+            itemRegister.increaseNumberOfItemInStock("ITEM0", 1);
+            increased.incrementAndGet();
+          } catch (IllegalArgumentException e) {
+            // The item was deleted and not yet added again.
+          }
+        }
+      }
+    });
+
+    int totalStock = itemRegister.itemByNumber("ITEM0").getNumberOfItemsInStock();
+    for (int i = 0; i < deletedItems.size(); i++) {
+      assertEquals(deletedItems.get(i).getNumberOfItemsInStock(),
+          (int) stockWhenDeleted.get(i));
+      totalStock += stockWhenDeleted.get(i);
+    }
+    assertEquals(totalStock, increased.get());
+  }
+}
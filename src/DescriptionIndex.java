@@ -0,0 +1,175 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Class representing a trigram index over item descriptions. Used by the ItemRegister class
+ * to narrow down which items can contain a searched description, before checking them.
+ */
+class DescriptionIndex {
+
+  /**
+   * Length of the pieces (trigrams) a description is split into.
+   */
+  static final int TRIGRAM_LENGTH = 3;
+
+  /**
+   * Defining the variables. Postings maps every trigram to the keys of the items whose
+   * description contains it. Order holds the order the items were added in, so found
+   * items can be returned in the same order as they are stored in the register.
+   */
+  private final HashMap<String, HashSet<String>> postings;
+  private final HashMap<String, Long> order;
+  private long nextOrder;
+
+  /**
+   * Constructor for description index.
+   */
+  DescriptionIndex() {
+    postings = new HashMap<>();
+    order = new HashMap<>();
+    nextOrder = 0;
+  }
+
+  /**
+   * Method to add the description of a new item to the index.
+
+   * @param key Normalized item number of the item.
+   * @param itemDescription Description of the item.
+   */
+  void add(String key, String itemDescription) {
+    order.put(key, nextOrder++);
+    addTrigrams(key, itemDescription);
+  }
+
+  /**
+   * Method to remove the description of a deleted item from the index.
+
+   * @param key Normalized item number of the item.
+   * @param itemDescription Description of the item.
+   */
+  void remove(String key, String itemDescription) {
+    order.remove(key);
+    removeTrigrams(key, itemDescription);
+  }
+
+  /**
+   * Method to update the index when the description of an item is changed.
+   * The item keeps its place in the order.
+
+   * @param key Normalized item number of the item.
+   * @param oldItemDescription Description of the item before the change.
+   * @param newItemDescription Description of the item after the change.
+   */
+  void update(String key, String oldItemDescription, String newItemDescription) {
+    removeTrigrams(key, oldItemDescription);
+    addTrigrams(key, newItemDescription);
+  }
+
+  /**
+   * Method to find the keys of the items that may contain the given description. Every
+   * trigram of the description must be found in the description of the item, so only
+   * the keys found under all the trigrams are returned. The caller still has to check
+   * that the description of the item actually contains the searched description.
+
+   * @param loweredItemDescription Searched description, converted to lower case.
+   * @return Keys of the possible items, in the order they were added. Null if the
+   *         description is shorter than a trigram, and can not be looked up in the index.
+   */
+  ArrayList<String> candidates(String loweredItemDescription) {
+    if (loweredItemDescription.length() < TRIGRAM_LENGTH) {
+      return null;
+    }
+    ArrayList<HashSet<String>> keySets = new ArrayList<>();
+
+    for (String trigram : trigrams(loweredItemDescription)) {
+      HashSet<String> keys = postings.get(trigram);
+      if (keys == null) {
+        return new ArrayList<>();
+      }
+      keySets.add(keys);
+    }
+    keySets.sort(Comparator.comparingInt(HashSet::size));
+    ArrayList<String> foundKeys = new ArrayList<>();
+
+    for (String key : keySets.get(0)) {
+      boolean inAll = true;
+      for (int i = 1; i < keySets.size() && inAll; i++) {
+        inAll = keySets.get(i).contains(key);
+      }
+      if (inAll) {
+        foundKeys.add(key);
+      }
+    }
+    foundKeys.sort(Comparator.comparingLong(order::get));
+    return foundKeys;
+  }
+
+  /**
+   * Method to estimate how many items candidates(loweredItemDescription) would return,
+   * without finding them. Only the number of items under each trigram is checked.
+
+   * @param loweredItemDescription Searched description, converted to lower case.
+   * @return Highest number of possible items, or -1 if the description is shorter than a
+   *         trigram, and can not be looked up in the index.
+   */
+  int estimate(String loweredItemDescription) {
+    if (loweredItemDescription.length() < TRIGRAM_LENGTH) {
+      return -1;
+    }
+    int estimate = Integer.MAX_VALUE;
+
+    for (String trigram : trigrams(loweredItemDescription)) {
+      HashSet<String> keys = postings.get(trigram);
+      estimate = Math.min(estimate, keys == null ? 0 : keys.size());
+    }
+    return estimate;
+  }
+
+  /**
+   * Method to add the key of an item under every trigram of its description.
+
+   * @param key Normalized item number of the item.
+   * @param itemDescription Description of the item.
+   */
+  private void addTrigrams(String key, String itemDescription) {
+    for (String trigram : trigrams(itemDescription.toLowerCase())) {
+      postings.computeIfAbsent(trigram, t -> new HashSet<>()).add(key);
+    }
+  }
+
+  /**
+   * Method to remove the key of an item from every trigram of its description.
+   * Trigrams without any items left are removed from the index.
+
+   * @param key Normalized item number of the item.
+   * @param itemDescription Description of the item.
+   */
+  private void removeTrigrams(String key, String itemDescription) {
+    for (String trigram : trigrams(itemDescription.toLowerCase())) {
+      HashSet<String> keys = postings.get(trigram);
+      if (keys != null) {
+        keys.remove(key);
+        if (keys.isEmpty()) {
+          postings.remove(trigram);
+        }
+      }
+    }
+  }
+
+  /**
+   * Method to split a text into all the different trigrams it contains.
+
+   * @param text Text to split, already converted to lower case.
+   * @return The different trigrams in the text.
+   */
+  private static HashSet<String> trigrams(String text) {
+    HashSet<String> trigrams = new HashSet<>();
+
+    for (int i = 0; i + TRIGRAM_LENGTH <= text.length(); i++) {
+      trigrams.add(text.substring(i, i + TRIGRAM_LENGTH));
+    }
+    return trigrams;
+  }
+}
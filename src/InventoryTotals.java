@@ -0,0 +1,131 @@
+/**
+ * Class representing the totals of a group of items in an item register, such as the items
+ * in a category or of a brand. The totals are kept up to date by the register every time an
+ * item is added, deleted, or has its price or number in stock changed, so they can be read
+ * without going through the items. An object of this class is never changed; the register
+ * replaces it with a new one instead.
+ */
+public final class InventoryTotals {
+
+  /**
+   * Totals of a group without any items.
+   */
+  public static final InventoryTotals EMPTY = new InventoryTotals(0, 0, 0, 0);
+
+  /**
+   * Defining the variables.
+   */
+  private final int numberOfItems;
+  private final long numberOfItemsInStock;
+  private final long stockValue;
+  private final double weightInStock;
+
+  /**
+   * Constructor for inventory totals.
+
+   * @param numberOfItems Number of different items.
+   * @param numberOfItemsInStock Sum of the number in stock of every item.
+   * @param stockValue Sum of the price times the number in stock of every item, in kr.
+   * @param weightInStock Sum of the weight times the number in stock of every item, in kg.
+   */
+  InventoryTotals(int numberOfItems, long numberOfItemsInStock, long stockValue,
+                  double weightInStock) {
+    this.numberOfItems = numberOfItems;
+    this.numberOfItemsInStock = numberOfItemsInStock;
+    this.stockValue = stockValue;
+    this.weightInStock = weightInStock;
+  }
+
+  /**
+   * Get method for the number of different items.
+
+   * @return Number of items.
+   */
+  public int getNumberOfItems() {
+    return numberOfItems;
+  }
+
+  /**
+   * Get method for the number of units in stock, counting every item in stock.
+
+   * @return Sum of the number in stock of every item.
+   */
+  public long getNumberOfItemsInStock() {
+    return numberOfItemsInStock;
+  }
+
+  /**
+   * Get method for the value of the items in stock.
+
+   * @return Sum of the price times the number in stock of every item, in kr.
+   */
+  public long getStockValue() {
+    return stockValue;
+  }
+
+  /**
+   * Get method for the weight of the items in stock.
+
+   * @return Sum of the weight times the number in stock of every item, in kg.
+   */
+  public double getWeightInStock() {
+    return weightInStock;
+  }
+
+  /**
+   * Method to add the totals of another group to these totals.
+
+   * @param inventoryTotals Totals to add.
+   * @return The sum of the totals.
+   */
+  public InventoryTotals plus(InventoryTotals inventoryTotals) {
+    return new InventoryTotals(numberOfItems + inventoryTotals.numberOfItems,
+        numberOfItemsInStock + inventoryTotals.numberOfItemsInStock,
+        stockValue + inventoryTotals.stockValue,
+        weightInStock + inventoryTotals.weightInStock);
+  }
+
+  /**
+   * Method to find the totals after an item is added to or removed from the group.
+
+   * @param item The item.
+   * @param sign 1 if the item is added, -1 if it is removed.
+   * @return The new totals.
+   */
+  InventoryTotals withItem(Item item, int sign) {
+    long units = item.getNumberOfItemsInStock();
+    return new InventoryTotals(numberOfItems + sign, numberOfItemsInStock + sign * units,
+        stockValue + sign * units * item.getPrice(),
+        weightInStock + sign * units * item.getWeight());
+  }
+
+  /**
+   * Method to find the totals after the price or number in stock of an item in the group
+   * is changed.
+
+   * @param item The item, with the new price and number in stock.
+   * @param oldPrice Price of the item before the change.
+   * @param oldNumberOfItemsInStock Number in stock of the item before the change.
+   * @return The new totals.
+   */
+  InventoryTotals withChange(Item item, int oldPrice, int oldNumberOfItemsInStock) {
+    long units = item.getNumberOfItemsInStock();
+    return new InventoryTotals(numberOfItems,
+        numberOfItemsInStock + units - oldNumberOfItemsInStock,
+        stockValue + units * item.getPrice() - (long) oldNumberOfItemsInStock * oldPrice,
+        weightInStock + (units - oldNumberOfItemsInStock) * item.getWeight());
+  }
+
+  /**
+   * Method to present the totals as a string.
+
+   * @return Totals as a string.
+   */
+  @Override
+  public String toString() {
+    return "Number of items: " + numberOfItems + "\n"
+        + "Number of items in stock: " + numberOfItemsInStock + "\n"
+        + "Value in stock: " + stockValue + " kr\n"
+        + "Weight in stock: " + String.format("%.2f", weightInStock) + " kg\n";
+  }
+}
@@ -1,25 +1,46 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
 /**
  * Class representing item.
  */
 public class Item {
 
+  /**
+   * Updater used to change the number of items in stock with compare-and-set, so several
+   * threads can reserve and release items without locking and without overselling.
+   */
+  private static final AtomicIntegerFieldUpdater<Item> STOCK =
+      AtomicIntegerFieldUpdater.newUpdater(Item.class, "numberOfItemsInStock");
+
   /**
    * Defining all the object variables for item. Final variables does not have any mutator methods
    * and will not be changed. The other variables will have mutator methods, which gives them the
-   * opportunity to be able to be changed.
+   * opportunity to be able to be changed. The mutator methods are only used by the registers,
+   * which keep their indexes, log and copies up to date, so an item given out by a register
+   * can not be changed behind its back. The variables are volatile, so a change made by one
+   * thread is seen by other threads reading the item without locking, as in
+   * ConcurrentItemRegister.
    */
   private final String itemNumber;
   private final String itemName;
-  private String itemDescription;
+  private volatile String itemDescription;
   private final String brandName;
   private final String colour;
-  private int price;
+  private volatile int price;
   private final double weight;
   private final double length;
   private final double height;
-  private int numberOfItemsInStock;
+  private volatile int numberOfItemsInStock;
   private final ItemCategory itemCategory;
 
+  /**
+   * Reorder threshold of the item: the item is low on stock when there are fewer items in
+   * stock than this. 0 if the item has no threshold of its own.
+   */
+  private volatile int reorderThreshold;
+
   /**
    * Constructor for item, containing all the information about an item.
 
@@ -54,7 +75,42 @@ public class Item {
   }
 
   /**
-   * Deep copy constructor for item.
+   * Constructor for an item read back from storage, such as the OffHeapItemStore class.
+   * The arguments are not checked, since they were checked when the item was first made.
+
+   * @param itemNumber Unique number for the item, consisting of letters and/or numbers.
+   * @param itemName Name of item.
+   * @param itemDescription Description of item.
+   * @param price Price of item, given in kr.
+   * @param brandName Brand name of item.
+   * @param weight Weight of item, given in kg.
+   * @param length Length of item, given in m.
+   * @param height Height of item, given in m.
+   * @param colour Colour of item.
+   * @param numberOfItemsInStock Number of items in stock.
+   * @param itemCategory Category of item.
+   * @param reorderThreshold Reorder threshold of item, or 0 if it has none.
+   */
+  Item(String itemNumber, String itemName, String itemDescription, int price,
+       String brandName, double weight, double length, double height, String colour,
+       int numberOfItemsInStock, ItemCategory itemCategory, int reorderThreshold) {
+    this.itemNumber = itemNumber;
+    this.itemName = itemName;
+    this.itemDescription = itemDescription;
+    this.price = price;
+    this.brandName = brandName;
+    this.weight = weight;
+    this.length = length;
+    this.height = height;
+    this.colour = colour;
+    this.numberOfItemsInStock = numberOfItemsInStock;
+    this.itemCategory = itemCategory;
+    this.reorderThreshold = reorderThreshold;
+  }
+
+  /**
+   * Copy constructor for item. The texts are shared with the original, since a String can
+   * not be changed.
 
    * @param item Item.
    */
@@ -62,17 +118,18 @@ public class Item {
     checkIllegalArguments(item.itemNumber, item.itemName, item.itemDescription,
         item.price, item.brandName, item.weight, item.length, item.height,
         item.colour, item.numberOfItemsInStock);
-    this.itemNumber = new String(item.getItemNumber());
-    this.itemName = new String(item.getItemName());
-    this.itemDescription = new String(item.getItemDescription());
+    this.itemNumber = item.getItemNumber();
+    this.itemName = item.getItemName();
+    this.itemDescription = item.getItemDescription();
     this.price = item.getPrice();
-    this.brandName = new String(item.getBrandName());
+    this.brandName = item.getBrandName();
     this.weight = item.getWeight();
     this.length = item.getLength();
     this.height = item.getHeight();
-    this.colour = new String(item.getColour());
+    this.colour = item.getColour();
     this.numberOfItemsInStock = item.getNumberOfItemsInStock();
     this.itemCategory = item.getCategory();
+    this.reorderThreshold = item.getReorderThreshold();
   }
 
   /**
@@ -174,13 +231,22 @@ public class Item {
     return itemCategory;
   }
 
+  /**
+   * Get method for the reorder threshold of the item.
+
+   * @return Reorder threshold, or 0 if the item has no threshold of its own.
+   */
+  public int getReorderThreshold() {
+    return reorderThreshold;
+  }
+
   /**
    * Set method for updated price of item. Checks for
-   * illegal arguments.
+   * illegal arguments. Only used by the registers, which also update their indexes.
 
    * @param newPrice New price of item in kr.
    */
-  public void setPrice(int newPrice) {
+  void setPrice(int newPrice) {
     if (newPrice < 0) {
       throw new IllegalArgumentException("Price must be at least 0 kr.");
     } else {
@@ -190,11 +256,11 @@ public class Item {
 
   /**
    * Set method for updated item description. Checks for
-   * illegal arguments.
+   * illegal arguments. Only used by the registers, which also update their indexes.
 
    * @param newItemDescription New description of item.
    */
-  public void setItemDescription(String newItemDescription) {
+  void setItemDescription(String newItemDescription) {
     if (newItemDescription.isBlank()) {
       throw new IllegalArgumentException("Please enter an item description.");
     } else {
@@ -204,11 +270,11 @@ public class Item {
 
   /**
    * Set method for updated number of items in stock. Checks for
-   * illegal arguments.
+   * illegal arguments. Only used by the registers, which also update their indexes.
 
    * @param newNumberOfItemsInStock New number of items in stock.
    */
-  public void setNumberOfItemsInStock(int newNumberOfItemsInStock) {
+  void setNumberOfItemsInStock(int newNumberOfItemsInStock) {
     if (newNumberOfItemsInStock < 0) {
       throw new IllegalArgumentException("Stock must be greater than 0.");
     } else {
@@ -216,6 +282,65 @@ public class Item {
     }
   }
 
+  /**
+   * Set method for the reorder threshold of the item. Checks for illegal arguments. Only
+   * used by ItemRegister.setReorderThreshold(), which also updates the low stock watch.
+
+   * @param newReorderThreshold New reorder threshold, or 0 to remove the threshold.
+   */
+  void setReorderThreshold(int newReorderThreshold) {
+    if (newReorderThreshold < 0) {
+      throw new IllegalArgumentException("Reorder threshold must be at least 0.");
+    } else {
+      this.reorderThreshold = newReorderThreshold;
+    }
+  }
+
+  /**
+   * Method to reserve a number of items from stock. Checks for illegal arguments.
+   * Uses compare-and-set, so the number of items in stock can never become negative,
+   * even when several threads reserve the same item at the same time. Only used by the
+   * registers.
+
+   * @param quantity Number of items to reserve.
+   * @return True if the items were reserved, false if there are not enough items in stock.
+   */
+  boolean tryReserve(int quantity) {
+    if (quantity <= 0) {
+      throw new IllegalArgumentException("Number of reserved items must be greater than 0.");
+    }
+    int current;
+
+    do {
+      current = numberOfItemsInStock;
+      if (quantity > current) {
+        return false;
+      }
+    } while (!STOCK.compareAndSet(this, current, current - quantity));
+    return true;
+  }
+
+  /**
+   * Method to put a number of items back in stock, either items that were reserved
+   * or new items received. Checks for illegal arguments. Uses compare-and-set, the
+   * same way as tryReserve(quantity). Only used by the registers.
+
+   * @param quantity Number of items to put in stock.
+   */
+  void release(int quantity) {
+    if (quantity <= 0) {
+      throw new IllegalArgumentException("Number of released items must be greater than 0.");
+    }
+    int current;
+
+    do {
+      current = numberOfItemsInStock;
+      if (current > Integer.MAX_VALUE - quantity) {
+        throw new IllegalArgumentException("Number of items in stock is too large.");
+      }
+    } while (!STOCK.compareAndSet(this, current, current + quantity));
+  }
+
   /**
    * To string method for item, consisting of all the variables in item.
 
@@ -223,18 +348,14 @@ public class Item {
    */
   @Override
   public String toString() {
-    return "\nItem\n--------------------\n"
-        + "Item number: " + getItemNumber() + "\n"
-        + "Item name: " + getItemName() + "\n"
-        + "Item description: " + getItemDescription() + "\n"
-        + "Price: " + getPrice() + "\n"
-        + "Brand name: " + getBrandName() + "\n"
-        + "Weight: " + getWeight() + "\n"
-        + "Length: " + getLength() + "\n"
-        + "Height: " + getHeight() + "\n"
-        + "Colour: " + getColour() + "\n"
-        + "Number of items in stock: " + getNumberOfItemsInStock() + "\n"
-        + "Category: " + getCategory() + "\n";
+    StringBuilder item = new StringBuilder(256);
+
+    try {
+      appendTo(item);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return item.toString();
   }
 
   /**
@@ -243,13 +364,56 @@ public class Item {
    * @return String for item, including only the most relevant information about an item.
    */
   public String toStringShort() {
-    return "\nItem\n--------------------\n"
-        + "Item number: " + getItemNumber() + "\n"
-        + "Item name: " + getItemName() + "\n"
-        + "Price: " + getPrice() + "\n"
-        + "Brand name: " + getBrandName() + "\n"
-        + "Number of items in stock: " + getNumberOfItemsInStock() + "\n"
-        + "Category: " + getCategory() + "\n";
+    StringBuilder item = new StringBuilder(160);
+
+    try {
+      appendShortTo(item);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return item.toString();
+  }
+
+  /**
+   * Method to write all the variables in item to a writer, or any other Appendable, in the
+   * same format as toString(). The fields are written one by one, so no string holding the
+   * whole item is made.
+
+   * @param out Where the item is written.
+   * @throws IOException If the item can not be written.
+   */
+  public void appendTo(Appendable out) throws IOException {
+    out.append("\nItem\n--------------------\n")
+        .append("Item number: ").append(itemNumber).append('\n')
+        .append("Item name: ").append(itemName).append('\n')
+        .append("Item description: ").append(itemDescription).append('\n')
+        .append("Price: ").append(String.valueOf(price)).append('\n')
+        .append("Brand name: ").append(brandName).append('\n')
+        .append("Weight: ").append(String.valueOf(weight)).append('\n')
+        .append("Length: ").append(String.valueOf(length)).append('\n')
+        .append("Height: ").append(String.valueOf(height)).append('\n')
+        .append("Colour: ").append(colour).append('\n')
+        .append("Number of items in stock: ").append(String.valueOf(numberOfItemsInStock))
+        .append('\n')
+        .append("Category: ").append(String.valueOf(itemCategory)).append('\n');
+  }
+
+  /**
+   * Method to write the most relevant variables in item to a writer, or any other
+   * Appendable, in the same format as toStringShort().
+
+   * @param out Where the item is written.
+   * @throws IOException If the item can not be written.
+   */
+  public void appendShortTo(Appendable out) throws IOException {
+    out.append("\nItem\n--------------------\n")
+        .append("Item number: ").append(itemNumber).append('\n')
+        .append("Item name: ").append(itemName).append('\n')
+        .append("Price: ").append(String.valueOf(price)).append('\n')
+        .append("Brand name: ").append(brandName).append('\n')
+        .append("Number of items in stock: ").append(String.valueOf(numberOfItemsInStock))
+        .append('\n')
+        .append("Category: ").append(String.valueOf(itemCategory)).append('\n');
   }
 
   /**
@@ -0,0 +1,488 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Class used to generate large catalogs of made up items, for benchmarks and load tests.
+ * The items are generated from a seed, and every item only depends on the seed, the
+ * settings and its own index, so the same seed and settings always give the same items,
+ * whether they are generated one at a time or by several threads in parallel.
+ *
+ * <p>The settings control how many brands there are and how much more common the popular
+ * brands are, how many words the descriptions are made of and how much more common the
+ * common words are, the median and spread of the prices, how skewed the number in stock is,
+ * and how the items are spread over the categories. Brand and word popularity follow a
+ * Zipf distribution, prices a log-normal distribution, and most items have little in stock
+ * when the stock skew is above 1.
+ */
+public class ItemCatalogGenerator {
+
+  /**
+   * Defining the pieces brand names, item names and words are made of, and the colours.
+   */
+  private static final String[] SYLLABLES = {"ka", "lo", "mi", "ne", "ra", "so", "tu", "vi",
+      "ber", "dal", "fen", "gor", "hal", "lin", "mar", "nor", "sel", "tor", "ul", "ek"};
+  private static final String[] COLOURS = {"White", "Black", "Brown", "Grey", "Light brown",
+      "Silver", "Green", "Blue", "Red", "Oak"};
+  private static final String[] BRAND_ENDINGS = {"AS", "Bygg", "Design", "Trading"};
+  private static final String[] CATEGORY_NAMES = {"floor", "window", "door", "plank"};
+
+  /**
+   * Defining the variables for the settings.
+   */
+  private final long seed;
+  private int numberOfBrands;
+  private double brandSkew;
+  private int vocabularySize;
+  private int wordsPerDescription;
+  private double wordSkew;
+  private int medianPrice;
+  private double priceSpread;
+  private int maxNumberOfItemsInStock;
+  private double stockSkew;
+  private double[] categoryWeights;
+  private boolean shuffledItemNumbers;
+
+  /**
+   * Defining the variables made from the settings the first time an item is generated.
+   * Null until then, and again after a setting is changed.
+   */
+  private volatile String[] brands;
+  private double[] brandCumulative;
+  private String[] words;
+  private double[] wordCumulative;
+  private double[] categoryCumulative;
+
+  /**
+   * Constructor for catalog generator, with 200 brands, 2000 words of which 6 are used in
+   * every description, a median price of 500 kr, up to 1000 items in stock, and the same
+   * number of items in every category.
+
+   * @param seed Seed the items are generated from.
+   */
+  public ItemCatalogGenerator(long seed) {
+    this.seed = seed;
+    numberOfBrands = 200;
+    brandSkew = 1.0;
+    vocabularySize = 2000;
+    wordsPerDescription = 6;
+    wordSkew = 1.0;
+    medianPrice = 500;
+    priceSpread = 0.8;
+    maxNumberOfItemsInStock = 1000;
+    stockSkew = 2.0;
+    categoryWeights = new double[ItemCategory.values().length];
+    Arrays.fill(categoryWeights, 1);
+    shuffledItemNumbers = false;
+  }
+
+  /**
+   * Set method for the brands. Checks for illegal arguments.
+
+   * @param numberOfBrands Number of different brands.
+   * @param brandSkew Zipf exponent of the brand popularity, 0 if every brand is as common.
+   */
+  public void setBrands(int numberOfBrands, double brandSkew) {
+    if (numberOfBrands < 1 || brandSkew < 0) {
+      throw new IllegalArgumentException(
+          "There must be at least 1 brand, and the skew can not be negative.");
+    }
+    this.numberOfBrands = numberOfBrands;
+    this.brandSkew = brandSkew;
+    brands = null;
+  }
+
+  /**
+   * Set method for the words of the descriptions. Checks for illegal arguments.
+
+   * @param vocabularySize Number of different words.
+   * @param wordsPerDescription Number of words in every description.
+   * @param wordSkew Zipf exponent of the word popularity, 0 if every word is as common.
+   */
+  public void setVocabulary(int vocabularySize, int wordsPerDescription, double wordSkew) {
+    if (vocabularySize < 1 || wordsPerDescription < 1 || wordSkew < 0) {
+      throw new IllegalArgumentException("There must be at least 1 word, and at least 1 word "
+          + "in every description, and the skew can not be negative.");
+    }
+    this.vocabularySize = vocabularySize;
+    this.wordsPerDescription = wordsPerDescription;
+    this.wordSkew = wordSkew;
+    brands = null;
+  }
+
+  /**
+   * Set method for the prices. Checks for illegal arguments.
+
+   * @param medianPrice Median price, in kr.
+   * @param priceSpread Standard deviation of the logarithm of the price, 0 if every item
+   *                    has the median price.
+   */
+  public void setPrices(int medianPrice, double priceSpread) {
+    if (medianPrice < 1 || priceSpread < 0) {
+      throw new IllegalArgumentException(
+          "Median price must be at least 1 kr, and the spread can not be negative.");
+    }
+    this.medianPrice = medianPrice;
+    this.priceSpread = priceSpread;
+  }
+
+  /**
+   * Set method for the number of items in stock. Checks for illegal arguments.
+
+   * @param maxNumberOfItemsInStock Highest number of items in stock.
+   * @param stockSkew How skewed the numbers in stock are: 1 spreads them evenly, and
+   *                  higher values give more items with little in stock.
+   */
+  public void setStock(int maxNumberOfItemsInStock, double stockSkew) {
+    if (maxNumberOfItemsInStock < 0 || stockSkew <= 0) {
+      throw new IllegalArgumentException(
+          "Number in stock can not be negative, and the skew must be greater than 0.");
+    }
+    this.maxNumberOfItemsInStock = maxNumberOfItemsInStock;
+    this.stockSkew = stockSkew;
+  }
+
+  /**
+   * Set method for how the items are spread over the categories. Checks for illegal
+   * arguments.
+
+   * @param categoryWeights Weight of every category, in the order of
+   *                        ItemCategory.values(). Only the ratios matter.
+   */
+  public void setCategoryWeights(double... categoryWeights) {
+    if (categoryWeights.length != ItemCategory.values().length
+        || Arrays.stream(categoryWeights).anyMatch(weight -> weight < 0)
+        || Arrays.stream(categoryWeights).sum() <= 0) {
+      throw new IllegalArgumentException("There must be a weight of at least 0 for every "
+          + "category, and at least one weight must be greater than 0.");
+    }
+    this.categoryWeights = categoryWeights.clone();
+    brands = null;
+  }
+
+  /**
+   * Set method for how the item numbers look.
+
+   * @param shuffledItemNumbers True to give the items random looking item numbers, false
+   *                            to give them increasing item numbers.
+   */
+  public void setShuffledItemNumbers(boolean shuffledItemNumbers) {
+    this.shuffledItemNumbers = shuffledItemNumbers;
+  }
+
+  /**
+   * Method to generate one item. Takes logarithmic time in the number of brands and words.
+
+   * @param index Index of the item, which also decides its item number.
+   * @return The item.
+   */
+  public Item item(long index) {
+    return item(index, null);
+  }
+
+  /**
+   * Method to generate one item, made by a register so it shares its texts with the other
+   * items of the register.
+
+   * @param index Index of the item, which also decides its item number.
+   * @param itemRegister Register the item is made for, or null to make a plain item.
+   * @return The item.
+   */
+  private Item item(long index, ItemRegister itemRegister) {
+    if (index < 0) {
+      throw new IllegalArgumentException("Index can not be negative.");
+    }
+    prepare();
+    SplittableRandom random = new SplittableRandom(mix(seed ^ mix(index)));
+    ItemCategory itemCategory = ItemCategory.values()[pick(categoryCumulative, random)];
+    StringBuilder description = new StringBuilder();
+
+    for (int i = 0; i < wordsPerDescription; i++) {
+      if (i > 0) {
+        description.append(' ');
+      }
+      description.append(words[pick(wordCumulative, random)]);
+    }
+    double logPrice = Math.log(medianPrice) + priceSpread * random.nextGaussian();
+    int price = (int) Math.min(Integer.MAX_VALUE, Math.max(1, Math.round(Math.exp(logPrice))));
+    int numberOfItemsInStock = (int) (maxNumberOfItemsInStock
+        * Math.pow(random.nextDouble(), stockSkew));
+    String brandName = brands[pick(brandCumulative, random)];
+
+    String word = words[random.nextInt(words.length)];
+    String itemName = Character.toUpperCase(word.charAt(0)) + word.substring(1) + " "
+        + CATEGORY_NAMES[itemCategory.ordinal() % CATEGORY_NAMES.length];
+
+    double weight = Math.round(random.nextDouble(0.1, 50) * 10) / 10.0;
+    double length = Math.round(random.nextDouble(0.1, 5) * 10) / 10.0;
+    double height = Math.round(random.nextDouble(0.1, 3) * 10) / 10.0;
+    String colour = COLOURS[random.nextInt(COLOURS.length)];
+
+    return itemRegister == null
+        ? new Item(itemNumber(index), itemName, description.toString(), price, brandName,
+            weight, length, height, colour, numberOfItemsInStock, itemCategory)
+        : itemRegister.newItem(itemNumber(index), itemName, description.toString(), price,
+            brandName, weight, length, height, colour, numberOfItemsInStock, itemCategory);
+  }
+
+  /**
+   * Method to get a stream of items, from index 0. The stream can be made parallel, and
+   * the items are the same either way.
+
+   * @param numberOfItems Number of items.
+   * @return Ordered stream of the items.
+   */
+  public Stream<Item> items(long numberOfItems) {
+    return items(numberOfItems, null);
+  }
+
+  /**
+   * Method to get a stream of items made by a register, from index 0.
+
+   * @param numberOfItems Number of items.
+   * @param itemRegister Register the items are made for, or null to make plain items.
+   * @return Ordered stream of the items.
+   */
+  private Stream<Item> items(long numberOfItems, ItemRegister itemRegister) {
+    if (numberOfItems < 0) {
+      throw new IllegalArgumentException("Number of items can not be negative.");
+    }
+    prepare();
+    return LongStream.range(0, numberOfItems).mapToObj(index -> item(index, itemRegister));
+  }
+
+  /**
+   * Method to add items to a register. The items are generated in parallel, made by the
+   * register so they share their texts, and added in the order of their index by the
+   * calling thread.
+
+   * @param itemRegister Item register the items are added to.
+   * @param numberOfItems Number of items.
+   */
+  public void addItems(ItemRegister itemRegister, long numberOfItems) {
+    items(numberOfItems, itemRegister).parallel().forEachOrdered(itemRegister::addItem);
+  }
+
+  /**
+   * Method to write items to a CSV file that can be read by the ItemCsvImporter class.
+   * The lines are made in parallel, and written in the order of the index of the items.
+
+   * @param path Path to write the file to.
+   * @param numberOfItems Number of items.
+   * @throws IOException If the file can not be written.
+   */
+  public void writeCsv(Path path, long numberOfItems) throws IOException {
+    try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+      writer.write("itemNumber,name,description,price,brand,weight,length,height,colour,"
+          + "stock,category\n");
+      items(numberOfItems).parallel().map(ItemCatalogGenerator::csvLine)
+          .forEachOrdered(line -> {
+            try {
+              writer.write(line);
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Method to get a word of the vocabulary, used to search for the generated descriptions.
+
+   * @param rank Rank of the word, 0 for the most common word.
+   * @return The word.
+   */
+  String word(int rank) {
+    prepare();
+    return words[rank % words.length];
+  }
+
+  /**
+   * Method to make the brands, words and cumulative distributions from the settings,
+   * unless they are already made. The brands are written last, so a thread that sees them
+   * also sees the rest.
+   */
+  private void prepare() {
+    if (brands != null) {
+      return;
+    }
+    synchronized (this) {
+      if (brands != null) {
+        return;
+      }
+      SplittableRandom random = new SplittableRandom(seed);
+      words = names(random, vocabularySize, false);
+      wordCumulative = zipf(vocabularySize, wordSkew);
+      brandCumulative = zipf(numberOfBrands, brandSkew);
+      categoryCumulative = cumulative(categoryWeights);
+      brands = names(random, numberOfBrands, true);
+    }
+  }
+
+  /**
+   * Method to make different names from random syllables. The names have more syllables
+   * the more names there are, so there are always far more possible names than needed.
+
+   * @param random Source of the random values.
+   * @param numberOfNames Number of names.
+   * @param brands True to make brand names, starting with a capital letter and ending with
+   *               a word like "AS", false to make lower case words.
+   * @return The names.
+   */
+  private static String[] names(SplittableRandom random, int numberOfNames, boolean brands) {
+    int maxSyllables = 2;
+    for (long possible = SYLLABLES.length * SYLLABLES.length; possible < 8L * numberOfNames;
+        possible *= SYLLABLES.length) {
+      maxSyllables++;
+    }
+    String[] names = new String[numberOfNames];
+    HashSet<String> usedNames = new HashSet<>();
+
+    for (int i = 0; i < numberOfNames; i++) {
+      String name;
+      do {
+        name = name(random, 1 + random.nextInt(maxSyllables - 1));
+        if (brands) {
+          name = Character.toUpperCase(name.charAt(0)) + name.substring(1) + " "
+              + BRAND_ENDINGS[random.nextInt(BRAND_ENDINGS.length)];
+        }
+      } while (name.length() < DescriptionIndex.TRIGRAM_LENGTH || !usedNames.add(name));
+      names[i] = name;
+    }
+    return names;
+  }
+
+  /**
+   * Method to make a name from random syllables.
+
+   * @param random Source of the random values.
+   * @param extraSyllables Number of syllables after the first.
+   * @return The name.
+   */
+  private static String name(SplittableRandom random, int extraSyllables) {
+    StringBuilder name = new StringBuilder(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+
+    for (int i = 0; i < extraSyllables; i++) {
+      name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+    }
+    return name.toString();
+  }
+
+  /**
+   * Method to make the item number of an item.
+
+   * @param index Index of the item.
+   * @return The item number, unique for every index.
+   */
+  private String itemNumber(long index) {
+    if (shuffledItemNumbers) {
+      return "X" + Long.toUnsignedString(mix(index ^ seed), Character.MAX_RADIX)
+          .toUpperCase(Locale.ROOT);
+    }
+    String digits = Long.toString(index, Character.MAX_RADIX).toUpperCase(Locale.ROOT);
+    return "G" + "0".repeat(Math.max(0, 7 - digits.length())) + digits;
+  }
+
+  /**
+   * Method to make the cumulative distribution of a Zipf distribution.
+
+   * @param size Number of values.
+   * @param skew Zipf exponent.
+   * @return Cumulative probability of every value, the last being 1.
+   */
+  private static double[] zipf(int size, double skew) {
+    double[] weights = new double[size];
+
+    for (int i = 0; i < size; i++) {
+      weights[i] = 1 / Math.pow(i + 1, skew);
+    }
+    return cumulative(weights);
+  }
+
+  /**
+   * Method to make a cumulative distribution from weights.
+
+   * @param weights Weight of every value.
+   * @return Cumulative probability of every value, the last being 1.
+   */
+  private static double[] cumulative(double[] weights) {
+    double[] cumulative = new double[weights.length];
+    double sum = 0;
+
+    for (int i = 0; i < weights.length; i++) {
+      sum += weights[i];
+      cumulative[i] = sum;
+    }
+    for (int i = 0; i < weights.length; i++) {
+      cumulative[i] /= sum;
+    }
+    cumulative[weights.length - 1] = 1;
+    return cumulative;
+  }
+
+  /**
+   * Method to pick a random value from a cumulative distribution.
+
+   * @param cumulative Cumulative probability of every value.
+   * @param random Source of the random values.
+   * @return Index of the picked value.
+   */
+  private static int pick(double[] cumulative, SplittableRandom random) {
+    int index = Arrays.binarySearch(cumulative, random.nextDouble());
+    return Math.min(index < 0 ? -index - 1 : index, cumulative.length - 1);
+  }
+
+  /**
+   * Method to mix the bits of a number, so that close numbers give unrelated results.
+   * Every number gives a different result.
+
+   * @param value The number.
+   * @return The mixed number.
+   */
+  private static long mix(long value) {
+    long z = value + 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Method to write an item as a line of CSV.
+
+   * @param item The item.
+   * @return The line, ending with a line break.
+   */
+  private static String csvLine(Item item) {
+    return String.join(",", csvField(item.getItemNumber()), csvField(item.getItemName()),
+        csvField(item.getItemDescription()), Integer.toString(item.getPrice()),
+        csvField(item.getBrandName()), Double.toString(item.getWeight()),
+        Double.toString(item.getLength()), Double.toString(item.getHeight()),
+        csvField(item.getColour()), Integer.toString(item.getNumberOfItemsInStock()),
+        Integer.toString(item.getCategory().getCategoryNumber())) + "\n";
+  }
+
+  /**
+   * Method to write a text as a CSV field, in double quotes if it contains a comma or a
+   * double quote.
+
+   * @param text The text.
+   * @return The field.
+   */
+  private static String csvField(String text) {
+    if (text.indexOf(',') < 0 && text.indexOf('"') < 0) {
+      return text;
+    }
+    return "\"" + text.replace("\"", "\"\"") + "\"";
+  }
+}
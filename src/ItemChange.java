@@ -0,0 +1,174 @@
+/**
+ * Class representing one change made to an item register, as delivered by an
+ * ItemChangeFeed. Which of the values are set depends on the type of the change.
+ */
+public final class ItemChange {
+
+  /**
+   * Enum class, representing the types of changes.
+   */
+  public enum Type {
+    ADDED,
+    DELETED,
+    STOCK_CHANGED,
+    PRICE_CHANGED,
+    DESCRIPTION_CHANGED
+  }
+
+  /**
+   * Defining the variables. Item is only set for ADDED, stockChange for STOCK_CHANGED,
+   * price for PRICE_CHANGED and itemDescription for DESCRIPTION_CHANGED.
+   */
+  private final Type type;
+  private final String itemNumber;
+  private final Item item;
+  private final int stockChange;
+  private final int price;
+  private final String itemDescription;
+
+  /**
+   * Constructor for item change.
+
+   * @param type Type of the change.
+   * @param itemNumber Item number of the changed item.
+   * @param item The added item, or null.
+   * @param stockChange Change in the number of items in stock, or 0.
+   * @param price New price, or 0.
+   * @param itemDescription New description, or null.
+   */
+  private ItemChange(Type type, String itemNumber, Item item, int stockChange, int price,
+                     String itemDescription) {
+    this.type = type;
+    this.itemNumber = itemNumber;
+    this.item = item;
+    this.stockChange = stockChange;
+    this.price = price;
+    this.itemDescription = itemDescription;
+  }
+
+  /**
+   * Method to make the change for an added item. The item is copied, since the register
+   * changes its own item in place and the change is delivered later, on another thread.
+
+   * @param item The added item.
+   * @return The change.
+   */
+  static ItemChange added(Item item) {
+    return new ItemChange(Type.ADDED, item.getItemNumber(), new Item(item), 0, 0, null);
+  }
+
+  /**
+   * Method to make the change for a deleted item.
+
+   * @param itemNumber Item number of the deleted item.
+   * @return The change.
+   */
+  static ItemChange deleted(String itemNumber) {
+    return new ItemChange(Type.DELETED, itemNumber, null, 0, 0, null);
+  }
+
+  /**
+   * Method to make the change for a change in the number of items in stock.
+
+   * @param itemNumber Item number of the changed item.
+   * @param stockChange Number of items added to stock, negative if items were removed.
+   * @return The change.
+   */
+  static ItemChange stockChanged(String itemNumber, int stockChange) {
+    return new ItemChange(Type.STOCK_CHANGED, itemNumber, null, stockChange, 0, null);
+  }
+
+  /**
+   * Method to make the change for a new price, also when the price is discounted.
+
+   * @param itemNumber Item number of the changed item.
+   * @param price The new price.
+   * @return The change.
+   */
+  static ItemChange priceChanged(String itemNumber, int price) {
+    return new ItemChange(Type.PRICE_CHANGED, itemNumber, null, 0, price, null);
+  }
+
+  /**
+   * Method to make the change for a new description.
+
+   * @param itemNumber Item number of the changed item.
+   * @param itemDescription The new description.
+   * @return The change.
+   */
+  static ItemChange descriptionChanged(String itemNumber, String itemDescription) {
+    return new ItemChange(Type.DESCRIPTION_CHANGED, itemNumber, null, 0, 0, itemDescription);
+  }
+
+  /**
+   * Get method for the type of the change.
+
+   * @return Type.
+   */
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * Get method for the item number of the changed item.
+
+   * @return Item number.
+   */
+  public String getItemNumber() {
+    return itemNumber;
+  }
+
+  /**
+   * Get method for the added item. The item is a copy made when the item was added, so it
+   * does not show the changes made to the item afterwards, which are delivered as later
+   * changes.
+
+   * @return The added item, or null if the type is not ADDED.
+   */
+  public Item getItem() {
+    return item;
+  }
+
+  /**
+   * Get method for the change in the number of items in stock.
+
+   * @return Number of items added to stock, negative if items were removed, or 0 if the
+   *         type is not STOCK_CHANGED.
+   */
+  public int getStockChange() {
+    return stockChange;
+  }
+
+  /**
+   * Get method for the new price.
+
+   * @return The new price, or 0 if the type is not PRICE_CHANGED.
+   */
+  public int getPrice() {
+    return price;
+  }
+
+  /**
+   * Get method for the new description.
+
+   * @return The new description, or null if the type is not DESCRIPTION_CHANGED.
+   */
+  public String getItemDescription() {
+    return itemDescription;
+  }
+
+  /**
+   * Method to describe the change.
+
+   * @return The type of the change, the item number and the new value.
+   */
+  @Override
+  public String toString() {
+    return switch (type) {
+      case ADDED, DELETED -> type + " " + itemNumber;
+      case STOCK_CHANGED -> type + " " + itemNumber + " " + stockChange;
+      case PRICE_CHANGED -> type + " " + itemNumber + " " + price;
+      case DESCRIPTION_CHANGED -> type + " " + itemNumber + " " + itemDescription;
+    };
+  }
+}
@@ -0,0 +1,266 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Class representing a feed of the changes made to an item register, delivered to
+ * subscribers on their own threads, so reporting, replicas and alerts can follow the
+ * register without slowing it down.
+ *
+ * <p>The changes are kept in a ring buffer of fixed size. Publishing a change writes it into
+ * the next slot and moves the cursor forward, without taking a lock. Every subscriber has a
+ * thread that reads the changes after its own position, up to the cursor, and delivers them
+ * in batches. A slot is only reused when every subscriber has handled the change in it, so
+ * if a subscriber falls a whole buffer behind, publishing waits for it. This is the
+ * backpressure that keeps the buffer bounded. Changes must be published by one thread at a
+ * time, which is the case for the changes of one register.
+ */
+public class ItemChangeFeed implements AutoCloseable {
+
+  /**
+   * Defining how long an idle thread spins before it parks, and for how long it parks.
+   */
+  private static final int SPINS = 100;
+  private static final long PARK_NANOS = 50_000;
+
+  /**
+   * Defining the variables. Cursor is the sequence number of the last published change.
+   * NextSequence and gate are only used by the publishing thread: gate is the lowest
+   * sequence number every subscriber had handled when it was last checked.
+   */
+  private final ItemChange[] ring;
+  private final int mask;
+  private final AtomicLong cursor;
+  private final CopyOnWriteArrayList<Subscription> subscriptions;
+  private long nextSequence;
+  private long gate;
+  private volatile boolean closed;
+  private int numberOfSubscriptions;
+
+  /**
+   * Constructor for item change feed. Checks for illegal arguments.
+   * The capacity is rounded up to the nearest power of two.
+
+   * @param capacity Number of changes the buffer holds.
+   */
+  public ItemChangeFeed(int capacity) {
+    if (capacity < 1 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("Capacity must be between 1 and " + (1 << 30) + ".");
+    }
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size <<= 1;
+    }
+    ring = new ItemChange[size];
+    mask = size - 1;
+    cursor = new AtomicLong(-1);
+    subscriptions = new CopyOnWriteArrayList<>();
+    nextSequence = 0;
+    gate = -1;
+  }
+
+  /**
+   * Method to start delivering the changes published from now on to a subscriber, on a new
+   * thread. Checks for illegal arguments.
+
+   * @param subscriber The subscriber.
+   * @param maxBatchSize Highest number of changes delivered at once.
+   * @return The subscription, used to stop the deliveries.
+   */
+  public synchronized Subscription subscribe(ItemChangeSubscriber subscriber,
+                                             int maxBatchSize) {
+    if (subscriber == null) {
+      throw new IllegalArgumentException("Subscriber can not be empty.");
+    }
+    if (maxBatchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be at least 1.");
+    }
+    if (closed) {
+      throw new IllegalStateException("The change feed is closed.");
+    }
+    Subscription subscription = new Subscription(subscriber, maxBatchSize, cursor.get(),
+        ++numberOfSubscriptions);
+    subscriptions.add(subscription);
+    subscription.thread.start();
+    return subscription;
+  }
+
+  /**
+   * Method to publish a change. Waits only if a subscriber is a whole buffer behind.
+   * Changes published after the feed is closed are not delivered.
+
+   * @param change The change.
+   */
+  void publish(ItemChange change) {
+    if (closed) {
+      return;
+    }
+    long sequence = nextSequence++;
+    long wrapPoint = sequence - ring.length;
+
+    if (wrapPoint > gate) {
+      gate = waitForSubscribers(wrapPoint);
+    }
+    ring[(int) sequence & mask] = change;
+    cursor.lazySet(sequence);
+  }
+
+  /**
+   * Method to wait until every subscriber has handled the change in a slot, so the slot
+   * can be reused.
+
+   * @param wrapPoint Sequence number of the change that must be handled.
+   * @return The lowest sequence number every subscriber has handled.
+   */
+  private long waitForSubscribers(long wrapPoint) {
+    int spins = 0;
+
+    while (true) {
+      long lowest = cursor.get();
+      for (Subscription subscription : subscriptions) {
+        lowest = Math.min(lowest, subscription.sequence.get());
+      }
+      if (lowest >= wrapPoint) {
+        return lowest;
+      }
+      if (spins++ < SPINS) {
+        Thread.onSpinWait();
+      } else {
+        LockSupport.parkNanos(PARK_NANOS);
+      }
+    }
+  }
+
+  /**
+   * Method to close the feed. No more changes can be published, and the method waits
+   * until every subscriber has been given the changes published so far.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      closed = true;
+    }
+    for (Subscription subscription : subscriptions) {
+      LockSupport.unpark(subscription.thread);
+      subscription.join();
+    }
+  }
+
+  /**
+   * Class representing the deliveries of the changes to one subscriber.
+   */
+  public final class Subscription implements AutoCloseable {
+
+    /**
+     * Defining the variables. Sequence is the sequence number of the last handled change,
+     * and failure is the exception that stopped the deliveries, if any.
+     */
+    private final ItemChangeSubscriber subscriber;
+    private final int maxBatchSize;
+    private final AtomicLong sequence;
+    private final Thread thread;
+    private volatile boolean cancelled;
+    private volatile RuntimeException failure;
+
+    /**
+     * Constructor for subscription.
+
+     * @param subscriber The subscriber.
+     * @param maxBatchSize Highest number of changes delivered at once.
+     * @param sequence Sequence number of the last change before the subscription.
+     * @param number Number of the subscription, used to name the thread.
+     */
+    private Subscription(ItemChangeSubscriber subscriber, int maxBatchSize, long sequence,
+                         int number) {
+      this.subscriber = subscriber;
+      this.maxBatchSize = maxBatchSize;
+      this.sequence = new AtomicLong(sequence);
+      thread = new Thread(this::deliver, "item-change-subscriber-" + number);
+      thread.setDaemon(true);
+    }
+
+    /**
+     * Method run by the thread of the subscription, delivering the changes until the
+     * subscription is closed, the feed is closed and every change is delivered, or the
+     * subscriber throws an exception.
+     */
+    private void deliver() {
+      int idle = 0;
+
+      try {
+        while (!cancelled) {
+          boolean feedClosed = closed;
+          long next = sequence.get() + 1;
+          long available = cursor.get();
+
+          if (available >= next) {
+            long last = Math.min(available, next + maxBatchSize - 1);
+            ArrayList<ItemChange> batch = new ArrayList<>((int) (last - next + 1));
+            for (long s = next; s <= last; s++) {
+              batch.add(ring[(int) s & mask]);
+            }
+            subscriber.onChanges(Collections.unmodifiableList(batch));
+            sequence.lazySet(last);
+            idle = 0;
+          } else if (feedClosed) {
+            return;
+          } else if (idle++ < SPINS) {
+            Thread.onSpinWait();
+          } else {
+            LockSupport.parkNanos(PARK_NANOS);
+          }
+        }
+      } catch (RuntimeException e) {
+        failure = e;
+      } finally {
+        sequence.set(Long.MAX_VALUE);
+        subscriptions.remove(this);
+      }
+    }
+
+    /**
+     * Method to find how many published changes the subscriber has not been given yet.
+
+     * @return Number of changes waiting, or 0 if the subscription has stopped.
+     */
+    public long getPendingChanges() {
+      return Math.max(0, cursor.get() - sequence.get());
+    }
+
+    /**
+     * Get method for the exception thrown by the subscriber, which stopped the deliveries.
+
+     * @return The exception, or null if the subscriber has not thrown one.
+     */
+    public RuntimeException getFailure() {
+      return failure;
+    }
+
+    /**
+     * Method to stop the deliveries, without waiting for the changes not delivered yet.
+     * Waits until the subscriber is not being given any more changes.
+     */
+    @Override
+    public void close() {
+      cancelled = true;
+      LockSupport.unpark(thread);
+      join();
+    }
+
+    /**
+     * Method to wait for the thread of the subscription to stop, unless it is the
+     * current thread.
+     */
+    private void join() {
+      if (Thread.currentThread() != thread) {
+        try {
+          thread.join();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,93 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Class for testing the item change feed.
+ */
+public class ItemChangeFeedTest {
+
+  /**
+   * Test to check that every type of change is delivered to every subscriber, in order,
+   * in batches no larger than asked for.
+   */
+  @Test
+  public void testChangesAreDelivered() {
+    ItemRegister itemRegister = new ItemRegister();
+    List<ItemChange> changes = Collections.synchronizedList(new ArrayList<>());
+    List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+    try (ItemChangeFeed changeFeed = new ItemChangeFeed(64)) {
+      changeFeed.subscribe(changes::addAll, 64);
+      changeFeed.subscribe(batch -> batchSizes.add(batch.size()), 3);
+      itemRegister.setChangeFeed(changeFeed);
+
+      ItemRegisterTestData.addTestData(itemRegister);
+      itemRegister.increaseNumberOfItemInStock("9898abc", 10);
+      itemRegister.tryReserve("12BK5", 10);
+      itemRegister.discountPrice("9898ABC", 12.5);
+      itemRegister.changeDescription("FIAT7865", "Flat");
+      itemRegister.deleteItem("BE394ER");
+    }
+
+    assertEquals(changes.size(), 10);
+    Item added = changes.get(0).getItem();
+    assertNotSame(added, itemRegister.itemByNumber("12BK5"));
+    assertEquals(added.getItemNumber(), "12BK5");
+    assertEquals(added.getNumberOfItemsInStock(), 100);
+    assertEquals(added.getPrice(), 1500);
+    assertEquals(itemRegister.itemByNumber("12BK5").getNumberOfItemsInStock(), 90);
+    assertEquals(changes.get(1).getItem().getPrice(), 2000);
+    assertEquals(changes.get(2).getItem().getPrice(), 400);
+    assertEquals(changes.get(5).toString(), "STOCK_CHANGED 9898ABC 10");
+    assertEquals(changes.get(6).getStockChange(), -10);
+    assertEquals(changes.get(7).getPrice(), 350);
+    assertEquals(changes.get(8).getItemDescription(), "Flat");
+    assertEquals(changes.get(9).getType(), ItemChange.Type.DELETED);
+    assertEquals(batchSizes.stream().mapToInt(Integer::intValue).sum(), 10);
+    assertTrue(batchSizes.stream().allMatch(size -> size <= 3));
+  }
+
+  /**
+   * Test to check that a slow subscriber holds back publishing instead of losing changes
+   * when the buffer is full, and that a failing subscriber does not hold it back.
+   */
+  @Test
+  public void testBackpressure() {
+    ItemRegister itemRegister = new ItemRegister();
+    ItemRegisterTestData.addTestData(itemRegister);
+    List<ItemChange> changes = new ArrayList<>();
+    ItemChangeFeed.Subscription failing;
+
+    try (ItemChangeFeed changeFeed = new ItemChangeFeed(4)) {
+      changeFeed.subscribe(batch -> {
+        try {
+          Thread.sleep(1);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        changes.addAll(batch);
+      }, 1);
+      failing = changeFeed.subscribe(batch -> {
+        throw new IllegalStateException("Subscriber failed.");
+      }, 1);
+      itemRegister.setChangeFeed(changeFeed);
+
+      for (int i = 1; i <= 50; i++) {
+        itemRegister.changePrice("12BK5", i);
+      }
+    }
+
+    assertEquals(changes.size(), 50);
+    assertEquals(changes.get(49).getPrice(), 50);
+    assertEquals(failing.getFailure().getMessage(), "Subscriber failed.");
+
+    itemRegister.changePrice("12BK5", 1);
+    assertEquals(changes.size(), 50);
+  }
+}
@@ -0,0 +1,16 @@
+import java.util.List;
+
+/**
+ * Interface for receiving the changes published to an ItemChangeFeed.
+ */
+@FunctionalInterface
+public interface ItemChangeSubscriber {
+
+  /**
+   * Method called with the next changes, in the order they were made. Called on the thread
+   * of the subscription, never by two threads at the same time.
+
+   * @param changes Read-only list of one or more changes.
+   */
+  void onChanges(List<ItemChange> changes);
+}
@@ -0,0 +1,268 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Class holding the numeric fields of the items in an item table in columns, one primitive
+ * array per field, indexed by the slot of the item. Used by the ItemTable class so that
+ * range searches over many items read a few arrays from start to end, instead of visiting
+ * every item object.
+ *
+ * <p>The columns are split into chunks of 1024 slots. Like the rest of the item table, a
+ * chunk belongs to the table that created it, and a table that changes a chunk it does not
+ * own changes a copy of it instead, so a copy of the table keeps its own values. An empty
+ * slot has category -1 and 0 in every other column.
+ *
+ * <p>The brand name and colour are kept as their codes in the string dictionaries of the
+ * table, or -1 if the dictionary was full, so finding the items of a brand or colour
+ * compares numbers instead of texts.
+ */
+class ItemColumns {
+
+  /**
+   * Defining the size of a chunk.
+   */
+  private static final int CHUNK_BITS = 10;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  /**
+   * Defining the variables. ChunksEdit is the owner of the array of chunks.
+   */
+  private Chunk[] chunks;
+  private Object chunksEdit;
+
+  /**
+   * Constructor for empty columns.
+   */
+  ItemColumns() {
+    chunks = new Chunk[0];
+  }
+
+  /**
+   * Copy constructor for columns. Shares all the chunks with the original.
+
+   * @param itemColumns Columns to copy.
+   */
+  ItemColumns(ItemColumns itemColumns) {
+    chunks = itemColumns.chunks;
+  }
+
+  /**
+   * Method to write the numeric fields of an item into a slot.
+
+   * @param slot The slot of the item.
+   * @param item The item.
+   * @param brandCode Code of the brand name of the item.
+   * @param colourCode Code of the colour of the item.
+   * @param edit Owner of the table changing the slot.
+   */
+  void set(int slot, Item item, int brandCode, int colourCode, Object edit) {
+    Chunk chunk = editableChunk(slot, edit);
+    int index = slot & CHUNK_MASK;
+
+    chunk.category[index] = (byte) item.getCategory().ordinal();
+    chunk.price[index] = item.getPrice();
+    chunk.numberOfItemsInStock[index] = item.getNumberOfItemsInStock();
+    chunk.brand[index] = brandCode;
+    chunk.colour[index] = colourCode;
+  }
+
+  /**
+   * Method to write the price and number in stock of an item into its slot, after they are
+   * changed.
+
+   * @param slot The slot of the item.
+   * @param item The item.
+   * @param edit Owner of the table changing the slot.
+   */
+  void update(int slot, Item item, Object edit) {
+    Chunk chunk = editableChunk(slot, edit);
+    int index = slot & CHUNK_MASK;
+
+    chunk.price[index] = item.getPrice();
+    chunk.numberOfItemsInStock[index] = item.getNumberOfItemsInStock();
+  }
+
+  /**
+   * Method to get the price in a slot.
+
+   * @param slot The slot.
+   * @return The price of the item in the slot, as last written.
+   */
+  int price(int slot) {
+    return chunks[slot >>> CHUNK_BITS].price[slot & CHUNK_MASK];
+  }
+
+  /**
+   * Method to get the number in stock in a slot.
+
+   * @param slot The slot.
+   * @return The number in stock of the item in the slot, as last written.
+   */
+  int numberOfItemsInStock(int slot) {
+    return chunks[slot >>> CHUNK_BITS].numberOfItemsInStock[slot & CHUNK_MASK];
+  }
+
+  /**
+   * Method to empty a slot when its item is deleted.
+
+   * @param slot The slot.
+   * @param edit Owner of the table changing the slot.
+   */
+  void clear(int slot, Object edit) {
+    Chunk chunk = editableChunk(slot, edit);
+    int index = slot & CHUNK_MASK;
+
+    chunk.category[index] = -1;
+    chunk.price[index] = 0;
+    chunk.numberOfItemsInStock[index] = 0;
+    chunk.brand[index] = 0;
+    chunk.colour[index] = 0;
+  }
+
+  /**
+   * Method to find the chunk holding a slot, creating it or copying it if the table does
+   * not own it.
+
+   * @param slot The slot.
+   * @param edit Owner of the table changing the slot.
+   * @return A chunk the table may change.
+   */
+  private Chunk editableChunk(int slot, Object edit) {
+    int chunkIndex = slot >>> CHUNK_BITS;
+
+    if (chunksEdit != edit || chunkIndex >= chunks.length) {
+      chunks = Arrays.copyOf(chunks, Math.max(chunks.length, chunkIndex + 1));
+      chunksEdit = edit;
+    }
+    Chunk chunk = chunks[chunkIndex];
+    if (chunk == null || chunk.edit != edit) {
+      chunk = chunk == null ? new Chunk(edit) : new Chunk(chunk, edit);
+      chunks[chunkIndex] = chunk;
+    }
+    return chunk;
+  }
+
+  /**
+   * Method to find the slots whose number in stock is within a range.
+
+   * @param min Lowest number in stock, inclusive.
+   * @param max Highest number in stock, inclusive.
+   * @param itemCategory Category the items must be in, or null for every category.
+   * @param slots Receives every matching slot, in order.
+   */
+  void slotsByNumberInStock(int min, int max, ItemCategory itemCategory, IntConsumer slots) {
+    for (int c = 0; c < chunks.length; c++) {
+      if (chunks[c] != null) {
+        inRange(chunks[c].numberOfItemsInStock, chunks[c].category, min, max, itemCategory,
+            c << CHUNK_BITS, slots);
+      }
+    }
+  }
+
+  /**
+   * Method to find the slots whose brand name has one of some codes.
+
+   * @param codes The codes.
+   * @param slots Receives every matching slot, in order.
+   */
+  void slotsByBrand(int[] codes, IntConsumer slots) {
+    for (int c = 0; c < chunks.length; c++) {
+      if (chunks[c] != null) {
+        withCode(chunks[c].brand, chunks[c].category, codes, c << CHUNK_BITS, slots);
+      }
+    }
+  }
+
+  /**
+   * Method to find the slots whose colour has one of some codes.
+
+   * @param codes The codes.
+   * @param slots Receives every matching slot, in order.
+   */
+  void slotsByColour(int[] codes, IntConsumer slots) {
+    for (int c = 0; c < chunks.length; c++) {
+      if (chunks[c] != null) {
+        withCode(chunks[c].colour, chunks[c].category, codes, c << CHUNK_BITS, slots);
+      }
+    }
+  }
+
+  /**
+   * Method to find the slots in one chunk where a column has one of some codes.
+
+   * @param column The column to check.
+   * @param category The category column of the same chunk.
+   * @param codes The codes.
+   * @param firstSlot Slot of the first value in the chunk.
+   * @param slots Receives every matching slot, in order.
+   */
+  private static void withCode(int[] column, byte[] category, int[] codes, int firstSlot,
+                               IntConsumer slots) {
+    for (int i = 0; i < CHUNK_SIZE; i++) {
+      int value = column[i];
+      for (int code : codes) {
+        if (value == code && category[i] >= 0) {
+          slots.accept(firstSlot + i);
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Method to find the slots in one chunk where a column is within a range.
+
+   * @param column The column to check.
+   * @param category The category column of the same chunk.
+   * @param min Lowest value, inclusive.
+   * @param max Highest value, inclusive.
+   * @param itemCategory Category the items must be in, or null for every category.
+   * @param firstSlot Slot of the first value in the chunk.
+   * @param slots Receives every matching slot, in order.
+   */
+  private static void inRange(int[] column, byte[] category, int min, int max,
+                              ItemCategory itemCategory, int firstSlot, IntConsumer slots) {
+    int wantedCategory = itemCategory == null ? -1 : itemCategory.ordinal();
+
+    for (int i = 0; i < CHUNK_SIZE; i++) {
+      int value = column[i];
+      if (value >= min && value <= max && category[i] >= 0
+          && (wantedCategory < 0 || category[i] == wantedCategory)) {
+        slots.accept(firstSlot + i);
+      }
+    }
+  }
+
+  /**
+   * Class holding the columns of 1024 slots, and the table that owns them.
+   */
+  private static final class Chunk {
+
+    private final Object edit;
+    private final byte[] category;
+    private final int[] price;
+    private final int[] numberOfItemsInStock;
+    private final int[] brand;
+    private final int[] colour;
+
+    private Chunk(Object edit) {
+      this.edit = edit;
+      category = new byte[CHUNK_SIZE];
+      Arrays.fill(category, (byte) -1);
+      price = new int[CHUNK_SIZE];
+      numberOfItemsInStock = new int[CHUNK_SIZE];
+      brand = new int[CHUNK_SIZE];
+      colour = new int[CHUNK_SIZE];
+    }
+
+    private Chunk(Chunk chunk, Object edit) {
+      this.edit = edit;
+      category = chunk.category.clone();
+      price = chunk.price.clone();
+      numberOfItemsInStock = chunk.numberOfItemsInStock.clone();
+      brand = chunk.brand.clone();
+      colour = chunk.colour.clone();
+    }
+  }
+}
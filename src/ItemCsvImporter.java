@@ -0,0 +1,340 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.IntStream;
+
+/**
+ * Class used to import items from a CSV file into an item register. Every line holds the
+ * fields of one item, in this order: item number, item name, item description, price,
+ * brand name, weight, length, height, colour, number of items in stock and category number.
+ * Fields containing commas can be put in double quotes, and a double quote inside a quoted
+ * field is written as two double quotes. The file is read in chunks of lines, so the whole
+ * file is never held in memory. The lines of a chunk are parsed in parallel while the items
+ * of the previous chunk are added to the register.
+ */
+public class ItemCsvImporter {
+
+  /**
+   * Number of lines read and parsed at a time, unless another size is given.
+   */
+  public static final int DEFAULT_CHUNK_SIZE = 10000;
+
+  /**
+   * Number of fields in every line.
+   */
+  private static final int NUMBER_OF_FIELDS = 11;
+
+  /**
+   * Defining the variables. Errors holds a message for every line that could not be
+   * imported, starting with the line number.
+   */
+  private final ItemRegister itemRegister;
+  private final int chunkSize;
+  private final ArrayList<String> errors;
+  private int numberOfImportedItems;
+
+  /**
+   * Constructor for CSV importer, reading DEFAULT_CHUNK_SIZE lines at a time.
+
+   * @param itemRegister Item register the items are added to.
+   */
+  public ItemCsvImporter(ItemRegister itemRegister) {
+    this(itemRegister, DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Constructor for CSV importer. Checks for illegal arguments.
+
+   * @param itemRegister Item register the items are added to.
+   * @param chunkSize Number of lines read and parsed at a time.
+   */
+  public ItemCsvImporter(ItemRegister itemRegister, int chunkSize) {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("Chunk size must be at least 1.");
+    }
+    this.itemRegister = itemRegister;
+    this.chunkSize = chunkSize;
+    this.errors = new ArrayList<>();
+    this.numberOfImportedItems = 0;
+  }
+
+  /**
+   * Get method for the errors from the imports done so far.
+
+   * @return Error message for every line that could not be imported, starting with
+   *         the line number.
+   */
+  public ArrayList<String> getErrors() {
+    return errors;
+  }
+
+  /**
+   * Get method for the number of items imported so far.
+
+   * @return Number of imported items.
+   */
+  public int getNumberOfImportedItems() {
+    return numberOfImportedItems;
+  }
+
+  /**
+   * Method to import the items in a CSV file, encoded as UTF-8.
+
+   * @param path Path to the CSV file.
+   * @return Number of items imported from the file.
+   * @throws IOException If the file can not be read.
+   */
+  public int importItems(Path path) throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      return importItems(reader);
+    }
+  }
+
+  /**
+   * Method to import the items read from a reader. Lines that can not be imported are
+   * added to the errors, and the import continues with the next line. A first line
+   * starting with "itemNumber" or "item number" is treated as a header and skipped.
+   * Blank lines are skipped.
+
+   * @param reader Reader the CSV lines are read from.
+   * @return Number of items imported from the reader.
+   * @throws IOException If the reader can not be read.
+   */
+  public int importItems(Reader reader) throws IOException {
+    BufferedReader lines = reader instanceof BufferedReader
+        ? (BufferedReader) reader : new BufferedReader(reader);
+    int importedBefore = numberOfImportedItems;
+    int firstLineNumber = 1;
+    List<String> chunk = readChunk(lines);
+
+    if (!chunk.isEmpty() && isHeader(chunk.get(0))) {
+      chunk.set(0, "");
+    }
+    CompletableFuture<ParsedLine[]> parsedChunk = parseLater(chunk, firstLineNumber);
+
+    while (!chunk.isEmpty()) {
+      firstLineNumber += chunk.size();
+      chunk = readChunk(lines);
+      CompletableFuture<ParsedLine[]> nextParsedChunk = parseLater(chunk, firstLineNumber);
+      addItems(join(parsedChunk));
+      parsedChunk = nextParsedChunk;
+    }
+    return numberOfImportedItems - importedBefore;
+  }
+
+  /**
+   * Method to read the next chunk of lines.
+
+   * @param lines Reader the lines are read from.
+   * @return Up to chunkSize lines. Empty if there are no more lines.
+   * @throws IOException If the reader can not be read.
+   */
+  private List<String> readChunk(BufferedReader lines) throws IOException {
+    ArrayList<String> chunk = new ArrayList<>(chunkSize);
+    String line;
+
+    while (chunk.size() < chunkSize && (line = lines.readLine()) != null) {
+      chunk.add(line);
+    }
+    return chunk;
+  }
+
+  /**
+   * Method to start parsing the lines of a chunk in parallel.
+
+   * @param chunk Lines to parse.
+   * @param firstLineNumber Line number of the first line in the chunk.
+   * @return The parsed lines, when parsing is done.
+   */
+  private CompletableFuture<ParsedLine[]> parseLater(List<String> chunk, int firstLineNumber) {
+    return CompletableFuture.supplyAsync(() -> IntStream.range(0, chunk.size())
+        .parallel()
+        .mapToObj(i -> ParsedLine.parse(chunk.get(i), firstLineNumber + i, itemRegister))
+        .toArray(ParsedLine[]::new));
+  }
+
+  /**
+   * Method to wait for a chunk to be parsed.
+
+   * @param parsedChunk The chunk being parsed.
+   * @return The parsed lines.
+   */
+  private static ParsedLine[] join(CompletableFuture<ParsedLine[]> parsedChunk) {
+    try {
+      return parsedChunk.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Method to add the items of a parsed chunk to the register, in the order of the lines.
+   * Lines that could not be parsed, or items that can not be added, are added to the errors.
+
+   * @param parsedLines The parsed lines of a chunk.
+   */
+  private void addItems(ParsedLine[] parsedLines) {
+    for (ParsedLine parsedLine : parsedLines) {
+      if (parsedLine.error != null) {
+        errors.add("Line " + parsedLine.lineNumber + ": " + parsedLine.error);
+      } else if (parsedLine.item != null) {
+        try {
+          itemRegister.addItem(parsedLine.item);
+          numberOfImportedItems++;
+        } catch (IllegalArgumentException e) {
+          errors.add("Line " + parsedLine.lineNumber + ": " + e.getMessage().strip());
+        }
+      }
+    }
+  }
+
+  /**
+   * Method to check if a line is the header of the file.
+
+   * @param line First line of the file.
+   * @return True if the line starts with "itemNumber" or "item number".
+   */
+  private static boolean isHeader(String line) {
+    String firstField = line.split(",", 2)[0].strip().replace("\"", "");
+    return firstField.equalsIgnoreCase("itemNumber") || firstField.equalsIgnoreCase("item number");
+  }
+
+  /**
+   * Method to create an item from one line of the file. Checks for illegal arguments.
+   * The item is made by the register, so it shares its texts with the other items.
+
+   * @param line Line to create an item from.
+   * @param itemRegister Register the item is made for.
+   * @return Item with the fields in the line.
+   */
+  static Item parseItem(String line, ItemRegister itemRegister) {
+    List<String> fields = splitLine(line);
+
+    if (fields.size() != NUMBER_OF_FIELDS) {
+      throw new IllegalArgumentException("Expected " + NUMBER_OF_FIELDS
+          + " fields, but found " + fields.size() + ".");
+    }
+    return itemRegister.newItem(fields.get(0), fields.get(1), fields.get(2),
+        parseInt(fields.get(3), "Price"), fields.get(4),
+        parseDouble(fields.get(5), "Weight"), parseDouble(fields.get(6), "Length"),
+        parseDouble(fields.get(7), "Height"), fields.get(8),
+        parseInt(fields.get(9), "Number of items in stock"),
+        ItemCategory.getCategoryFromNumber(parseInt(fields.get(10), "Category number")));
+  }
+
+  /**
+   * Method to read a whole number from a field. Checks for illegal arguments.
+
+   * @param field Field to read.
+   * @param name Name of the field, used in the error message.
+   * @return The number in the field.
+   */
+  private static int parseInt(String field, String name) {
+    try {
+      return Integer.parseInt(field.strip());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(name + " must be a whole number, but was '"
+          + field + "'.");
+    }
+  }
+
+  /**
+   * Method to read a number from a field. Checks for illegal arguments.
+
+   * @param field Field to read.
+   * @param name Name of the field, used in the error message.
+   * @return The number in the field.
+   */
+  private static double parseDouble(String field, String name) {
+    try {
+      return Double.parseDouble(field.strip());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(name + " must be a number, but was '" + field + "'.");
+    }
+  }
+
+  /**
+   * Method to split a line into fields. Fields are separated by commas, and can be put
+   * in double quotes to contain commas. Checks for illegal arguments.
+
+   * @param line Line to split.
+   * @return Fields in the line.
+   */
+  static List<String> splitLine(String line) {
+    ArrayList<String> fields = new ArrayList<>(NUMBER_OF_FIELDS);
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (quoted) {
+        if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        } else if (c == '"') {
+          quoted = false;
+        } else {
+          field.append(c);
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+    if (quoted) {
+      throw new IllegalArgumentException("A quoted field is not closed.");
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+
+  /**
+   * Class holding the result of parsing one line: either an item, an error message,
+   * or neither if the line is blank.
+   */
+  private static class ParsedLine {
+
+    private final int lineNumber;
+    private final Item item;
+    private final String error;
+
+    private ParsedLine(int lineNumber, Item item, String error) {
+      this.lineNumber = lineNumber;
+      this.item = item;
+      this.error = error;
+    }
+
+    /**
+     * Method to parse one line.
+
+     * @param line Line to parse.
+     * @param lineNumber Line number of the line in the file.
+     * @param itemRegister Register the item is made for.
+     * @return The parsed line.
+     */
+    private static ParsedLine parse(String line, int lineNumber, ItemRegister itemRegister) {
+      if (line.isBlank()) {
+        return new ParsedLine(lineNumber, null, null);
+      }
+      try {
+        return new ParsedLine(lineNumber, parseItem(line, itemRegister), null);
+      } catch (IllegalArgumentException e) {
+        return new ParsedLine(lineNumber, null, e.getMessage());
+      }
+    }
+  }
+}
@@ -0,0 +1,68 @@
+/**
+ * Enum class, representing the operations of the ItemRegister class recorded in an
+ * ItemRegisterMetrics. Methods with the same name share one operation.
+ */
+public enum ItemOperation {
+
+  /**
+   * Defining the operations and the name of the method belonging to each.
+   */
+  ITEM_NOT_EXISTS("itemNotExists"),
+  PRINT_ITEMS("printItems"),
+  PRINT_ITEMS_SHORT_VERSION("printItemsShortVersion"),
+  NUMBER_OF_ITEMS("numberOfItems"),
+  NUMBER_OF_ITEMS_IN_CATEGORY("numberOfItemsInCategory"),
+  ADD_ITEM("addItem"),
+  DELETE_ITEM("deleteItem"),
+  INCREASE_NUMBER_OF_ITEM_IN_STOCK("increaseNumberOfItemInStock"),
+  DECREASE_NUMBER_OF_ITEM_IN_STOCK("decreaseNumberOfItemInStock"),
+  TRY_RESERVE("tryReserve"),
+  RELEASE("release"),
+  VALIDATE_STOCK_DELTAS("validateStockDeltas"),
+  APPLY_STOCK_DELTAS("applyStockDeltas"),
+  CHANGE_PRICE("changePrice"),
+  DISCOUNT_PRICE("discountPrice"),
+  DISCOUNT_PRICES("discountPrices"),
+  CHANGE_PRICES("changePrices"),
+  CHANGE_DESCRIPTION("changeDescription"),
+  ITEM_BY_NUMBER("itemByNumber"),
+  ITEMS_BY_DESCRIPTION("itemsByDescription"),
+  ITEMS_BY_NUMBER_OR_DESCRIPTION("itemsByNumberOrDescription"),
+  ITEM_BY_CATEGORY("itemByCategory"),
+  PAGE("page"),
+  PAGE_BY_CATEGORY("pageByCategory"),
+  PAGE_BY_DESCRIPTION("pageByDescription"),
+  ITEMS_BY_PRICE("itemsByPrice"),
+  CHEAPEST_ITEMS("cheapestItems"),
+  SEARCH("search"),
+  SEARCH_PLAN("searchPlan"),
+  SET_REORDER_THRESHOLD("setReorderThreshold"),
+  LOW_STOCK_ITEMS("lowStockItems"),
+  ITEMS_BY_NUMBER_IN_STOCK("itemsByNumberInStock"),
+  TOTALS("totals"),
+  TOTALS_BY_CATEGORY("totalsByCategory"),
+  TOTALS_BY_BRAND("totalsByBrand");
+
+  /**
+   * Defining the object variable for the method name.
+   */
+  private final String methodName;
+
+  /**
+   * Constructor for item operation.
+
+   * @param methodName Name of the method in the ItemRegister class.
+   */
+  private ItemOperation(String methodName) {
+    this.methodName = methodName;
+  }
+
+  /**
+   * Get method for the name of the method in the ItemRegister class.
+
+   * @return Method name.
+   */
+  public String getMethodName() {
+    return methodName;
+  }
+}
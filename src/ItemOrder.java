@@ -0,0 +1,41 @@
+import java.util.Comparator;
+
+/**
+ * Enum class, representing the order of the items found by a search.
+ */
+public enum ItemOrder {
+
+  /**
+   * Defining the orders and how they compare two items. ADDED keeps the order the items
+   * were added to the register in, which only the register itself knows.
+   */
+  ADDED(null),
+  PRICE_LOWEST_FIRST(Comparator.comparingInt(Item::getPrice)),
+  PRICE_HIGHEST_FIRST(Comparator.comparingInt(Item::getPrice).reversed()),
+  NUMBER_IN_STOCK_LOWEST_FIRST(Comparator.comparingInt(Item::getNumberOfItemsInStock)),
+  ITEM_NUMBER(Comparator.comparing(
+      (Item item) -> ItemRegister.normalizedItemNumber(item.getItemNumber())));
+
+  /**
+   * Defining the object variable for the comparator.
+   */
+  private final Comparator<Item> comparator;
+
+  /**
+   * Constructor for item order.
+
+   * @param comparator Comparator sorting items in this order, or null for ADDED.
+   */
+  private ItemOrder(Comparator<Item> comparator) {
+    this.comparator = comparator;
+  }
+
+  /**
+   * Get method for the comparator sorting items in this order.
+
+   * @return Comparator, or null for ADDED.
+   */
+  Comparator<Item> getComparator() {
+    return comparator;
+  }
+}
@@ -0,0 +1,78 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class representing one page of items from an item register, and the cursor to get the
+ * next page with. The items are in the order they were added to the register. A cursor
+ * points to the place right after the last item on its page, so the next page still starts
+ * at the right place if items are added or deleted between the pages: every item that is
+ * in the register all the time is on exactly one page, and new items are on the last pages.
+ */
+public class ItemPage {
+
+  /**
+   * Defining the variables. NextCursor is null on the last page.
+   */
+  private final List<Item> items;
+  private final String nextCursor;
+
+  /**
+   * Constructor for item page.
+
+   * @param items The items on the page.
+   * @param lastSequence Sequence number of the last item on the page, or -1 if this is
+   *                     the last page.
+   */
+  ItemPage(ArrayList<Item> items, long lastSequence) {
+    this.items = List.copyOf(items);
+    this.nextCursor = lastSequence < 0 ? null : Long.toString(lastSequence, Character.MAX_RADIX);
+  }
+
+  /**
+   * Get method for the items on the page.
+
+   * @return Read-only list of the items.
+   */
+  public List<Item> getItems() {
+    return items;
+  }
+
+  /**
+   * Get method for the cursor used to get the next page.
+
+   * @return The cursor, or null if this is the last page.
+   */
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  /**
+   * Method to check if there are more items after this page.
+
+   * @return True if there is a next page.
+   */
+  public boolean hasNextPage() {
+    return nextCursor != null;
+  }
+
+  /**
+   * Method to read the position a cursor points to. Checks for illegal arguments.
+
+   * @param cursor Cursor from a page, or null to start at the first item.
+   * @return Sequence number of the item the next page starts after, or -1 for the first page.
+   */
+  static long sequenceAfter(String cursor) {
+    if (cursor == null) {
+      return -1;
+    }
+    try {
+      long sequence = Long.parseLong(cursor, Character.MAX_RADIX);
+      if (sequence >= 0) {
+        return sequence;
+      }
+    } catch (NumberFormatException e) {
+      // Handled below, the same way as a negative number.
+    }
+    throw new IllegalArgumentException("'" + cursor + "' is not a valid cursor.");
+  }
+}
@@ -0,0 +1,129 @@
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Class representing the history of the prices of the items in one or more item registers,
+ * so the price of an item at any time can be found afterwards. The history is used by
+ * giving it to ItemRegister.setPriceHistory(history), which records the price of every
+ * item already in the register, and then of every item when it is added and every time
+ * its price is changed.
+ *
+ * <p>The prices of every item are kept in a PriceSeries, which only keeps the time since
+ * the price before and the difference from it, in a few bytes, so a million price changes
+ * take about ten megabytes. Finding the price at a time takes logarithmic time in the
+ * number of prices of the item. The history of an item is kept when the item is deleted,
+ * and continued if an item with the same item number is added again. The history can be
+ * read by another thread than the one changing the register, and locks only itself.
+ */
+public class ItemPriceHistory {
+
+  /**
+   * Defining the variables. Series holds the prices of every item, keyed by normalized
+   * item number.
+   */
+  private final Clock clock;
+  private final HashMap<String, PriceSeries> series;
+
+  /**
+   * Constructor for item price history, using the system clock.
+   */
+  public ItemPriceHistory() {
+    this(Clock.systemUTC());
+  }
+
+  /**
+   * Constructor for item price history. Checks for illegal arguments.
+
+   * @param clock Clock giving the time of every price recorded.
+   */
+  public ItemPriceHistory(Clock clock) {
+    if (clock == null) {
+      throw new IllegalArgumentException("Clock can not be empty.");
+    }
+    this.clock = clock;
+    series = new HashMap<>();
+  }
+
+  /**
+   * Method to record the price of an item from now on. Nothing is recorded if the price
+   * is the same as the last price recorded for the item.
+
+   * @param itemNumber Item number of the item.
+   * @param price The price.
+   */
+  synchronized void record(String itemNumber, int price) {
+    long time = clock.millis();
+    String key = ItemRegister.normalizedItemNumber(itemNumber);
+    PriceSeries prices = series.get(key);
+
+    if (prices == null) {
+      series.put(key, new PriceSeries(time, price));
+    } else {
+      prices.add(time, price);
+    }
+  }
+
+  /**
+   * Method to find the price of an item at a point in time. Checks for illegal arguments.
+
+   * @param itemNumber Item number of the item, ignoring case.
+   * @param time The point in time.
+   * @return The price at that time, or -1 if no price was recorded for the item by then.
+   */
+  public synchronized int priceAt(String itemNumber, Instant time) {
+    PriceSeries prices = series(itemNumber);
+    if (time == null) {
+      throw new IllegalArgumentException("Time can not be empty.");
+    }
+    return prices == null ? PriceSeries.NO_PRICE : prices.priceAt(time.toEpochMilli());
+  }
+
+  /**
+   * Method to get every price recorded for an item. Checks for illegal arguments. If the
+   * price changed more than once in the same millisecond, only the last price is included.
+
+   * @param itemNumber Item number of the item, ignoring case.
+   * @return Read-only map from the time of every price to the price, in order of time.
+   *         Empty if no price was recorded for the item.
+   */
+  public synchronized SortedMap<Instant, Integer> prices(String itemNumber) {
+    PriceSeries prices = series(itemNumber);
+    TreeMap<Instant, Integer> history = new TreeMap<>();
+
+    if (prices != null) {
+      prices.forEach((time, price) -> history.put(Instant.ofEpochMilli(time), price));
+    }
+    return Collections.unmodifiableSortedMap(history);
+  }
+
+  /**
+   * Method to find the number of prices recorded, for every item together.
+
+   * @return Number of prices.
+   */
+  public synchronized long numberOfPrices() {
+    long count = 0;
+
+    for (PriceSeries prices : series.values()) {
+      count += prices.size();
+    }
+    return count;
+  }
+
+  /**
+   * Method to find the prices of an item. Checks for illegal arguments.
+
+   * @param itemNumber Item number of the item.
+   * @return The prices, or null if no price was recorded for the item.
+   */
+  private PriceSeries series(String itemNumber) {
+    if (itemNumber == null || itemNumber.isBlank()) {
+      throw new IllegalArgumentException("Item number can not be empty.");
+    }
+    return series.get(ItemRegister.normalizedItemNumber(itemNumber));
+  }
+}
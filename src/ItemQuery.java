@@ -0,0 +1,444 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Class representing a search for items, built from conditions on the fields of the items
+ * that are combined with and() and or(). Used with ItemRegister.search(), which finds the
+ * items matching the query.
+ *
+ * <p>Some conditions can be looked up in an index of the register: the item number, the
+ * description, the category, the price, the brand and the colour. When a query is
+ * searched, the register asks the query for the cheapest way to find the possible items
+ * (its access path), and then checks every possible item against the whole query. An and()
+ * query uses the cheapest access path of its conditions, and an or() query combines the
+ * access paths of all its conditions. If there is no access path, or it would not be
+ * cheaper than checking every item, every item is checked.
+ */
+public abstract class ItemQuery {
+
+  /**
+   * Constructor for item query. Only the queries in this class can be created.
+   */
+  private ItemQuery() {
+  }
+
+  /**
+   * Method to check if an item matches the query.
+
+   * @param item Item to check.
+   * @return True if the item matches the query.
+   */
+  public abstract boolean matches(Item item);
+
+  /**
+   * Method to find the cheapest way to look up the items that can match the query.
+
+   * @param itemRegister Register to search.
+   * @param budget Cost the access path must be cheaper than.
+   * @return The cheapest access path, or null if there is none cheaper than the budget.
+   */
+  abstract AccessPath accessPath(ItemRegister itemRegister, long budget);
+
+  /**
+   * Method to make a query matching the items matching both this query and another.
+
+   * @param query The other query.
+   * @return The combined query.
+   */
+  public ItemQuery and(ItemQuery query) {
+    return allOf(this, query);
+  }
+
+  /**
+   * Method to make a query matching the items matching this query, another, or both.
+
+   * @param query The other query.
+   * @return The combined query.
+   */
+  public ItemQuery or(ItemQuery query) {
+    return anyOf(this, query);
+  }
+
+  /**
+   * Method to make a query matching the item with an item number, ignoring case.
+   * Checks for illegal arguments.
+
+   * @param itemNumber Item number.
+   * @return The query.
+   */
+  public static ItemQuery itemNumber(String itemNumber) {
+    if (itemNumber == null || itemNumber.isBlank()) {
+      throw new IllegalArgumentException("Item number can not be empty.");
+    }
+    String key = ItemRegister.normalizedItemNumber(itemNumber);
+
+    return new ItemQuery() {
+      @Override
+      public boolean matches(Item item) {
+        return ItemRegister.normalizedItemNumber(item.getItemNumber()).equals(key);
+      }
+
+      @Override
+      AccessPath accessPath(ItemRegister itemRegister, long budget) {
+        return AccessPath.of(1, budget, "item number", ItemOrder.ADDED,
+            () -> {
+              Item item = itemRegister.findItemByNumber(itemNumber);
+              return item == null ? List.of() : List.of(item);
+            });
+      }
+    };
+  }
+
+  /**
+   * Method to make a query matching the items whose description contains a text, ignoring
+   * case. Checks for illegal arguments.
+
+   * @param itemDescription Text the description must contain.
+   * @return The query.
+   */
+  public static ItemQuery description(String itemDescription) {
+    if (itemDescription == null || itemDescription.isBlank()) {
+      throw new IllegalArgumentException("Item description can not be empty.");
+    }
+    String loweredItemDescription = itemDescription.toLowerCase();
+
+    return new ItemQuery() {
+      @Override
+      public boolean matches(Item item) {
+        return item.getItemDescription().toLowerCase().contains(loweredItemDescription);
+      }
+
+      @Override
+      AccessPath accessPath(ItemRegister itemRegister, long budget) {
+        int estimate = itemRegister.estimateItemsByDescription(loweredItemDescription);
+        return estimate < 0 ? null : AccessPath.of(estimate, budget, "description",
+            ItemOrder.ADDED, () -> itemRegister.findItemsByDescription(itemDescription));
+      }
+    };
+  }
+
+  /**
+   * Method to make a query matching the items in a category. Checks for illegal arguments.
+
+   * @param itemCategory Category of the items.
+   * @return The query.
+   */
+  public static ItemQuery category(ItemCategory itemCategory) {
+    if (itemCategory == null) {
+      throw new IllegalArgumentException("Item category can not be empty.");
+    }
+    return new ItemQuery() {
+      @Override
+      public boolean matches(Item item) {
+        return item.getCategory() == itemCategory;
+      }
+
+      @Override
+      AccessPath accessPath(ItemRegister itemRegister, long budget) {
+        return AccessPath.of(itemRegister.countItemsInCategory(itemCategory), budget,
+            "category", ItemOrder.ADDED, () -> itemRegister.findItemsByCategory(itemCategory));
+      }
+    };
+  }
+
+  /**
+   * Method to make a query matching the items of a brand, ignoring case.
+   * Checks for illegal arguments.
+
+   * @param brandName Brand name.
+   * @return The query.
+   */
+  public static ItemQuery brand(String brandName) {
+    if (brandName == null || brandName.isBlank()) {
+      throw new IllegalArgumentException("Brand name can not be empty.");
+    }
+    return new ItemQuery() {
+      @Override
+      public boolean matches(Item item) {
+        return item.getBrandName().equalsIgnoreCase(brandName);
+      }
+
+      @Override
+      AccessPath accessPath(ItemRegister itemRegister, long budget) {
+        int count = itemRegister.numberOfItemsByBrand(brandName);
+        return count < 0 ? null : AccessPath.of(count, budget, "brand", ItemOrder.ADDED,
+            () -> itemRegister.itemsByBrand(brandName));
+      }
+    };
+  }
+
+  /**
+   * Method to make a query matching the items of a colour, ignoring case.
+   * Checks for illegal arguments.
+
+   * @param colour Colour.
+   * @return The query.
+   */
+  public static ItemQuery colour(String colour) {
+    if (colour == null || colour.isBlank()) {
+      throw new IllegalArgumentException("Colour can not be empty.");
+    }
+    return new ItemQuery() {
+      @Override
+      public boolean matches(Item item) {
+        return item.getColour().equalsIgnoreCase(colour);
+      }
+
+      @Override
+      AccessPath accessPath(ItemRegister itemRegister, long budget) {
+        int count = itemRegister.numberOfItemsByColour(colour);
+        return count < 0 ? null : AccessPath.of(count, budget, "colour", ItemOrder.ADDED,
+            () -> itemRegister.itemsByColour(colour));
+      }
+    };
+  }
+
+  /**
+   * Method to make a query matching the items with a price within a range.
+   * Checks for illegal arguments.
+
+   * @param minPrice Lowest price, inclusive.
+   * @param maxPrice Highest price, inclusive.
+   * @return The query.
+   */
+  public static ItemQuery price(int minPrice, int maxPrice) {
+    if (minPrice > maxPrice) {
+      throw new IllegalArgumentException("Lowest price can not be greater than highest price.");
+    }
+    return new ItemQuery() {
+      @Override
+      public boolean matches(Item item) {
+        return item.getPrice() >= minPrice && item.getPrice() <= maxPrice;
+      }
+
+      @Override
+      AccessPath accessPath(ItemRegister itemRegister, long budget) {
+        int limit = (int) Math.min(budget, Integer.MAX_VALUE);
+        return AccessPath.of(itemRegister.numberOfItemsByPrice(minPrice, maxPrice, limit),
+            budget, "price", ItemOrder.PRICE_LOWEST_FIRST,
+            () -> itemRegister.itemsByPrice(minPrice, maxPrice, null,
+                Integer.MAX_VALUE));
+      }
+    };
+  }
+
+  /**
+   * Method to make a query matching the items with a number in stock within a range.
+   * Checks for illegal arguments.
+
+   * @param min Lowest number in stock, inclusive.
+   * @param max Highest number in stock, inclusive.
+   * @return The query.
+   */
+  public static ItemQuery numberInStock(int min, int max) {
+    if (min > max) {
+      throw new IllegalArgumentException(
+          "Lowest number in stock can not be greater than highest number in stock.");
+    }
+    return scanOnly(item -> item.getNumberOfItemsInStock() >= min
+        && item.getNumberOfItemsInStock() <= max);
+  }
+
+  /**
+   * Method to make a query matching the items meeting any condition, which can not be looked
+   * up in an index. Checks for illegal arguments. The condition may be checked by several
+   * threads at the same time, for example by ItemRegister.discountPrices(), so it must not
+   * change anything.
+
+   * @param condition Condition the items must meet.
+   * @return The query.
+   */
+  public static ItemQuery matching(Predicate<Item> condition) {
+    if (condition == null) {
+      throw new IllegalArgumentException("Condition can not be empty.");
+    }
+    return scanOnly(condition);
+  }
+
+  /**
+   * Method to make a query matching the items matching every one of some queries.
+   * Checks for illegal arguments.
+
+   * @param queries The queries.
+   * @return The combined query.
+   */
+  public static ItemQuery allOf(ItemQuery... queries) {
+    List<ItemQuery> parts = parts(queries);
+
+    return new ItemQuery() {
+      @Override
+      public boolean matches(Item item) {
+        for (ItemQuery query : parts) {
+          if (!query.matches(item)) {
+            return false;
+          }
+        }
+        return true;
+      }
+
+      @Override
+      AccessPath accessPath(ItemRegister itemRegister, long budget) {
+        AccessPath cheapest = null;
+
+        for (ItemQuery query : parts) {
+          AccessPath accessPath = query.accessPath(itemRegister,
+              cheapest == null ? budget : cheapest.cost);
+          if (accessPath != null) {
+            cheapest = accessPath;
+          }
+        }
+        return cheapest;
+      }
+    };
+  }
+
+  /**
+   * Method to make a query matching the items matching at least one of some queries.
+   * Checks for illegal arguments.
+
+   * @param queries The queries.
+   * @return The combined query.
+   */
+  public static ItemQuery anyOf(ItemQuery... queries) {
+    List<ItemQuery> parts = parts(queries);
+
+    return new ItemQuery() {
+      @Override
+      public boolean matches(Item item) {
+        for (ItemQuery query : parts) {
+          if (query.matches(item)) {
+            return true;
+          }
+        }
+        return false;
+      }
+
+      @Override
+      AccessPath accessPath(ItemRegister itemRegister, long budget) {
+        ArrayList<AccessPath> accessPaths = new ArrayList<>();
+        ArrayList<String> names = new ArrayList<>();
+        long cost = 0;
+
+        for (ItemQuery query : parts) {
+          AccessPath accessPath = query.accessPath(itemRegister, budget - cost);
+          if (accessPath == null) {
+            return null;
+          }
+          accessPaths.add(accessPath);
+          names.add(accessPath.name);
+          cost += accessPath.cost;
+        }
+        return AccessPath.of(cost, budget, "any of (" + String.join(", ", names) + ")",
+            null, () -> {
+              LinkedHashMap<String, Item> items = new LinkedHashMap<>();
+              for (AccessPath accessPath : accessPaths) {
+                for (Item item : accessPath.items.get()) {
+                  items.putIfAbsent(ItemRegister.normalizedItemNumber(item.getItemNumber()),
+                      item);
+                }
+              }
+              return items.values();
+            });
+      }
+    };
+  }
+
+  /**
+   * Method to check the queries given to allOf() and anyOf().
+
+   * @param queries The queries.
+   * @return Read-only list of the queries.
+   */
+  private static List<ItemQuery> parts(ItemQuery[] queries) {
+    if (queries.length == 0) {
+      throw new IllegalArgumentException("At least one query must be given.");
+    }
+    for (ItemQuery query : queries) {
+      if (query == null) {
+        throw new IllegalArgumentException("Query can not be empty.");
+      }
+    }
+    return List.of(queries);
+  }
+
+  /**
+   * Method to make a query that can not be looked up in an index.
+
+   * @param condition Condition the items must match.
+   * @return The query.
+   */
+  private static ItemQuery scanOnly(Predicate<Item> condition) {
+    return new ItemQuery() {
+      @Override
+      public boolean matches(Item item) {
+        return condition.test(item);
+      }
+
+      @Override
+      AccessPath accessPath(ItemRegister itemRegister, long budget) {
+        return null;
+      }
+    };
+  }
+
+  /**
+   * Class representing a way to look up the items that can match a query, and how many
+   * items it is expected to look up.
+   */
+  static final class AccessPath {
+
+    /**
+     * Defining the variables. Cost is the expected number of items looked up, name says
+     * which index is used, and order is the order the items are looked up in, or null if
+     * they are in no particular order.
+     */
+    final long cost;
+    final String name;
+    final ItemOrder order;
+    private final Supplier<Collection<Item>> items;
+
+    /**
+     * Constructor for access path.
+
+     * @param cost Expected number of items looked up.
+     * @param name Name of the index used.
+     * @param order Order the items are looked up in, or null.
+     * @param items Looks up the items.
+     */
+    private AccessPath(long cost, String name, ItemOrder order,
+                       Supplier<Collection<Item>> items) {
+      this.cost = cost;
+      this.name = name;
+      this.order = order;
+      this.items = items;
+    }
+
+    /**
+     * Method to make an access path, if it is cheaper than the budget.
+
+     * @param cost Expected number of items looked up.
+     * @param budget Cost the access path must be cheaper than.
+     * @param name Name of the index used.
+     * @param order Order the items are looked up in, or null.
+     * @param items Looks up the items.
+     * @return The access path, or null if it is not cheaper than the budget.
+     */
+    private static AccessPath of(long cost, long budget, String name, ItemOrder order,
+                                 Supplier<Collection<Item>> items) {
+      return cost < budget ? new AccessPath(cost, name, order, items) : null;
+    }
+
+    /**
+     * Method to look up the items.
+
+     * @return Every item that can match the query, and possibly others.
+     */
+    Collection<Item> items() {
+      return items.get();
+    }
+  }
+}
@@ -1,4 +1,14 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongUnaryOperator;
 
 /**
  * Class representing item register. Holds the items, as well as methods used in the Client class.
@@ -6,28 +16,171 @@ import java.util.ArrayList;
 public class ItemRegister {
 
   /**
-   * ArrayList made from the Item class.
+   * Items in the register, keyed by their normalized item number (see
+   * normalizedItemNumber(itemNumber)). The table finds an item by its item number without
+   * checking the other items, keeps the items in the order they were added, and also sorts
+   * them by category, so finding the items in a category only depends on how many items
+   * there are in that category. A copy of the table shares its items with the original.
    */
-  private final ArrayList<Item> items;
+  private final ItemTable items;
 
   /**
-   * Constructor for item register.
+   * Trigram index over the item descriptions, used when searching for items by description.
+   * The index is only built the first time it is needed, so a register that is loaded and
+   * never searched by description does not pay for it. Null until then.
+   */
+  private DescriptionIndex descriptionIndex;
+
+  /**
+   * Index of the items sorted by price, used when searching for items by price. Like the
+   * description index, it is only built the first time it is needed. Null until then.
+   */
+  private PriceIndex priceIndex;
+
+  /**
+   * Reorder threshold of every category, indexed by the ordinal of the category, used for
+   * the items without a threshold of their own. 0 if the category has no threshold.
+   */
+  private final int[] reorderThresholds;
+
+  /**
+   * Items with fewer items in stock than their reorder threshold. Like the indexes, it is
+   * only built the first time it is needed, or when a listener is set. Null until then.
+   */
+  private LowStockWatch lowStockWatch;
+
+  /**
+   * Listener told when an item gets low on stock, or null if there is none.
+   */
+  private LowStockListener lowStockListener;
+
+  /**
+   * Log every change to the register is appended to, or null if changes are not logged.
+   */
+  private ItemRegisterLog log;
+
+  /**
+   * Feed every change to the register is published to, or null if changes are not published.
+   */
+  private ItemChangeFeed changeFeed;
+
+  /**
+   * Metrics every operation on the register is recorded in, or null if operations are not
+   * recorded. When there are no metrics, an operation only checks this field.
+   */
+  private ItemRegisterMetrics metrics;
+
+  /**
+   * History every price of an item is recorded in, or null if prices are not recorded.
+   */
+  private ItemPriceHistory priceHistory;
+
+  /**
+   * Constructor for item register, keeping the items on the heap.
    */
   public ItemRegister() {
-    items = new ArrayList<>();
+    this(ItemStorage.HEAP);
+  }
+
+  /**
+   * Constructor for item register. Checks for illegal arguments. With ItemStorage.OFF_HEAP,
+   * every item given back by the register is a new Item read from where the register keeps
+   * it, so items must be changed through the register.
+
+   * @param storage Where the items are kept.
+   */
+  public ItemRegister(ItemStorage storage) {
+    if (storage == null) {
+      throw new IllegalArgumentException("Item storage can not be empty.");
+    }
+    items = new ItemTable(storage);
+    reorderThresholds = new int[ItemCategory.values().length];
   }
 
   /**
-   * Deep copy constructor for item register.
+   * Copy constructor for item register, used to get a snapshot of the register at a point
+   * in time, for example to print a report while the register is changed. Making the copy
+   * takes constant time, since the copy shares its items with the original. When either
+   * register changes an item afterwards, it changes its own copy of that item, so a change
+   * in one register is never seen in the other. The copy must be made by the thread that
+   * changes the original, but can then be read by another thread without locking. Items
+   * should only be changed through the register, since a shared item changed directly
+   * would change in both registers.
 
    * @param itemRegister Item register.
    */
   public ItemRegister(ItemRegister itemRegister) {
-    items = new ArrayList<>();
+    items = new ItemTable(itemRegister.items);
+    reorderThresholds = itemRegister.reorderThresholds.clone();
+  }
+
+  /**
+   * Set method for the log every following change to the register is appended to.
+   * A change is checked and appended to the log before it is made in the register, so if
+   * the record can not be appended, the change is not made. A bulk change is logged and
+   * made one item at a time, so if the log fails part of the way, only the items before the
+   * failure are changed. A copy made with the copy constructor does not use the log.
+
+   * @param log Log to append changes to, or null to stop logging changes.
+   */
+  public void setLog(ItemRegisterLog log) {
+    this.log = log;
+  }
+
+  /**
+   * Set method for the feed every following change to the register is published to.
+   * A copy made with the copy constructor does not publish its changes.
+
+   * @param changeFeed Feed to publish changes to, or null to stop publishing changes.
+   */
+  public void setChangeFeed(ItemChangeFeed changeFeed) {
+    this.changeFeed = changeFeed;
+  }
+
+  /**
+   * Set method for the metrics every following operation on the register is recorded in.
+   * Several registers can record in the same metrics. A copy made with the copy
+   * constructor does not record its operations.
+
+   * @param metrics Metrics to record operations in, or null to stop recording operations.
+   */
+  public void setMetrics(ItemRegisterMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Set method for the history the price of every item is recorded in, when the item is
+   * added and every time its price is changed. The current price of every item already in
+   * the register is recorded when the history is set. Several registers can record in the
+   * same history. A copy made with the copy constructor does not record its prices.
+
+   * @param priceHistory History to record prices in, or null to stop recording prices.
+   */
+  public void setPriceHistory(ItemPriceHistory priceHistory) {
+    this.priceHistory = priceHistory;
+    if (priceHistory != null) {
+      for (Item item : items.values()) {
+        priceHistory.record(item.getItemNumber(), item.getPrice());
+      }
+    }
+  }
 
-    for (Item item : itemRegister.items) {
-      items.add(new Item(item));
+  /**
+   * Method to normalize an item number, so that item numbers that are equal when ignoring
+   * case also give the same key. Every character is converted the same way as in
+   * String.equalsIgnoreCase(), which means two item numbers give the same key only if
+   * they are equal when ignoring case.
+
+   * @param itemNumber Item number to normalize.
+   * @return Normalized item number, used as key in the register.
+   */
+  static String normalizedItemNumber(String itemNumber) {
+    char[] characters = itemNumber.toCharArray();
+
+    for (int i = 0; i < characters.length; i++) {
+      characters[i] = Character.toLowerCase(Character.toUpperCase(characters[i]));
     }
+    return new String(characters);
   }
 
   /**
@@ -39,7 +192,9 @@ public class ItemRegister {
    * @return Null, meaning that the item does not exist.
    */
   public boolean itemNotExists(String itemNumber) {
-    return itemByNumber(itemNumber) == null;
+    return call(ItemOperation.ITEM_NOT_EXISTS, () -> {
+      return findItemByNumber(itemNumber) == null;
+    });
   }
 
   /**
@@ -48,12 +203,42 @@ public class ItemRegister {
    * @return Items converted to a string.
    */
   public String printItems() {
-    StringBuilder allItems = new StringBuilder();
+    return call(ItemOperation.PRINT_ITEMS, () -> {
+      StringBuilder allItems = new StringBuilder();
+
+      try {
+        appendItems(allItems);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return allItems.toString();
+    });
+  }
+
+  /**
+   * Method to print items to a writer, or any other Appendable, in the same format as
+   * printItems(). Every item is written straight to the writer as soon as it is reached,
+   * so the output starts at once and no string holding all the items is made.
+
+   * @param out Where the items are written.
+   * @throws IOException If the items can not be written.
+   */
+  public void printItems(Appendable out) throws IOException {
+    run(ItemOperation.PRINT_ITEMS, () -> appendItems(out));
+  }
 
-    for (Item item : items) {
-      allItems.append(item.toString()).append("\n");
+  /**
+   * Method to write the items in the format of printItems(), used by both of the methods
+   * printing the items.
+
+   * @param out Where the items are written.
+   * @throws IOException If the items can not be written.
+   */
+  private void appendItems(Appendable out) throws IOException {
+    for (Item item : items.values()) {
+      item.appendTo(out);
+      out.append('\n');
     }
-    return allItems.toString();
   }
 
   /**
@@ -62,108 +247,446 @@ public class ItemRegister {
    * @return Items converted to string.
    */
   public String printItemsShortVersion() {
-    StringBuilder itemsShort = new StringBuilder();
+    return call(ItemOperation.PRINT_ITEMS_SHORT_VERSION, () -> {
+      StringBuilder itemsShort = new StringBuilder();
+
+      try {
+        appendItemsShort(itemsShort);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return itemsShort.toString();
+    });
+  }
+
+  /**
+   * Method to print items to a writer, or any other Appendable, in the same format as
+   * printItemsShortVersion(), writing every item as soon as it is reached.
+
+   * @param out Where the items are written.
+   * @throws IOException If the items can not be written.
+   */
+  public void printItemsShortVersion(Appendable out) throws IOException {
+    run(ItemOperation.PRINT_ITEMS_SHORT_VERSION, () -> appendItemsShort(out));
+  }
+
+  /**
+   * Method to write the items in the format of printItemsShortVersion(), used by both of
+   * the methods printing the items.
 
-    for (Item item : items) {
-      itemsShort.append(item.toStringShort());
+   * @param out Where the items are written.
+   * @throws IOException If the items can not be written.
+   */
+  private void appendItemsShort(Appendable out) throws IOException {
+    for (Item item : items.values()) {
+      item.appendShortTo(out);
     }
-    return itemsShort.toString();
   }
 
   /**
-   * Method to find the number of registered items, by finding the size of the arrayList items.
+   * Method to get all the items in the register, in the order they were added.
+   * Used by the classes that write the register to a file.
+
+   * @return Read-only view of the items.
+   */
+  Collection<Item> allItems() {
+    return Collections.unmodifiableCollection(items.values());
+  }
+
+  /**
+   * Method to find the number of registered items, by finding the size of the map items.
 
-   * @return Size of the arrayList items.
+   * @return Size of the map items.
    */
   public int numberOfItems() {
-    return items.size();
+    return call(ItemOperation.NUMBER_OF_ITEMS, () -> {
+      return items.size();
+    });
+  }
+
+  /**
+   * Method to find the number of registered items in a category. Checks for
+   * illegal arguments.
+
+   * @param itemCategory The category you want the number of items in.
+   * @return Number of items in the given category.
+   */
+  public int numberOfItemsInCategory(ItemCategory itemCategory) {
+    return call(ItemOperation.NUMBER_OF_ITEMS_IN_CATEGORY,
+        () -> countItemsInCategory(itemCategory));
+  }
+
+  /**
+   * Method to find the number of items in a category without recording it in the metrics,
+   * used to estimate the cost of searching by category.
+
+   * @param itemCategory The category you want the number of items in.
+   * @return Number of items in the given category.
+   */
+  int countItemsInCategory(ItemCategory itemCategory) {
+    if (itemCategory == null) {
+      throw new IllegalArgumentException("Item category can not be empty.");
+    }
+    return items.size(itemCategory);
+  }
+
+  /**
+   * Method to make an item for this register. Checks for illegal arguments. The item name,
+   * brand name and colour are looked up in the string dictionaries of the register before
+   * the item is made, so the item shares them with the other items. Used by everything
+   * that loads or creates items to add, and can be called by any thread.
+
+   * @param itemNumber Unique number for the item.
+   * @param itemName Name of item.
+   * @param itemDescription Description of item.
+   * @param price Price of item, given in kr.
+   * @param brandName Brand name of item.
+   * @param weight Weight of item, given in kg.
+   * @param length Length of item, given in m.
+   * @param height Height of item, given in m.
+   * @param colour Colour of item.
+   * @param numberOfItemsInStock Number of items in stock.
+   * @param itemCategory Category of item.
+   * @return The item, not yet added to the register.
+   */
+  Item newItem(String itemNumber, String itemName, String itemDescription, int price,
+               String brandName, double weight, double length, double height, String colour,
+               int numberOfItemsInStock, ItemCategory itemCategory) {
+    return items.newItem(itemNumber, itemName, itemDescription, price, brandName, weight,
+        length, height, colour, numberOfItemsInStock, itemCategory);
   }
 
   /**
-   * Method to add a new item to the register.
+   * Method to add a new item to the register. Checks for illegal arguments. The register
+   * keeps the given item, so an item made with newItem() shares its texts with the other
+   * items, while an item made directly keeps its own Strings.
 
    * @param item Item.
    */
   public void addItem(Item item) {
-    if ((itemByNumber(item.getItemNumber()) != null)) {
-      throw new IllegalArgumentException("Item with item number "
-          + item.getItemNumber() + " already exists.\n");
-    } else {
-      items.add(item);
-    }
+    run(ItemOperation.ADD_ITEM, () -> {
+      if (item.getCategory() == null) {
+        throw new IllegalArgumentException("Item category can not be empty.");
+      }
+      String key = normalizedItemNumber(item.getItemNumber());
+
+      if (items.get(key) != null) {
+        throw new IllegalArgumentException("Item with item number "
+            + item.getItemNumber() + " already exists.\n");
+      } else {
+        if (log != null) {
+          log.appendAddItem(item);
+          if (item.getReorderThreshold() > 0) {
+            log.appendReorderThreshold(item.getItemNumber(), item.getReorderThreshold());
+          }
+        }
+        items.add(key, item);
+        if (descriptionIndex != null) {
+          descriptionIndex.add(key, item.getItemDescription());
+        }
+        if (priceIndex != null) {
+          priceIndex.add(key, items.sequence(key), item.getPrice(), item.getCategory());
+        }
+        stockChanged(key, item);
+        if (priceHistory != null) {
+          priceHistory.record(item.getItemNumber(), item.getPrice());
+        }
+        if (changeFeed != null) {
+          changeFeed.publish(ItemChange.added(item));
+        }
+      }
+    });
   }
 
   /**
    * Method to delete an item. Checks for illegal arguments.
    * Uses the itemByNumber(itemNumber) method to check if the item exists.
-   * If it does, it will be removed from the ArrayList items.
+   * If it does, it will be removed from the map items.
 
    * @param itemNumber Item number of the item you want to delete.
    */
   public void deleteItem(String itemNumber) {
-    if (itemNumber.isBlank()) {
-      throw new IllegalArgumentException("Item number can not be empty.");
-    }
-    Item item = itemByNumber(itemNumber);
+    run(ItemOperation.DELETE_ITEM, () -> {
+      if (itemNumber.isBlank()) {
+        throw new IllegalArgumentException("Item number can not be empty.");
+      }
+      Item item = findItemByNumber(itemNumber);
 
-    if (item == null) {
-      throw new IllegalArgumentException("Item with item number "
-          + itemNumber + " does not exist.");
-    } else {
-      items.remove(item);
-    }
+      if (item == null) {
+        throw itemNotFound(itemNumber);
+      } else {
+        String key = normalizedItemNumber(item.getItemNumber());
+        long sequence = items.sequence(key);
+        if (log != null) {
+          log.appendDeleteItem(item.getItemNumber());
+        }
+        items.remove(key);
+        if (descriptionIndex != null) {
+          descriptionIndex.remove(key, item.getItemDescription());
+        }
+        if (priceIndex != null) {
+          priceIndex.remove(sequence, item.getPrice(), item.getCategory());
+        }
+        if (lowStockWatch != null) {
+          lowStockWatch.remove(key);
+        }
+        if (changeFeed != null) {
+          changeFeed.publish(ItemChange.deleted(item.getItemNumber()));
+        }
+      }
+    });
   }
 
   /**
    * Method to increase the number of items in stock of a specific item.
    * Checks for illegal arguments. Uses the itemByNumber(itemNumber) method
-   * to check if the item exists. If it does, it will set the new
-   * number.
+   * to check if the item exists. If it does, the items are added to stock
+   * with release(quantity) in the item class.
 
    * @param itemNumber Item number, used to identify the item you want to change.
    * @param increasedNumber The number added to stock.
    */
   public void increaseNumberOfItemInStock(String itemNumber, int increasedNumber) {
-    if (increasedNumber <= 0) {
-      throw new IllegalArgumentException("Number of added items in stock must be greater than 0.");
-    }
-    Item item = itemByNumber(itemNumber);
+    run(ItemOperation.INCREASE_NUMBER_OF_ITEM_IN_STOCK, () -> {
+      if (increasedNumber <= 0) {
+        throw new IllegalArgumentException(
+            "Number of added items in stock must be greater than 0.");
+      }
+      Item item = itemForUpdate(itemNumber);
 
-    if (item == null) {
-      throw new IllegalArgumentException("Item with item number "
-          + itemNumber + " does not exist.");
-    } else {
-      item.setNumberOfItemsInStock(item.getNumberOfItemsInStock() + increasedNumber);
-    }
+      if (item == null) {
+        throw itemNotFound(itemNumber);
+      } else {
+        checkRoomInStock(item, increasedNumber);
+        if (log != null) {
+          log.appendStockChange(item.getItemNumber(), increasedNumber);
+        }
+        item.release(increasedNumber);
+        changed(item);
+        if (changeFeed != null) {
+          changeFeed.publish(ItemChange.stockChanged(item.getItemNumber(), increasedNumber));
+        }
+      }
+    });
   }
 
   /**
    * Method to decrease the number of items in stock of a specific item.
    * Checks for illegal arguments. Uses the itemByNumber(itemNumber) method to
-   * check if the item exists. If it does it will first make sure that the
-   * decreased number is less than the number of items already in stock, and
-   * then set the new number.
+   * check if the item exists. If it does, the items are removed from stock with
+   * tryReserve(quantity) in the item class, which makes sure the decreased number
+   * is not greater than the number of items already in stock.
 
    * @param itemNumber Item number, used to identify the item you want to change.
    * @param decreasedNumber The number decreased from stock.
    */
   public void decreaseNumberOfItemInStock(String itemNumber, int decreasedNumber) {
-    if (decreasedNumber <= 0) {
-      throw new IllegalArgumentException("Number of added items in stock must be greater than 0.");
-    }
-    Item item = itemByNumber(itemNumber);
-
-    if (item == null) {
-      throw new IllegalArgumentException("Item with item number "
-          + itemNumber + " does not exist.");
-    } else {
-      if (decreasedNumber > item.getNumberOfItemsInStock()) {
+    run(ItemOperation.DECREASE_NUMBER_OF_ITEM_IN_STOCK, () -> {
+      if (decreasedNumber <= 0) {
         throw new IllegalArgumentException(
-            "The number of items decreased can not be greater than the number already in stock.");
+            "Number of added items in stock must be greater than 0.");
+      }
+      Item item = itemForUpdate(itemNumber);
+
+      if (item == null) {
+        throw itemNotFound(itemNumber);
+      } else {
+        if (decreasedNumber > item.getNumberOfItemsInStock()) {
+          throw new IllegalArgumentException(
+              "The number of items decreased can not be greater than the number already in stock.");
+        }
+        if (log != null) {
+          log.appendStockChange(item.getItemNumber(), -decreasedNumber);
+        }
+        item.tryReserve(decreasedNumber);
+        changed(item);
+        if (changeFeed != null) {
+          changeFeed.publish(ItemChange.stockChanged(item.getItemNumber(), -decreasedNumber));
+        }
+      }
+    });
+  }
+
+  /**
+   * Method to reserve a number of items from stock, for example when an order is placed.
+   * Checks for illegal arguments. Unlike decreaseNumberOfItemInStock(itemNumber, number),
+   * this does not throw an exception when there are not enough items in stock.
+
+   * @param itemNumber Item number, used to identify the item you want to reserve.
+   * @param quantity Number of items to reserve.
+   * @return True if the items were reserved, false if there are not enough items in stock.
+   */
+  public boolean tryReserve(String itemNumber, int quantity) {
+    return call(ItemOperation.TRY_RESERVE, () -> {
+      if (quantity <= 0) {
+        throw new IllegalArgumentException("Number of reserved items must be greater than 0.");
+      }
+      Item item = itemForUpdate(itemNumber);
+
+      if (item == null) {
+        throw itemNotFound(itemNumber);
+      }
+      if (quantity > item.getNumberOfItemsInStock()) {
+        return false;
+      }
+      if (log != null) {
+        log.appendStockChange(item.getItemNumber(), -quantity);
+      }
+      item.tryReserve(quantity);
+      changed(item);
+      if (changeFeed != null) {
+        changeFeed.publish(ItemChange.stockChanged(item.getItemNumber(), -quantity));
+      }
+      return true;
+    });
+  }
+
+  /**
+   * Method to put reserved items back in stock, for example when an order is cancelled.
+   * Checks for illegal arguments.
+
+   * @param itemNumber Item number, used to identify the item you want to release.
+   * @param quantity Number of items to put back in stock.
+   */
+  public void release(String itemNumber, int quantity) {
+    run(ItemOperation.RELEASE, () -> {
+      if (quantity <= 0) {
+        throw new IllegalArgumentException("Number of released items must be greater than 0.");
+      }
+      Item item = itemForUpdate(itemNumber);
+
+      if (item == null) {
+        throw itemNotFound(itemNumber);
+      }
+      checkRoomInStock(item, quantity);
+      if (log != null) {
+        log.appendStockChange(item.getItemNumber(), quantity);
+      }
+      item.release(quantity);
+      changed(item);
+      if (changeFeed != null) {
+        changeFeed.publish(ItemChange.stockChanged(item.getItemNumber(), quantity));
+      }
+    });
+  }
+
+  /**
+   * Method to check a batch of stock changes without applying them. The lines are checked
+   * in order, as if they were applied one by one, and every illegal line is reported with
+   * its line number, starting at 1. Each item is only looked up once, however many lines
+   * it has.
+
+   * @param stockDeltas Stock changes to check.
+   * @return Error message for every illegal line. Empty if the whole batch can be applied.
+   */
+  public ArrayList<String> validateStockDeltas(List<StockDelta> stockDeltas) {
+    return call(ItemOperation.VALIDATE_STOCK_DELTAS, () -> {
+      ArrayList<String> errors = new ArrayList<>();
+      checkStockDeltas(stockDeltas, errors);
+      return errors;
+    });
+  }
+
+  /**
+   * Method to apply a batch of stock changes, for example when receiving a delivery.
+   * All the lines are checked first, the same way as in validateStockDeltas(stockDeltas).
+   * If every line is legal, the new number in stock is set once for each item. If any
+   * line is illegal, none of the changes are applied.
+
+   * @param stockDeltas Stock changes to apply.
+   */
+  public void applyStockDeltas(List<StockDelta> stockDeltas) {
+    run(ItemOperation.APPLY_STOCK_DELTAS, () -> {
+      ArrayList<String> errors = new ArrayList<>();
+      LinkedHashMap<String, StockChange> stockChanges = checkStockDeltas(stockDeltas, errors);
+
+      if (!errors.isEmpty()) {
+        throw new IllegalArgumentException("The stock changes were not applied:\n"
+            + String.join("\n", errors));
+      }
+      for (Map.Entry<String, StockChange> entry : stockChanges.entrySet()) {
+        StockChange stockChange = entry.getValue();
+        Item item = items.itemForUpdate(entry.getKey());
+        int change = (int) stockChange.numberOfItemsInStock - item.getNumberOfItemsInStock();
+        if (log != null && change != 0) {
+          log.appendStockChange(item.getItemNumber(), change);
+        }
+        item.setNumberOfItemsInStock((int) stockChange.numberOfItemsInStock);
+        changed(item);
+        if (changeFeed != null && change != 0) {
+          changeFeed.publish(ItemChange.stockChanged(item.getItemNumber(), change));
+        }
+      }
+    });
+  }
+
+  /**
+   * Method to check a batch of stock changes, and sum up the changes for each item.
+
+   * @param stockDeltas Stock changes to check.
+   * @param errors List the error message of every illegal line is added to.
+   * @return The new number in stock for every item in the batch, keyed by the normalized
+   *         item number.
+   */
+  private LinkedHashMap<String, StockChange> checkStockDeltas(List<StockDelta> stockDeltas,
+                                                             ArrayList<String> errors) {
+    LinkedHashMap<String, StockChange> stockChanges = new LinkedHashMap<>();
+    int lineNumber = 0;
+
+    for (StockDelta stockDelta : stockDeltas) {
+      lineNumber++;
+      String itemNumber = stockDelta.getItemNumber();
+      if (itemNumber == null || itemNumber.isBlank()) {
+        errors.add("Line " + lineNumber + ": Item number can not be empty.");
+        continue;
+      }
+      if (stockDelta.getDelta() == 0) {
+        errors.add("Line " + lineNumber + ": Stock change can not be 0.");
+        continue;
+      }
+      StockChange stockChange = stockChanges.computeIfAbsent(
+          normalizedItemNumber(itemNumber), key -> StockChange.of(items.get(key)));
+      if (stockChange.item == null) {
+        errors.add("Line " + lineNumber + ": Item with item number "
+            + itemNumber + " does not exist.");
+        continue;
+      }
+      long newNumberOfItemsInStock = stockChange.numberOfItemsInStock + stockDelta.getDelta();
+      if (newNumberOfItemsInStock < 0) {
+        errors.add("Line " + lineNumber + ": The number of items decreased can not be greater"
+            + " than the number in stock (" + stockChange.numberOfItemsInStock + ").");
+      } else if (newNumberOfItemsInStock > Integer.MAX_VALUE) {
+        errors.add("Line " + lineNumber + ": Number of items in stock is too large.");
       } else {
-        item.setNumberOfItemsInStock(item.getNumberOfItemsInStock() - decreasedNumber);
+        stockChange.numberOfItemsInStock = newNumberOfItemsInStock;
       }
     }
+    return stockChanges;
+  }
+
+  /**
+   * Class holding the new number in stock of an item while a batch of stock changes
+   * is checked.
+   */
+  private static class StockChange {
+
+    private final Item item;
+    private long numberOfItemsInStock;
+
+    private StockChange(Item item, long numberOfItemsInStock) {
+      this.item = item;
+      this.numberOfItemsInStock = numberOfItemsInStock;
+    }
+
+    /**
+     * Method to start the stock change of an item from its current number in stock.
+
+     * @param item Item, or null if the item does not exist.
+     * @return Stock change for the item.
+     */
+    private static StockChange of(Item item) {
+      return new StockChange(item, item == null ? 0 : item.getNumberOfItemsInStock());
+    }
   }
 
   /**
@@ -176,17 +699,27 @@ public class ItemRegister {
    * @param newPrice Updated price of the item with the given item number.
    */
   public void changePrice(String itemNumber, int newPrice) {
-    if (newPrice < 0) {
-      throw new IllegalArgumentException("Price must be greater than 0.");
-    }
-    Item item = itemByNumber(itemNumber);
+    run(ItemOperation.CHANGE_PRICE, () -> {
+      if (newPrice < 0) {
+        throw new IllegalArgumentException("Price must be greater than 0.");
+      }
+      Item item = itemForUpdate(itemNumber);
 
-    if (item == null) {
-      throw new IllegalArgumentException("Item with item number "
-          + itemNumber + " does not exist.");
-    } else {
-      item.setPrice(newPrice);
-    }
+      if (item == null) {
+        throw itemNotFound(itemNumber);
+      } else {
+        int oldPrice = item.getPrice();
+        if (log != null) {
+          log.appendPriceChange(item.getItemNumber(), newPrice);
+        }
+        item.setPrice(newPrice);
+        changed(item);
+        priceChanged(item, oldPrice);
+        if (changeFeed != null) {
+          changeFeed.publish(ItemChange.priceChanged(item.getItemNumber(), newPrice));
+        }
+      }
+    });
   }
 
   /**
@@ -199,18 +732,143 @@ public class ItemRegister {
    * @param discount Discount that will be given to the price, given in percentage.
    */
   public void discountPrice(String itemNumber, double discount) {
-    if (discount <= 0 || discount >= 100) {
-      throw new IllegalArgumentException("Discount percentage must be greater than 0.");
+    run(ItemOperation.DISCOUNT_PRICE, () -> {
+      if (discount <= 0 || discount >= 100) {
+        throw new IllegalArgumentException("Discount percentage must be greater than 0.");
+      }
+      Item item = itemForUpdate(itemNumber);
+
+      if (item == null) {
+        throw itemNotFound(itemNumber);
+      } else {
+        int oldPrice = item.getPrice();
+        int newPrice = discountedPrice(oldPrice, discount);
+        if (log != null) {
+          log.appendDiscount(item.getItemNumber(), discount);
+        }
+        item.setPrice(newPrice);
+        changed(item);
+        priceChanged(item, oldPrice);
+        if (changeFeed != null) {
+          changeFeed.publish(ItemChange.priceChanged(item.getItemNumber(), newPrice));
+        }
+      }
+    });
+  }
+
+  /**
+   * Method to find the price of an item after a discount, rounded down to whole kr.
+
+   * @param price Price before the discount.
+   * @param discount Discount, given in percentage.
+   * @return Price after the discount.
+   */
+  private static int discountedPrice(int price, double discount) {
+    return (int) ((1 - (discount / 100)) * price);
+  }
+
+  /**
+   * Method to give every item matching a query a discount price, rounded the same way as
+   * discountPrice(itemNumber, discount). Checks for illegal arguments. The possible items
+   * are looked up the same way as in search(), and checked against the query in parallel
+   * when there are many of them.
+
+   * @param query Query the items must match, for example ItemQuery.category(WINDOWS).
+   * @param discount Discount that will be given to the prices, given in percentage.
+   * @return Summary of the items whose price was changed.
+   */
+  public PriceChangeSummary discountPrices(ItemQuery query, double discount) {
+    return call(ItemOperation.DISCOUNT_PRICES, () -> {
+      if (discount <= 0 || discount >= 100) {
+        throw new IllegalArgumentException("Discount percentage must be greater than 0.");
+      }
+      return changePrices(query, price -> discountedPrice((int) price, discount));
+    });
+  }
+
+  /**
+   * Method to add the same amount to the price of every item matching a query. Checks for
+   * illegal arguments. If the price of any of the items would be below 0, no prices are
+   * changed. The possible items are looked up the same way as in search(), and checked
+   * against the query in parallel when there are many of them.
+
+   * @param query Query the items must match, for example ItemQuery.brand("Byggmax").
+   * @param priceChange Amount added to the prices, given in kr. Negative to lower them.
+   * @return Summary of the items whose price was changed.
+   */
+  public PriceChangeSummary changePrices(ItemQuery query, int priceChange) {
+    return call(ItemOperation.CHANGE_PRICES, () -> {
+      return changePrices(query, price -> price + priceChange);
+    });
+  }
+
+  /**
+   * Method to change the price of every item matching a query. The new prices are found
+   * and checked first, so an illegal new price changes none of the prices. The prices are
+   * then changed in the order the items were added, and logged and published one by one, the
+   * same way as changePrice(itemNumber, newPrice), so if the log fails part of the way, only
+   * the items before the failure are changed. Every changed item is looked up in the
+   * item table once, by its slot, where changing one item at a time looks it up twice.
+
+   * @param query Query the items must match.
+   * @param newPrice Finds the new price of an item from its old price.
+   * @return Summary of the items whose price was changed.
+   */
+  private PriceChangeSummary changePrices(ItemQuery query, LongUnaryOperator newPrice) {
+    if (query == null) {
+      throw new IllegalArgumentException("Query can not be empty.");
+    }
+    ItemQuery.AccessPath accessPath = query.accessPath(this, items.size());
+    if (metrics != null) {
+      metrics.recordAccessPath(accessPath == null ? "scan" : accessPath.name);
     }
-    Item item = itemByNumber(itemNumber);
+    Item[] candidates = (accessPath == null ? items.values() : accessPath.items())
+        .toArray(new Item[0]);
+    long[] newPrices = PriceChangeTask.newPrices(candidates, query, newPrice);
+    ArrayList<Integer> changedCandidates = new ArrayList<>();
+    int numberOfItemsMatched = 0;
 
-    if (item == null) {
-      throw new IllegalArgumentException("Item with item number "
-          + itemNumber + " does not exist.");
-    } else {
-      int newPrice = (int) ((1 - (discount / 100)) * item.getPrice());
-      item.setPrice(newPrice);
+    for (int i = 0; i < candidates.length; i++) {
+      if (newPrices[i] != PriceChangeTask.NOT_MATCHED) {
+        numberOfItemsMatched++;
+        if (newPrices[i] < 0 || newPrices[i] > Integer.MAX_VALUE) {
+          throw new IllegalArgumentException("The price of item with item number "
+              + candidates[i].getItemNumber() + " would be " + newPrices[i]
+              + " kr. No prices were changed.");
+        }
+        if (newPrices[i] != candidates[i].getPrice()) {
+          changedCandidates.add(i);
+        }
+      }
+    }
+    if (accessPath != null && accessPath.order != ItemOrder.ADDED) {
+      changedCandidates.sort(Comparator.comparingLong(
+          i -> items.sequence(normalizedItemNumber(candidates[i].getItemNumber()))));
+    }
+    ArrayList<String> itemNumbers = new ArrayList<>(changedCandidates.size());
+    int[] oldPrices = new int[changedCandidates.size()];
+    int[] changedPrices = new int[changedCandidates.size()];
+
+    for (int i : changedCandidates) {
+      String key = normalizedItemNumber(candidates[i].getItemNumber());
+      int slot = items.slot(key);
+      Item item = items.itemForUpdate(slot);
+      int oldPrice = item.getPrice();
+      if (log != null) {
+        log.appendPriceChange(item.getItemNumber(), (int) newPrices[i]);
+      }
+      item.setPrice((int) newPrices[i]);
+      items.changed(slot, item);
+      priceChanged(item, oldPrice);
+      oldPrices[itemNumbers.size()] = oldPrice;
+      changedPrices[itemNumbers.size()] = item.getPrice();
+      itemNumbers.add(item.getItemNumber());
+      if (changeFeed != null) {
+        changeFeed.publish(ItemChange.priceChanged(item.getItemNumber(), item.getPrice()));
+      }
     }
+    return new PriceChangeSummary(numberOfItemsMatched, itemNumbers, oldPrices,
+        changedPrices);
   }
 
   /**
@@ -223,61 +881,352 @@ public class ItemRegister {
    * @param newItemDescription Updated item description of the item with the given item number.
    */
   public void changeDescription(String itemNumber, String newItemDescription) {
-    if (newItemDescription.isBlank()) {
-      throw new IllegalArgumentException("Item description can not be empty.");
-    }
-    Item item = itemByNumber(itemNumber);
+    run(ItemOperation.CHANGE_DESCRIPTION, () -> {
+      if (newItemDescription.isBlank()) {
+        throw new IllegalArgumentException("Item description can not be empty.");
+      }
+      Item item = itemForUpdate(itemNumber);
 
-    if (item == null) {
-      throw new IllegalArgumentException("Item with item number "
-          + itemNumber + " does not exist.");
-    } else {
-      item.setItemDescription(newItemDescription);
-    }
+      if (item == null) {
+        throw itemNotFound(itemNumber);
+      } else {
+        String key = normalizedItemNumber(item.getItemNumber());
+        String oldItemDescription = item.getItemDescription();
+        if (log != null) {
+          log.appendDescriptionChange(item.getItemNumber(), newItemDescription);
+        }
+        item.setItemDescription(newItemDescription);
+        items.descriptionChanged(key, item);
+        if (descriptionIndex != null) {
+          descriptionIndex.update(key, oldItemDescription, newItemDescription);
+        }
+        if (changeFeed != null) {
+          changeFeed.publish(ItemChange.descriptionChanged(item.getItemNumber(),
+              newItemDescription));
+        }
+      }
+    });
   }
 
   /**
    * Method to find an item by the item number. Checks for illegal
-   * arguments. Checks if the input item number matches with any of
-   * the item numbers already registered.
+   * arguments. Looks up the normalized item number in the map items,
+   * so the case of the input does not matter.
 
    * @param itemNumber Item number of the item you want to find.
    * @return Item with the given item number, but only if the item is already in the register.
    */
   public Item itemByNumber(String itemNumber) {
+    return call(ItemOperation.ITEM_BY_NUMBER, () -> findItemByNumber(itemNumber));
+  }
+
+  /**
+   * Method to find an item by the item number without recording it in the metrics, used
+   * by the operations that look up an item as part of their own work.
+
+   * @param itemNumber Item number of the item you want to find.
+   * @return Item with the given item number, or null if it is not in the register.
+   */
+  Item findItemByNumber(String itemNumber) {
     if (itemNumber.isBlank()) {
       throw new IllegalArgumentException("Item number can not be empty.");
     }
+    return items.get(normalizedItemNumber(itemNumber));
+  }
+
+  /**
+   * Method to get the trigram index over the item descriptions, building it from the
+   * items in the register the first time it is used.
 
-    for (Item item : items) {
-      if (item.getItemNumber().equalsIgnoreCase(itemNumber)) {
-        return item;
+   * @return The description index.
+   */
+  private DescriptionIndex descriptionIndex() {
+    if (descriptionIndex == null) {
+      DescriptionIndex index = new DescriptionIndex();
+      for (Item item : items.values()) {
+        index.add(normalizedItemNumber(item.getItemNumber()), item.getItemDescription());
       }
+      descriptionIndex = index;
     }
-    return null;
+    return descriptionIndex;
   }
 
   /**
-   * Method to find an item or items by the item description. Checks for
-   * illegal arguments. Checks if the input item description is contained in
-   * any of the already registered item descriptions. Using contains(), instead of
-   * equals(), lets the user find an item without having to input the full,
-   * precise description of an item.
+   * Method to get the index of the items sorted by price, building it from the items in
+   * the register the first time it is used.
 
-   * @param itemDescription Item description of the item you want to find.
-   * @return ArrayList consisting of the item, or items, that contains the
-   *         same item description as input. Can be more than one since the item only
-   *         needs to contain the input of the user.
+   * @return The price index.
    */
-  public ArrayList<Item> itemsByDescription(String itemDescription) {
-    if (itemDescription.isBlank()) {
-      throw new IllegalArgumentException("Item description can not be empty.");
+  private PriceIndex priceIndex() {
+    if (priceIndex == null) {
+      PriceIndex index = new PriceIndex();
+      for (Item item : items.values()) {
+        String key = normalizedItemNumber(item.getItemNumber());
+        index.add(key, items.sequence(key), item.getPrice(), item.getCategory());
+      }
+      priceIndex = index;
     }
-    ArrayList<Item> foundItems = new ArrayList<Item>();
+    return priceIndex;
+  }
 
-    for (Item item : items) {
-      if (item.getItemDescription().toLowerCase().contains(itemDescription.toLowerCase())) {
-        foundItems.add(item);
+  /**
+   * Method to find an item that is about to be changed. Checks for illegal arguments.
+   * If the item is shared with a copy of the register, a copy of the item is made first,
+   * so the change is not seen in the other register.
+
+   * @param itemNumber Item number of the item you want to change.
+   * @return Item with the given item number, or null if it is not in the register.
+   */
+  private Item itemForUpdate(String itemNumber) {
+    if (itemNumber.isBlank()) {
+      throw new IllegalArgumentException("Item number can not be empty.");
+    }
+    return items.itemForUpdate(normalizedItemNumber(itemNumber));
+  }
+
+  /**
+   * Method to check that a number of items can be put in stock, before the change is
+   * logged, so a logged change can always be made.
+
+   * @param item The item.
+   * @param quantity Number of items to put in stock.
+   */
+  private static void checkRoomInStock(Item item, int quantity) {
+    if (item.getNumberOfItemsInStock() > Integer.MAX_VALUE - quantity) {
+      throw new IllegalArgumentException("Number of items in stock is too large.");
+    }
+  }
+
+  /**
+   * Method to make the exception thrown when an item does not exist.
+
+   * @param itemNumber Item number of the item.
+   * @return The exception.
+   */
+  private static IllegalArgumentException itemNotFound(String itemNumber) {
+    return new ItemNotFoundException("Item with item number " + itemNumber
+        + " does not exist.");
+  }
+
+  /**
+   * Exception thrown when an item does not exist, so the metrics can tell it apart from
+   * the other illegal arguments.
+   */
+  private static class ItemNotFoundException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    private ItemNotFoundException(String message) {
+      super(message);
+    }
+  }
+
+  /**
+   * Method to run an operation giving back a result, and record it in the metrics if
+   * there are any. The operation did not find what it looked for if it gives back null, or
+   * throws an ItemNotFoundException. Every public operation is run through this method or
+   * run(operation, body) exactly once, so an operation must not call another public
+   * operation, which would be recorded as well.
+
+   * @param operation The operation.
+   * @param body Runs the operation.
+   * @param <T> Type of the result.
+   * @param <E> Type of the checked exception the operation can throw.
+   * @return The result.
+   * @throws E If the operation throws it.
+   */
+  private <T, E extends Exception> T call(ItemOperation operation, Body<T, E> body)
+      throws E {
+    ItemRegisterMetrics metrics = this.metrics;
+    if (metrics == null) {
+      return body.call();
+    }
+    long start = System.nanoTime();
+    ItemRegisterMetrics.Outcome outcome = ItemRegisterMetrics.Outcome.SUCCESS;
+
+    try {
+      T result = body.call();
+      if (result == null) {
+        outcome = ItemRegisterMetrics.Outcome.NOT_FOUND;
+      }
+      return result;
+    } catch (Exception e) {
+      outcome = e instanceof ItemNotFoundException
+          ? ItemRegisterMetrics.Outcome.NOT_FOUND : ItemRegisterMetrics.Outcome.of(e);
+      throw e;
+    } finally {
+      metrics.record(operation, outcome, System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Method to run an operation without a result, and record it in the metrics if there
+   * are any, the same way as call(operation, body).
+
+   * @param operation The operation.
+   * @param body Runs the operation.
+   * @param <E> Type of the checked exception the operation can throw.
+   * @throws E If the operation throws it.
+   */
+  private <E extends Exception> void run(ItemOperation operation, VoidBody<E> body)
+      throws E {
+    if (metrics == null) {
+      body.run();
+      return;
+    }
+    call(operation, () -> {
+      body.run();
+      return Boolean.TRUE;
+    });
+  }
+
+  /**
+   * Interface for the body of an operation giving back a result.
+
+   * @param <T> Type of the result.
+   * @param <E> Type of the checked exception the body can throw.
+   */
+  @FunctionalInterface
+  private interface Body<T, E extends Exception> {
+    T call() throws E;
+  }
+
+  /**
+   * Interface for the body of an operation without a result.
+
+   * @param <E> Type of the checked exception the body can throw.
+   */
+  @FunctionalInterface
+  private interface VoidBody<E extends Exception> {
+    void run() throws E;
+  }
+
+  /**
+   * Method to update the item table and the low stock watch after the price, number in
+   * stock or reorder threshold of an item is changed.
+
+   * @param item The changed item.
+   */
+  private void changed(Item item) {
+    String key = normalizedItemNumber(item.getItemNumber());
+    items.changed(key, item);
+    stockChanged(key, item);
+  }
+
+  /**
+   * Method to update the low stock watch after the number in stock or the reorder
+   * threshold of an item is changed, or the item is added. Tells the listener if the item
+   * got low on stock.
+
+   * @param key Normalized item number of the item.
+   * @param item The item.
+   */
+  private void stockChanged(String key, Item item) {
+    if (lowStockWatch != null) {
+      if (lowStockWatch.update(key, items.sequence(key), item.getCategory(),
+          item.getNumberOfItemsInStock(), item.getReorderThreshold())
+          && lowStockListener != null) {
+        lowStockListener.stockBelowThreshold(item, reorderThreshold(item));
+      }
+    }
+  }
+
+  /**
+   * Method to find the reorder threshold of an item: its own threshold if it has one,
+   * otherwise the threshold of its category.
+
+   * @param item The item.
+   * @return Reorder threshold, or 0 if there is none.
+   */
+  private int reorderThreshold(Item item) {
+    int reorderThreshold = item.getReorderThreshold();
+    return reorderThreshold > 0 ? reorderThreshold
+        : reorderThresholds[item.getCategory().ordinal()];
+  }
+
+  /**
+   * Method to get the low stock watch, building it from the items in the register the
+   * first time it is used.
+
+   * @return The low stock watch.
+   */
+  private LowStockWatch lowStockWatch() {
+    if (lowStockWatch == null) {
+      LowStockWatch watch = new LowStockWatch(reorderThresholds);
+      for (Item item : items.values()) {
+        String key = normalizedItemNumber(item.getItemNumber());
+        watch.update(key, items.sequence(key), item.getCategory(),
+            item.getNumberOfItemsInStock(), item.getReorderThreshold());
+      }
+      lowStockWatch = watch;
+    }
+    return lowStockWatch;
+  }
+
+  /**
+   * Method to update the price index and the price history after the price of an item is
+   * changed.
+
+   * @param item The changed item.
+   * @param oldPrice Price of the item before the change.
+   */
+  private void priceChanged(Item item, int oldPrice) {
+    if (priceIndex != null) {
+      String key = normalizedItemNumber(item.getItemNumber());
+      priceIndex.update(key, items.sequence(key), oldPrice, item.getPrice(),
+          item.getCategory());
+    }
+    if (priceHistory != null) {
+      priceHistory.record(item.getItemNumber(), item.getPrice());
+    }
+  }
+
+  /**
+   * Method to find an item or items by the item description. Checks for
+   * illegal arguments. Checks if the input item description is contained in
+   * any of the already registered item descriptions. Using contains(), instead of
+   * equals(), lets the user find an item without having to input the full,
+   * precise description of an item. Descriptions of at least three characters are
+   * first looked up in the trigram index, so only the items containing every
+   * trigram of the description are checked.
+
+   * @param itemDescription Item description of the item you want to find.
+   * @return ArrayList consisting of the item, or items, that contains the
+   *         same item description as input. Can be more than one since the item only
+   *         needs to contain the input of the user.
+   */
+  public ArrayList<Item> itemsByDescription(String itemDescription) {
+    return call(ItemOperation.ITEMS_BY_DESCRIPTION,
+        () -> findItemsByDescription(itemDescription));
+  }
+
+  /**
+   * Method to find the items containing a description without recording it in the
+   * metrics, used by the operations that search by description as part of their own work.
+
+   * @param itemDescription Item description of the item you want to find.
+   * @return ArrayList consisting of the item, or items, containing the description.
+   */
+  ArrayList<Item> findItemsByDescription(String itemDescription) {
+    if (itemDescription.isBlank()) {
+      throw new IllegalArgumentException("Item description can not be empty.");
+    }
+    ArrayList<Item> foundItems = new ArrayList<Item>();
+    String loweredItemDescription = itemDescription.toLowerCase();
+    ArrayList<String> candidateKeys = descriptionIndex().candidates(loweredItemDescription);
+
+    if (candidateKeys == null) {
+      for (Item item : items.values()) {
+        if (item.getItemDescription().toLowerCase().contains(loweredItemDescription)) {
+          foundItems.add(item);
+        }
+      }
+    } else {
+      for (String key : candidateKeys) {
+        Item item = items.get(key);
+        if (item.getItemDescription().toLowerCase().contains(loweredItemDescription)) {
+          foundItems.add(item);
+        }
       }
     }
     return foundItems;
@@ -294,36 +1243,567 @@ public class ItemRegister {
    * @return ArrayList consisting of the item, or items, with the given number and/or description.
    */
   public ArrayList<Item> itemsByNumberOrDescription(String itemNumber, String itemDescription) {
-    ArrayList<Item> foundItems = new ArrayList<Item>();
-    Item item = itemByNumber(itemNumber);
+    return call(ItemOperation.ITEMS_BY_NUMBER_OR_DESCRIPTION, () -> {
+      ArrayList<Item> foundItems = new ArrayList<Item>();
+      Item item = findItemByNumber(itemNumber);
 
-    if (item != null) {
-      foundItems.add(item);
-    } else {
-      foundItems.addAll(itemsByDescription(itemDescription));
-    }
-    return foundItems;
+      if (item != null) {
+        foundItems.add(item);
+      } else {
+        foundItems.addAll(findItemsByDescription(itemDescription));
+      }
+      return foundItems;
+    });
   }
 
   /**
    * Method to find an item or items by the category. Checks for
-   * illegal arguments. Checks if the category matches with the category of
-   * any of the registered items. If it does, it will be added to an ArrayList.
+   * illegal arguments. The items are already sorted by category when they are
+   * added, so only the items in the given category are added to the ArrayList.
 
    * @param itemCategory The category from where you want to find items.
    * @return ArrayList containing the item, or items, in the given category.
    */
   public ArrayList<Item> itemByCategory(ItemCategory itemCategory) {
+    return call(ItemOperation.ITEM_BY_CATEGORY, () -> findItemsByCategory(itemCategory));
+  }
+
+  /**
+   * Method to find the items in a category without recording it in the metrics, used by
+   * the operations that look up a category as part of their own work.
+
+   * @param itemCategory The category from where you want to find items.
+   * @return ArrayList containing the item, or items, in the given category.
+   */
+  ArrayList<Item> findItemsByCategory(ItemCategory itemCategory) {
     if (itemCategory == null) {
       throw new IllegalArgumentException("Item category can not be empty.");
     }
-    ArrayList<Item> foundItems = new ArrayList<Item>();
+    return items.values(itemCategory);
+  }
 
-    for (Item item : items) {
-      if (item.getCategory().equals(itemCategory)) {
-        foundItems.add(item);
+  /**
+   * Method to get a page of the items in the register, in the order they were added.
+   * Checks for illegal arguments. Getting a page takes the same time wherever it is in
+   * the register, so a long list can be shown a page at a time.
+
+   * @param cursor Cursor from the previous page, or null to get the first page.
+   * @param limit Highest number of items on the page.
+   * @return The page, with the cursor to the next page.
+   */
+  public ItemPage page(String cursor, int limit) {
+    return call(ItemOperation.PAGE, () -> {
+      checkLimit(limit);
+      return items.page(ItemPage.sequenceAfter(cursor), limit, null, item -> true);
+    });
+  }
+
+  /**
+   * Method to get a page of the items in a category, in the order they were added.
+   * Checks for illegal arguments.
+
+   * @param itemCategory The category from where you want to find items.
+   * @param cursor Cursor from the previous page, or null to get the first page.
+   * @param limit Highest number of items on the page.
+   * @return The page, with the cursor to the next page.
+   */
+  public ItemPage pageByCategory(ItemCategory itemCategory, String cursor, int limit) {
+    return call(ItemOperation.PAGE_BY_CATEGORY, () -> {
+      if (itemCategory == null) {
+        throw new IllegalArgumentException("Item category can not be empty.");
+      }
+      checkLimit(limit);
+      return items.page(ItemPage.sequenceAfter(cursor), limit, itemCategory, item -> true);
+    });
+  }
+
+  /**
+   * Method to get a page of the items containing a description, in the order they were
+   * added. Checks for illegal arguments. Descriptions of at least three characters are
+   * looked up in the trigram index, and the page starts at the first found item after
+   * the cursor. Shorter descriptions are checked item by item from the cursor until the
+   * page is full.
+
+   * @param itemDescription Item description of the items you want to find.
+   * @param cursor Cursor from the previous page, or null to get the first page.
+   * @param limit Highest number of items on the page.
+   * @return The page, with the cursor to the next page.
+   */
+  public ItemPage pageByDescription(String itemDescription, String cursor, int limit) {
+    return call(ItemOperation.PAGE_BY_DESCRIPTION, () -> {
+      if (itemDescription.isBlank()) {
+        throw new IllegalArgumentException("Item description can not be empty.");
+      }
+      checkLimit(limit);
+      long after = ItemPage.sequenceAfter(cursor);
+      String loweredItemDescription = itemDescription.toLowerCase();
+      ArrayList<String> candidateKeys = descriptionIndex().candidates(loweredItemDescription);
+
+      if (candidateKeys == null) {
+        return items.page(after, limit, null, item ->
+            item.getItemDescription().toLowerCase().contains(loweredItemDescription));
+      }
+      ArrayList<Item> foundItems = new ArrayList<>();
+      long last = after;
+      int low = 0;
+      int high = candidateKeys.size();
+
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (items.sequence(candidateKeys.get(middle)) <= after) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      for (String key : candidateKeys.subList(low, candidateKeys.size())) {
+        Item item = items.get(key);
+        if (item.getItemDescription().toLowerCase().contains(loweredItemDescription)) {
+          if (foundItems.size() == limit) {
+            return new ItemPage(foundItems, last);
+          }
+          foundItems.add(item);
+          last = items.sequence(key);
+        }
+      }
+      return new ItemPage(foundItems, -1);
+    });
+  }
+
+  /**
+   * Method to check the number of items asked for on a page.
+
+   * @param limit Highest number of items on the page.
+   */
+  private static void checkLimit(int limit) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("A page must have room for at least 1 item.");
+    }
+  }
+
+  /**
+   * Method to find the items with a price within a range. Checks for illegal arguments.
+   * Looks up the range in the price index, so only the items that are found are visited.
+
+   * @param minPrice Lowest price, inclusive.
+   * @param maxPrice Highest price, inclusive.
+   * @return ArrayList containing the items with a price within the range, cheapest first.
+   *         Items with the same price are in the order they were added.
+   */
+  public ArrayList<Item> itemsByPrice(int minPrice, int maxPrice) {
+    return call(ItemOperation.ITEMS_BY_PRICE, () -> {
+      return itemsByPrice(minPrice, maxPrice, null, Integer.MAX_VALUE);
+    });
+  }
+
+  /**
+   * Method to find the items in a category with a price within a range. Checks for illegal
+   * arguments.
+
+   * @param itemCategory Category of the items.
+   * @param minPrice Lowest price, inclusive.
+   * @param maxPrice Highest price, inclusive.
+   * @return ArrayList containing the items with a price within the range, cheapest first.
+   */
+  public ArrayList<Item> itemsByPrice(ItemCategory itemCategory, int minPrice, int maxPrice) {
+    return call(ItemOperation.ITEMS_BY_PRICE, () -> {
+      if (itemCategory == null) {
+        throw new IllegalArgumentException("Item category can not be empty.");
+      }
+      return itemsByPrice(minPrice, maxPrice, itemCategory, Integer.MAX_VALUE);
+    });
+  }
+
+  /**
+   * Method to find the cheapest items in the register. Checks for illegal arguments.
+
+   * @param limit Highest number of items to find.
+   * @return ArrayList containing at most limit items, cheapest first.
+   */
+  public ArrayList<Item> cheapestItems(int limit) {
+    return call(ItemOperation.CHEAPEST_ITEMS, () -> {
+      if (limit < 1) {
+        throw new IllegalArgumentException("Number of items must be at least 1.");
+      }
+      return itemsByPrice(0, Integer.MAX_VALUE, null, limit);
+    });
+  }
+
+  /**
+   * Method to find the cheapest items in a category. Checks for illegal arguments.
+
+   * @param itemCategory Category of the items.
+   * @param limit Highest number of items to find.
+   * @return ArrayList containing at most limit items, cheapest first.
+   */
+  public ArrayList<Item> cheapestItems(ItemCategory itemCategory, int limit) {
+    return call(ItemOperation.CHEAPEST_ITEMS, () -> {
+      if (itemCategory == null) {
+        throw new IllegalArgumentException("Item category can not be empty.");
       }
+      if (limit < 1) {
+        throw new IllegalArgumentException("Number of items must be at least 1.");
+      }
+      return itemsByPrice(0, Integer.MAX_VALUE, itemCategory, limit);
+    });
+  }
+
+  /**
+   * Method to find items with a price within a range in the price index. Checks for
+   * illegal arguments. Finding the start of the range takes logarithmic time, and then
+   * every item found takes constant time.
+
+   * @param minPrice Lowest price, inclusive.
+   * @param maxPrice Highest price, inclusive.
+   * @param itemCategory Category of the items, or null for every category.
+   * @param limit Highest number of items to find.
+   * @return ArrayList containing the found items, cheapest first.
+   */
+  ArrayList<Item> itemsByPrice(int minPrice, int maxPrice, ItemCategory itemCategory,
+                                       int limit) {
+    if (minPrice > maxPrice) {
+      throw new IllegalArgumentException("Lowest price can not be greater than highest price.");
+    }
+    ArrayList<Item> foundItems = new ArrayList<>();
+
+    for (String key : priceIndex().keys(minPrice, maxPrice, itemCategory, limit)) {
+      foundItems.add(items.get(key));
     }
     return foundItems;
   }
+
+  /**
+   * Method to count the items with a price within a range, used to estimate the cost of
+   * searching by price.
+
+   * @param minPrice Lowest price, inclusive.
+   * @param maxPrice Highest price, inclusive.
+   * @param limit Highest number to count to.
+   * @return Number of items with a price within the range, or limit if there are at least
+   *         that many.
+   */
+  int numberOfItemsByPrice(int minPrice, int maxPrice, int limit) {
+    return priceIndex().count(minPrice, maxPrice, null, limit);
+  }
+
+  /**
+   * Method to estimate how many items are checked when searching by description.
+
+   * @param loweredItemDescription Searched description, converted to lower case.
+   * @return Highest number of items checked, or -1 if every item is checked.
+   */
+  int estimateItemsByDescription(String loweredItemDescription) {
+    return descriptionIndex().estimate(loweredItemDescription);
+  }
+
+  /**
+   * Method to find the number of items of a brand, ignoring case, used to estimate the cost
+   * of searching by brand.
+
+   * @param brandName Brand name.
+   * @return Number of items, or -1 if the items can only be found by checking every item.
+   */
+  int numberOfItemsByBrand(String brandName) {
+    return items.sizeOfBrand(brandName);
+  }
+
+  /**
+   * Method to find the items of a brand, ignoring case, by comparing the code of the brand
+   * name of every item instead of the text.
+
+   * @param brandName Brand name.
+   * @return The items, in the order they were added.
+   */
+  ArrayList<Item> itemsByBrand(String brandName) {
+    ArrayList<Item> foundItems = items.valuesByBrand(brandName);
+
+    if (foundItems == null) {
+      foundItems = new ArrayList<>();
+      for (Item item : items.values()) {
+        if (item.getBrandName().equalsIgnoreCase(brandName)) {
+          foundItems.add(item);
+        }
+      }
+    }
+    return foundItems;
+  }
+
+  /**
+   * Method to find the number of items of a colour, ignoring case, used to estimate the
+   * cost of searching by colour.
+
+   * @param colour Colour.
+   * @return Number of items, or -1 if the items can only be found by checking every item.
+   */
+  int numberOfItemsByColour(String colour) {
+    return items.sizeOfColour(colour);
+  }
+
+  /**
+   * Method to find the items of a colour, ignoring case, by comparing the code of the
+   * colour of every item instead of the text.
+
+   * @param colour Colour.
+   * @return The items, in the order they were added.
+   */
+  ArrayList<Item> itemsByColour(String colour) {
+    ArrayList<Item> foundItems = items.valuesByColour(colour);
+
+    if (foundItems == null) {
+      foundItems = new ArrayList<>();
+      for (Item item : items.values()) {
+        if (item.getColour().equalsIgnoreCase(colour)) {
+          foundItems.add(item);
+        }
+      }
+    }
+    return foundItems;
+  }
+
+  /**
+   * Method to find the items matching a query. Checks for illegal arguments. The possible
+   * items are looked up in the index the query expects to be the cheapest, and every item
+   * is only checked if no index is expected to be cheaper. When the items are looked up
+   * in the order they are asked for, the search stops as soon as enough items are found.
+
+   * @param query The query.
+   * @param order Order of the found items.
+   * @param limit Highest number of items to find.
+   * @return ArrayList containing at most limit items matching the query, in the given order.
+   */
+  public ArrayList<Item> search(ItemQuery query, ItemOrder order, int limit) {
+    return call(ItemOperation.SEARCH, () -> {
+      if (query == null) {
+        throw new IllegalArgumentException("Query can not be empty.");
+      }
+      if (order == null) {
+        throw new IllegalArgumentException("Order can not be empty.");
+      }
+      if (limit < 1) {
+        throw new IllegalArgumentException("Number of items must be at least 1.");
+      }
+      ItemQuery.AccessPath accessPath = query.accessPath(this, items.size());
+      if (metrics != null) {
+        metrics.recordAccessPath(accessPath == null ? "scan" : accessPath.name);
+      }
+      Iterable<Item> candidates = accessPath == null ? items.values() : accessPath.items();
+      boolean inOrder = order == (accessPath == null ? ItemOrder.ADDED : accessPath.order);
+      ArrayList<Item> foundItems = new ArrayList<>();
+
+      for (Item item : candidates) {
+        if (query.matches(item)) {
+          foundItems.add(item);
+          if (inOrder && foundItems.size() == limit) {
+            return foundItems;
+          }
+        }
+      }
+      if (!inOrder) {
+        foundItems.sort(order == ItemOrder.ADDED
+            ? Comparator.comparingLong(
+                item -> items.sequence(normalizedItemNumber(item.getItemNumber())))
+            : order.getComparator());
+      }
+      if (foundItems.size() > limit) {
+        foundItems.subList(limit, foundItems.size()).clear();
+      }
+      return foundItems;
+    });
+  }
+
+  /**
+   * Method to show how a query would be searched, without searching it. Checks for
+   * illegal arguments.
+
+   * @param query The query.
+   * @return Name of the index the possible items are looked up in, and how many items
+   *         are expected to be checked.
+   */
+  public String searchPlan(ItemQuery query) {
+    return call(ItemOperation.SEARCH_PLAN, () -> {
+      if (query == null) {
+        throw new IllegalArgumentException("Query can not be empty.");
+      }
+      ItemQuery.AccessPath accessPath = query.accessPath(this, items.size());
+
+      if (accessPath == null) {
+        return "scan of every item (" + items.size() + " items)";
+      }
+      return "index on " + accessPath.name + " (about " + accessPath.cost + " items)";
+    });
+  }
+
+  /**
+   * Set method for the listener told every time an item gets fewer items in stock than
+   * its reorder threshold. A copy made with the copy constructor does not use the listener.
+
+   * @param lowStockListener Listener, or null to stop telling a listener.
+   */
+  public void setLowStockListener(LowStockListener lowStockListener) {
+    this.lowStockListener = lowStockListener;
+    if (lowStockListener != null) {
+      lowStockWatch();
+    }
+  }
+
+  /**
+   * Method to set the reorder threshold of an item. Checks for illegal arguments.
+   * The item is low on stock when it has fewer items in stock than the threshold.
+
+   * @param itemNumber Item number of the item.
+   * @param reorderThreshold Reorder threshold, or 0 to use the threshold of the category.
+   */
+  public void setReorderThreshold(String itemNumber, int reorderThreshold) {
+    run(ItemOperation.SET_REORDER_THRESHOLD, () -> {
+      if (reorderThreshold < 0) {
+        throw new IllegalArgumentException("Reorder threshold must be at least 0.");
+      }
+      Item item = itemForUpdate(itemNumber);
+
+      if (item == null) {
+        throw itemNotFound(itemNumber);
+      }
+      if (log != null) {
+        log.appendReorderThreshold(item.getItemNumber(), reorderThreshold);
+      }
+      item.setReorderThreshold(reorderThreshold);
+      changed(item);
+    });
+  }
+
+  /**
+   * Method to set the reorder threshold of a category, used for the items in the category
+   * without a threshold of their own. Checks for illegal arguments. If the low items are
+   * already watched, only the items that get low are visited, and the listener is told.
+
+   * @param itemCategory Category of the items.
+   * @param reorderThreshold Reorder threshold, or 0 to remove the threshold.
+   */
+  public void setReorderThreshold(ItemCategory itemCategory, int reorderThreshold) {
+    run(ItemOperation.SET_REORDER_THRESHOLD, () -> {
+      if (itemCategory == null) {
+        throw new IllegalArgumentException("Item category can not be empty.");
+      }
+      if (reorderThreshold < 0) {
+        throw new IllegalArgumentException("Reorder threshold must be at least 0.");
+      }
+      if (log != null) {
+        log.appendReorderThreshold(itemCategory, reorderThreshold);
+      }
+      reorderThresholds[itemCategory.ordinal()] = reorderThreshold;
+      if (lowStockWatch != null) {
+        for (String key : lowStockWatch.setReorderThreshold(itemCategory, reorderThreshold)) {
+          if (lowStockListener != null) {
+            lowStockListener.stockBelowThreshold(items.get(key), reorderThreshold);
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Method to get the reorder threshold of a category, for example to write it to a snapshot.
+
+   * @param itemCategory Category of the items.
+   * @return Reorder threshold, or 0 if the category has none.
+   */
+  int reorderThreshold(ItemCategory itemCategory) {
+    return reorderThresholds[itemCategory.ordinal()];
+  }
+
+  /**
+   * Method to find the items with fewer items in stock than their reorder threshold.
+   * The low items are kept up to date on every change, so this only visits the low items.
+
+   * @return ArrayList containing the low items, the one with the lowest number in stock
+   *         compared to its threshold first.
+   */
+  public ArrayList<Item> lowStockItems() {
+    return call(ItemOperation.LOW_STOCK_ITEMS, () -> {
+      ArrayList<Item> foundItems = new ArrayList<>();
+
+      for (String key : lowStockWatch().keys()) {
+        foundItems.add(items.get(key));
+      }
+      return foundItems;
+    });
+  }
+
+  /**
+   * Method to find the items with a number in stock within a range, for example to find
+   * the items that are running out. Checks for illegal arguments.
+
+   * @param min Lowest number in stock, inclusive.
+   * @param max Highest number in stock, inclusive.
+   * @return ArrayList containing the items with a number in stock within the range, in the
+   *         order they were added.
+   */
+  public ArrayList<Item> itemsByNumberInStock(int min, int max) {
+    return call(ItemOperation.ITEMS_BY_NUMBER_IN_STOCK, () -> {
+      if (min > max) {
+        throw new IllegalArgumentException(
+            "Lowest number in stock can not be greater than highest number in stock.");
+      }
+      return items.valuesByNumberInStock(min, max, null);
+    });
+  }
+
+  /**
+   * Method to get the totals of every item in the register: the number of items, the number
+   * of units in stock, and the value and weight of the items in stock. The totals are kept
+   * up to date on every change, so this does not go through the items.
+
+   * @return Totals of the register.
+   */
+  public InventoryTotals totals() {
+    return call(ItemOperation.TOTALS, () -> {
+      InventoryTotals totals = InventoryTotals.EMPTY;
+
+      for (ItemCategory itemCategory : ItemCategory.values()) {
+        totals = totals.plus(items.totals(itemCategory));
+      }
+      return totals;
+    });
+  }
+
+  /**
+   * Method to get the totals of the items in a category. Checks for illegal arguments.
+
+   * @param itemCategory The category you want the totals of.
+   * @return Totals of the items in the given category.
+   */
+  public InventoryTotals totalsByCategory(ItemCategory itemCategory) {
+    return call(ItemOperation.TOTALS_BY_CATEGORY, () -> {
+      if (itemCategory == null) {
+        throw new IllegalArgumentException("Item category can not be empty.");
+      }
+      return items.totals(itemCategory);
+    });
+  }
+
+  /**
+   * Method to get the totals of the items of a brand. Checks for illegal arguments.
+
+   * @param brandName The brand name you want the totals of.
+   * @return Totals of the items with the given brand name. Empty if there are none.
+   */
+  public InventoryTotals totalsByBrand(String brandName) {
+    return call(ItemOperation.TOTALS_BY_BRAND, () -> {
+      if (brandName.isBlank()) {
+        throw new IllegalArgumentException("Brand name can not be empty.");
+      }
+      return items.totals(brandName);
+    });
+  }
+
+  /**
+   * Method to get the totals of every brand in the register.
+
+   * @return Totals of every brand, sorted by brand name.
+   */
+  public TreeMap<String, InventoryTotals> totalsByBrand() {
+    return call(ItemOperation.TOTALS_BY_BRAND, () -> {
+      return new TreeMap<>(items.brandTotals());
+    });
+  }
 }
@@ -1,3 +1,10 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Scanner;
 
@@ -10,7 +17,12 @@ public class ItemRegisterApplication {
    * Defining the variables.
    */
   private final Scanner sc = new Scanner(System.in);
-  private final ItemRegister itemRegister = new ItemRegister();
+  private ItemRegister itemRegister = new ItemRegister();
+  private ItemRegisterLog log;
+  private ItemRegisterFile snapshot;
+
+  private static final Path LOG_PATH = Path.of("itemregister.log");
+  private static final Path SNAPSHOT_PATH = Path.of("itemregister.snapshot");
 
   private static final int ITEM_OVERVIEW = 1;
   private static final int ADD_TESTDATA = 2;
@@ -69,6 +81,9 @@ public class ItemRegisterApplication {
    * Using the menu input from the user in the switch statement.
    */
   private void start() {
+    if (!loadSnapshot() || !openLog()) {
+      return;
+    }
     boolean finished = false;
 
     while (!finished) {
@@ -92,29 +107,129 @@ public class ItemRegisterApplication {
     }
   }
 
+  /**
+   * Method to load the items saved in the snapshot file when the program last exited.
+   * If there is no snapshot, the program starts with an empty register. If there is a
+   * snapshot that can not be loaded, the program must stop without opening the log, since
+   * it would otherwise run with only the changes logged after the snapshot, and replace
+   * the snapshot with them when it exits.
+
+   * @return True if the program can start, false if it must stop.
+   */
+  private boolean loadSnapshot() {
+    if (Files.exists(SNAPSHOT_PATH)) {
+      try {
+        snapshot = ItemRegisterFile.load(SNAPSHOT_PATH);
+        itemRegister = snapshot.getItemRegister();
+      } catch (IOException e) {
+        System.out.println("Could not load the snapshot file " + SNAPSHOT_PATH + ": "
+            + e.getMessage() + "\nThe program stops, so the snapshot file and the log file "
+            + LOG_PATH + " are left as they are. Restore the snapshot file from a backup, "
+            + "or move it away to start with only the changes in the log.");
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Method to restore the changes saved in the log file since the snapshot was written,
+   * and to log every following change. If the log can not be replayed or opened, the
+   * program must stop, since the register would only hold the changes before the damaged
+   * record, and the following changes would not be saved.
+
+   * @return True if the program can start, false if it must stop.
+   */
+  private boolean openLog() {
+    long snapshotLogId = snapshot == null ? 0 : snapshot.getLogId();
+    long snapshotLogPosition = snapshot == null ? 0 : snapshot.getLogPosition();
+    try {
+      log = ItemRegisterLog.open(LOG_PATH, itemRegister, ItemRegisterLog.FsyncPolicy.GROUP,
+          snapshotLogId, snapshotLogPosition);
+      if (log.getNumberOfReplayedRecords() > 0) {
+        System.out.println("Restored " + log.getNumberOfReplayedRecords()
+            + " changes from " + LOG_PATH + ".");
+      }
+    } catch (IOException | UncheckedIOException e) {
+      System.out.println("Could not open the log file " + LOG_PATH + ": " + e.getMessage()
+          + "\nThe program stops, so the snapshot file and the log file are left as they "
+          + "are. Restore the log file from a backup, or move it away to start from the "
+          + "snapshot.");
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Method to write a snapshot of the register, so the program starts quickly next time,
+   * and then close the log file. If the snapshot can not be written, the changes are
+   * still saved in the log.
+   */
+  private void closeLog() {
+    if (log != null) {
+      try {
+        log.checkpoint(itemRegister, SNAPSHOT_PATH);
+      } catch (IOException | UncheckedIOException e) {
+        System.out.println("Could not write the snapshot file " + SNAPSHOT_PATH + ": "
+            + e.getMessage());
+      }
+      try {
+        log.close();
+      } catch (IOException | UncheckedIOException e) {
+        System.out.println("Could not save the last changes: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Method to print every item in the register straight to the console, item by item,
+   * through a buffer that is flushed when all the items are written.
+
+   * @param shortVersion True to print only the most relevant information about each item.
+   */
+  private void printAllItems(boolean shortVersion) {
+    if (itemRegister.numberOfItems() == 0) {
+      System.out.println("There are no items registered.");
+      return;
+    }
+    Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+
+    try {
+      if (shortVersion) {
+        itemRegister.printItemsShortVersion(out);
+      } else {
+        itemRegister.printItems(out);
+      }
+      out.append('\n').flush();
+    } catch (IOException e) {
+      System.out.println("Could not print the items: " + e.getMessage());
+    }
+  }
+
   /**
    * Method used in the first switch case in start(). By using methods
    * from the ItemRegister class it lets the user choose between several
    * options to get an item overview. Using the same try/catch as in
-   * showMenu() to make user the user only can input an int between 1 and 4.
+   * showMenu() to make user the user only can input an int between 1 and 5.
    */
   private void printItems() {
     String choices = ("""
 
                 1. Get the number of registered items
-                2. Get a full overview of registered items
-                3. Get a quick overview of registered items
-                4. Go back to main menu
+                2. Get the number of registered items in each category
+                3. Get a full overview of registered items
+                4. Get a quick overview of registered items
+                5. Go back to main menu
                 """);
     System.out.println("\nPrint items\n" + "---------" + choices
-        + "---------" + "\nPlease enter a number between 1 and 4.\n");
+        + "---------" + "\nPlease enter a number between 1 and 5.\n");
     int menuInput = 0;
 
-    while (menuInput < 1 || menuInput > 4) {
+    while (menuInput < 1 || menuInput > 5) {
       try {
         menuInput = Integer.parseInt(sc.nextLine());
       } catch (NumberFormatException e) {
-        System.out.println("Please enter a number between 1 and 4.");
+        System.out.println("Please enter a number between 1 and 5.");
         menuInput = 0;
       }
     }
@@ -123,24 +238,16 @@ public class ItemRegisterApplication {
       case 1 -> System.out.println("There are " + itemRegister.numberOfItems()
           + " items registered.");
       case 2 -> {
-        String items = itemRegister.printItems();
-        if (items.isBlank()) {
-          System.out.println("There are no items registered.");
-        } else {
-          System.out.println(itemRegister.printItems());
-        }
-      }
-      case 3 -> {
-        String items = itemRegister.printItemsShortVersion();
-        if (items.isBlank()) {
-          System.out.println("There are no items registered.");
-        } else {
-          System.out.println(itemRegister.printItemsShortVersion());
+        for (ItemCategory itemCategory : ItemCategory.values()) {
+          System.out.println(itemCategory + ": "
+              + itemRegister.numberOfItemsInCategory(itemCategory) + " items");
         }
       }
-      case 4 -> showMenu();
+      case 3 -> printAllItems(false);
+      case 4 -> printAllItems(true);
+      case 5 -> showMenu();
       default -> {
-        String tryAgain = ("You did not enter a number between 1 and 4. Please try again.");
+        String tryAgain = ("You did not enter a number between 1 and 5. Please try again.");
         System.out.println(tryAgain);
       }
     }
@@ -189,7 +296,7 @@ public class ItemRegisterApplication {
           3. Doors
           4. Lumber
           Please enter a number between 1 and""" + " " + ItemCategory.getNumberOfCategories());
-      Item item = new Item(itemNumber, itemName, itemDescription, price,
+      Item item = itemRegister.newItem(itemNumber, itemName, itemDescription, price,
           brandName, weight, length, height, colour, numberOfItemsInStock, itemCategory);
       itemRegister.addItem(item);
       System.out.println("Item with item number " + itemNumber + " is successfully registered.");
@@ -237,6 +344,30 @@ public class ItemRegisterApplication {
     return value;
   }
 
+  /**
+   * Method to read integer input that may be left empty. Checks for illegal arguments.
+
+   * @param message Message that tells the user what to input.
+   * @return Input (an int of at least 0), or -1 if the input was empty.
+   */
+  private int readOptionalInt(String message) {
+    System.out.println(message);
+    Integer value = null;
+    while (value == null) {
+      try {
+        String line = sc.nextLine();
+        value = line.isBlank() ? -1 : Integer.parseInt(line.trim());
+        if (value < 0 && !line.isBlank()) {
+          value = null;
+          throw new IllegalArgumentException("Number must be at least 0.");
+        }
+      } catch (IllegalArgumentException e) {
+        System.out.println("Input a valid whole number of at least 0, or leave it empty.");
+      }
+    }
+    return value;
+  }
+
   /**
    * Method to read double input. Checks for illegal arguments.
    * Using a try/catch to make sure the input is a double.
@@ -288,8 +419,8 @@ public class ItemRegisterApplication {
    * By using methods from the ItemRegister class it lets
    * the user choose between several options to find an item by.
    * Using the same try/catch as in showMenu() to make user the user
-   * only can input an int between 1 and 5. Throws an IllegalArgumentException
-   * in every switch case, except the fifth one, to make sure the input
+   * only can input an int between 1 and 6. Throws an IllegalArgumentException
+   * in every switch case, except the sixth one, to make sure the input
    * from the user is valid.
    */
   private void findItem() {
@@ -299,17 +430,18 @@ public class ItemRegisterApplication {
                 2. Find item(s) by item description
                 3. Find item(s) by number and description
                 4. Find item(s) by itemCategory
-                5. Go back to main menu
+                5. Advanced search
+                6. Go back to main menu
                 """);
     System.out.println("\nSearch items\n" + "---------"
-        + choices + "---------" + "\nPlease enter a number between 1 and 5.\n");
+        + choices + "---------" + "\nPlease enter a number between 1 and 6.\n");
     int menuInput = 0;
 
-    while (menuInput < 1 || menuInput > 5) {
+    while (menuInput < 1 || menuInput > 6) {
       try {
         menuInput = Integer.parseInt(sc.nextLine());
       } catch (NumberFormatException e) {
-        System.out.println("Please enter a number between 1 and 5.");
+        System.out.println("Please enter a number between 1 and 6.");
         menuInput = 0;
       }
     }
@@ -373,9 +505,8 @@ public class ItemRegisterApplication {
             Please enter a number between 1 and""" + " " + ItemCategory.getNumberOfCategories());
 
         try {
-          ArrayList<Item> items = itemRegister.itemByCategory(itemCategory);
-          if (items.size() > 0) {
-            for (Item item : items) {
+          if (itemRegister.numberOfItemsInCategory(itemCategory) > 0) {
+            for (Item item : itemRegister.itemByCategory(itemCategory)) {
               System.out.println(item);
             }
           } else {
@@ -387,14 +518,99 @@ public class ItemRegisterApplication {
           System.out.println("Error when finding item: " + e.getMessage());
         }
       }
-      case 5 -> showMenu();
+      case 5 -> advancedSearch();
+      case 6 -> showMenu();
       default -> {
-        String tryAgain = ("You did not enter a number between 1 and 5. Please try again.");
+        String tryAgain = ("You did not enter a number between 1 and 6. Please try again.");
         System.out.println(tryAgain);
       }
     }
   }
 
+  /**
+   * Method used in the fifth switch case in findItem(), to find items matching several
+   * conditions at once. Every condition can be skipped by leaving it empty, and the user
+   * chooses if the items must match all the conditions or only one of them, the order of
+   * the items and how many to show.
+   */
+  private void advancedSearch() {
+    ArrayList<ItemQuery> conditions = new ArrayList<>();
+
+    try {
+      String itemNumber = readString("Item number (empty to skip): ");
+      if (!itemNumber.isBlank()) {
+        conditions.add(ItemQuery.itemNumber(itemNumber));
+      }
+      String itemDescription = readString("Description contains (empty to skip): ");
+      if (!itemDescription.isBlank()) {
+        conditions.add(ItemQuery.description(itemDescription));
+      }
+      int categoryNumber = readOptionalInt("""
+
+          Category (empty to skip):
+          1. Floor laminate
+          2. Windows
+          3. Doors
+          4. Lumber""");
+      if (categoryNumber >= 0) {
+        conditions.add(ItemQuery.category(ItemCategory.getCategoryFromNumber(categoryNumber)));
+      }
+      String brandName = readString("Brand name (empty to skip): ");
+      if (!brandName.isBlank()) {
+        conditions.add(ItemQuery.brand(brandName));
+      }
+      String colour = readString("Colour (empty to skip): ");
+      if (!colour.isBlank()) {
+        conditions.add(ItemQuery.colour(colour));
+      }
+      int minPrice = readOptionalInt("Lowest price (empty to skip): ");
+      int maxPrice = readOptionalInt("Highest price (empty to skip): ");
+      if (minPrice >= 0 || maxPrice >= 0) {
+        conditions.add(ItemQuery.price(Math.max(minPrice, 0),
+            maxPrice < 0 ? Integer.MAX_VALUE : maxPrice));
+      }
+      int minStock = readOptionalInt("Lowest number in stock (empty to skip): ");
+      int maxStock = readOptionalInt("Highest number in stock (empty to skip): ");
+      if (minStock >= 0 || maxStock >= 0) {
+        conditions.add(ItemQuery.numberInStock(Math.max(minStock, 0),
+            maxStock < 0 ? Integer.MAX_VALUE : maxStock));
+      }
+      if (conditions.isEmpty()) {
+        System.out.println("No conditions were given.");
+        return;
+      }
+      ItemQuery[] queries = conditions.toArray(new ItemQuery[0]);
+      ItemQuery query = conditions.size() > 1
+          && readOptionalInt("1. Match all conditions (default)\n2. Match any condition") == 2
+          ? ItemQuery.anyOf(queries) : ItemQuery.allOf(queries);
+      ItemOrder order = switch (readOptionalInt("""
+          1. Order added (default)
+          2. Lowest price first
+          3. Highest price first
+          4. Lowest number in stock first
+          5. Item number""")) {
+        case 2 -> ItemOrder.PRICE_LOWEST_FIRST;
+        case 3 -> ItemOrder.PRICE_HIGHEST_FIRST;
+        case 4 -> ItemOrder.NUMBER_IN_STOCK_LOWEST_FIRST;
+        case 5 -> ItemOrder.ITEM_NUMBER;
+        default -> ItemOrder.ADDED;
+      };
+      int limit = readOptionalInt("Highest number of items to show (empty for all): ");
+
+      ArrayList<Item> items = itemRegister.search(query, order,
+          limit < 1 ? Integer.MAX_VALUE : limit);
+      if (items.size() > 0) {
+        for (Item item : items) {
+          System.out.println(item);
+        }
+      } else {
+        System.out.println("No items matching the conditions were found.");
+      }
+    } catch (IllegalArgumentException e) {
+      System.out.println("Error when finding item: " + e.getMessage());
+    }
+  }
+
   /**
    * Method used in the fifth switch case in start(), to make changes
    * to an item. By using methods from the ItemRegister class it lets
@@ -561,6 +777,7 @@ public class ItemRegisterApplication {
       case 1 -> {
         String exit = ("Exiting program ...");
         System.out.println(exit);
+        closeLog();
         System.exit(0);
       }
       case 2 -> showMenu();
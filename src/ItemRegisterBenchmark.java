@@ -0,0 +1,384 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Class for measuring how fast the operations of the ItemRegister class are, so the results
+ * of two versions can be compared. Every benchmark is run for every register size, key
+ * distribution and item storage asked for, and the results are written as CSV, one line per
+ * benchmark, size, distribution and storage, in the same order every time. Every line also
+ * holds the memory used by the register, on and off the heap, measured once after the
+ * register is filled.
+ *
+ * <p>Every benchmark is first run until the number of operations that takes about one
+ * iteration is known, then warmed up for a few iterations so the code is compiled, and then
+ * measured for several iterations. The result is the mean time per operation, and the
+ * standard deviation between the iterations as the error.
+ *
+ * <p>Arguments, all optional, on the form name=value: sizes (comma separated, default
+ * 1000,10000,100000,1000000,10000000), distributions (SEQUENTIAL, UNIFORM and SKEWED),
+ * storages (HEAP and OFF_HEAP, default HEAP), benchmarks (names from the first column,
+ * where fullGc times a full garbage collection), iterationMs (default 200), warmup (default 3),
+ * iterations (default 5), seed (default 1) and out (file to write the CSV to, besides the
+ * console). The largest registers need a large heap, for example -Xmx8g. A size that does
+ * not fit is skipped.
+ */
+public class ItemRegisterBenchmark {
+
+  /**
+   * Defining the names of the benchmarks, in the order they are run.
+   */
+  private static final List<String> BENCHMARKS = List.of("addItem", "itemByNumber",
+      "itemsByDescription", "itemByCategory", "increaseAndDecreaseStock", "discountPrice",
+      "printItems", "copy", "fullGc");
+
+  /**
+   * Defining the number of words the descriptions are made of, and the number of lookups
+   * made before the pattern of looked up items repeats.
+   */
+  private static final int NUMBER_OF_WORDS = 32;
+  private static final int PATTERN_SIZE = 1 << 16;
+
+  /**
+   * Enum class, representing how the item numbers look and which items are looked up.
+   * SEQUENTIAL has increasing item numbers looked up in order, UNIFORM has random item
+   * numbers looked up at random, and SKEWED has random item numbers where most lookups are
+   * for a small part of the items.
+   */
+  enum KeyDistribution {
+    SEQUENTIAL,
+    UNIFORM,
+    SKEWED
+  }
+
+  /**
+   * Interface for one operation of a benchmark.
+   */
+  @FunctionalInterface
+  private interface Operation {
+
+    /**
+     * Method to run the operation once.
+
+     * @param i Number of the operation, counting from 0 in every iteration.
+     * @return Any value depending on the result, so the operation is not optimized away.
+     */
+    long run(long i);
+  }
+
+  /**
+   * Sum of the values returned by the operations, so they are not optimized away.
+   */
+  private static volatile long sink;
+
+  /**
+   * Defining the settings of the run.
+   */
+  private final long iterationNanos;
+  private final int warmupIterations;
+  private final int iterations;
+  private final long seed;
+
+  /**
+   * Constructor for item register benchmark.
+
+   * @param iterationMs Time one iteration should take, in milliseconds.
+   * @param warmupIterations Number of iterations before measuring.
+   * @param iterations Number of measured iterations.
+   * @param seed Seed for the random items and lookups.
+   */
+  ItemRegisterBenchmark(int iterationMs, int warmupIterations, int iterations, long seed) {
+    if (iterationMs < 1 || warmupIterations < 0 || iterations < 1) {
+      throw new IllegalArgumentException(
+          "Iterations must take at least 1 ms, and at least 1 iteration must be measured.");
+    }
+    this.iterationNanos = iterationMs * 1_000_000L;
+    this.warmupIterations = warmupIterations;
+    this.iterations = iterations;
+    this.seed = seed;
+  }
+
+  /**
+   * Method to run the benchmarks and write the results.
+
+   * @param args Arguments on the form name=value, described in the class comment.
+   * @throws IOException If the results can not be written to the out file.
+   */
+  public static void main(String[] args) throws IOException {
+    String sizes = "1000,10000,100000,1000000,10000000";
+    String distributions = "SEQUENTIAL,UNIFORM,SKEWED";
+    String storages = "HEAP";
+    String benchmarks = String.join(",", BENCHMARKS);
+    int iterationMs = 200;
+    int warmup = 3;
+    int iterations = 5;
+    long seed = 1;
+    String out = null;
+
+    for (String arg : args) {
+      String[] nameAndValue = arg.split("=", 2);
+      if (nameAndValue.length != 2) {
+        throw new IllegalArgumentException("'" + arg + "' is not on the form name=value.");
+      }
+      String value = nameAndValue[1];
+      switch (nameAndValue[0]) {
+        case "sizes" -> sizes = value;
+        case "distributions" -> distributions = value;
+        case "storages" -> storages = value;
+        case "benchmarks" -> benchmarks = value;
+        case "iterationMs" -> iterationMs = Integer.parseInt(value);
+        case "warmup" -> warmup = Integer.parseInt(value);
+        case "iterations" -> iterations = Integer.parseInt(value);
+        case "seed" -> seed = Long.parseLong(value);
+        case "out" -> out = value;
+        default -> throw new IllegalArgumentException("Unknown argument '" + arg + "'.");
+      }
+    }
+    List<String> selected = Arrays.asList(benchmarks.split(","));
+    for (String benchmark : selected) {
+      if (!BENCHMARKS.contains(benchmark)) {
+        throw new IllegalArgumentException("Unknown benchmark '" + benchmark + "'.");
+      }
+    }
+    ItemRegisterBenchmark runner = new ItemRegisterBenchmark(iterationMs, warmup, iterations,
+        seed);
+    ArrayList<String> lines = new ArrayList<>();
+    lines.add("benchmark,size,distribution,storage,iterations,nsPerOperation,errorNs,"
+        + "operationsPerSecond,heapBytes,offHeapBytes");
+    System.out.println(lines.get(0));
+
+    for (String size : sizes.split(",")) {
+      for (String distribution : distributions.split(",")) {
+        for (String storage : storages.split(",")) {
+          runner.run(Integer.parseInt(size.trim()), KeyDistribution.valueOf(distribution.trim()),
+              ItemStorage.valueOf(storage.trim()), selected, line -> {
+                lines.add(line);
+                System.out.println(line);
+              });
+        }
+      }
+    }
+    if (out != null) {
+      Files.write(Path.of(out), lines);
+    }
+  }
+
+  /**
+   * Method to run the benchmarks for one register size, key distribution and storage.
+   * The memory is measured before anything else is made, so it is only the register.
+
+   * @param size Number of items in the register.
+   * @param keyDistribution How the item numbers look and which items are looked up.
+   * @param storage Where the register keeps its items.
+   * @param benchmarks Names of the benchmarks to run.
+   * @param results Receives one CSV line for every benchmark.
+   */
+  void run(int size, KeyDistribution keyDistribution, ItemStorage storage,
+           List<String> benchmarks, Consumer<String> results) {
+    if (size < 1) {
+      throw new IllegalArgumentException("Size must be at least 1.");
+    }
+    try {
+      long heapBytesBefore = heapBytes();
+      long offHeapBytesBefore = offHeapBytes();
+      ItemCatalogGenerator generator = generator(keyDistribution);
+      ItemRegister itemRegister = new ItemRegister(storage);
+      generator.addItems(itemRegister, size);
+      long registerHeapBytes = heapBytes() - heapBytesBefore;
+      long registerOffHeapBytes = offHeapBytes() - offHeapBytesBefore;
+
+      Random random = new Random(seed);
+      int[] pattern = pattern(size, keyDistribution, random);
+      Item[] items = benchmarks.contains("addItem")
+          ? generator.items(size).parallel().toArray(Item[]::new) : null;
+      String[] itemNumbers = generator.items(size).parallel().map(Item::getItemNumber)
+          .toArray(String[]::new);
+      ItemRegister[] added = {new ItemRegister(storage)};
+
+      for (String benchmark : benchmarks) {
+        Operation operation = switch (benchmark) {
+          case "addItem" -> i -> {
+            int index = (int) (i % size);
+            if (index == 0) {
+              added[0] = new ItemRegister(storage);
+            }
+            added[0].addItem(items[index]);
+            return index;
+          };
+          case "itemByNumber" -> i ->
+              itemRegister.itemByNumber(itemNumbers[pattern[(int) i & (PATTERN_SIZE - 1)]])
+                  .getNumberOfItemsInStock();
+          case "itemsByDescription" -> i -> itemRegister.itemsByDescription(
+              generator.word((int) (i % NUMBER_OF_WORDS))).size();
+          case "itemByCategory" -> i -> itemRegister.itemByCategory(
+              ItemCategory.values()[(int) (i % ItemCategory.values().length)]).size();
+          case "increaseAndDecreaseStock" -> i -> {
+            String itemNumber = itemNumbers[pattern[(int) (i >> 1) & (PATTERN_SIZE - 1)]];
+            if ((i & 1) == 0) {
+              itemRegister.increaseNumberOfItemInStock(itemNumber, 1);
+            } else {
+              itemRegister.decreaseNumberOfItemInStock(itemNumber, 1);
+            }
+            return i;
+          };
+          case "discountPrice" -> i -> {
+            String itemNumber = itemNumbers[pattern[(int) i & (PATTERN_SIZE - 1)]];
+            itemRegister.discountPrice(itemNumber, 10);
+            return i;
+          };
+          case "printItems" -> i -> {
+            try {
+              itemRegister.printItems(Writer.nullWriter());
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+            return i;
+          };
+          case "copy" -> i -> new ItemRegister(itemRegister).numberOfItems();
+          case "fullGc" -> i -> {
+            System.gc();
+            return itemRegister.numberOfItems();
+          };
+          default -> throw new IllegalArgumentException("Unknown benchmark '" + benchmark
+              + "'.");
+        };
+        results.accept(measure(benchmark, size, keyDistribution, storage, operation) + ","
+            + registerHeapBytes + "," + registerOffHeapBytes);
+      }
+    } catch (OutOfMemoryError e) {
+      System.err.println("Skipped size " + size + " " + keyDistribution + " " + storage
+          + ": not enough memory. Run with a larger heap, for example -Xmx8g.");
+    }
+  }
+
+  /**
+   * Method to measure one benchmark.
+
+   * @param benchmark Name of the benchmark.
+   * @param size Number of items in the register.
+   * @param keyDistribution How the item numbers look and which items are looked up.
+   * @param storage Where the register keeps its items.
+   * @param operation The operation to measure.
+   * @return CSV line with the result, without the memory used.
+   */
+  private String measure(String benchmark, int size, KeyDistribution keyDistribution,
+                         ItemStorage storage, Operation operation) {
+    long operations = 1;
+    long nanos = time(operation, operations);
+
+    while (nanos < iterationNanos / 10 && operations < 1L << 40) {
+      operations *= 2;
+      nanos = time(operation, operations);
+    }
+    operations = Math.max(1, operations * iterationNanos / Math.max(nanos, 1));
+    for (int i = 0; i < warmupIterations; i++) {
+      time(operation, operations);
+    }
+    double[] nanosPerOperation = new double[iterations];
+    double sum = 0;
+    for (int i = 0; i < iterations; i++) {
+      nanosPerOperation[i] = (double) time(operation, operations) / operations;
+      sum += nanosPerOperation[i];
+    }
+    double mean = sum / iterations;
+    double squares = 0;
+    for (double value : nanosPerOperation) {
+      squares += (value - mean) * (value - mean);
+    }
+    double error = iterations > 1 ? Math.sqrt(squares / (iterations - 1)) : 0;
+
+    return String.format(Locale.ROOT, "%s,%d,%s,%s,%d,%.2f,%.2f,%.0f", benchmark, size,
+        keyDistribution, storage, iterations, mean, error, 1e9 / mean);
+  }
+
+  /**
+   * Method to find the memory used on the heap after a full garbage collection.
+
+   * @return Bytes in use on the heap.
+   */
+  private static long heapBytes() {
+    System.gc();
+    System.gc();
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  /**
+   * Method to find the memory used by direct buffers outside the heap.
+
+   * @return Bytes in use by direct buffers.
+   */
+  private static long offHeapBytes() {
+    long bytes = 0;
+
+    for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+      if (pool.getName().equals("direct")) {
+        bytes += pool.getMemoryUsed();
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Method to time a number of operations.
+
+   * @param operation The operation.
+   * @param operations Number of times to run it.
+   * @return Time taken, in nanoseconds.
+   */
+  private static long time(Operation operation, long operations) {
+    long value = 0;
+    long start = System.nanoTime();
+
+    for (long i = 0; i < operations; i++) {
+      value += operation.run(i);
+    }
+    long nanos = System.nanoTime() - start;
+    sink += value;
+    return nanos;
+  }
+
+  /**
+   * Method to make the generator of the items of a register. The descriptions are made of
+   * few words, so searching for one finds many items.
+
+   * @param keyDistribution How the item numbers look.
+   * @return The generator.
+   */
+  private ItemCatalogGenerator generator(KeyDistribution keyDistribution) {
+    ItemCatalogGenerator generator = new ItemCatalogGenerator(seed);
+    generator.setVocabulary(NUMBER_OF_WORDS, 3, 1.0);
+    generator.setShuffledItemNumbers(keyDistribution != KeyDistribution.SEQUENTIAL);
+    return generator;
+  }
+
+  /**
+   * Method to make the pattern of items looked up by the benchmarks.
+
+   * @param size Number of items.
+   * @param keyDistribution Which items are looked up.
+   * @param random Source of the random values.
+   * @return Index of the item looked up by every operation, repeating.
+   */
+  private static int[] pattern(int size, KeyDistribution keyDistribution, Random random) {
+    int[] pattern = new int[PATTERN_SIZE];
+
+    for (int i = 0; i < PATTERN_SIZE; i++) {
+      pattern[i] = switch (keyDistribution) {
+        case SEQUENTIAL -> i % size;
+        case UNIFORM -> random.nextInt(size);
+        case SKEWED -> (int) (size * Math.pow(random.nextDouble(), 4));
+      };
+    }
+    return pattern;
+  }
+}
@@ -0,0 +1,366 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Class representing a binary snapshot of an item register, used to start the program
+ * quickly without replaying the whole log.
+ *
+ * <p>The file starts with a header holding a magic number, the format version, the number
+ * of items and texts, where the texts start, the log id and position the snapshot covers,
+ * and a CRC32 checksum of everything after the header, followed by the header up to the
+ * checksum, so a damaged header is rejected too. Then follows one record of fixed
+ * size for every item, with the numbers stored directly and the texts stored as indexes
+ * into the text table at the end of the file. Every different text is only stored once,
+ * so brand names and colours shared by many items take little room. Between the items
+ * and the texts are the number of categories and the reorder threshold of every category.
+ *
+ * <p>The file is memory-mapped when it is loaded, and a text is only decoded the first time
+ * an item refers to it. Items referring to the same text then share the same String.
+ */
+public class ItemRegisterFile {
+
+  /**
+   * Defining the layout of the file.
+   */
+  static final int MAGIC = 0x49525346;
+  static final int VERSION = 3;
+  static final int HEADER_SIZE = 48;
+  static final int CHECKSUM_OFFSET = 40;
+  static final int RECORD_SIZE = 8 * Integer.BYTES + 3 * Double.BYTES + 1;
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  /**
+   * Defining the variables for a loaded snapshot.
+   */
+  private final ItemRegister itemRegister;
+  private final long logId;
+  private final long logPosition;
+
+  /**
+   * Constructor for a loaded snapshot.
+
+   * @param itemRegister Item register loaded from the file.
+   * @param logId Id of the log the snapshot covers, or 0.
+   * @param logPosition Position in the log the snapshot covers.
+   */
+  private ItemRegisterFile(ItemRegister itemRegister, long logId, long logPosition) {
+    this.itemRegister = itemRegister;
+    this.logId = logId;
+    this.logPosition = logPosition;
+  }
+
+  /**
+   * Get method for the item register loaded from the file.
+
+   * @return Item register.
+   */
+  public ItemRegister getItemRegister() {
+    return itemRegister;
+  }
+
+  /**
+   * Get method for the id of the log the snapshot covers.
+
+   * @return Log id, or 0 if the snapshot was not written from a log.
+   */
+  public long getLogId() {
+    return logId;
+  }
+
+  /**
+   * Get method for the position in the log the snapshot covers. The records before
+   * this position are already in the snapshot.
+
+   * @return Log position.
+   */
+  public long getLogPosition() {
+    return logPosition;
+  }
+
+  /**
+   * Method to write a snapshot of an item register that does not belong to a log.
+
+   * @param itemRegister Item register to write.
+   * @param path Path to write the snapshot to.
+   * @throws IOException If the file can not be written.
+   */
+  public static void write(ItemRegister itemRegister, Path path) throws IOException {
+    write(itemRegister, path, 0, 0);
+  }
+
+  /**
+   * Method to write a snapshot of an item register. The snapshot is first written to a
+   * temporary file next to the path, and then moved in place, so an existing snapshot is
+   * only replaced by a complete one.
+
+   * @param itemRegister Item register to write.
+   * @param path Path to write the snapshot to.
+   * @param logId Id of the log the snapshot covers, or 0.
+   * @param logPosition Position in the log the snapshot covers.
+   * @throws IOException If the file can not be written.
+   */
+  static void write(ItemRegister itemRegister, Path path, long logId, long logPosition)
+      throws IOException {
+    Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+    HashMap<String, Integer> textIndexes = new HashMap<>();
+    ArrayList<String> texts = new ArrayList<>();
+    CRC32 checksum = new CRC32();
+    int numberOfItems = 0;
+    long textsOffset;
+
+    try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      channel.position(HEADER_SIZE);
+
+      for (Item item : itemRegister.allItems()) {
+        if (buffer.remaining() < RECORD_SIZE) {
+          write(channel, buffer, checksum);
+        }
+        buffer.putInt(textIndex(item.getItemNumber(), textIndexes, texts));
+        buffer.putInt(textIndex(item.getItemName(), textIndexes, texts));
+        buffer.putInt(textIndex(item.getItemDescription(), textIndexes, texts));
+        buffer.putInt(item.getPrice());
+        buffer.putInt(textIndex(item.getBrandName(), textIndexes, texts));
+        buffer.putDouble(item.getWeight());
+        buffer.putDouble(item.getLength());
+        buffer.putDouble(item.getHeight());
+        buffer.putInt(textIndex(item.getColour(), textIndexes, texts));
+        buffer.putInt(item.getNumberOfItemsInStock());
+        buffer.put((byte) item.getCategory().getCategoryNumber());
+        buffer.putInt(item.getReorderThreshold());
+        numberOfItems++;
+      }
+      if (buffer.remaining() < (ItemCategory.values().length + 1) * Integer.BYTES) {
+        write(channel, buffer, checksum);
+      }
+      buffer.putInt(ItemCategory.values().length);
+      for (ItemCategory itemCategory : ItemCategory.values()) {
+        buffer.putInt(itemRegister.reorderThreshold(itemCategory));
+      }
+      write(channel, buffer, checksum);
+      textsOffset = channel.position();
+
+      for (String text : texts) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (buffer.remaining() < Integer.BYTES + bytes.length) {
+          write(channel, buffer, checksum);
+        }
+        if (buffer.remaining() < Integer.BYTES + bytes.length) {
+          buffer = ByteBuffer.allocate(Integer.BYTES + bytes.length);
+        }
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+      }
+      write(channel, buffer, checksum);
+
+      buffer = ByteBuffer.allocate(HEADER_SIZE);
+      buffer.putInt(MAGIC).putInt(VERSION).putInt(numberOfItems).putInt(texts.size())
+          .putLong(textsOffset).putLong(logId).putLong(logPosition);
+      checksum.update(buffer.array(), 0, CHECKSUM_OFFSET);
+      buffer.putInt((int) checksum.getValue()).rewind();
+      channel.position(0);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(true);
+    }
+    Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Method to find the index of a text in the text table, and add it if it is not there.
+
+   * @param text Text to find.
+   * @param textIndexes Index of every text in the table.
+   * @param texts The text table.
+   * @return Index of the text.
+   */
+  private static int textIndex(String text, HashMap<String, Integer> textIndexes,
+                               ArrayList<String> texts) {
+    Integer index = textIndexes.get(text);
+
+    if (index == null) {
+      index = texts.size();
+      textIndexes.put(text, index);
+      texts.add(text);
+    }
+    return index;
+  }
+
+  /**
+   * Method to write the buffer to the file, and add it to the checksum.
+
+   * @param channel The file.
+   * @param buffer Buffer to write, which is cleared afterwards.
+   * @param checksum Checksum of everything after the header.
+   * @throws IOException If the file can not be written.
+   */
+  private static void write(FileChannel channel, ByteBuffer buffer, CRC32 checksum)
+      throws IOException {
+    buffer.flip();
+    checksum.update(buffer.array(), 0, buffer.limit());
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Method to load a snapshot. Checks that the file is a snapshot of a supported version,
+   * and that the checksum matches, so a damaged snapshot is rejected.
+
+   * @param path Path to the snapshot.
+   * @return The loaded snapshot.
+   * @throws IOException If the file can not be read, or is not a valid snapshot.
+   */
+  public static ItemRegisterFile load(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long fileSize = channel.size();
+      if (fileSize < HEADER_SIZE) {
+        throw new IOException(path + " is not an item register snapshot.");
+      }
+      if (fileSize > Integer.MAX_VALUE) {
+        throw new IOException(path + " is too large to be loaded.");
+      }
+      MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+
+      if (file.getInt(0) != MAGIC) {
+        throw new IOException(path + " is not an item register snapshot.");
+      }
+      int version = file.getInt(4);
+      if (version != VERSION) {
+        throw new IOException("Item register snapshot version " + version
+            + " is not supported.");
+      }
+      int numberOfItems = file.getInt(8);
+      int numberOfTexts = file.getInt(12);
+      long textsOffset = file.getLong(16);
+      long logId = file.getLong(24);
+      long logPosition = file.getLong(32);
+      int storedChecksum = file.getInt(CHECKSUM_OFFSET);
+
+      CRC32 checksum = new CRC32();
+      checksum.update(file.slice(HEADER_SIZE, (int) fileSize - HEADER_SIZE));
+      checksum.update(file.slice(0, CHECKSUM_OFFSET));
+      if ((int) checksum.getValue() != storedChecksum) {
+        throw new IOException(path + " is damaged: the checksum does not match.");
+      }
+      long categoriesOffset = HEADER_SIZE + (long) numberOfItems * RECORD_SIZE;
+      if (numberOfItems < 0 || numberOfTexts < 0
+          || categoriesOffset + Integer.BYTES > fileSize) {
+        throw new IOException(path + " is damaged: the header does not match the content.");
+      }
+      int numberOfCategories = file.getInt((int) categoriesOffset);
+      if (numberOfCategories < 0 || numberOfCategories > ItemCategory.values().length
+          || textsOffset != categoriesOffset + (numberOfCategories + 1L) * Integer.BYTES
+          || textsOffset > fileSize) {
+        throw new IOException(path + " is damaged: the header does not match the content.");
+      }
+      ItemRegister itemRegister = readItems(file, numberOfItems,
+          textOffsets(file, (int) textsOffset, numberOfTexts));
+      for (int i = 0; i < numberOfCategories; i++) {
+        itemRegister.setReorderThreshold(ItemCategory.values()[i],
+            file.getInt((int) categoriesOffset + (i + 1) * Integer.BYTES));
+      }
+      return new ItemRegisterFile(itemRegister, logId, logPosition);
+    } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+      throw new IOException(path + " is damaged: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Method to find where every text in the text table starts, without decoding them.
+
+   * @param file The mapped file.
+   * @param textsOffset Position of the text table.
+   * @param numberOfTexts Number of texts in the table.
+   * @return Position of the length of every text.
+   */
+  private static int[] textOffsets(ByteBuffer file, int textsOffset, int numberOfTexts) {
+    int[] offsets = new int[numberOfTexts];
+    int position = textsOffset;
+
+    for (int i = 0; i < numberOfTexts; i++) {
+      offsets[i] = position;
+      int length = file.getInt(position);
+      if (length < 0 || length > file.limit() - position - Integer.BYTES) {
+        throw new IllegalArgumentException("text " + i + " is outside the file.");
+      }
+      position += Integer.BYTES + length;
+    }
+    if (position != file.limit()) {
+      throw new IllegalArgumentException("the text table does not match the file size.");
+    }
+    return offsets;
+  }
+
+  /**
+   * Method to create the items in the file and add them to a new register.
+
+   * @param file The mapped file.
+   * @param numberOfItems Number of items in the file.
+   * @param textOffsets Position of every text in the text table.
+   * @return Item register holding the items.
+   */
+  private static ItemRegister readItems(ByteBuffer file, int numberOfItems, int[] textOffsets) {
+    ItemRegister itemRegister = new ItemRegister();
+    String[] texts = new String[textOffsets.length];
+    int position = HEADER_SIZE;
+
+    for (int i = 0; i < numberOfItems; i++) {
+      Item item = itemRegister.newItem(
+          text(file, texts, textOffsets, file.getInt(position)),
+          text(file, texts, textOffsets, file.getInt(position + 4)),
+          text(file, texts, textOffsets, file.getInt(position + 8)),
+          file.getInt(position + 12),
+          text(file, texts, textOffsets, file.getInt(position + 16)),
+          file.getDouble(position + 20),
+          file.getDouble(position + 28),
+          file.getDouble(position + 36),
+          text(file, texts, textOffsets, file.getInt(position + 44)),
+          file.getInt(position + 48),
+          ItemCategory.getCategoryFromNumber(file.get(position + 52)));
+      item.setReorderThreshold(file.getInt(position + 53));
+      itemRegister.addItem(item);
+      position += RECORD_SIZE;
+    }
+    return itemRegister;
+  }
+
+  /**
+   * Method to get a text from the text table, decoding it the first time it is used.
+
+   * @param file The mapped file.
+   * @param texts Texts decoded so far.
+   * @param textOffsets Position of every text in the text table.
+   * @param index Index of the text.
+   * @return The text.
+   */
+  private static String text(ByteBuffer file, String[] texts, int[] textOffsets, int index) {
+    if (index < 0 || index >= texts.length) {
+      throw new IllegalArgumentException("text " + index + " does not exist.");
+    }
+    String text = texts[index];
+
+    if (text == null) {
+      int offset = textOffsets[index];
+      byte[] bytes = new byte[file.getInt(offset)];
+      file.get(offset + Integer.BYTES, bytes);
+      text = new String(bytes, StandardCharsets.UTF_8);
+      texts[index] = text;
+    }
+    return text;
+  }
+}
@@ -0,0 +1,810 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Class representing an append-only log of the changes made to an item register. Every change
+ * is written as a small binary record, so the register can be rebuilt by replaying the log
+ * when the program is started again. The register appends the record of a change before
+ * making the change, so the register never holds a change the log has not accepted.
+ *
+ * <p>If the log file can not be written, the append fails and the change is not made.
+ * The log then fails every following append, flush and checkpoint, since records in the
+ * buffer may be lost or only partly written. A record of the failed change may still
+ * have reached the file, and is then replayed on the next start. The program should be
+ * stopped and the register loaded again from the log.
+ *
+ * <p>The log file starts with a header holding a random id for the log. The id is changed
+ * every time the log is emptied by checkpoint(itemRegister, path), so a snapshot of the
+ * register can tell whether the records it covers are still in the log.
+ *
+ * <p>Every record consists of the length of its content (4 bytes), the type of change
+ * (1 byte), the values of the change, and a CRC32 checksum of the type and values (4 bytes).
+ * A last record that was only partly written, or whose checksum does not match, is cut off
+ * when the log is replayed. A damaged record before the last one is reported instead.
+ */
+public class ItemRegisterLog implements Closeable {
+
+  /**
+   * Enum class, representing when the log is forced to disk.
+   */
+  public enum FsyncPolicy {
+
+    /**
+     * Every record is written and forced to disk before the change is made, so every
+     * change that was made survives a crash.
+     */
+    ALWAYS,
+
+    /**
+     * Records are collected and forced to disk together, when the group is full or when
+     * the group delay has passed, whichever comes first (group commit). A change is made
+     * as soon as its record is in the group, so a crash can lose the changes of the last
+     * group, up to the group size or the group delay. The changes that survive are always
+     * the first changes made, in order, and a change that was not made is never replayed.
+     */
+    GROUP,
+
+    /**
+     * Records are written when the buffer is full, and the operating system decides when
+     * they reach the disk.
+     */
+    NEVER
+  }
+
+  /**
+   * Defining the types of records.
+   */
+  static final byte ADD_ITEM = 1;
+  static final byte DELETE_ITEM = 2;
+  static final byte INCREASE_STOCK = 3;
+  static final byte DECREASE_STOCK = 4;
+  static final byte CHANGE_PRICE = 5;
+  static final byte DISCOUNT_PRICE = 6;
+  static final byte CHANGE_DESCRIPTION = 7;
+  static final byte SET_REORDER_THRESHOLD = 8;
+
+  /**
+   * Defining the header of the log file: a magic number, the format version and the log id.
+   */
+  static final int MAGIC = 0x49524c47;
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 16;
+
+  /**
+   * Default values for group commit, and the size of the write buffer.
+   */
+  public static final int DEFAULT_GROUP_SIZE = 256;
+  public static final long DEFAULT_GROUP_DELAY_MILLIS = 10;
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /**
+   * Largest record content accepted when replaying. Anything larger is treated as a
+   * damaged record.
+   */
+  private static final int MAX_RECORD_SIZE = 1 << 24;
+
+  /**
+   * Defining the variables.
+   */
+  private final FileChannel channel;
+  private final FsyncPolicy fsyncPolicy;
+  private final int groupSize;
+  private final ScheduledExecutorService groupCommitter;
+  private final CRC32 checksum;
+  private long logId;
+  private ByteBuffer buffer;
+  private int recordStart;
+  private int recordsInGroup;
+  private int numberOfReplayedRecords;
+  private IOException failure;
+
+  /**
+   * Constructor for item register log. Opens the log file for appending, and creates it
+   * if it does not exist. Checks for illegal arguments. Use open(path, itemRegister,
+   * fsyncPolicy) to replay an existing log before appending to it, since records appended
+   * after a partly written record would not be replayed.
+
+   * @param path Path to the log file.
+   * @param fsyncPolicy When the log is forced to disk.
+   * @param groupSize Largest number of records forced to disk together, with FsyncPolicy.GROUP.
+   * @param groupDelayMillis Longest time a record waits before it is forced to disk,
+   *                         with FsyncPolicy.GROUP.
+   * @throws IOException If the log file can not be opened, or is not an item register log.
+   */
+  public ItemRegisterLog(Path path, FsyncPolicy fsyncPolicy, int groupSize,
+                         long groupDelayMillis) throws IOException {
+    if (fsyncPolicy == null) {
+      throw new IllegalArgumentException("Fsync policy can not be empty.");
+    }
+    if (groupSize < 1 || groupDelayMillis < 1) {
+      throw new IllegalArgumentException("Group size and group delay must be at least 1.");
+    }
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    this.fsyncPolicy = fsyncPolicy;
+    this.groupSize = groupSize;
+    this.checksum = new CRC32();
+    this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    try {
+      Long existingLogId = readLogId(path);
+      if (existingLogId == null) {
+        channel.truncate(0);
+        writeHeader();
+      } else {
+        logId = existingLogId;
+      }
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+
+    if (fsyncPolicy == FsyncPolicy.GROUP) {
+      groupCommitter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "item-register-log");
+        thread.setDaemon(true);
+        return thread;
+      });
+      groupCommitter.scheduleWithFixedDelay(this::flushQuietly,
+          groupDelayMillis, groupDelayMillis, TimeUnit.MILLISECONDS);
+    } else {
+      groupCommitter = null;
+    }
+  }
+
+  /**
+   * Method to replay an existing log into an item register, and then open the log for
+   * appending and attach it to the register, so every following change is logged.
+
+   * @param path Path to the log file.
+   * @param itemRegister Item register the log is replayed into. Should not have a log already.
+   * @param fsyncPolicy When the log is forced to disk.
+   * @return The opened log.
+   * @throws IOException If the log file can not be read or opened.
+   */
+  public static ItemRegisterLog open(Path path, ItemRegister itemRegister,
+                                     FsyncPolicy fsyncPolicy) throws IOException {
+    return open(path, itemRegister, fsyncPolicy, 0, 0);
+  }
+
+  /**
+   * Method to replay the records of an existing log that are not covered by a snapshot,
+   * and then open the log for appending and attach it to the register. If the log still has
+   * the id stored in the snapshot, only the records after the stored position are replayed.
+   * Otherwise the log was emptied after the snapshot was written, and every record is replayed.
+
+   * @param path Path to the log file.
+   * @param itemRegister Item register loaded from the snapshot. Should not have a log already.
+   * @param fsyncPolicy When the log is forced to disk.
+   * @param snapshotLogId Log id stored in the snapshot, or 0 if there is no snapshot.
+   * @param snapshotLogPosition Log position stored in the snapshot.
+   * @return The opened log.
+   * @throws IOException If the log file can not be read or opened.
+   */
+  public static ItemRegisterLog open(Path path, ItemRegister itemRegister,
+                                     FsyncPolicy fsyncPolicy, long snapshotLogId,
+                                     long snapshotLogPosition) throws IOException {
+    int replayedRecords = replay(path, itemRegister, snapshotLogId, snapshotLogPosition);
+    ItemRegisterLog log = new ItemRegisterLog(path, fsyncPolicy, DEFAULT_GROUP_SIZE,
+        DEFAULT_GROUP_DELAY_MILLIS);
+    log.numberOfReplayedRecords = replayedRecords;
+    itemRegister.setLog(log);
+    return log;
+  }
+
+  /**
+   * Get method for the number of records replayed when the log was opened with
+   * open(path, itemRegister, fsyncPolicy).
+
+   * @return Number of replayed records.
+   */
+  public int getNumberOfReplayedRecords() {
+    return numberOfReplayedRecords;
+  }
+
+  /**
+   * Get method for the id of the log, which is changed every time the log is emptied.
+
+   * @return Log id.
+   */
+  public synchronized long getLogId() {
+    return logId;
+  }
+
+  /**
+   * Method to write a snapshot of the register and then empty the log, since the snapshot
+   * holds every change in it. The snapshot stores the log id and the position it covers,
+   * so if the program stops before the log is emptied, only the records after the snapshot
+   * are replayed. No changes should be made to the register while this runs.
+
+   * @param itemRegister The register this log is attached to.
+   * @param snapshotPath Path to write the snapshot to.
+   * @throws IOException If the snapshot or the log can not be written.
+   */
+  public synchronized void checkpoint(ItemRegister itemRegister, Path snapshotPath)
+      throws IOException {
+    try {
+      flush();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    ItemRegisterFile.write(itemRegister, snapshotPath, logId, channel.size());
+    channel.truncate(0);
+    writeHeader();
+    channel.force(true);
+  }
+
+  /**
+   * Method to write the header with a new log id to the empty log file.
+
+   * @throws IOException If the log file can not be written.
+   */
+  private void writeHeader() throws IOException {
+    long newLogId;
+    do {
+      newLogId = new SecureRandom().nextLong();
+    } while (newLogId == 0 || newLogId == logId);
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+    header.putInt(MAGIC).putInt(VERSION).putLong(newLogId).flip();
+    while (header.hasRemaining()) {
+      channel.write(header);
+    }
+    logId = newLogId;
+  }
+
+  /**
+   * Method to read the log id from the header of a log file. Checks that the file is
+   * an item register log.
+
+   * @param path Path to the log file.
+   * @return The log id, or null if the file does not exist or has no whole header, which
+   *         only happens if the program stopped while the log was being emptied.
+   * @throws IOException If the file can not be read, or is not an item register log.
+   */
+  private static Long readLogId(Path path) throws IOException {
+    if (!Files.exists(path) || Files.size(path) < HEADER_SIZE) {
+      return null;
+    }
+    try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException(path + " is not an item register log.");
+      }
+      int version = in.readInt();
+      if (version != VERSION) {
+        throw new IOException("Item register log version " + version + " is not supported.");
+      }
+      return in.readLong();
+    }
+  }
+
+  /**
+   * Method to log that an item is added.
+
+   * @param item The added item.
+   */
+  synchronized void appendAddItem(Item item) {
+    byte[] itemNumber = bytes(item.getItemNumber());
+    byte[] itemName = bytes(item.getItemName());
+    byte[] itemDescription = bytes(item.getItemDescription());
+    byte[] brandName = bytes(item.getBrandName());
+    byte[] colour = bytes(item.getColour());
+
+    beginRecord(ADD_ITEM, size(itemNumber) + size(itemName) + size(itemDescription)
+        + Integer.BYTES + size(brandName) + 3 * Double.BYTES + size(colour)
+        + Integer.BYTES + 1);
+    putBytes(itemNumber);
+    putBytes(itemName);
+    putBytes(itemDescription);
+    buffer.putInt(item.getPrice());
+    putBytes(brandName);
+    buffer.putDouble(item.getWeight());
+    buffer.putDouble(item.getLength());
+    buffer.putDouble(item.getHeight());
+    putBytes(colour);
+    buffer.putInt(item.getNumberOfItemsInStock());
+    buffer.put((byte) item.getCategory().getCategoryNumber());
+    endRecord();
+  }
+
+  /**
+   * Method to log that an item is deleted.
+
+   * @param itemNumber Item number of the deleted item.
+   */
+  synchronized void appendDeleteItem(String itemNumber) {
+    byte[] number = bytes(itemNumber);
+
+    beginRecord(DELETE_ITEM, size(number));
+    putBytes(number);
+    endRecord();
+  }
+
+  /**
+   * Method to log that the number of items in stock is changed.
+
+   * @param itemNumber Item number of the changed item.
+   * @param change Number of items added to (positive) or removed from (negative) stock.
+   */
+  synchronized void appendStockChange(String itemNumber, int change) {
+    byte[] number = bytes(itemNumber);
+
+    beginRecord(change > 0 ? INCREASE_STOCK : DECREASE_STOCK, size(number) + Integer.BYTES);
+    putBytes(number);
+    buffer.putInt(Math.abs(change));
+    endRecord();
+  }
+
+  /**
+   * Method to log that the price of an item is changed.
+
+   * @param itemNumber Item number of the changed item.
+   * @param newPrice New price of the item.
+   */
+  synchronized void appendPriceChange(String itemNumber, int newPrice) {
+    byte[] number = bytes(itemNumber);
+
+    beginRecord(CHANGE_PRICE, size(number) + Integer.BYTES);
+    putBytes(number);
+    buffer.putInt(newPrice);
+    endRecord();
+  }
+
+  /**
+   * Method to log that an item is given a discount.
+
+   * @param itemNumber Item number of the changed item.
+   * @param discount Discount given to the price, in percentage.
+   */
+  synchronized void appendDiscount(String itemNumber, double discount) {
+    byte[] number = bytes(itemNumber);
+
+    beginRecord(DISCOUNT_PRICE, size(number) + Double.BYTES);
+    putBytes(number);
+    buffer.putDouble(discount);
+    endRecord();
+  }
+
+  /**
+   * Method to log that the description of an item is changed.
+
+   * @param itemNumber Item number of the changed item.
+   * @param newItemDescription New description of the item.
+   */
+  synchronized void appendDescriptionChange(String itemNumber, String newItemDescription) {
+    byte[] number = bytes(itemNumber);
+    byte[] description = bytes(newItemDescription);
+
+    beginRecord(CHANGE_DESCRIPTION, size(number) + size(description));
+    putBytes(number);
+    putBytes(description);
+    endRecord();
+  }
+
+  /**
+   * Method to log that the reorder threshold of an item is set. The record starts with
+   * category number 0, which tells it apart from the record of a category.
+
+   * @param itemNumber Item number of the changed item.
+   * @param reorderThreshold New reorder threshold of the item.
+   */
+  synchronized void appendReorderThreshold(String itemNumber, int reorderThreshold) {
+    byte[] number = bytes(itemNumber);
+
+    beginRecord(SET_REORDER_THRESHOLD, 1 + size(number) + Integer.BYTES);
+    buffer.put((byte) 0);
+    putBytes(number);
+    buffer.putInt(reorderThreshold);
+    endRecord();
+  }
+
+  /**
+   * Method to log that the reorder threshold of a category is set.
+
+   * @param itemCategory The changed category.
+   * @param reorderThreshold New reorder threshold of the category.
+   */
+  synchronized void appendReorderThreshold(ItemCategory itemCategory, int reorderThreshold) {
+    beginRecord(SET_REORDER_THRESHOLD, 1 + Integer.BYTES);
+    buffer.put((byte) itemCategory.getCategoryNumber());
+    buffer.putInt(reorderThreshold);
+    endRecord();
+  }
+
+  /**
+   * Method to write all buffered records to the log file. Unless the fsync policy is
+   * NEVER, the log is also forced to disk.
+   */
+  public synchronized void flush() {
+    checkNotFailed();
+    try {
+      writeBuffer();
+      if (fsyncPolicy != FsyncPolicy.NEVER) {
+        channel.force(false);
+      }
+      recordsInGroup = 0;
+    } catch (IOException e) {
+      throw failed(e);
+    }
+  }
+
+  /**
+   * Method used by the group committer to force the records of an unfinished group to
+   * disk. It can not report errors, so they are reported by the next change or flush instead.
+   */
+  private synchronized void flushQuietly() {
+    if (recordsInGroup > 0 && channel.isOpen() && failure == null) {
+      try {
+        flush();
+      } catch (UncheckedIOException e) {
+        // The log has failed, and the error is reported by the next change or flush.
+      }
+    }
+  }
+
+  /**
+   * Method to check that the log can still be appended to.
+   */
+  private void checkNotFailed() {
+    if (failure != null) {
+      throw new UncheckedIOException("The item register log failed earlier.", failure);
+    }
+    if (!channel.isOpen()) {
+      throw new UncheckedIOException("The item register log is closed.",
+          new ClosedChannelException());
+    }
+  }
+
+  /**
+   * Method to mark the log as failed, so nothing more is written to it.
+
+   * @param e Error from writing the log.
+   * @return Exception to throw.
+   */
+  private UncheckedIOException failed(IOException e) {
+    failure = e;
+    return new UncheckedIOException("Could not write to the item register log.", e);
+  }
+
+  /**
+   * Method to write all buffered records, force them to disk and close the log file.
+
+   * @throws IOException If the log file can not be written or closed.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (groupCommitter != null) {
+      groupCommitter.shutdownNow();
+    }
+    if (!channel.isOpen()) {
+      return;
+    }
+    if (failure != null) {
+      channel.close();
+      throw failure;
+    }
+    try {
+      flush();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      channel.close();
+    }
+  }
+
+  /**
+   * Method to start a new record in the buffer. Writes the buffer to the log file first
+   * if there is not room for the record.
+
+   * @param type Type of record.
+   * @param valuesSize Number of bytes in the values of the record.
+   */
+  private void beginRecord(byte type, int valuesSize) {
+    checkNotFailed();
+    int recordSize = Integer.BYTES + 1 + valuesSize + Integer.BYTES;
+    try {
+      if (recordSize > buffer.remaining()) {
+        writeBuffer();
+      }
+    } catch (IOException e) {
+      throw failed(e);
+    }
+    if (recordSize > buffer.capacity()) {
+      buffer = ByteBuffer.allocate(recordSize);
+    }
+    recordStart = buffer.position();
+    buffer.putInt(1 + valuesSize);
+    buffer.put(type);
+  }
+
+  /**
+   * Method to end the record in the buffer with its checksum, and write or force the
+   * log to disk depending on the fsync policy.
+   */
+  private void endRecord() {
+    int contentStart = recordStart + Integer.BYTES;
+    checksum.reset();
+    checksum.update(buffer.array(), contentStart, buffer.position() - contentStart);
+    buffer.putInt((int) checksum.getValue());
+    recordsInGroup++;
+
+    if (fsyncPolicy == FsyncPolicy.ALWAYS
+        || (fsyncPolicy == FsyncPolicy.GROUP && recordsInGroup >= groupSize)) {
+      flush();
+    }
+  }
+
+  /**
+   * Method to write the buffered records to the log file, without forcing them to disk.
+
+   * @throws IOException If the log file can not be written.
+   */
+  private void writeBuffer() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Method to put a text in the buffer, as its length followed by its bytes.
+
+   * @param bytes The text, encoded as UTF-8.
+   */
+  private void putBytes(byte[] bytes) {
+    int length = bytes.length;
+    while ((length & ~0x7F) != 0) {
+      buffer.put((byte) ((length & 0x7F) | 0x80));
+      length >>>= 7;
+    }
+    buffer.put((byte) length);
+    buffer.put(bytes);
+  }
+
+  /**
+   * Method to find the number of bytes a text takes in a record.
+
+   * @param bytes The text, encoded as UTF-8.
+   * @return Number of bytes for the length and the text.
+   */
+  private static int size(byte[] bytes) {
+    int lengthSize = 1;
+    int length = bytes.length;
+    while ((length & ~0x7F) != 0) {
+      lengthSize++;
+      length >>>= 7;
+    }
+    return lengthSize + bytes.length;
+  }
+
+  /**
+   * Method to encode a text as UTF-8.
+
+   * @param text Text to encode.
+   * @return The encoded text.
+   */
+  private static byte[] bytes(String text) {
+    return text.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Method to replay a log into an item register, by making the same changes in the same
+   * order. A last record that is only partly written, or runs to the end of the file with
+   * a wrong checksum, was being written when the program stopped. It is cut off, so new
+   * records are appended after the last whole record. A damaged record before the end of
+   * the file is reported instead, and the file is not changed. Does nothing if the log file
+   * does not exist.
+
+   * @param path Path to the log file.
+   * @param itemRegister Item register to make the changes in. Should not have a log attached,
+   *                     since the changes would then be logged again.
+   * @return Number of replayed records.
+   * @throws IOException If the log file can not be read, a record before the end of the
+   *                     file is damaged, or a record can not be replayed.
+   */
+  public static int replay(Path path, ItemRegister itemRegister) throws IOException {
+    return replay(path, itemRegister, 0, 0);
+  }
+
+  /**
+   * Method to replay a log into an item register, starting after the records covered by
+   * a snapshot if the log still has the id stored in the snapshot.
+
+   * @param path Path to the log file.
+   * @param itemRegister Item register to make the changes in.
+   * @param snapshotLogId Log id stored in the snapshot, or 0 if there is no snapshot.
+   * @param snapshotLogPosition Log position stored in the snapshot.
+   * @return Number of replayed records.
+   * @throws IOException If the log file can not be read, or a record can not be replayed.
+   */
+  static int replay(Path path, ItemRegister itemRegister, long snapshotLogId,
+                    long snapshotLogPosition) throws IOException {
+    Long logId = readLogId(path);
+    if (logId == null) {
+      return 0;
+    }
+    long fileSize = Files.size(path);
+    long validEnd = HEADER_SIZE;
+    if (snapshotLogId != 0 && logId == snapshotLogId) {
+      if (snapshotLogPosition < HEADER_SIZE || snapshotLogPosition > fileSize) {
+        throw new IOException("The item register log is shorter than the snapshot expects.");
+      }
+      validEnd = snapshotLogPosition;
+    }
+    int replayedRecords = 0;
+    CRC32 checksum = new CRC32();
+    byte[] content = new byte[256];
+
+    try (InputStream file = Files.newInputStream(path);
+         DataInputStream in = new DataInputStream(new BufferedInputStream(file, BUFFER_SIZE))) {
+      in.skipNBytes(validEnd);
+      while (validEnd + Integer.BYTES + 1 + Integer.BYTES <= fileSize) {
+        int contentSize = in.readInt();
+        long recordEnd = validEnd + Integer.BYTES + (long) contentSize + Integer.BYTES;
+        if (contentSize == 0 && onlyZerosLeft(in)) {
+          break;
+        }
+        if (contentSize > MAX_RECORD_SIZE && recordEnd > fileSize) {
+          break;
+        }
+        if (contentSize < 1 || contentSize > MAX_RECORD_SIZE) {
+          throw damaged(path, validEnd);
+        }
+        if (recordEnd > fileSize) {
+          break;
+        }
+        if (content.length < contentSize) {
+          content = new byte[Math.max(contentSize, 2 * content.length)];
+        }
+        in.readFully(content, 0, contentSize);
+        int storedChecksum = in.readInt();
+        checksum.reset();
+        checksum.update(content, 0, contentSize);
+        if ((int) checksum.getValue() != storedChecksum) {
+          if (recordEnd == fileSize) {
+            break;
+          }
+          throw damaged(path, validEnd);
+        }
+        try {
+          applyRecord(ByteBuffer.wrap(content, 0, contentSize), itemRegister);
+        } catch (RuntimeException e) {
+          throw new IOException("Record " + (replayedRecords + 1) + " at position " + validEnd
+              + " in the item register log could not be replayed: " + e.getMessage(), e);
+        }
+        validEnd += Integer.BYTES + contentSize + Integer.BYTES;
+        replayedRecords++;
+      }
+    } catch (EOFException e) {
+      // The file ended inside a record, which is cut off below.
+    }
+
+    if (validEnd < fileSize) {
+      try (FileChannel file = FileChannel.open(path, StandardOpenOption.WRITE)) {
+        file.truncate(validEnd);
+        file.force(true);
+      }
+    }
+    return replayedRecords;
+  }
+
+  /**
+   * Method to check if the rest of a log file only holds zero bytes, which is what the
+   * end of a file that was being written can hold after a crash.
+
+   * @param in The log file, read up to where the check starts.
+   * @return True if every byte left is zero.
+   * @throws IOException If the log file can not be read.
+   */
+  private static boolean onlyZerosLeft(InputStream in) throws IOException {
+    int read;
+    while ((read = in.read()) >= 0) {
+      if (read != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Method to make the exception thrown when a record before the end of the log is damaged.
+   * Only a damaged record at the end of the log can be the last record being written when
+   * the program stopped, so a damaged record before it is not cut off, since that would
+   * also remove the records after it.
+
+   * @param path Path to the log file.
+   * @param position Position of the damaged record.
+   * @return The exception.
+   */
+  private static IOException damaged(Path path, long position) {
+    return new IOException("The record at position " + position + " in the item register log "
+        + path + " is damaged, but is not the last record. The log is left as it is.");
+  }
+
+  /**
+   * Method to make the change in one record.
+
+   * @param record Content of the record, starting with the type.
+   * @param itemRegister Item register to make the change in.
+   */
+  private static void applyRecord(ByteBuffer record, ItemRegister itemRegister) {
+    byte type = record.get();
+
+    switch (type) {
+      case ADD_ITEM -> {
+        String itemNumber = getString(record);
+        String itemName = getString(record);
+        String itemDescription = getString(record);
+        int price = record.getInt();
+        String brandName = getString(record);
+        double weight = record.getDouble();
+        double length = record.getDouble();
+        double height = record.getDouble();
+        String colour = getString(record);
+        int numberOfItemsInStock = record.getInt();
+        ItemCategory itemCategory = ItemCategory.getCategoryFromNumber(record.get());
+        itemRegister.addItem(itemRegister.newItem(itemNumber, itemName, itemDescription,
+            price, brandName, weight, length, height, colour, numberOfItemsInStock,
+            itemCategory));
+      }
+      case DELETE_ITEM -> itemRegister.deleteItem(getString(record));
+      case INCREASE_STOCK ->
+          itemRegister.increaseNumberOfItemInStock(getString(record), record.getInt());
+      case DECREASE_STOCK ->
+          itemRegister.decreaseNumberOfItemInStock(getString(record), record.getInt());
+      case CHANGE_PRICE -> itemRegister.changePrice(getString(record), record.getInt());
+      case DISCOUNT_PRICE -> itemRegister.discountPrice(getString(record), record.getDouble());
+      case CHANGE_DESCRIPTION ->
+          itemRegister.changeDescription(getString(record), getString(record));
+      case SET_REORDER_THRESHOLD -> {
+        byte categoryNumber = record.get();
+        if (categoryNumber == 0) {
+          itemRegister.setReorderThreshold(getString(record), record.getInt());
+        } else {
+          itemRegister.setReorderThreshold(ItemCategory.getCategoryFromNumber(categoryNumber),
+              record.getInt());
+        }
+      }
+      default -> throw new IllegalArgumentException("Unknown record type " + type + ".");
+    }
+  }
+
+  /**
+   * Method to read a text from a record, written by putBytes(bytes).
+
+   * @param record Record to read from.
+   * @return The text.
+   */
+  private static String getString(ByteBuffer record) {
+    int length = 0;
+    int shift = 0;
+    byte b;
+
+    do {
+      b = record.get();
+      length |= (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    String text = new String(record.array(), record.position(), length, StandardCharsets.UTF_8);
+    record.position(record.position() + length);
+    return text;
+  }
+}
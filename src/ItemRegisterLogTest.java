@@ -0,0 +1,355 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Class for testing the item register log and snapshot files.
+ */
+public class ItemRegisterLogTest {
+
+  Path logPath;
+  Path snapshotPath;
+
+  /**
+   * Creates an empty log file before each test.
+   */
+  @Before
+  public void createLogFile() throws IOException {
+    logPath = Files.createTempFile("itemregister", ".log");
+    snapshotPath = logPath.resolveSibling(logPath.getFileName() + ".snapshot");
+  }
+
+  /**
+   * Deletes the log and snapshot files after each test.
+   */
+  @After
+  public void deleteLogFile() throws IOException {
+    Files.deleteIfExists(logPath);
+    Files.deleteIfExists(snapshotPath);
+  }
+
+  /**
+   * Method to make changes of every type to a register with a new, empty log, and close
+   * the log.
+
+   * @param fsyncPolicy When the log is forced to disk.
+   * @return The register the changes were made in.
+   */
+  private ItemRegister makeLoggedChanges(ItemRegisterLog.FsyncPolicy fsyncPolicy)
+      throws IOException {
+    ItemRegister itemRegister = new ItemRegister();
+
+    try (ItemRegisterLog log = ItemRegisterLog.open(logPath, itemRegister, fsyncPolicy)) {
+      assertEquals(log.getNumberOfReplayedRecords(), 0);
+      ItemRegisterTestData.addTestData(itemRegister);
+      itemRegister.increaseNumberOfItemInStock("9898abc", 10);
+      itemRegister.decreaseNumberOfItemInStock("12BK5", 10);
+      itemRegister.changePrice("12BK5", 1700);
+      itemRegister.discountPrice("9898ABC", 12.5);
+      itemRegister.changeDescription("FIAT7865", "Flat, long and \u00e6\u00f8\u00e5");
+      itemRegister.tryReserve("4789KIP", 100);
+      itemRegister.release("4789KIP", 1);
+      itemRegister.applyStockDeltas(List.of(new StockDelta("12BK5", 5),
+          new StockDelta("4789KIP", -1)));
+      itemRegister.deleteItem("BE394ER");
+    }
+    return itemRegister;
+  }
+
+  /**
+   * Method to check that two registers hold the same items.
+
+   * @param expected Register with the expected items.
+   * @param actual Register to check.
+   */
+  private static void assertSameItems(ItemRegister expected, ItemRegister actual) {
+    assertEquals(actual.numberOfItems(), expected.numberOfItems());
+    assertEquals(actual.printItems(), expected.printItems());
+  }
+
+  /**
+   * Test to check that replaying the log gives the same register as the logged changes,
+   * with every fsync policy.
+   */
+  @Test
+  public void testReplay() throws IOException {
+    System.out.println("Testing log replay");
+
+    for (ItemRegisterLog.FsyncPolicy fsyncPolicy : ItemRegisterLog.FsyncPolicy.values()) {
+      Files.write(logPath, new byte[0]);
+      ItemRegister itemRegister = makeLoggedChanges(fsyncPolicy);
+      ItemRegister replayed = new ItemRegister();
+
+      assertEquals(ItemRegisterLog.replay(logPath, replayed), 15);
+      assertSameItems(itemRegister, replayed);
+      assertNull(replayed.itemByNumber("BE394ER"));
+      assertEquals(replayed.itemByNumber("9898ABC").getPrice(), 350);
+    }
+  }
+
+  /**
+   * Test to check that changes made after the log is opened again are appended
+   * after the replayed changes.
+   */
+  @Test
+  public void testAppendAfterReplay() throws IOException {
+    System.out.println("Testing log append after replay");
+    makeLoggedChanges(ItemRegisterLog.FsyncPolicy.NEVER);
+    ItemRegister itemRegister = new ItemRegister();
+
+    try (ItemRegisterLog log = ItemRegisterLog.open(logPath, itemRegister,
+        ItemRegisterLog.FsyncPolicy.ALWAYS)) {
+      assertEquals(log.getNumberOfReplayedRecords(), 15);
+      itemRegister.changePrice("12BK5", 10);
+    }
+    ItemRegister replayed = new ItemRegister();
+
+    assertEquals(ItemRegisterLog.replay(logPath, replayed), 16);
+    assertEquals(replayed.itemByNumber("12BK5").getPrice(), 10);
+  }
+
+  /**
+   * Test to check that a record that was only partly written at the end of the log
+   * is cut off, and that the records before it are replayed.
+   */
+  @Test
+  public void testTornTailIsTruncated() throws IOException {
+    System.out.println("Testing log with torn tail");
+    ItemRegister itemRegister = makeLoggedChanges(ItemRegisterLog.FsyncPolicy.ALWAYS);
+    long validSize = Files.size(logPath);
+    byte[] log = Files.readAllBytes(logPath);
+
+    Files.write(logPath, Arrays.copyOfRange(log, ItemRegisterLog.HEADER_SIZE,
+        ItemRegisterLog.HEADER_SIZE + 30), StandardOpenOption.APPEND);
+    ItemRegister replayed = new ItemRegister();
+
+    assertEquals(ItemRegisterLog.replay(logPath, replayed), 15);
+    assertSameItems(itemRegister, replayed);
+    assertEquals(Files.size(logPath), validSize);
+  }
+
+  /**
+   * Test to check that a damaged record in the middle of the log is reported, and the log
+   * is left as it is, instead of cutting off every record after it.
+   */
+  @Test
+  public void testCorruptRecordInMiddleIsReported() throws IOException {
+    System.out.println("Testing log with corrupt record in the middle");
+    makeLoggedChanges(ItemRegisterLog.FsyncPolicy.GROUP);
+    byte[] log = Files.readAllBytes(logPath);
+    int secondRecord = ItemRegisterLog.HEADER_SIZE + 4
+        + ByteBuffer.wrap(log).getInt(ItemRegisterLog.HEADER_SIZE) + 4;
+
+    log[secondRecord + 6] ^= 0x01;
+    Files.write(logPath, log);
+    assertThrows(IOException.class, () -> ItemRegisterLog.replay(logPath, new ItemRegister()));
+    assertArrayEquals(Files.readAllBytes(logPath), log);
+
+    log[secondRecord + 6] ^= 0x01;
+    ByteBuffer.wrap(log).putInt(secondRecord, 0);
+    Files.write(logPath, log);
+    assertThrows(IOException.class, () -> ItemRegisterLog.replay(logPath, new ItemRegister()));
+    assertArrayEquals(Files.readAllBytes(logPath), log);
+  }
+
+  /**
+   * Test to check that a last record with a wrong checksum, or a tail of zero bytes, is
+   * cut off, since it was being written when the program stopped.
+   */
+  @Test
+  public void testCorruptLastRecordIsTruncated() throws IOException {
+    System.out.println("Testing log with corrupt last record");
+    makeLoggedChanges(ItemRegisterLog.FsyncPolicy.NEVER);
+    byte[] log = Files.readAllBytes(logPath);
+
+    log[log.length - 5] ^= 0x01;
+    Files.write(logPath, log);
+    ItemRegister replayed = new ItemRegister();
+    assertEquals(ItemRegisterLog.replay(logPath, replayed), 14);
+    assertFalse(replayed.itemNotExists("BE394ER"));
+    long validSize = Files.size(logPath);
+    assertTrue(validSize < log.length);
+
+    Files.write(logPath, new byte[100], StandardOpenOption.APPEND);
+    replayed = new ItemRegister();
+    assertEquals(ItemRegisterLog.replay(logPath, replayed), 14);
+    assertEquals(Files.size(logPath), validSize);
+  }
+
+  /**
+   * Test to check that a snapshot holds the same items as the register it was written from.
+   */
+  @Test
+  public void testSnapshotRoundTrip() throws IOException {
+    System.out.println("Testing snapshot write and load");
+    ItemRegister itemRegister = makeLoggedChanges(ItemRegisterLog.FsyncPolicy.NEVER);
+
+    ItemRegisterFile.write(itemRegister, snapshotPath);
+    ItemRegisterFile snapshot = ItemRegisterFile.load(snapshotPath);
+
+    assertSameItems(itemRegister, snapshot.getItemRegister());
+    assertEquals(snapshot.getLogId(), 0);
+    assertSame(snapshot.getItemRegister().itemByNumber("12BK5").getColour(),
+        snapshot.getItemRegister().itemByNumber("FIAT7865").getColour());
+
+    ItemRegisterFile.write(new ItemRegister(), snapshotPath);
+    assertEquals(ItemRegisterFile.load(snapshotPath).getItemRegister().numberOfItems(), 0);
+  }
+
+  /**
+   * Test to check that a damaged snapshot, also with a damaged header, or a snapshot of
+   * another version, is rejected.
+   */
+  @Test
+  public void testDamagedSnapshotIsRejected() throws IOException {
+    System.out.println("Testing damaged snapshot");
+    ItemRegister itemRegister = new ItemRegister();
+    ItemRegisterTestData.addTestData(itemRegister);
+    ItemRegisterFile.write(itemRegister, snapshotPath);
+    byte[] snapshot = Files.readAllBytes(snapshotPath);
+
+    snapshot[ItemRegisterFile.HEADER_SIZE + 13] ^= 0x01;
+    Files.write(snapshotPath, snapshot);
+    assertThrows(IOException.class, () -> ItemRegisterFile.load(snapshotPath));
+
+    snapshot[ItemRegisterFile.HEADER_SIZE + 13] ^= 0x01;
+    snapshot[7] = ItemRegisterFile.VERSION + 1;
+    Files.write(snapshotPath, snapshot);
+    assertThrows(IOException.class, () -> ItemRegisterFile.load(snapshotPath));
+
+    Files.write(snapshotPath, Arrays.copyOf(snapshot, 20));
+    assertThrows(IOException.class, () -> ItemRegisterFile.load(snapshotPath));
+
+    ItemRegisterFile.write(itemRegister, snapshotPath, 7, 1000);
+    assertEquals(ItemRegisterFile.load(snapshotPath).getLogPosition(), 1000);
+    snapshot = Files.readAllBytes(snapshotPath);
+    snapshot[ItemRegisterFile.CHECKSUM_OFFSET - 1] ^= 0x01;
+    Files.write(snapshotPath, snapshot);
+    assertThrows(IOException.class, () -> ItemRegisterFile.load(snapshotPath));
+  }
+
+  /**
+   * Test to check that after a checkpoint, the snapshot and the records logged after it
+   * give the same register, also if the program stopped before the log was emptied.
+   */
+  @Test
+  public void testCheckpoint() throws IOException {
+    System.out.println("Testing checkpoint");
+    ItemRegister itemRegister = new ItemRegister();
+    byte[] logBeforeCheckpoint;
+
+    try (ItemRegisterLog log = ItemRegisterLog.open(logPath, itemRegister,
+        ItemRegisterLog.FsyncPolicy.ALWAYS)) {
+      ItemRegisterTestData.addTestData(itemRegister);
+      itemRegister.changePrice("12BK5", 1700);
+      logBeforeCheckpoint = Files.readAllBytes(logPath);
+      log.checkpoint(itemRegister, snapshotPath);
+      assertEquals(Files.size(logPath), ItemRegisterLog.HEADER_SIZE);
+      itemRegister.deleteItem("BE394ER");
+    }
+    ItemRegisterFile snapshot = ItemRegisterFile.load(snapshotPath);
+    ItemRegister recovered = snapshot.getItemRegister();
+    ItemRegisterLog.open(logPath, recovered, ItemRegisterLog.FsyncPolicy.NEVER,
+        snapshot.getLogId(), snapshot.getLogPosition()).close();
+    assertSameItems(itemRegister, recovered);
+
+    Files.write(logPath, logBeforeCheckpoint);
+    recovered = ItemRegisterFile.load(snapshotPath).getItemRegister();
+    try (ItemRegisterLog log = ItemRegisterLog.open(logPath, recovered,
+        ItemRegisterLog.FsyncPolicy.NEVER, snapshot.getLogId(), snapshot.getLogPosition())) {
+      assertEquals(log.getNumberOfReplayedRecords(), 0);
+    }
+    assertEquals(recovered.itemByNumber("12BK5").getPrice(), 1700);
+  }
+
+  /**
+   * Test to check that the reorder thresholds of items and categories survive a restart,
+   * both when the log is replayed and when the register is loaded from a snapshot.
+   */
+  @Test
+  public void testReorderThresholdsSurviveRestart() throws IOException {
+    System.out.println("Testing reorder thresholds after restart");
+    ItemRegister itemRegister = new ItemRegister();
+
+    try (ItemRegisterLog log = ItemRegisterLog.open(logPath, itemRegister,
+        ItemRegisterLog.FsyncPolicy.ALWAYS)) {
+      assertEquals(log.getNumberOfReplayedRecords(), 0);
+      ItemRegisterTestData.addTestData(itemRegister);
+      itemRegister.addItem(new Item("LOW1", "Door", "Tall", 100, "IKEA", 1, 1, 1, "White",
+          5, ItemCategory.DOORS, 10));
+      itemRegister.setReorderThreshold("12BK5", 500);
+      itemRegister.setReorderThreshold(ItemCategory.DOORS, 90);
+      itemRegister.setReorderThreshold(ItemCategory.LUMBER, 7);
+      itemRegister.setReorderThreshold(ItemCategory.LUMBER, 0);
+    }
+    ItemRegister replayed = new ItemRegister();
+    ItemRegisterLog.replay(logPath, replayed);
+    assertSameThresholds(itemRegister, replayed);
+
+    ItemRegisterFile.write(replayed, snapshotPath);
+    assertSameThresholds(itemRegister, ItemRegisterFile.load(snapshotPath).getItemRegister());
+  }
+
+  /**
+   * Method to check that two registers have the same reorder thresholds and low items.
+
+   * @param expected Register with the expected thresholds.
+   * @param actual Register to check.
+   */
+  private static void assertSameThresholds(ItemRegister expected, ItemRegister actual) {
+    assertEquals(actual.itemByNumber("LOW1").getReorderThreshold(), 10);
+    assertEquals(actual.itemByNumber("12BK5").getReorderThreshold(), 500);
+    for (ItemCategory itemCategory : ItemCategory.values()) {
+      assertEquals(actual.reorderThreshold(itemCategory),
+          expected.reorderThreshold(itemCategory));
+    }
+    assertEquals(actual.reorderThreshold(ItemCategory.DOORS), 90);
+    assertEquals(actual.lowStockItems().toString(), expected.lowStockItems().toString());
+    assertFalse(actual.lowStockItems().isEmpty());
+  }
+
+  /**
+   * Test to check that a change is appended to the log before it is made, so a change
+   * whose record can not be appended is not made, and the register still matches the log.
+   */
+  @Test
+  public void testChangeIsLoggedBeforeItIsMade() throws IOException {
+    System.out.println("Testing write-ahead logging");
+    ItemRegister itemRegister = new ItemRegister();
+    ItemRegisterLog log = ItemRegisterLog.open(logPath, itemRegister,
+        ItemRegisterLog.FsyncPolicy.ALWAYS);
+    ItemRegisterTestData.addTestData(itemRegister);
+    log.close();
+    String printedBefore = itemRegister.printItems();
+
+    assertThrows(UncheckedIOException.class, () -> itemRegister.changePrice("12BK5", 1));
+    assertThrows(UncheckedIOException.class, () -> itemRegister.tryReserve("12BK5", 1));
+    assertThrows(UncheckedIOException.class, () -> itemRegister.deleteItem("BE394ER"));
+    assertThrows(UncheckedIOException.class,
+        () -> itemRegister.changePrices(ItemQuery.category(ItemCategory.DOORS), 10));
+    assertThrows(UncheckedIOException.class, () -> itemRegister.addItem(new Item("NEW1",
+        "Door", "Tall", 100, "IKEA", 1, 1, 1, "White", 1, ItemCategory.DOORS)));
+    assertEquals(itemRegister.printItems(), printedBefore);
+    assertFalse(itemRegister.tryReserve("12BK5", 1000));
+
+    ItemRegister replayed = new ItemRegister();
+    ItemRegisterLog.replay(logPath, replayed);
+    assertSameItems(itemRegister, replayed);
+  }
+}
@@ -0,0 +1,352 @@
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class representing metrics of the operations on one or more item registers: how many
+ * times every operation was called, split by outcome, and how long the calls took. The
+ * metrics are used by giving them to ItemRegister.setMetrics(metrics), and read by taking
+ * a snapshot, or by printing a snapshot regularly.
+ *
+ * <p>The number of calls and the time taken are kept in a histogram for every operation and
+ * outcome, made the first time the operation has that outcome. Recording a call never locks,
+ * so registers on several threads can record in the same metrics. A register without
+ * metrics does not read the clock at all.
+ */
+public class ItemRegisterMetrics implements AutoCloseable {
+
+  /**
+   * Enum class, representing the outcome of an operation. NOT_FOUND is used when the item
+   * asked for does not exist, INVALID when an argument is illegal, and ERROR for any other
+   * exception.
+   */
+  public enum Outcome {
+    SUCCESS,
+    NOT_FOUND,
+    INVALID,
+    ERROR;
+
+    /**
+     * Method to find the outcome of an operation that threw an exception, other than an
+     * item not being found.
+
+     * @param e The exception.
+     * @return INVALID for an IllegalArgumentException, otherwise ERROR.
+     */
+    static Outcome of(Exception e) {
+      return e instanceof IllegalArgumentException ? INVALID : ERROR;
+    }
+  }
+
+  /**
+   * Defining the variables. Histograms holds the histogram of every operation and
+   * outcome, indexed by histogram(operation, outcome), or null until it is used.
+   */
+  private final AtomicReferenceArray<LatencyHistogram> histograms;
+  private final ConcurrentHashMap<String, LongAdder> accessPaths;
+  private ScheduledExecutorService printer;
+
+  /**
+   * Constructor for item register metrics.
+   */
+  public ItemRegisterMetrics() {
+    histograms = new AtomicReferenceArray<>(
+        ItemOperation.values().length * Outcome.values().length);
+    accessPaths = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Method to record a call of an operation.
+
+   * @param operation The operation.
+   * @param outcome Outcome of the call.
+   * @param nanos Time the call took, in nanoseconds.
+   */
+  void record(ItemOperation operation, Outcome outcome, long nanos) {
+    int index = histogram(operation, outcome);
+    LatencyHistogram histogram = histograms.get(index);
+
+    if (histogram == null) {
+      histograms.compareAndSet(index, null, new LatencyHistogram());
+      histogram = histograms.get(index);
+    }
+    histogram.record(nanos);
+  }
+
+  /**
+   * Method to record which index a search looked up the possible items in.
+
+   * @param accessPath Name of the index, or "scan" if every item was checked.
+   */
+  void recordAccessPath(String accessPath) {
+    accessPaths.computeIfAbsent(accessPath, name -> new LongAdder()).increment();
+  }
+
+  /**
+   * Method to find the index of the histogram of an operation and outcome.
+
+   * @param operation The operation.
+   * @param outcome The outcome.
+   * @return Index of the histogram.
+   */
+  private static int histogram(ItemOperation operation, Outcome outcome) {
+    return operation.ordinal() * Outcome.values().length + outcome.ordinal();
+  }
+
+  /**
+   * Method to take a snapshot of the metrics. Calls recorded while the snapshot is taken
+   * may or may not be included.
+
+   * @return The snapshot.
+   */
+  public Snapshot snapshot() {
+    EnumMap<ItemOperation, EnumMap<Outcome, long[]>> operations =
+        new EnumMap<>(ItemOperation.class);
+
+    for (ItemOperation operation : ItemOperation.values()) {
+      for (Outcome outcome : Outcome.values()) {
+        LatencyHistogram histogram = histograms.get(histogram(operation, outcome));
+        if (histogram != null) {
+          operations.computeIfAbsent(operation, key -> new EnumMap<>(Outcome.class))
+              .put(outcome, histogram.copy());
+        }
+      }
+    }
+    TreeMap<String, Long> accessPathCounts = new TreeMap<>();
+    accessPaths.forEach((name, count) -> accessPathCounts.put(name, count.sum()));
+    return new Snapshot(operations, accessPathCounts);
+  }
+
+  /**
+   * Method to start printing a snapshot of the metrics regularly, on a thread of its own.
+   * Checks for illegal arguments. Printing stops when close() is called, or when the
+   * snapshot can not be written.
+
+   * @param out Where the snapshots are written. Flushed after every snapshot if it can be.
+   * @param periodMillis Time between the snapshots, in milliseconds.
+   */
+  public synchronized void startPrinting(Appendable out, long periodMillis) {
+    if (out == null) {
+      throw new IllegalArgumentException("Output can not be empty.");
+    }
+    if (periodMillis < 1) {
+      throw new IllegalArgumentException("Period must be at least 1 millisecond.");
+    }
+    if (printer != null) {
+      throw new IllegalStateException("The metrics are already being printed.");
+    }
+    printer = Executors.newSingleThreadScheduledExecutor(task -> {
+      Thread thread = new Thread(task, "item-register-metrics-printer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    ScheduledExecutorService scheduledPrinter = printer;
+    printer.scheduleAtFixedRate(() -> {
+      try {
+        out.append(snapshot().toString()).append('\n');
+        if (out instanceof Flushable flushable) {
+          flushable.flush();
+        }
+      } catch (IOException e) {
+        scheduledPrinter.shutdown();
+      }
+    }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Method to stop printing the metrics, if they are being printed. Waits until a snapshot
+   * being printed is finished. The metrics can still be recorded and read.
+   */
+  @Override
+  public void close() {
+    ScheduledExecutorService stoppedPrinter;
+
+    synchronized (this) {
+      stoppedPrinter = printer;
+      printer = null;
+    }
+    if (stoppedPrinter != null) {
+      stoppedPrinter.shutdown();
+      try {
+        stoppedPrinter.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Class representing the metrics at one point in time. Times are in nanoseconds.
+   */
+  public static final class Snapshot {
+
+    /**
+     * Defining the variables. Every histogram holds the number of calls in every bucket,
+     * followed by the number of calls, the sum and the longest time.
+     */
+    private final EnumMap<ItemOperation, EnumMap<Outcome, long[]>> operations;
+    private final Map<String, Long> accessPaths;
+
+    /**
+     * Constructor for snapshot.
+
+     * @param operations Histogram of every operation and outcome that has been recorded.
+     * @param accessPaths Number of searches using every index.
+     */
+    private Snapshot(EnumMap<ItemOperation, EnumMap<Outcome, long[]>> operations,
+                     Map<String, Long> accessPaths) {
+      this.operations = operations;
+      this.accessPaths = Collections.unmodifiableMap(accessPaths);
+    }
+
+    /**
+     * Method to find the histogram of an operation and outcome.
+
+     * @param operation The operation.
+     * @param outcome The outcome.
+     * @return The histogram, or null if there were no such calls.
+     */
+    private long[] histogram(ItemOperation operation, Outcome outcome) {
+      EnumMap<Outcome, long[]> outcomes = operations.get(operation);
+      return outcomes == null ? null : outcomes.get(outcome);
+    }
+
+    /**
+     * Method to find the number of calls of an operation with an outcome.
+
+     * @param operation The operation.
+     * @param outcome The outcome.
+     * @return Number of calls.
+     */
+    public long getCount(ItemOperation operation, Outcome outcome) {
+      long[] histogram = histogram(operation, outcome);
+      return histogram == null ? 0 : histogram[LatencyHistogram.NUMBER_OF_BUCKETS];
+    }
+
+    /**
+     * Method to find the number of calls of an operation, whatever the outcome.
+
+     * @param operation The operation.
+     * @return Number of calls.
+     */
+    public long getCount(ItemOperation operation) {
+      long count = 0;
+
+      for (Outcome outcome : Outcome.values()) {
+        count += getCount(operation, outcome);
+      }
+      return count;
+    }
+
+    /**
+     * Method to find the mean time of the calls of an operation with an outcome.
+
+     * @param operation The operation.
+     * @param outcome The outcome.
+     * @return Mean time, or 0 if there were no such calls.
+     */
+    public double getMeanNanos(ItemOperation operation, Outcome outcome) {
+      long[] histogram = histogram(operation, outcome);
+      if (histogram == null || histogram[LatencyHistogram.NUMBER_OF_BUCKETS] == 0) {
+        return 0;
+      }
+      return (double) histogram[LatencyHistogram.NUMBER_OF_BUCKETS + 1]
+          / histogram[LatencyHistogram.NUMBER_OF_BUCKETS];
+    }
+
+    /**
+     * Method to find the longest time of the calls of an operation with an outcome.
+
+     * @param operation The operation.
+     * @param outcome The outcome.
+     * @return Longest time, or 0 if there were no such calls.
+     */
+    public long getMaxNanos(ItemOperation operation, Outcome outcome) {
+      long[] histogram = histogram(operation, outcome);
+      return histogram == null ? 0 : histogram[LatencyHistogram.NUMBER_OF_BUCKETS + 2];
+    }
+
+    /**
+     * Method to find the time within which a share of the calls of an operation with an
+     * outcome finished. Checks for illegal arguments. The time is at most about 3 % too
+     * high, and never higher than the longest time.
+
+     * @param operation The operation.
+     * @param outcome The outcome.
+     * @param percentile Share of the calls, in percent, for example 99.
+     * @return The time, or 0 if there were no such calls.
+     */
+    public long getPercentileNanos(ItemOperation operation, Outcome outcome,
+                                   double percentile) {
+      if (percentile < 0 || percentile > 100) {
+        throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+      }
+      long[] histogram = histogram(operation, outcome);
+      if (histogram == null) {
+        return 0;
+      }
+      long total = 0;
+      for (int i = 0; i < LatencyHistogram.NUMBER_OF_BUCKETS; i++) {
+        total += histogram[i];
+      }
+      long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+      long seen = 0;
+
+      for (int i = 0; i < LatencyHistogram.NUMBER_OF_BUCKETS; i++) {
+        seen += histogram[i];
+        if (seen >= rank) {
+          return Math.min(LatencyHistogram.highestValue(i),
+              histogram[LatencyHistogram.NUMBER_OF_BUCKETS + 2]);
+        }
+      }
+      return 0;
+    }
+
+    /**
+     * Get method for the number of searches that looked up the possible items in every
+     * index. "scan" counts the searches that checked every item.
+
+     * @return Read-only map from the name of the index to the number of searches.
+     */
+    public Map<String, Long> getAccessPaths() {
+      return accessPaths;
+    }
+
+    /**
+     * To string method for snapshot, with a line for every operation and outcome that has
+     * been recorded, and the times in microseconds.
+
+     * @return The snapshot as a table.
+     */
+    @Override
+    public String toString() {
+      StringBuilder table = new StringBuilder(String.format(Locale.ROOT,
+          "%-28s %-9s %10s %10s %10s %10s %10s %10s%n", "operation", "outcome", "count",
+          "mean us", "p50 us", "p90 us", "p99 us", "max us"));
+
+      operations.forEach((operation, outcomes) -> outcomes.keySet().forEach(outcome ->
+          table.append(String.format(Locale.ROOT,
+              "%-28s %-9s %10d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+              operation.getMethodName(), outcome, getCount(operation, outcome),
+              getMeanNanos(operation, outcome) / 1000,
+              getPercentileNanos(operation, outcome, 50) / 1000.0,
+              getPercentileNanos(operation, outcome, 90) / 1000.0,
+              getPercentileNanos(operation, outcome, 99) / 1000.0,
+              getMaxNanos(operation, outcome) / 1000.0))));
+      accessPaths.forEach((name, count) ->
+          table.append("searches using ").append(name).append(": ").append(count)
+              .append(System.lineSeparator()));
+      return table.toString();
+    }
+  }
+}
@@ -1,7 +1,28 @@
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -120,5 +141,1021 @@ public class ItemRegisterTest {
     itemRegister.deleteItem("BE394ER");
     assertNull(itemRegister.itemByNumber("BE394ER"));
   }
-}
 
+  /**
+   * Test to check that items can be found by item number regardless of case,
+   * and that an item number can not be registered twice with different case.
+   */
+  @Test
+  public void testItemByNumberIgnoresCase() {
+    System.out.println("Testing item lookup ignoring case");
+    itemRegister.addItem(item1);
+
+    assertSame(itemRegister.itemByNumber("ABC123"), item1);
+    assertSame(itemRegister.itemByNumber("abc123"), item1);
+    assertSame(itemRegister.itemByNumber("aBc123"), item1);
+    assertFalse(itemRegister.itemNotExists("abc123"));
+    assertTrue(itemRegister.itemNotExists("ABC1234"));
+
+    try {
+      itemRegister.addItem(new Item("abc123", "Window", "Wide",
+          1000, "IKEA", 5, 2, 1, "white", 10, ItemCategory.WINDOWS));
+      fail("Expected the item number to already exist.");
+    } catch (IllegalArgumentException e) {
+      assertEquals(itemRegister.numberOfItems(), 1);
+    }
+  }
+
+  /**
+   * Test to check that the item number index stays consistent when items
+   * are added and deleted, and that the order of the items is kept.
+   */
+  @Test
+  public void testItemIndexAfterAddAndDelete() {
+    System.out.println("Testing item index after add and delete");
+    ItemRegisterTestData.addTestData(itemRegister);
+    int numberOfItems = itemRegister.numberOfItems();
+
+    itemRegister.deleteItem("be394er");
+    assertNull(itemRegister.itemByNumber("BE394ER"));
+    assertTrue(itemRegister.itemNotExists("BE394ER"));
+    assertEquals(itemRegister.numberOfItems(), numberOfItems - 1);
+
+    try {
+      itemRegister.deleteItem("BE394ER");
+      fail("Expected the item to already be deleted.");
+    } catch (IllegalArgumentException e) {
+      assertEquals(itemRegister.numberOfItems(), numberOfItems - 1);
+    }
+
+    ItemRegisterTestData.addTestData(itemRegister);
+    assertEquals(itemRegister.numberOfItems(), numberOfItems);
+    assertEquals(itemRegister.itemByNumber("Be394Er").getItemName(), "Steel door");
+    assertTrue(itemRegister.printItemsShortVersion().endsWith(
+        itemRegister.itemByNumber("BE394ER").toStringShort()));
+
+    ItemRegister copy = new ItemRegister(itemRegister);
+    copy.deleteItem("12BK5");
+    assertEquals(copy.numberOfItems(), numberOfItems - 1);
+    assertEquals(itemRegister.numberOfItems(), numberOfItems);
+    assertEquals(copy.itemByNumber("9898abc").getItemNumber(), "9898ABC");
+  }
+
+  /**
+   * Test to check that searching by description gives the same items, in the same
+   * order, as checking every item, also after descriptions are changed and items deleted.
+   */
+  @Test
+  public void testItemsByDescription() {
+    System.out.println("Testing item search by description");
+    ItemRegisterTestData.addTestData(itemRegister);
+    itemRegister.addItem(item1);
+    String[] searches = {"h", "He", "avy", "HEAVY", "tall and", "and", "wood",
+        "shiny!", "xyz", "t a"};
+
+    for (String search : searches) {
+      assertEquals(itemRegister.itemsByDescription(search), itemsContaining(search));
+    }
+
+    itemRegister.changeDescription("BE394ER", "Light and dull");
+    assertEquals(itemRegister.itemsByDescription("shiny").size(), 0);
+    assertEquals(itemRegister.itemsByDescription("dull").get(0).getItemNumber(), "BE394ER");
+    assertEquals(itemRegister.itemsByDescription("and"), itemsContaining("and"));
+
+    itemRegister.deleteItem("12BK5");
+    assertEquals(itemRegister.itemsByDescription("heavy").size(), 0);
+    assertEquals(itemRegister.itemsByDescription("and"), itemsContaining("and"));
+    assertEquals(new ItemRegister(itemRegister).itemsByDescription("and").size(),
+        itemsContaining("and").size());
+  }
+
+  /**
+   * Method to find the items containing a description by checking every item in the
+   * register, used to compare with the items found by itemsByDescription().
+
+   * @param itemDescription Item description to search for.
+   * @return Items containing the description, in the order they are printed.
+   */
+  private ArrayList<Item> itemsContaining(String itemDescription) {
+    ArrayList<Item> foundItems = new ArrayList<>();
+
+    for (String number : new String[] {"12BK5", "BE394ER", "9898ABC", "FIAT7865", "4789KIP",
+        "ABC123"}) {
+      Item item = itemRegister.itemByNumber(number);
+      if (item != null
+          && item.getItemDescription().toLowerCase().contains(itemDescription.toLowerCase())) {
+        foundItems.add(item);
+      }
+    }
+    return foundItems;
+  }
+
+  /**
+   * Test to check that the items in each category, and the number of them,
+   * are kept up to date when items are added and deleted.
+   */
+  @Test
+  public void testItemByCategory() {
+    System.out.println("Testing item search by category");
+    ItemRegisterTestData.addTestData(itemRegister);
+    itemRegister.addItem(item1);
+
+    assertEquals(itemRegister.numberOfItemsInCategory(ItemCategory.DOORS), 3);
+    assertEquals(itemRegister.numberOfItemsInCategory(ItemCategory.WINDOWS), 1);
+    assertEquals(itemRegister.itemByCategory(ItemCategory.DOORS).get(2), item1);
+
+    itemRegister.deleteItem("12BK5");
+    assertEquals(itemRegister.numberOfItemsInCategory(ItemCategory.DOORS), 2);
+    assertEquals(itemRegister.itemByCategory(ItemCategory.DOORS).get(0).getItemNumber(),
+        "BE394ER");
+
+    int total = 0;
+    for (ItemCategory itemCategory : ItemCategory.values()) {
+      assertEquals(itemRegister.itemByCategory(itemCategory).size(),
+          itemRegister.numberOfItemsInCategory(itemCategory));
+      total += itemRegister.numberOfItemsInCategory(itemCategory);
+    }
+    assertEquals(total, itemRegister.numberOfItems());
+    assertEquals(new ItemRegister(itemRegister).numberOfItemsInCategory(ItemCategory.DOORS), 2);
+  }
+
+  /**
+   * Test to check that reserving items never takes more items than there are
+   * in stock, and that released items are put back in stock.
+   */
+  @Test
+  public void testReserveAndRelease() {
+    System.out.println("Testing reserve and release");
+    itemRegister.addItem(item1);
+
+    assertTrue(itemRegister.tryReserve("abc123", 60));
+    assertFalse(itemRegister.tryReserve("ABC123", 41));
+    assertEquals(item1.getNumberOfItemsInStock(), 40);
+
+    itemRegister.release("ABC123", 10);
+    assertTrue(itemRegister.tryReserve("ABC123", 50));
+    assertEquals(item1.getNumberOfItemsInStock(), 0);
+
+    try {
+      itemRegister.decreaseNumberOfItemInStock("ABC123", 1);
+      fail("Expected the item to be out of stock.");
+    } catch (IllegalArgumentException e) {
+      assertEquals(item1.getNumberOfItemsInStock(), 0);
+    }
+  }
+
+  /**
+   * Test to check that a batch of stock changes is applied when all the lines are
+   * legal, and that nothing is changed when any line is illegal.
+   */
+  @Test
+  public void testApplyStockDeltas() {
+    System.out.println("Testing batch stock changes");
+    ItemRegisterTestData.addTestData(itemRegister);
+
+    itemRegister.applyStockDeltas(List.of(new StockDelta("12BK5", 50),
+        new StockDelta("9898abc", -80), new StockDelta("12bk5", -150)));
+    assertEquals(itemRegister.itemByNumber("12BK5").getNumberOfItemsInStock(), 0);
+    assertEquals(itemRegister.itemByNumber("9898ABC").getNumberOfItemsInStock(), 900);
+
+    List<StockDelta> illegalDeltas = List.of(new StockDelta("9898ABC", 10),
+        new StockDelta("NOPE", 5), new StockDelta("12BK5", 0),
+        new StockDelta("12BK5", -1), new StockDelta(" ", 1));
+    ArrayList<String> errors = itemRegister.validateStockDeltas(illegalDeltas);
+    assertEquals(errors.size(), 4);
+    assertTrue(errors.get(0).startsWith("Line 2:"));
+    assertTrue(errors.get(3).startsWith("Line 5:"));
+
+    try {
+      itemRegister.applyStockDeltas(illegalDeltas);
+      fail("Expected the batch to be rejected.");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().contains("Line 4:"));
+      assertEquals(itemRegister.itemByNumber("9898ABC").getNumberOfItemsInStock(), 900);
+    }
+  }
+
+  /**
+   * Test to check that a copy of the register keeps the items as they were when the copy
+   * was made, while the original is changed, and the other way around.
+   */
+  @Test
+  public void testCopyIsSnapshot() {
+    System.out.println("Testing register copy as snapshot");
+    ItemRegisterTestData.addTestData(itemRegister);
+    String printedBefore = itemRegister.printItems();
+    ItemRegister copy = new ItemRegister(itemRegister);
+
+    assertSame(copy.itemByNumber("12BK5"), itemRegister.itemByNumber("12BK5"));
+    itemRegister.changePrice("12BK5", 1700);
+    itemRegister.decreaseNumberOfItemInStock("9898ABC", 80);
+    itemRegister.changeDescription("BE394ER", "Light and dull");
+    itemRegister.deleteItem("FIAT7865");
+    itemRegister.addItem(item1);
+
+    assertEquals(copy.printItems(), printedBefore);
+    assertEquals(copy.itemsByDescription("dull").size(), 0);
+    assertEquals(itemRegister.itemByNumber("12BK5").getPrice(), 1700);
+    assertEquals(itemRegister.itemByNumber("9898ABC").getNumberOfItemsInStock(), 900);
+    assertEquals(itemRegister.itemsByDescription("dull").size(), 1);
+    assertNull(copy.itemByNumber("ABC123"));
+
+    copy.release("4789KIP", 5);
+    copy.deleteItem("12BK5");
+    assertEquals(itemRegister.itemByNumber("4789KIP").getNumberOfItemsInStock(), 900);
+    assertEquals(itemRegister.numberOfItemsInCategory(ItemCategory.DOORS), 3);
+    assertEquals(copy.numberOfItemsInCategory(ItemCategory.DOORS), 1);
+  }
+
+  /**
+   * Test to check that an item given out by a register can only be changed through a
+   * register, so a change can not reach a copy that shares the item.
+   */
+  @Test
+  public void testCopyIsolatedFromItemMutation() {
+    System.out.println("Testing copy isolation from item mutation");
+    for (Method method : Item.class.getMethods()) {
+      assertFalse(method.getName(), method.getName().startsWith("set")
+          || method.getName().equals("tryReserve") || method.getName().equals("release"));
+    }
+    ItemRegisterTestData.addTestData(itemRegister);
+    Item item = itemRegister.itemByNumber("12BK5");
+    ItemRegister copy = new ItemRegister(itemRegister);
+
+    itemRegister.changePrice("12BK5", 100);
+    itemRegister.tryReserve("12BK5", 10);
+    assertEquals(item.getPrice(), 1500);
+    assertEquals(copy.itemByNumber("12BK5").getPrice(), 1500);
+    assertEquals(copy.itemByNumber("12BK5").getNumberOfItemsInStock(), 100);
+    assertEquals(copy.itemsByPrice(0, 100).size(), 0);
+    assertEquals(itemRegister.itemByNumber("12BK5").getPrice(), 100);
+  }
+
+  /**
+   * Test to check that copies of a large register stay independent when most of the items
+   * are deleted from one of them, and that the order of the items is kept.
+   */
+  @Test
+  public void testCopiesOfLargeRegister() {
+    System.out.println("Testing copies of a large register");
+    int numberOfItems = 5000;
+    for (int i = 0; i < numberOfItems; i++) {
+      itemRegister.addItem(new Item("N" + i, "Name", "Description " + i, i, "Brand",
+          1, 1, 1, "Colour", i, ItemCategory.getCategoryFromNumber(1 + i % 4)));
+    }
+    ItemRegister copy = new ItemRegister(itemRegister);
+    ItemRegister secondCopy = new ItemRegister(copy);
+
+    for (int i = 0; i < numberOfItems; i++) {
+      if (i % 3 != 0) {
+        itemRegister.deleteItem("n" + i);
+      } else {
+        itemRegister.changePrice("N" + i, 0);
+      }
+    }
+    copy.increaseNumberOfItemInStock("N4999", 1);
+
+    assertEquals(itemRegister.numberOfItems(), 1667);
+    assertEquals(copy.numberOfItems(), numberOfItems);
+    assertEquals(itemRegister.itemByNumber("N4998").getPrice(), 0);
+    assertEquals(copy.itemByNumber("N4998").getPrice(), 4998);
+    assertEquals(copy.itemByNumber("N4999").getNumberOfItemsInStock(), 5000);
+    assertEquals(secondCopy.itemByNumber("N4999").getNumberOfItemsInStock(), 4999);
+    assertEquals(itemRegister.itemByCategory(ItemCategory.DOORS).get(1).getItemNumber(), "N18");
+    assertEquals(copy.itemByCategory(ItemCategory.DOORS).size(), 1250);
+
+    int i = 0;
+    for (Item item : itemRegister.itemByCategory(ItemCategory.WINDOWS)) {
+      assertEquals(item.getItemNumber(), "N" + (i * 12 + 9));
+      i++;
+    }
+    assertEquals(i, itemRegister.numberOfItemsInCategory(ItemCategory.WINDOWS));
+  }
+
+  /**
+   * Test to check that searches by price and number in stock follow the changes made to
+   * the items, and that a copy of the register keeps its own values.
+   */
+  @Test
+  public void testPriceAndStockColumns() {
+    System.out.println("Testing searches by price and number in stock");
+    ItemRegisterTestData.addTestData(itemRegister);
+
+    assertEquals(itemRegister.itemsByPrice(400, 1500).size(), 3);
+    assertEquals(itemRegister.itemsByNumberInStock(0, 99).get(0).getItemNumber(), "BE394ER");
+
+    ItemRegister copy = new ItemRegister(itemRegister);
+    itemRegister.changePrice("12BK5", 100);
+    itemRegister.tryReserve("9898ABC", 950);
+    itemRegister.deleteItem("FIAT7865");
+
+    assertEquals(itemRegister.itemsByPrice(400, 1500).size(), 1);
+    assertEquals(itemRegister.itemsByNumberInStock(0, 99).size(), 2);
+    assertEquals(itemRegister.itemsByNumberInStock(0, 99).get(1).getItemNumber(), "9898ABC");
+    assertEquals(copy.itemsByPrice(400, 1500).size(), 3);
+    assertEquals(copy.itemsByNumberInStock(0, 99).size(), 2);
+  }
+
+  /**
+   * Test to check that the price index sorts the items by price, follows price changes and
+   * deleted items, and that a copy of the register keeps its own order.
+   */
+  @Test
+  public void testPriceIndex() {
+    System.out.println("Testing the price index");
+    ItemRegisterTestData.addTestData(itemRegister);
+
+    ArrayList<Item> items = itemRegister.itemsByPrice(0, 1500);
+    assertEquals(items.size(), 4);
+    assertEquals(items.get(0).getItemNumber(), "4789KIP");
+    assertEquals(items.get(3).getItemNumber(), "12BK5");
+    assertEquals(itemRegister.cheapestItems(ItemCategory.DOORS, 1).get(0).getItemNumber(),
+        "12BK5");
+
+    ItemRegister copy = new ItemRegister(itemRegister);
+    itemRegister.discountPrice("BE394ER", 50);
+    itemRegister.changePrice("9898ABC", 200);
+
+    assertEquals(itemRegister.cheapestItems(ItemCategory.DOORS, 1).get(0).getItemNumber(),
+        "BE394ER");
+    assertEquals(itemRegister.itemsByPrice(ItemCategory.DOORS, 0, 1500).size(), 2);
+    assertEquals(itemRegister.cheapestItems(2).get(0).getItemNumber(), "9898ABC");
+    assertEquals(itemRegister.cheapestItems(2).get(1).getItemNumber(), "4789KIP");
+    assertEquals(copy.cheapestItems(2).get(1).getItemNumber(), "9898ABC");
+
+    itemRegister.deleteItem("4789KIP");
+    itemRegister.addItem(new Item("PINE1", "Pine lumber", "Pine", 100, "Fresh Lumber",
+        10, 0.8, 4, "Light brown", 500, ItemCategory.LUMBER));
+
+    assertEquals(itemRegister.cheapestItems(2).get(0).getItemNumber(), "PINE1");
+    assertEquals(itemRegister.cheapestItems(2).get(1).getItemNumber(), "9898ABC");
+    assertEquals(itemRegister.cheapestItems(ItemCategory.LUMBER, 5).size(), 1);
+    assertEquals(copy.cheapestItems(ItemCategory.LUMBER, 5).get(0).getItemNumber(), "4789KIP");
+  }
+
+  /**
+   * Test to check that combined queries find the right items in the right order, and that
+   * the most selective index is used to find them.
+   */
+  @Test
+  public void testSearch() {
+    System.out.println("Testing search with queries");
+    ItemRegisterTestData.addTestData(itemRegister);
+
+    ArrayList<Item> items = itemRegister.search(ItemQuery.category(ItemCategory.DOORS)
+        .and(ItemQuery.brand("coolest doors in town")), ItemOrder.PRICE_HIGHEST_FIRST, 10);
+    assertEquals(items.size(), 2);
+    assertEquals(items.get(0).getItemNumber(), "BE394ER");
+
+    items = itemRegister.search(ItemQuery.colour("brown").or(ItemQuery.price(0, 300)),
+        ItemOrder.ADDED, 10);
+    assertEquals(items.size(), 3);
+    assertEquals(items.get(1).getItemNumber(), "FIAT7865");
+    assertEquals(items.get(2).getItemNumber(), "4789KIP");
+
+    ItemQuery query = ItemQuery.itemNumber("12bk5").or(ItemQuery.description("long"));
+    assertEquals(itemRegister.searchPlan(query),
+        "index on any of (item number, description) (about 2 items)");
+    items = itemRegister.search(query, ItemOrder.ITEM_NUMBER, 10);
+    assertEquals(items.get(0).getItemNumber(), "12BK5");
+    assertEquals(items.get(1).getItemNumber(), "FIAT7865");
+
+    query = ItemQuery.allOf(ItemQuery.category(ItemCategory.DOORS), ItemQuery.price(0, 300));
+    assertEquals(itemRegister.searchPlan(query), "index on price (about 1 items)");
+    assertEquals(itemRegister.search(query, ItemOrder.ADDED, 10).size(), 0);
+    assertTrue(itemRegister.searchPlan(ItemQuery.numberInStock(0, 99)).startsWith("scan"));
+
+    items = itemRegister.search(ItemQuery.price(0, 10000), ItemOrder.PRICE_LOWEST_FIRST, 2);
+    assertEquals(items.size(), 2);
+    assertEquals(items.get(1).getItemNumber(), "9898ABC");
+
+    ItemRegister offHeap = new ItemRegister(ItemStorage.OFF_HEAP);
+    ItemRegisterTestData.addTestData(offHeap);
+    query = ItemQuery.category(ItemCategory.DOORS).or(ItemQuery.itemNumber("12BK5"));
+    assertTrue(offHeap.searchPlan(query).startsWith("index on any of"));
+    for (ItemRegister register : new ItemRegister[] {itemRegister, offHeap}) {
+      items = register.search(query, ItemOrder.ADDED, 10);
+      assertEquals(items.size(), 2);
+      assertEquals(items.get(0).getItemNumber(), "12BK5");
+      assertEquals(items.get(1).getItemNumber(), "BE394ER");
+    }
+
+    try {
+      ItemQuery.allOf();
+      fail("An empty query should not be allowed.");
+    } catch (IllegalArgumentException e) {
+      assertEquals(e.getMessage(), "At least one query must be given.");
+    }
+  }
+
+  /**
+   * Test to check that the low items are listed most critical first, that the listener is
+   * told only when an item gets low, and that a copy keeps its own low items.
+   */
+  @Test
+  public void testLowStockWatch() {
+    System.out.println("Testing low stock watch");
+    ItemRegisterTestData.addTestData(itemRegister);
+    ArrayList<String> alerts = new ArrayList<>();
+    itemRegister.setLowStockListener((item, reorderThreshold) ->
+        alerts.add(item.getItemNumber() + " " + reorderThreshold));
+
+    itemRegister.setReorderThreshold(ItemCategory.DOORS, 90);
+    itemRegister.setReorderThreshold("FIAT7865", 100);
+    itemRegister.decreaseNumberOfItemInStock("12BK5", 20);
+    itemRegister.decreaseNumberOfItemInStock("BE394ER", 10);
+
+    ArrayList<Item> items = itemRegister.lowStockItems();
+    assertEquals(items.size(), 3);
+    assertEquals(items.get(0).getItemNumber(), "FIAT7865");
+    assertEquals(items.get(1).getItemNumber(), "BE394ER");
+    assertEquals(items.get(2).getItemNumber(), "12BK5");
+    assertEquals(alerts, List.of("BE394ER 90", "FIAT7865 100", "12BK5 90"));
+
+    itemRegister.increaseNumberOfItemInStock("FIAT7865", 60);
+    ItemRegister copy = new ItemRegister(itemRegister);
+    itemRegister.deleteItem("BE394ER");
+    itemRegister.setReorderThreshold(ItemCategory.DOORS, 0);
+
+    assertEquals(itemRegister.lowStockItems().size(), 0);
+    assertEquals(copy.lowStockItems().size(), 2);
+    assertEquals(copy.lowStockItems().get(0).getItemNumber(), "BE394ER");
+    assertEquals(alerts.size(), 3);
+
+    itemRegister.setReorderThreshold(ItemCategory.DOORS, 200);
+    assertEquals(alerts.get(3), "12BK5 200");
+    assertEquals(itemRegister.lowStockItems().get(0).getItemNumber(), "12BK5");
+  }
+
+  /**
+   * Test to check that the totals of the register, of every category and of every brand
+   * are kept up to date when items are added, deleted and changed, also in a copy.
+   */
+  @Test
+  public void testInventoryTotals() {
+    System.out.println("Testing inventory totals");
+    ItemRegisterTestData.addTestData(itemRegister);
+    assertTotalsAreUpToDate(itemRegister);
+    assertEquals(itemRegister.totals().getStockValue(),
+        1500 * 100 + 2000 * 78 + 400 * 980 + 500 * 40 + 200 * 900);
+    assertEquals(itemRegister.totalsByBrand("Coolest Doors In Town").getNumberOfItems(), 2);
+
+    ItemRegister copy = new ItemRegister(itemRegister);
+    itemRegister.addItem(item1);
+    itemRegister.changePrice("12BK5", 1700);
+    itemRegister.discountPrice("9898ABC", 12.5);
+    itemRegister.increaseNumberOfItemInStock("FIAT7865", 10);
+    itemRegister.decreaseNumberOfItemInStock("4789KIP", 899);
+    itemRegister.tryReserve("ABC123", 30);
+    itemRegister.release("abc123", 5);
+    itemRegister.applyStockDeltas(List.of(new StockDelta("BE394ER", -78),
+        new StockDelta("12BK5", 3)));
+    assertTotalsAreUpToDate(itemRegister);
+    assertEquals(itemRegister.totalsByCategory(ItemCategory.DOORS).getNumberOfItemsInStock(),
+        75 + 103);
+
+    itemRegister.deleteItem("9898ABC");
+    itemRegister.deleteItem("be394er");
+    assertTotalsAreUpToDate(itemRegister);
+    assertEquals(itemRegister.totalsByBrand("Best Windows You Will Find"),
+        InventoryTotals.EMPTY);
+    assertEquals(itemRegister.totalsByCategory(ItemCategory.WINDOWS).getStockValue(), 0);
+
+    assertTotalsAreUpToDate(copy);
+    copy.changePrice("4789KIP", 1);
+    assertTotalsAreUpToDate(copy);
+    assertEquals(copy.totalsByBrand().size(), 4);
+    assertEquals(itemRegister.totalsByBrand().firstKey(), "Coolest Doors In Town");
+  }
+
+  /**
+   * Method to check the totals kept by a register against totals found by going through
+   * every item in the register.
+
+   * @param register The register to check.
+   */
+  private static void assertTotalsAreUpToDate(ItemRegister register) {
+    HashMap<ItemCategory, InventoryTotals> categoryTotals = new HashMap<>();
+    TreeMap<String, InventoryTotals> brandTotals = new TreeMap<>();
+    InventoryTotals totals = InventoryTotals.EMPTY;
+
+    for (Item item : register.allItems()) {
+      InventoryTotals itemTotals = new InventoryTotals(1, item.getNumberOfItemsInStock(),
+          (long) item.getPrice() * item.getNumberOfItemsInStock(),
+          item.getWeight() * item.getNumberOfItemsInStock());
+      categoryTotals.merge(item.getCategory(), itemTotals, InventoryTotals::plus);
+      brandTotals.merge(item.getBrandName(), itemTotals, InventoryTotals::plus);
+      totals = totals.plus(itemTotals);
+    }
+    assertSameTotals(register.totals(), totals);
+    for (ItemCategory itemCategory : ItemCategory.values()) {
+      assertSameTotals(register.totalsByCategory(itemCategory),
+          categoryTotals.getOrDefault(itemCategory, InventoryTotals.EMPTY));
+    }
+    assertEquals(register.totalsByBrand().keySet(), brandTotals.keySet());
+    for (String brandName : brandTotals.keySet()) {
+      assertSameTotals(register.totalsByBrand().get(brandName), brandTotals.get(brandName));
+      assertSameTotals(register.totalsByBrand(brandName), brandTotals.get(brandName));
+    }
+  }
+
+  /**
+   * Method to check that two totals are the same.
+
+   * @param actual Totals to check.
+   * @param expected Expected totals.
+   */
+  private static void assertSameTotals(InventoryTotals actual, InventoryTotals expected) {
+    assertEquals(actual.getNumberOfItems(), expected.getNumberOfItems());
+    assertEquals(actual.getNumberOfItemsInStock(), expected.getNumberOfItemsInStock());
+    assertEquals(actual.getStockValue(), expected.getStockValue());
+    assertEquals(actual.getWeightInStock(), expected.getWeightInStock(), 1e-6);
+  }
+
+  /**
+   * Test to check that printing the items to a writer gives the same text as printing
+   * them to a string, and that the format of an item is kept.
+   */
+  @Test
+  public void testPrintItemsToWriter() throws IOException {
+    System.out.println("Testing printing items to a writer");
+    ItemRegisterTestData.addTestData(itemRegister);
+    StringWriter items = new StringWriter();
+    StringWriter itemsShort = new StringWriter();
+
+    itemRegister.printItems(items);
+    itemRegister.printItemsShortVersion(itemsShort);
+    assertEquals(items.toString(), itemRegister.printItems());
+    assertEquals(itemsShort.toString(), itemRegister.printItemsShortVersion());
+    assertEquals(item1.toStringShort(), "\nItem\n--------------------\n"
+        + "Item number: ABC123\nItem name: Door\nPrice: 2000\nBrand name: IKEA\n"
+        + "Number of items in stock: 100\nCategory: " + ItemCategory.DOORS + "\n");
+    assertTrue(item1.toString().contains("Item description: Tall and big\nPrice: 2000\n"
+        + "Brand name: IKEA\nWeight: 12.3\nLength: 1.1\nHeight: 3.1\nColour: black\n"));
+  }
+
+  /**
+   * Test to check that going through the pages of the register gives every item once,
+   * in order, also when items are added and deleted between the pages.
+   */
+  @Test
+  public void testPages() {
+    System.out.println("Testing pages of items");
+    for (int i = 0; i < 100; i++) {
+      itemRegister.addItem(new Item("P" + i, "Name", i % 2 == 0 ? "Even item" : "Odd item", i,
+          "Brand", 1, 1, 1, "Colour", i, ItemCategory.getCategoryFromNumber(1 + i % 4)));
+    }
+    ItemPage page = itemRegister.page(null, 30);
+    assertEquals(page.getItems().size(), 30);
+    assertEquals(page.getItems().get(29).getItemNumber(), "P29");
+
+    itemRegister.deleteItem("P29");
+    itemRegister.deleteItem("P30");
+    itemRegister.addItem(new Item("P100", "Name", "New item", 1, "Brand", 1, 1, 1, "Colour",
+        1, ItemCategory.DOORS));
+    ArrayList<String> itemNumbers = new ArrayList<>();
+    while (page.hasNextPage()) {
+      page = itemRegister.page(page.getNextCursor(), 30);
+      page.getItems().forEach(item -> itemNumbers.add(item.getItemNumber()));
+    }
+    assertEquals(itemNumbers.size(), 70);
+    assertEquals(itemNumbers.get(0), "P31");
+    assertEquals(itemNumbers.get(69), "P100");
+    assertEquals(page.getItems().size(), 10);
+
+    page = itemRegister.pageByCategory(ItemCategory.DOORS, null, 10);
+    assertEquals(page.getItems().get(1).getItemNumber(), "P6");
+    page = itemRegister.pageByCategory(ItemCategory.DOORS, page.getNextCursor(), 20);
+    assertEquals(page.getItems().get(0).getItemNumber(), "P46");
+    assertFalse(page.hasNextPage());
+    assertEquals(page.getItems().get(14).getItemNumber(), "P100");
+
+    for (String description : new String[] {"item", "m"}) {
+      page = itemRegister.pageByDescription(description, null, 20);
+      assertEquals(page.getItems().get(19).getItemNumber(), "P19");
+      page = itemRegister.pageByDescription(description, page.getNextCursor(), 40);
+      assertEquals(page.getItems().get(0).getItemNumber(), "P20");
+      assertTrue(page.hasNextPage());
+    }
+    page = itemRegister.pageByDescription("odd item", null, 20);
+    assertEquals(page.getItems().get(19).getItemNumber(), "P41");
+    page = itemRegister.pageByDescription("odd item", page.getNextCursor(), 40);
+    assertEquals(page.getItems().get(0).getItemNumber(), "P43");
+    assertFalse(page.hasNextPage());
+
+    try {
+      itemRegister.page("not a cursor!", 10);
+      fail("Expected the cursor to be rejected.");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().contains("not a valid cursor"));
+    }
+  }
+
+  /**
+   * Test to check that items are imported from CSV lines, read in several chunks, and
+   * that every malformed line is reported with its line number without stopping the import.
+   */
+  @Test
+  public void testImportItemsFromCsv() throws IOException {
+    System.out.println("Testing CSV import");
+    String csv = """
+        itemNumber,name,description,price,brand,weight,length,height,colour,stock,category
+        12BK5,Wood door,Tall and heavy,1500,Coolest Doors In Town,10.5,1.5,2.5,Brown,100,3
+        BE394ER,Steel door,"Heavy, and ""shiny"" steel",2000,Cool Doors,15,2,3.3,Silver,78,3
+        9898ABC,Horizontal window,Transparent,four hundred,Best Windows,8.4,4,2.1,White,980,2
+
+        FIAT7865,Wood floor laminate,Flat and long piece,500,Exclusive Floor Laminates,5,0.5,3.5
+        4789KIP,Softwood lumber,Softwood,200,Fresh Lumber,20.6,0.8,4,Light brown,900,9
+        12bk5,Wood door,Tall and heavy,1500,Coolest Doors In Town,10.5,1.5,2.5,Brown,100,3
+        LUMB1,Pine lumber,Pine,150,Fresh Lumber,10,0.8,4,Light brown,-1,4
+        LUMB2,Pine lumber,Pine,150,Fresh Lumber,10,0.8,4,Light brown,500,4
+        """;
+    ItemCsvImporter importer = new ItemCsvImporter(itemRegister, 2);
+
+    assertEquals(importer.importItems(new StringReader(csv)), 3);
+    assertEquals(itemRegister.numberOfItems(), 3);
+    assertEquals(itemRegister.itemByNumber("BE394ER").getItemDescription(),
+        "Heavy, and \"shiny\" steel");
+    assertEquals(itemRegister.itemByNumber("LUMB2").getCategory(), ItemCategory.LUMBER);
+
+    ArrayList<String> errors = importer.getErrors();
+    assertEquals(errors.size(), 5);
+    assertTrue(errors.get(0).startsWith("Line 4: Price"));
+    assertTrue(errors.get(1).startsWith("Line 6: Expected 11 fields"));
+    assertTrue(errors.get(2).startsWith("Line 7: Please enter a number between 1 and 4"));
+    assertTrue(errors.get(3).startsWith("Line 8: Item with item number 12bk5 already exists"));
+    assertTrue(errors.get(4).startsWith("Line 9: Number of items in stock"));
+  }
+
+  /**
+   * Test to check that the catalog generator gives the same items for the same seed,
+   * whether they are generated in parallel or not, and that the CSV file it writes can be
+   * imported.
+   */
+  @Test
+  public void testCatalogGenerator() throws IOException {
+    System.out.println("Testing catalog generator");
+    ItemCatalogGenerator generator = new ItemCatalogGenerator(42);
+    generator.setShuffledItemNumbers(true);
+    generator.setCategoryWeights(0, 1, 3, 0);
+    List<Item> items = generator.items(2000).toList();
+    List<Item> parallelItems = generator.items(2000).parallel().toList();
+
+    assertEquals(new ItemCatalogGenerator(42).item(7).getItemDescription(),
+        items.get(7).getItemDescription());
+    for (int i = 0; i < items.size(); i++) {
+      assertEquals(parallelItems.get(i).toString(), items.get(i).toString());
+      assertTrue(items.get(i).getCategory() == ItemCategory.WINDOWS
+          || items.get(i).getCategory() == ItemCategory.DOORS);
+    }
+    ItemRegister generated = new ItemRegister();
+    generator.addItems(generated, 2000);
+    assertEquals(generated.numberOfItems(), 2000);
+    assertTrue(generated.itemByCategory(ItemCategory.DOORS).size()
+        > generated.itemByCategory(ItemCategory.WINDOWS).size());
+
+    Path path = Files.createTempFile("catalog", ".csv");
+    try {
+      generator.writeCsv(path, 2000);
+      ItemRegister imported = new ItemRegister();
+      assertEquals(new ItemCsvImporter(imported, 300).importItems(path), 2000);
+      assertEquals(imported.itemByNumber(items.get(1999).getItemNumber()).toString(),
+          items.get(1999).toString());
+    } finally {
+      Files.delete(path);
+    }
+
+    try {
+      generator.setBrands(0, 1);
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().contains("at least 1 brand"));
+    }
+  }
+
+  /**
+   * Test to check that the metrics count every operation once, split by outcome, and
+   * that a register without metrics records nothing.
+   */
+  @Test
+  public void testMetrics() {
+    System.out.println("Testing metrics");
+    ItemRegister register = new ItemRegister();
+    ItemRegisterTestData.addTestData(register);
+    ItemRegisterMetrics metrics = new ItemRegisterMetrics();
+    register.setMetrics(metrics);
+
+    register.itemByNumber("12BK5");
+    register.itemByNumber("NOPE");
+    register.deleteItem("BE394ER");
+    try {
+      register.changePrice("NOPE", 100);
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().contains("does not exist"));
+    }
+    try {
+      register.changePrice("12BK5", -1);
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().contains("Price"));
+    }
+    register.search(ItemQuery.category(ItemCategory.DOORS), ItemOrder.ADDED, 10);
+    new ItemRegister(register).numberOfItems();
+
+    ItemRegisterMetrics.Snapshot snapshot = metrics.snapshot();
+    assertEquals(snapshot.getCount(ItemOperation.ITEM_BY_NUMBER,
+        ItemRegisterMetrics.Outcome.SUCCESS), 1);
+    assertEquals(snapshot.getCount(ItemOperation.ITEM_BY_NUMBER,
+        ItemRegisterMetrics.Outcome.NOT_FOUND), 1);
+    assertEquals(snapshot.getCount(ItemOperation.DELETE_ITEM), 1);
+    assertEquals(snapshot.getCount(ItemOperation.CHANGE_PRICE,
+        ItemRegisterMetrics.Outcome.NOT_FOUND), 1);
+    assertEquals(snapshot.getCount(ItemOperation.CHANGE_PRICE,
+        ItemRegisterMetrics.Outcome.INVALID), 1);
+    assertEquals(snapshot.getCount(ItemOperation.SEARCH), 1);
+    assertEquals(snapshot.getCount(ItemOperation.NUMBER_OF_ITEMS), 0);
+    assertEquals(snapshot.getAccessPaths().size(), 1);
+
+    long max = snapshot.getMaxNanos(ItemOperation.DELETE_ITEM,
+        ItemRegisterMetrics.Outcome.SUCCESS);
+    assertTrue(max > 0);
+    assertEquals(snapshot.getPercentileNanos(ItemOperation.DELETE_ITEM,
+        ItemRegisterMetrics.Outcome.SUCCESS, 99), max);
+    assertTrue(snapshot.toString().contains("deleteItem"));
+
+    register.setMetrics(null);
+    register.itemByNumber("12BK5");
+    assertEquals(metrics.snapshot().getCount(ItemOperation.ITEM_BY_NUMBER), 2);
+  }
+
+  /**
+   * Test to check that items made by the register with equal brand names, colours and
+   * names share one String, also after they are changed in a copy of the register, that an
+   * item made directly keeps its own Strings, and that the items of a brand or colour are
+   * found by their codes, ignoring case.
+   */
+  @Test
+  public void testSharedTexts() {
+    System.out.println("Testing shared texts");
+    ItemRegister register = new ItemRegister();
+    for (int i = 0; i < 5; i++) {
+      register.addItem(register.newItem("D" + i, new String("Wood door"), "Door " + i,
+          100 * i, new String(i % 2 == 0 ? "Cool Doors" : "COOL DOORS"), 10, 1, 2,
+          new String(i < 3 ? "Brown" : "White"), 10, ItemCategory.DOORS));
+    }
+    Item window = new Item("W1", "Window", "Wide window", 300, "Best Windows", 5, 2, 1,
+        new String("White"), 10, ItemCategory.WINDOWS);
+    register.addItem(window);
+    Item first = register.itemByNumber("D0");
+
+    assertSame(register.itemByNumber("W1"), window);
+    assertNotSame(window.getColour(), register.itemByNumber("D3").getColour());
+
+    assertSame(register.itemByNumber("D2").getBrandName(), first.getBrandName());
+    assertSame(register.itemByNumber("D3").getItemName(), first.getItemName());
+    ItemRegister copy = new ItemRegister(register);
+    copy.changePrice("D4", 1);
+    assertSame(copy.itemByNumber("D4").getColour(), register.itemByNumber("D3").getColour());
+
+    assertEquals(copy.searchPlan(ItemQuery.brand("cool doors")), "index on brand (about 5 items)");
+    assertEquals(copy.search(ItemQuery.brand("cool doors"), ItemOrder.ADDED, 10).size(), 5);
+    assertEquals(copy.searchPlan(ItemQuery.colour("WHITE")), "index on colour (about 3 items)");
+    ArrayList<Item> white = copy.search(ItemQuery.colour("WHITE"), ItemOrder.ADDED, 10);
+    assertEquals(white.size(), 3);
+    assertEquals(white.get(2).getItemNumber(), "W1");
+
+    register.deleteItem("W1");
+    assertEquals(register.searchPlan(ItemQuery.colour("white")),
+        "index on colour (about 2 items)");
+    assertEquals(copy.searchPlan(ItemQuery.colour("white")), "index on colour (about 3 items)");
+  }
+
+  @Test
+  public void testOffHeapStorage() {
+    System.out.println("Testing off-heap storage");
+    ItemRegister heap = new ItemRegister();
+    ItemRegister offHeap = new ItemRegister(ItemStorage.OFF_HEAP);
+    ItemRegisterTestData.addTestData(heap);
+    ItemRegisterTestData.addTestData(offHeap);
+    offHeap.addItem(new Item("L1", "Plank", "Long plank of pine, 4 m", 90, "Trelast", 8.5, 4,
+        0.05, "Natur", 40, ItemCategory.LUMBER));
+    heap.addItem(new Item("L1", "Plank", "Long plank of pine, 4 m", 90, "Trelast", 8.5, 4,
+        0.05, "Natur", 40, ItemCategory.LUMBER));
+    assertEquals(offHeap.printItems(), heap.printItems());
+
+    ItemRegister copy = new ItemRegister(offHeap);
+    for (ItemRegister register : new ItemRegister[] {heap, offHeap}) {
+      register.changePrice("L1", 120);
+      register.decreaseNumberOfItemInStock("L1", 15);
+      register.changeDescription("L1", "Long plank of pine, 4 m, planed on all four sides");
+      register.setReorderThreshold("L1", 30);
+    }
+    assertEquals(offHeap.printItems(), heap.printItems());
+    assertEquals(offHeap.totals().toString(), heap.totals().toString());
+    assertEquals(offHeap.lowStockItems().size(), 1);
+    assertEquals(offHeap.itemByNumber("L1").getReorderThreshold(), 30);
+    assertEquals(offHeap.itemsByDescription("planed").size(), 1);
+    assertEquals(copy.itemByNumber("L1").getPrice(), 90);
+    assertEquals(copy.itemByNumber("L1").getItemDescription(), "Long plank of pine, 4 m");
+
+    Item item = offHeap.itemByNumber("L1");
+    item.setPrice(1);
+    assertEquals(offHeap.itemByNumber("L1").getPrice(), 120);
+    offHeap.deleteItem("L1");
+    assertTrue(offHeap.itemNotExists("L1"));
+    assertEquals(copy.itemByNumber("L1").getNumberOfItemsInStock(), 40);
+  }
+
+  /**
+   * Test to check that the records of an off-heap register are freed when no copy holds
+   * them any more, so taking a copy before every change does not use more and more memory,
+   * while a copy that is kept still reads its own items.
+   */
+  @Test
+  public void testOffHeapRecordsAreFreed() {
+    System.out.println("Testing freeing of off-heap records");
+    ItemRegister register = new ItemRegister(ItemStorage.OFF_HEAP);
+    new ItemCatalogGenerator(5).addItems(register, 2000);
+    ItemRegister kept = new ItemRegister(register);
+    String printed = kept.printItems();
+    BufferPoolMXBean direct = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)
+        .stream().filter(pool -> pool.getName().equals("direct")).findFirst().get();
+    System.gc();
+    long buffers = direct.getCount();
+
+    for (int i = 1; i <= 200; i++) {
+      ItemRegister snapshot = new ItemRegister(register);
+      register.changePrices(ItemQuery.price(0, Integer.MAX_VALUE), 1);
+      assertEquals(snapshot.totals().getStockValue()
+          + snapshot.totals().getNumberOfItemsInStock(), register.totals().getStockValue());
+      if (i % 5 == 0) {
+        System.gc();
+      }
+    }
+    assertTrue(direct.getCount() - buffers <= 10);
+    assertEquals(kept.printItems(), printed);
+  }
+
+  @Test
+  public void testBulkPriceChanges() {
+    System.out.println("Testing bulk price changes");
+    ItemRegister register = new ItemRegister();
+    new ItemCatalogGenerator(3).addItems(register, 10000);
+    ItemRegister before = new ItemRegister(register);
+    ItemRegister oneByOne = new ItemRegister(register);
+
+    PriceChangeSummary summary = register.discountPrices(
+        ItemQuery.category(ItemCategory.WINDOWS), 20);
+    for (Item item : oneByOne.itemByCategory(ItemCategory.WINDOWS)) {
+      oneByOne.discountPrice(item.getItemNumber(), 20);
+    }
+    assertEquals(register.printItems(), oneByOne.printItems());
+    assertEquals(summary.getNumberOfItemsMatched(),
+        register.numberOfItemsInCategory(ItemCategory.WINDOWS));
+    assertTrue(summary.getNumberOfItemsChanged() > 1000);
+    String first = summary.getItemNumbers().get(0);
+    assertEquals(summary.getOldPrice(0), before.itemByNumber(first).getPrice());
+    assertEquals(summary.getNewPrice(0), register.itemByNumber(first).getPrice());
+
+    List<Item> cheap = register.search(ItemQuery.price(0, 200), ItemOrder.ADDED, 10000);
+    summary = register.changePrices(ItemQuery.price(0, 200), 1);
+    assertEquals(summary.getNumberOfItemsChanged(), cheap.size());
+    assertEquals(summary.getTotalPriceChange(), cheap.size());
+    assertEquals(summary.getItemNumbers().get(cheap.size() - 1),
+        cheap.get(cheap.size() - 1).getItemNumber());
+
+    summary = register.discountPrices(
+        ItemQuery.matching(item -> item.getNumberOfItemsInStock() == 0), 50);
+    assertEquals(summary.getNumberOfItemsMatched(), register.search(
+        ItemQuery.numberInStock(0, 0), ItemOrder.ADDED, 10000).size());
+
+    ItemRegister offHeap = new ItemRegister(ItemStorage.OFF_HEAP);
+    for (Item item : register.search(ItemQuery.price(0, Integer.MAX_VALUE), ItemOrder.ADDED,
+        10000)) {
+      offHeap.addItem(new Item(item.getItemNumber(), item.getItemName(),
+          item.getItemDescription(), item.getPrice(), item.getBrandName(), item.getWeight(),
+          item.getLength(), item.getHeight(), item.getColour(), item.getNumberOfItemsInStock(),
+          item.getCategory()));
+    }
+    String window = register.itemByCategory(ItemCategory.WINDOWS).get(0).getItemNumber();
+    ItemQuery windows = ItemQuery.category(ItemCategory.WINDOWS)
+        .or(ItemQuery.itemNumber(window));
+    for (ItemRegister changed : new ItemRegister[] {register, offHeap}) {
+      summary = changed.changePrices(windows, 1);
+      assertEquals(summary.getNumberOfItemsMatched(),
+          changed.numberOfItemsInCategory(ItemCategory.WINDOWS));
+      assertEquals(summary.getNumberOfItemsChanged(), summary.getNumberOfItemsMatched());
+    }
+    assertEquals(offHeap.printItems(), register.printItems());
+
+    String printed = register.printItems();
+    try {
+      register.changePrices(ItemQuery.category(ItemCategory.DOORS), -1000);
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().contains("No prices were changed"));
+    }
+    assertEquals(register.printItems(), printed);
+  }
+
+  /**
+   * Test to check that the price history gives the price of an item at any time, after
+   * single and bulk price changes, and also after the item is deleted and added again.
+   */
+  @Test
+  public void testPriceHistory() {
+    System.out.println("Testing price history");
+    long[] now = {1000};
+    Clock clock = new Clock() {
+      @Override
+      public ZoneId getZone() {
+        return ZoneOffset.UTC;
+      }
+
+      @Override
+      public Clock withZone(ZoneId zone) {
+        return this;
+      }
+
+      @Override
+      public long millis() {
+        return now[0];
+      }
+
+      @Override
+      public Instant instant() {
+        return Instant.ofEpochMilli(now[0]);
+      }
+    };
+    ItemRegister register = new ItemRegister();
+    ItemPriceHistory history = new ItemPriceHistory(clock);
+    register.setPriceHistory(history);
+    ItemRegisterTestData.addTestData(register);
+
+    now[0] = 2000;
+    register.changePrice("12BK5", 1600);
+    now[0] = 3000;
+    register.discountPrice("12BK5", 50);
+    now[0] = 4000;
+    register.changePrices(ItemQuery.category(ItemCategory.DOORS), 10);
+    now[0] = 5000;
+    register.changePrice("12BK5", 810);
+
+    assertEquals(history.priceAt("12BK5", Instant.ofEpochMilli(999)), -1);
+    assertEquals(history.priceAt("12bk5", Instant.ofEpochMilli(1000)), 1500);
+    assertEquals(history.priceAt("12BK5", Instant.ofEpochMilli(2999)), 1600);
+    assertEquals(history.priceAt("12BK5", Instant.ofEpochMilli(3000)), 800);
+    assertEquals(history.priceAt("12BK5", Instant.ofEpochMilli(4500)), 810);
+    assertEquals(history.priceAt("BE394ER", Instant.ofEpochMilli(4500)), 2010);
+    assertEquals(history.priceAt("NOPE", Instant.ofEpochMilli(4500)), -1);
+    SortedMap<Instant, Integer> prices = history.prices("12BK5");
+    assertEquals(prices.size(), 4);
+    assertEquals(prices.lastKey(), Instant.ofEpochMilli(4000));
+
+    register.deleteItem("12BK5");
+    ItemRegisterTestData.addTestData(register);
+    for (int i = 1; i <= 100; i++) {
+      now[0] = 10000 + i * 1000L;
+      register.changePrice("12BK5", 1500 + (i % 2 == 0 ? i : -i));
+    }
+    assertEquals(history.prices("12BK5").size(), 105);
+    assertEquals(history.priceAt("12BK5", Instant.ofEpochMilli(4500)), 810);
+    assertEquals(history.priceAt("12BK5", Instant.ofEpochMilli(10500)), 1500);
+    assertEquals(history.priceAt("12BK5", Instant.ofEpochMilli(47999)), 1463);
+    assertEquals(history.priceAt("12BK5", Instant.ofEpochMilli(48000)), 1538);
+
+    new ItemRegister(register).changePrice("12BK5", 1);
+    assertEquals(history.priceAt("12BK5", Instant.ofEpochMilli(200000)), 1600);
+    try {
+      history.priceAt("", Instant.ofEpochMilli(0));
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().contains("Item number"));
+    }
+  }
+
+  /**
+   * Test to check that the items already in the register get their current price recorded
+   * when the price history is set, and only once if the same history is set again.
+   */
+  @Test
+  public void testPriceHistoryOfExistingItems() {
+    System.out.println("Testing price history of existing items");
+    ItemRegister register = new ItemRegister();
+    ItemRegisterTestData.addTestData(register);
+    register.changePrice("12BK5", 1600);
+    ItemPriceHistory history = new ItemPriceHistory(
+        Clock.fixed(Instant.ofEpochMilli(5000), ZoneOffset.UTC));
+
+    register.setPriceHistory(history);
+    register.setPriceHistory(history);
+
+    assertEquals(history.priceAt("12BK5", Instant.ofEpochMilli(4999)), -1);
+    assertEquals(history.priceAt("12BK5", Instant.ofEpochMilli(5000)), 1600);
+    assertEquals(history.priceAt("BE394ER", Instant.ofEpochMilli(5000)),
+        register.itemByNumber("BE394ER").getPrice());
+    assertEquals(history.prices("12BK5").size(), 1);
+    assertEquals(history.numberOfPrices(), register.numberOfItems());
+  }
+}
\ No newline at end of file
@@ -0,0 +1,14 @@
+/**
+ * Enum class, representing where an item register keeps its items.
+ *
+ * <p>HEAP keeps the Item objects that were added, and gives back the same objects.
+ * OFF_HEAP keeps every item as a record of bytes outside the Java heap (see
+ * OffHeapItemStore), which takes less memory and leaves far fewer objects for the garbage
+ * collector in a register with millions of items. Every item it gives back is then a new
+ * Item read from the record, so it is not the object that was added, and changing it
+ * directly does not change the register.
+ */
+public enum ItemStorage {
+  HEAP,
+  OFF_HEAP
+}
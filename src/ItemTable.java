@@ -0,0 +1,1168 @@
+import java.lang.ref.Cleaner;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Class holding the items of an item register, keyed by their normalized item number.
+ * Used by the ItemRegister class instead of a LinkedHashMap, so that a copy of the register
+ * can be made in constant time.
+ *
+ * <p>The items are stored in trees of small arrays: a hash trie from key to the slot of the
+ * item, one list of slots in the order the items were added, and one list per category.
+ * Every array belongs to the table that created it. A copy takes the same trees as the
+ * original, and both tables then stop owning any of the existing arrays. When a table
+ * changes an array it does not own, it changes a copy of the array and of the arrays on the
+ * path to it instead, so only the parts that are changed are copied, and the other table
+ * never sees the change. Items are handled the same way: itemForUpdate(key) gives a copy
+ * of an item the table does not own, so an item shared with another table is never changed.
+ *
+ * <p>The price, number in stock, weight and category of every item are also kept in
+ * columns indexed by slot (see ItemColumns), which sums and range searches read instead of
+ * the items. The register calls changed(key, item) after changing the price or number in
+ * stock of an item, to keep the columns up to date. The table also keeps the inventory
+ * totals of every category and brand, updated with the difference every time an item is
+ * added, removed or changed.
+ *
+ * <p>The item names, brand names and colours are kept in string dictionaries (see
+ * StringDictionary), shared by the table and its copies. An item made with newItem() is
+ * given the String kept in the dictionary for each of them, so a text shared by many items
+ * is only kept once, and the codes of the brand name and colour are kept in the columns. The table
+ * also counts the items of every colour, the same way as the brand totals.
+ *
+ * <p>Every item is given a sequence number when it is added, which grows with every item
+ * added and is never changed. The slots are always in the order of their sequence numbers,
+ * so a page of items can start right after a given sequence number, found by binary search.
+ * A deleted item leaves an entry without an item in its slots, which keeps its sequence
+ * number until the table is rebuilt.
+ *
+ * <p>A table made with ItemStorage.OFF_HEAP keeps the items in an OffHeapItemStore, shared
+ * by the table and its copies, and every entry holds the address of a record instead of an
+ * item. A record is owned like an item, and copied before it is changed by a table that
+ * does not own it. Every array in the tree of slots then counts the references to it, and
+ * every record the trees holding it, so a copy of the table only adds a reference to the
+ * root. An array copied before it is changed adds a reference to every array or record in
+ * it, and releases the array it was copied from. When an array or record is released for
+ * the last time, everything in it is released, and the record is freed. A table releases
+ * its tree when it is garbage collected, so the records only held by a dropped copy are
+ * freed too. Every item the table gives back is read from its record, so the register
+ * calls changed(key, item) or descriptionChanged(key, item) to write a change back.
+ */
+class ItemTable {
+
+  /**
+   * Defining the shape of the trees. Every array holds up to 32 elements.
+   */
+  private static final int BITS = 5;
+  private static final int WIDTH = 1 << BITS;
+  private static final int MASK = WIDTH - 1;
+
+  /**
+   * Defining the highest number of texts in each string dictionary.
+   */
+  private static final int DICTIONARY_CAPACITY = 1 << 16;
+
+  /**
+   * Defining the record of an entry that does not have one, because the item is kept on the
+   * heap or has been deleted.
+   */
+  private static final long NO_RECORD = -1;
+
+  /**
+   * Defining the cleaner releasing the tree of slots of a table kept in a store, when the
+   * table is garbage collected.
+   */
+  private static final Cleaner CLEANER = Cleaner.create();
+
+  /**
+   * Defining the variables. Edit is the owner of the arrays and items this table may change
+   * in place. Keys maps every key to a slot, and slots holds the item in every slot, or null
+   * if the item has been deleted. CategorySlots holds the same entries for each category,
+   * and columns holds the numeric fields of the item in every slot. BrandTotals is owned
+   * by brandTotalsEdit, and copied before it is changed by a table that does not own it.
+   * ColourCounts holds the number of items with every colour code, and is handled the same
+   * way. Store holds the records of the items, or is null if the items are kept on the heap.
+   * NextSequence is the sequence number of the next item added.
+   */
+  private Object edit;
+  private KeyNode keys;
+  private final Slots slots;
+  private final Slots[] categorySlots;
+  private ItemColumns columns;
+  private final InventoryTotals[] categoryTotals;
+  private HashMap<String, InventoryTotals> brandTotals;
+  private Object brandTotalsEdit;
+  private final StringDictionary names;
+  private final StringDictionary brands;
+  private final StringDictionary colours;
+  private int[] colourCounts;
+  private Object colourCountsEdit;
+  private final OffHeapItemStore store;
+  private final int[] categorySizes;
+  private long nextSequence;
+  private int size;
+
+  /**
+   * Constructor for an empty item table.
+
+   * @param storage Where the items are kept.
+   */
+  ItemTable(ItemStorage storage) {
+    edit = new Object();
+    names = new StringDictionary(DICTIONARY_CAPACITY);
+    brands = new StringDictionary(DICTIONARY_CAPACITY);
+    colours = new StringDictionary(DICTIONARY_CAPACITY);
+    store = storage == ItemStorage.OFF_HEAP
+        ? new OffHeapItemStore(names, brands, colours) : null;
+    slots = new Slots(store);
+    categorySlots = new Slots[ItemCategory.values().length];
+    for (int i = 0; i < categorySlots.length; i++) {
+      categorySlots[i] = new Slots();
+    }
+    categorySizes = new int[categorySlots.length];
+    columns = new ItemColumns();
+    categoryTotals = new InventoryTotals[categorySlots.length];
+    Arrays.fill(categoryTotals, InventoryTotals.EMPTY);
+    brandTotals = new HashMap<>();
+    brandTotalsEdit = edit;
+    colourCounts = new int[0];
+    colourCountsEdit = edit;
+    if (store != null) {
+      CLEANER.register(this, slots::clear);
+    }
+  }
+
+  /**
+   * Copy constructor for item table. Takes constant time, since the copy shares all its
+   * arrays and items with the original until one of them is changed.
+
+   * @param itemTable Item table to copy.
+   */
+  ItemTable(ItemTable itemTable) {
+    itemTable.edit = new Object();
+    edit = new Object();
+    keys = itemTable.keys;
+    slots = new Slots(itemTable.slots);
+    categorySlots = new Slots[itemTable.categorySlots.length];
+    for (int i = 0; i < categorySlots.length; i++) {
+      categorySlots[i] = new Slots(itemTable.categorySlots[i]);
+    }
+    categorySizes = itemTable.categorySizes.clone();
+    columns = new ItemColumns(itemTable.columns);
+    categoryTotals = itemTable.categoryTotals.clone();
+    brandTotals = itemTable.brandTotals;
+    names = itemTable.names;
+    brands = itemTable.brands;
+    colours = itemTable.colours;
+    colourCounts = itemTable.colourCounts;
+    store = itemTable.store;
+    nextSequence = itemTable.nextSequence;
+    size = itemTable.size;
+    if (store != null) {
+      CLEANER.register(this, slots::clear);
+    }
+  }
+
+  /**
+   * Method to find the number of items in the table.
+
+   * @return Number of items.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Method to find the number of items in a category.
+
+   * @param itemCategory The category.
+   * @return Number of items in the category.
+   */
+  int size(ItemCategory itemCategory) {
+    return categorySizes[itemCategory.ordinal()];
+  }
+
+  /**
+   * Method to make an item with the Strings kept in the dictionaries for its name, brand
+   * name and colour, so a text shared by many items is only kept once. Checks for illegal
+   * arguments. Can be called by any thread, since the dictionaries can be shared.
+
+   * @param itemNumber Unique number for the item.
+   * @param itemName Name of item.
+   * @param itemDescription Description of item.
+   * @param price Price of item, given in kr.
+   * @param brandName Brand name of item.
+   * @param weight Weight of item, given in kg.
+   * @param length Length of item, given in m.
+   * @param height Height of item, given in m.
+   * @param colour Colour of item.
+   * @param numberOfItemsInStock Number of items in stock.
+   * @param itemCategory Category of item.
+   * @return The item.
+   */
+  Item newItem(String itemNumber, String itemName, String itemDescription, int price,
+               String brandName, double weight, double length, double height, String colour,
+               int numberOfItemsInStock, ItemCategory itemCategory) {
+    return new Item(itemNumber, shared(names, itemName), itemDescription, price,
+        shared(brands, brandName), weight, length, height, shared(colours, colour),
+        numberOfItemsInStock, itemCategory);
+  }
+
+  /**
+   * Method to find the String kept in a dictionary for a text. A blank text is not added,
+   * since the item it is for is not made.
+
+   * @param dictionary The dictionary.
+   * @param text The text.
+   * @return The String kept in the dictionary, or the given text.
+   */
+  private static String shared(StringDictionary dictionary, String text) {
+    return text.isBlank() ? text : dictionary.shared(text);
+  }
+
+  /**
+   * Method to find an item by its key.
+
+   * @param key Normalized item number.
+   * @return The item, or null if there is no item with the key.
+   */
+  Item get(String key) {
+    Entry entry = entry(key);
+    return entry == null ? null : entry.item(store);
+  }
+
+  /**
+   * Method to find the slot of an item by its key. The slot of an item stays the same until
+   * an item is removed, so it can be used to change the item without looking up the key
+   * again.
+
+   * @param key Normalized item number.
+   * @return The slot, or -1 if there is no item with the key.
+   */
+  int slot(String key) {
+    return KeyNode.get(keys, key, hash(key));
+  }
+
+  /**
+   * Method to find an item that is about to be changed. If the item is shared with a copy of
+   * the table, it is replaced by a copy of the item first, and the copy is returned.
+   * An item read from the store is only changed in the store by changed(key, item) or
+   * descriptionChanged(key, item).
+
+   * @param key Normalized item number.
+   * @return The item, owned by this table, or null if there is no item with the key.
+   */
+  Item itemForUpdate(String key) {
+    int slot = slot(key);
+    return slot < 0 ? null : itemForUpdate(slot);
+  }
+
+  /**
+   * Method to find the item in a slot that is about to be changed, the same way as
+   * itemForUpdate(key).
+
+   * @param slot Slot holding an item, as given by slot(key).
+   * @return The item, owned by this table.
+   */
+  Item itemForUpdate(int slot) {
+    Entry entry = (Entry) slots.get(slot);
+
+    if (entry.edit == edit) {
+      return entry.item(store);
+    }
+    entry = store == null
+        ? new Entry(new Item(entry.item), NO_RECORD, entry.categorySlot, edit, entry.sequence)
+        : new Entry(null, store.copy(entry.record), entry.categorySlot, edit, entry.sequence);
+    Item item = entry.item(store);
+    slots.set(slot, entry, edit);
+    categorySlots[item.getCategory().ordinal()].set(entry.categorySlot, entry, edit);
+    return item;
+  }
+
+  /**
+   * Method to update the columns, and the record if the item is kept in the store, after
+   * the price, number in stock or reorder threshold of an item is changed.
+
+   * @param key Normalized item number of the changed item.
+   * @param item The changed item, as given by itemForUpdate(key).
+   */
+  void changed(String key, Item item) {
+    int slot = slot(key);
+    if (slot >= 0) {
+      changed(slot, item);
+    }
+  }
+
+  /**
+   * Method to update the columns, and the record if the item is kept in the store, after
+   * an item in a slot is changed, the same way as changed(key, item).
+
+   * @param slot Slot of the changed item, as given by slot(key).
+   * @param item The changed item, as given by itemForUpdate(slot).
+   */
+  void changed(int slot, Item item) {
+    Entry entry = (Entry) slots.get(slot);
+    if (store != null) {
+      store.update(entry.record, item);
+    }
+    int oldPrice = columns.price(slot);
+    int oldNumberOfItemsInStock = columns.numberOfItemsInStock(slot);
+    int category = item.getCategory().ordinal();
+
+    categoryTotals[category] = categoryTotals[category].withChange(item, oldPrice,
+        oldNumberOfItemsInStock);
+    editableBrandTotals().computeIfPresent(item.getBrandName(),
+        (brandName, totals) -> totals.withChange(item, oldPrice, oldNumberOfItemsInStock));
+    columns.update(slot, item, edit);
+  }
+
+  /**
+   * Method to write the new description of an item into its record, if the item is kept
+   * in the store. The record is replaced by a new one, since the description may not fit.
+
+   * @param key Normalized item number of the changed item.
+   * @param item The changed item, as given by itemForUpdate(key).
+   */
+  void descriptionChanged(String key, Item item) {
+    int slot = KeyNode.get(keys, key, hash(key));
+    if (slot >= 0 && store != null) {
+      Entry entry = (Entry) slots.get(slot);
+      Entry changed = new Entry(null, store.add(item), entry.categorySlot, edit,
+          entry.sequence);
+
+      slots.set(slot, changed, edit);
+      categorySlots[item.getCategory().ordinal()].set(entry.categorySlot, changed, edit);
+    }
+  }
+
+  /**
+   * Method to add an item. The key must not be in the table already. The name, brand name
+   * and colour of the item are added to the dictionaries if they are new, so the following
+   * items made with newItem() share them. The item is written into a new record if the
+   * items are kept in the store.
+
+   * @param key Normalized item number.
+   * @param item Item to add.
+   */
+  void add(String key, Item item) {
+    if (store == null) {
+      names.code(item.getItemName());
+      add(key, item, NO_RECORD, edit, nextSequence++);
+    } else {
+      add(key, item, store.add(item), edit, nextSequence++);
+    }
+    addToTotals(item, 1);
+  }
+
+  /**
+   * Method to add an item owned by the given table.
+
+   * @param key Normalized item number.
+   * @param item Item to add.
+   * @param record Address of the record of the item, or NO_RECORD if the item is kept on
+   *               the heap.
+   * @param itemEdit Owner of the item.
+   * @param sequence Sequence number of the item.
+   */
+  private void add(String key, Item item, long record, Object itemEdit, long sequence) {
+    int category = item.getCategory().ordinal();
+    Entry entry = new Entry(record == NO_RECORD ? item : null, record,
+        categorySlots[category].size, itemEdit, sequence);
+
+    keys = KeyNode.put(keys, 0, new KeyEntry(key, hash(key), slots.size), edit);
+    columns.set(slots.size, item, brands.code(item.getBrandName()),
+        colours.code(item.getColour()), edit);
+    slots.add(entry, edit);
+    categorySlots[category].add(entry, edit);
+    categorySizes[category]++;
+    size++;
+  }
+
+  /**
+   * Method to remove an item. If more than half the slots are empty afterwards, the table
+   * is rebuilt without them.
+
+   * @param key Normalized item number.
+   * @return The removed item, or null if there is no item with the key.
+   */
+  Item remove(String key) {
+    int hash = hash(key);
+    int slot = KeyNode.get(keys, key, hash);
+    if (slot < 0) {
+      return null;
+    }
+    Entry entry = (Entry) slots.get(slot);
+    Item item = entry.item(store);
+    int category = item.getCategory().ordinal();
+    Entry deleted = new Entry(null, NO_RECORD, entry.categorySlot, edit, entry.sequence);
+
+    addToTotals(item, -1);
+    keys = KeyNode.remove(keys, 0, key, hash, edit);
+    slots.set(slot, deleted, edit);
+    columns.clear(slot, edit);
+    categorySlots[category].set(entry.categorySlot, deleted, edit);
+    categorySizes[category]--;
+    size--;
+    if (slots.size - size > WIDTH && slots.size - size > size) {
+      compact();
+    }
+    return item;
+  }
+
+  /**
+   * Method to add an item to, or remove it from, the totals of its category and brand.
+
+   * @param item The item.
+   * @param sign 1 if the item is added, -1 if it is removed.
+   */
+  private void addToTotals(Item item, int sign) {
+    int category = item.getCategory().ordinal();
+
+    categoryTotals[category] = categoryTotals[category].withItem(item, sign);
+    InventoryTotals totals = editableBrandTotals().getOrDefault(item.getBrandName(),
+        InventoryTotals.EMPTY).withItem(item, sign);
+    if (totals.getNumberOfItems() == 0) {
+      brandTotals.remove(item.getBrandName());
+    } else {
+      brandTotals.put(item.getBrandName(), totals);
+    }
+    int colourCode = colours.code(item.getColour());
+    if (colourCode >= 0) {
+      if (colourCountsEdit != edit || colourCode >= colourCounts.length) {
+        colourCounts = Arrays.copyOf(colourCounts, Math.max(colourCounts.length,
+            Math.max(16, colourCode * 2)));
+        colourCountsEdit = edit;
+      }
+      colourCounts[colourCode] += sign;
+    }
+  }
+
+  /**
+   * Method to get the totals of every brand, copying them first if they are shared with
+   * a copy of the table.
+
+   * @return Totals of every brand, which the table may change.
+   */
+  private HashMap<String, InventoryTotals> editableBrandTotals() {
+    if (brandTotalsEdit != edit) {
+      brandTotals = new HashMap<>(brandTotals);
+      brandTotalsEdit = edit;
+    }
+    return brandTotals;
+  }
+
+  /**
+   * Method to rebuild the table with only the slots that hold an item. The old arrays are
+   * left as they are, since a copy of the table may still use them, and every item and
+   * record keeps its owner. The new tree adds a reference to every record before the old
+   * tree is released.
+   */
+  private void compact() {
+    Slots oldSlots = new Slots(slots);
+
+    keys = null;
+    slots.clear();
+    for (int i = 0; i < categorySlots.length; i++) {
+      categorySlots[i] = new Slots();
+      categorySizes[i] = 0;
+    }
+    columns = new ItemColumns();
+    size = 0;
+    for (int i = 0; i < oldSlots.size; i++) {
+      Entry entry = (Entry) oldSlots.get(i);
+      Item item = entry.item(store);
+      if (item != null) {
+        if (entry.record != NO_RECORD) {
+          store.retain(entry.record);
+        }
+        add(ItemRegister.normalizedItemNumber(item.getItemNumber()), item, entry.record,
+            entry.edit, entry.sequence);
+      }
+    }
+    oldSlots.clear();
+  }
+
+  /**
+   * Method to get a view of all the items, in the order they were added.
+
+   * @return Read-only view of the items.
+   */
+  AbstractCollection<Item> values() {
+    return new AbstractCollection<Item>() {
+      @Override
+      public Iterator<Item> iterator() {
+        return slots.items(ItemTable.this);
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  /**
+   * Method to get the items in a category, in the order they were added.
+
+   * @param itemCategory The category.
+   * @return The items in the category.
+   */
+  ArrayList<Item> values(ItemCategory itemCategory) {
+    ArrayList<Item> items = new ArrayList<>(size(itemCategory));
+    categorySlots[itemCategory.ordinal()].items(this).forEachRemaining(items::add);
+    return items;
+  }
+
+  /**
+   * Method to get the totals of the items in a category.
+
+   * @param itemCategory The category.
+   * @return Totals of the category.
+   */
+  InventoryTotals totals(ItemCategory itemCategory) {
+    return categoryTotals[itemCategory.ordinal()];
+  }
+
+  /**
+   * Method to get the totals of the items of a brand.
+
+   * @param brandName Brand name.
+   * @return Totals of the brand, which are empty if there are no items of the brand.
+   */
+  InventoryTotals totals(String brandName) {
+    return brandTotals.getOrDefault(brandName, InventoryTotals.EMPTY);
+  }
+
+  /**
+   * Method to get the totals of every brand.
+
+   * @return Read-only view of the totals, keyed by brand name.
+   */
+  Map<String, InventoryTotals> brandTotals() {
+    return Collections.unmodifiableMap(brandTotals);
+  }
+
+  /**
+   * Method to find the number of items of a brand, ignoring case.
+
+   * @param brandName Brand name.
+   * @return Number of items, or -1 if the items of the brand can not be found by their
+   *         code, because the dictionary is full.
+   */
+  int sizeOfBrand(String brandName) {
+    if (brands.isFull()) {
+      return -1;
+    }
+    int count = 0;
+    for (int code : brands.codesIgnoringCase(brandName)) {
+      count += totals(brands.text(code)).getNumberOfItems();
+    }
+    return count;
+  }
+
+  /**
+   * Method to find the items of a brand, ignoring case, in the order they were added.
+   * Compares the codes in the brand column, so no item is visited unless it matches.
+
+   * @param brandName Brand name.
+   * @return The items, or null if the dictionary is full.
+   */
+  ArrayList<Item> valuesByBrand(String brandName) {
+    if (brands.isFull()) {
+      return null;
+    }
+    ArrayList<Item> items = new ArrayList<>();
+    columns.slotsByBrand(brands.codesIgnoringCase(brandName), itemsInSlots(items));
+    return items;
+  }
+
+  /**
+   * Method to find the number of items of a colour, ignoring case.
+
+   * @param colour Colour.
+   * @return Number of items, or -1 if the items of the colour can not be found by their
+   *         code, because the dictionary is full.
+   */
+  int sizeOfColour(String colour) {
+    if (colours.isFull()) {
+      return -1;
+    }
+    int count = 0;
+    for (int code : colours.codesIgnoringCase(colour)) {
+      count += code < colourCounts.length ? colourCounts[code] : 0;
+    }
+    return count;
+  }
+
+  /**
+   * Method to find the items of a colour, ignoring case, in the order they were added.
+   * Compares the codes in the colour column, so no item is visited unless it matches.
+
+   * @param colour Colour.
+   * @return The items, or null if the dictionary is full.
+   */
+  ArrayList<Item> valuesByColour(String colour) {
+    if (colours.isFull()) {
+      return null;
+    }
+    ArrayList<Item> items = new ArrayList<>();
+    columns.slotsByColour(colours.codesIgnoringCase(colour), itemsInSlots(items));
+    return items;
+  }
+
+  /**
+   * Method to find the items whose number in stock is within a range, in the order they
+   * were added.
+
+   * @param min Lowest number in stock, inclusive.
+   * @param max Highest number in stock, inclusive.
+   * @param itemCategory Category the items must be in, or null for every category.
+   * @return The items.
+   */
+  ArrayList<Item> valuesByNumberInStock(int min, int max, ItemCategory itemCategory) {
+    ArrayList<Item> items = new ArrayList<>();
+    columns.slotsByNumberInStock(min, max, itemCategory, itemsInSlots(items));
+    return items;
+  }
+
+  /**
+   * Method to make a consumer adding the item in every slot it is given to a list.
+
+   * @param items List to add the items to.
+   * @return The consumer.
+   */
+  private IntConsumer itemsInSlots(ArrayList<Item> items) {
+    return slot -> items.add(((Entry) slots.get(slot)).item(store));
+  }
+
+  /**
+   * Method to find the sequence number of an item.
+
+   * @param key Normalized item number.
+   * @return The sequence number, or -1 if there is no item with the key.
+   */
+  long sequence(String key) {
+    Entry entry = entry(key);
+    return entry == null ? -1 : entry.sequence;
+  }
+
+  /**
+   * Method to get a page of items, in the order they were added, starting after the item
+   * with the given sequence number. Finding the start takes logarithmic time, so the time
+   * to get a page does not depend on how many pages come before it.
+
+   * @param after Sequence number the page starts after, or -1 to start at the first item.
+   * @param limit Highest number of items on the page.
+   * @param itemCategory Category the items must be in, or null for every category.
+   * @param filter Condition the items on the page must meet.
+   * @return The page.
+   */
+  ItemPage page(long after, int limit, ItemCategory itemCategory, Predicate<Item> filter) {
+    Slots pageSlots = itemCategory == null ? slots : categorySlots[itemCategory.ordinal()];
+    ArrayList<Item> items = new ArrayList<>(Math.min(limit, size));
+    long last = after;
+
+    for (int slot = pageSlots.firstSlotAfter(after); slot < pageSlots.size; slot++) {
+      Entry entry = (Entry) pageSlots.get(slot);
+      Item item = entry.item(store);
+      if (item != null && filter.test(item)) {
+        if (items.size() == limit) {
+          return new ItemPage(items, last);
+        }
+        items.add(item);
+        last = entry.sequence;
+      }
+    }
+    return new ItemPage(items, -1);
+  }
+
+  /**
+   * Method to find the entry of an item by its key.
+
+   * @param key Normalized item number.
+   * @return The entry, or null if there is no item with the key.
+   */
+  private Entry entry(String key) {
+    int slot = KeyNode.get(keys, key, hash(key));
+    return slot < 0 ? null : (Entry) slots.get(slot);
+  }
+
+  /**
+   * Method to find the hash of a key, with the high bits mixed into the low bits.
+
+   * @param key Normalized item number.
+   * @return Hash of the key.
+   */
+  private static int hash(String key) {
+    int hash = key.hashCode();
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Class holding an item in a slot, or the address of its record in the store, the slot
+   * of the item in its category, the table that owns the item, and the sequence number of
+   * the item. The item is null and the record is NO_RECORD if it has been deleted.
+   */
+  private static final class Entry {
+
+    private final Item item;
+    private final long record;
+    private final int categorySlot;
+    private final Object edit;
+    private final long sequence;
+
+    private Entry(Item item, long record, int categorySlot, Object edit, long sequence) {
+      this.item = item;
+      this.record = record;
+      this.categorySlot = categorySlot;
+      this.edit = edit;
+      this.sequence = sequence;
+    }
+
+    /**
+     * Method to get the item of the entry.
+
+     * @param store Store holding the record of the item, or null if it is on the heap.
+     * @return The item, read from its record if it has one, or null if it is deleted.
+     */
+    private Item item(OffHeapItemStore store) {
+      return record == NO_RECORD ? item : store.item(record);
+    }
+  }
+
+  /**
+   * Class representing one array in a tree, the table that owns it, and the number of
+   * references to it, which is only counted in a tree of slots holding records.
+   */
+  private static final class Node {
+
+    private static final AtomicIntegerFieldUpdater<Node> REFERENCES =
+        AtomicIntegerFieldUpdater.newUpdater(Node.class, "references");
+
+    private final Object edit;
+    private final Object[] array;
+    private volatile int references = 1;
+
+    private Node(Object edit, Object[] array) {
+      this.edit = edit;
+      this.array = array;
+    }
+  }
+
+  /**
+   * Class representing a list of slots, stored as a tree of arrays where the leaves hold
+   * the slots and every level above holds up to 32 nodes of the level below. If the slots
+   * hold entries with records, the references to the arrays and records are counted.
+   */
+  private static final class Slots {
+
+    private final OffHeapItemStore store;
+    private Node root;
+    private int shift;
+    private int size;
+
+    private Slots() {
+      this((OffHeapItemStore) null);
+    }
+
+    /**
+     * Constructor for an empty list of slots.
+
+     * @param store Store holding the records of the entries in the slots, if the references
+     *              to them are counted, or null.
+     */
+    private Slots(OffHeapItemStore store) {
+      this.store = store;
+    }
+
+    private Slots(Slots slots) {
+      store = slots.store;
+      root = slots.root;
+      shift = slots.shift;
+      size = slots.size;
+      retain(root);
+    }
+
+    /**
+     * Method to get the value in a slot.
+
+     * @param slot The slot.
+     * @return The value in the slot.
+     */
+    private Object get(int slot) {
+      return leaf(slot)[slot & MASK];
+    }
+
+    /**
+     * Method to find the leaf array holding a slot.
+
+     * @param slot The slot.
+     * @return The leaf array.
+     */
+    private Object[] leaf(int slot) {
+      Node node = root;
+      for (int level = shift; level > 0; level -= BITS) {
+        node = (Node) node.array[(slot >>> level) & MASK];
+      }
+      return node.array;
+    }
+
+    /**
+     * Method to change the value in a slot, copying the nodes on the way that are not
+     * owned by the table.
+
+     * @param slot The slot.
+     * @param value The new value.
+     * @param edit Owner of the table changing the slot.
+     */
+    private void set(int slot, Object value, Object edit) {
+      root = set(root, shift, slot, value, edit);
+    }
+
+    /**
+     * Method to add a value in a new slot at the end, adding a level to the tree if it is full.
+
+     * @param value The value to add.
+     * @param edit Owner of the table adding the value.
+     */
+    private void add(Object value, Object edit) {
+      if (root == null) {
+        root = new Node(edit, new Object[WIDTH]);
+      } else if (size == WIDTH << shift) {
+        Node newRoot = new Node(edit, new Object[WIDTH]);
+        newRoot.array[0] = root;
+        root = newRoot;
+        shift += BITS;
+      }
+      root = set(root, shift, size, value, edit);
+      size++;
+    }
+
+    /**
+     * Method to remove every slot, releasing the tree.
+     */
+    private void clear() {
+      Node oldRoot = root;
+
+      root = null;
+      shift = 0;
+      size = 0;
+      release(oldRoot);
+    }
+
+    private Node set(Node node, int level, int slot, Object value, Object edit) {
+      Node editable = editable(node, edit);
+
+      if (level == 0) {
+        Object oldValue = editable.array[slot & MASK];
+        editable.array[slot & MASK] = value;
+        release(oldValue);
+      } else {
+        int index = (slot >>> level) & MASK;
+        Node child = (Node) editable.array[index];
+        editable.array[index] = set(child == null ? new Node(edit, new Object[WIDTH]) : child,
+            level - BITS, slot, value, edit);
+      }
+      return editable;
+    }
+
+    /**
+     * Method to get a node if it is owned by the given table, or else a copy of it, which
+     * adds a reference to everything in it and releases the node.
+
+     * @param node The node.
+     * @param edit Owner of the table changing the node.
+     * @return A node the table may change.
+     */
+    private Node editable(Node node, Object edit) {
+      if (node.edit == edit) {
+        return node;
+      }
+      Node copy = new Node(edit, node.array.clone());
+      if (store != null) {
+        for (Object value : copy.array) {
+          retain(value);
+        }
+        release(node);
+      }
+      return copy;
+    }
+
+    /**
+     * Method to add a reference to a node or to the record of an entry, if the references
+     * are counted.
+
+     * @param value The node or entry, or null.
+     */
+    private void retain(Object value) {
+      if (store == null || value == null) {
+        return;
+      }
+      if (value instanceof Node) {
+        Node.REFERENCES.incrementAndGet((Node) value);
+      } else if (((Entry) value).record != NO_RECORD) {
+        store.retain(((Entry) value).record);
+      }
+    }
+
+    /**
+     * Method to remove a reference to a node or to the record of an entry, if the
+     * references are counted. A node losing its last reference releases everything in it.
+
+     * @param value The node or entry, or null.
+     */
+    private void release(Object value) {
+      if (store == null || value == null) {
+        return;
+      }
+      if (value instanceof Node) {
+        Node node = (Node) value;
+        if (Node.REFERENCES.decrementAndGet(node) == 0) {
+          for (Object child : node.array) {
+            release(child);
+          }
+        }
+      } else if (((Entry) value).record != NO_RECORD) {
+        store.release(((Entry) value).record);
+      }
+    }
+
+    /**
+     * Method to find the first slot holding an entry with a greater sequence number than
+     * the given one.
+
+     * @param sequence The sequence number.
+     * @return The first slot after the sequence number, or size if there is none.
+     */
+    private int firstSlotAfter(long sequence) {
+      int low = 0;
+      int high = size;
+
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (((Entry) get(middle)).sequence <= sequence) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    /**
+     * Method to iterate over the items in the slots, skipping the empty slots. The iterator
+     * keeps the table reachable, so the records it reads are not released while it is used.
+
+     * @param table Table holding the slots.
+     * @return Iterator over the items.
+     */
+    private Iterator<Item> items(ItemTable table) {
+      return new Iterator<Item>() {
+        private int slot = -1;
+        private Object[] leaf;
+        private Entry next = advance();
+
+        private Entry advance() {
+          while (++slot < size) {
+            if ((slot & MASK) == 0) {
+              leaf = leaf(slot);
+            }
+            Entry entry = (Entry) leaf[slot & MASK];
+            if (entry.item != null || entry.record != NO_RECORD) {
+              return entry;
+            }
+          }
+          return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+          return next != null;
+        }
+
+        @Override
+        public Item next() {
+          if (next == null) {
+            throw new NoSuchElementException();
+          }
+          Item item = next.item(table.store);
+          next = advance();
+          return item;
+        }
+      };
+    }
+  }
+
+  /**
+   * Class holding a key and the slot of its item, stored in the hash trie.
+   */
+  private static final class KeyEntry {
+
+    private final String key;
+    private final int hash;
+    private final int slot;
+
+    private KeyEntry(String key, int hash, int slot) {
+      this.key = key;
+      this.hash = hash;
+      this.slot = slot;
+    }
+  }
+
+  /**
+   * Class representing one node in the hash trie. Every level uses the next five bits of
+   * the hash to choose a child, and the bitmap tells which children exist, so the array
+   * only holds those. A child is either a key entry or a node one level further down.
+   * When all the bits of the hash are used, the node holds every key with that hash.
+   */
+  private static final class KeyNode {
+
+    private final Object edit;
+    private int bitmap;
+    private Object[] array;
+
+    private KeyNode(Object edit, int bitmap, Object[] array) {
+      this.edit = edit;
+      this.bitmap = bitmap;
+      this.array = array;
+    }
+
+    private KeyNode editable(Object edit) {
+      return this.edit == edit ? this : new KeyNode(edit, bitmap, array);
+    }
+
+    /**
+     * Method to find the slot of a key.
+
+     * @param node Root of the trie.
+     * @param key The key.
+     * @param hash Hash of the key.
+     * @return The slot, or -1 if the key is not in the trie.
+     */
+    private static int get(KeyNode node, String key, int hash) {
+      for (int shift = 0; node != null; shift += BITS) {
+        if (shift >= Integer.SIZE) {
+          for (Object child : node.array) {
+            KeyEntry keyEntry = (KeyEntry) child;
+            if (keyEntry.key.equals(key)) {
+              return keyEntry.slot;
+            }
+          }
+          return -1;
+        }
+        int bit = 1 << ((hash >>> shift) & MASK);
+        if ((node.bitmap & bit) == 0) {
+          return -1;
+        }
+        Object child = node.array[Integer.bitCount(node.bitmap & (bit - 1))];
+        if (child instanceof KeyEntry) {
+          KeyEntry keyEntry = (KeyEntry) child;
+          return keyEntry.hash == hash && keyEntry.key.equals(key) ? keyEntry.slot : -1;
+        }
+        node = (KeyNode) child;
+      }
+      return -1;
+    }
+
+    /**
+     * Method to add a key that is not in the trie.
+
+     * @param node Node to add the key under, or null.
+     * @param shift Number of hash bits used by the levels above.
+     * @param keyEntry The key and its slot.
+     * @param edit Owner of the table adding the key.
+     * @return The node, or a copy of it, with the key added.
+     */
+    private static KeyNode put(KeyNode node, int shift, KeyEntry keyEntry, Object edit) {
+      if (node == null) {
+        node = new KeyNode(edit, 0, new Object[0]);
+      }
+      KeyNode editable = node.editable(edit);
+
+      if (shift >= Integer.SIZE) {
+        editable.array = insert(node.array, node.array.length, keyEntry);
+        return editable;
+      }
+      int bit = 1 << ((keyEntry.hash >>> shift) & MASK);
+      int index = Integer.bitCount(node.bitmap & (bit - 1));
+
+      if ((node.bitmap & bit) == 0) {
+        editable.array = insert(node.array, index, keyEntry);
+        editable.bitmap |= bit;
+      } else {
+        Object child = node.array[index];
+        if (editable.array == node.array && editable != node) {
+          editable.array = node.array.clone();
+        }
+        if (child instanceof KeyEntry) {
+          editable.array[index] = put(put(null, shift + BITS, (KeyEntry) child, edit),
+              shift + BITS, keyEntry, edit);
+        } else {
+          editable.array[index] = put((KeyNode) child, shift + BITS, keyEntry, edit);
+        }
+      }
+      return editable;
+    }
+
+    /**
+     * Method to remove a key that is in the trie.
+
+     * @param node Node holding the key.
+     * @param shift Number of hash bits used by the levels above.
+     * @param key The key.
+     * @param hash Hash of the key.
+     * @param edit Owner of the table removing the key.
+     * @return The node, or a copy of it, with the key removed. Null if the node is empty.
+     */
+    private static KeyNode remove(KeyNode node, int shift, String key, int hash, Object edit) {
+      KeyNode editable = node.editable(edit);
+
+      if (shift >= Integer.SIZE) {
+        int index = 0;
+        while (!((KeyEntry) node.array[index]).key.equals(key)) {
+          index++;
+        }
+        editable.array = delete(node.array, index);
+        return editable.array.length == 0 ? null : editable;
+      }
+      int bit = 1 << ((hash >>> shift) & MASK);
+      int index = Integer.bitCount(node.bitmap & (bit - 1));
+      Object child = node.array[index];
+      KeyNode newChild = child instanceof KeyEntry
+          ? null : remove((KeyNode) child, shift + BITS, key, hash, edit);
+
+      if (newChild == null) {
+        editable.array = delete(node.array, index);
+        editable.bitmap &= ~bit;
+        return editable.array.length == 0 ? null : editable;
+      }
+      if (editable.array == node.array && editable != node) {
+        editable.array = node.array.clone();
+      }
+      editable.array[index] = newChild;
+      return editable;
+    }
+
+    private static Object[] insert(Object[] array, int index, Object value) {
+      Object[] newArray = new Object[array.length + 1];
+      System.arraycopy(array, 0, newArray, 0, index);
+      newArray[index] = value;
+      System.arraycopy(array, index, newArray, index + 1, array.length - index);
+      return newArray;
+    }
+
+    private static Object[] delete(Object[] array, int index) {
+      Object[] newArray = Arrays.copyOf(array, array.length - 1);
+      System.arraycopy(array, index + 1, newArray, index, array.length - index - 1);
+      return newArray;
+    }
+  }
+}
@@ -0,0 +1,104 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class representing a histogram of the times taken by an operation, in nanoseconds, used
+ * by the ItemRegisterMetrics class.
+ *
+ * <p>Like an HDR histogram, the buckets grow with the values they hold, so every value is
+ * kept with the same relative precision, from a nanosecond up to the largest long. Values
+ * below 64 get a bucket each. Above that, every power of two is split into 32 buckets, so
+ * a value is never more than about 3 % from the bucket it is counted in. Recording a value
+ * takes constant time and never locks, so several threads can record at the same time.
+ */
+class LatencyHistogram {
+
+  /**
+   * Defining the number of buckets every power of two is split into, as a power of two,
+   * and the number of buckets in total.
+   */
+  private static final int SUB_BUCKET_BITS = 5;
+  static final int NUMBER_OF_BUCKETS = bucket(Long.MAX_VALUE) + 1;
+
+  /**
+   * Defining the variables. Count and sum are striped, so threads recording at the same
+   * time do not slow each other down.
+   */
+  private final AtomicLongArray buckets;
+  private final LongAdder count;
+  private final LongAdder sum;
+  private final AtomicLong max;
+
+  /**
+   * Constructor for latency histogram.
+   */
+  LatencyHistogram() {
+    buckets = new AtomicLongArray(NUMBER_OF_BUCKETS);
+    count = new LongAdder();
+    sum = new LongAdder();
+    max = new AtomicLong();
+  }
+
+  /**
+   * Method to record a value. Negative values are recorded as 0.
+
+   * @param nanos The value, in nanoseconds.
+   */
+  void record(long nanos) {
+    long value = Math.max(0, nanos);
+    buckets.getAndIncrement(bucket(value));
+    count.increment();
+    sum.add(value);
+    if (value > max.get()) {
+      max.accumulateAndGet(value, Math::max);
+    }
+  }
+
+  /**
+   * Method to copy the histogram. The copy is not taken at one instant, so a value being
+   * recorded at the same time may only be partly included.
+
+   * @return The number of values in every bucket, followed by the number of values, the
+   *         sum and the largest value.
+   */
+  long[] copy() {
+    long[] copy = new long[NUMBER_OF_BUCKETS + 3];
+
+    for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+      copy[i] = buckets.get(i);
+    }
+    copy[NUMBER_OF_BUCKETS] = count.sum();
+    copy[NUMBER_OF_BUCKETS + 1] = sum.sum();
+    copy[NUMBER_OF_BUCKETS + 2] = max.get();
+    return copy;
+  }
+
+  /**
+   * Method to find the bucket a value is counted in.
+
+   * @param value The value, at least 0.
+   * @return Index of the bucket.
+   */
+  static int bucket(long value) {
+    int shift = Math.max(0, 63 - SUB_BUCKET_BITS - Long.numberOfLeadingZeros(value));
+    return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+  }
+
+  /**
+   * Method to find the highest value counted in a bucket.
+
+   * @param bucket Index of the bucket.
+   * @return The highest value.
+   */
+  static long highestValue(int bucket) {
+    int subBuckets = 1 << SUB_BUCKET_BITS;
+
+    if (bucket < 2 * subBuckets) {
+      return bucket;
+    }
+    int shift = (bucket >> SUB_BUCKET_BITS) - 1;
+    long top = (bucket & (subBuckets - 1)) + subBuckets;
+    return ((top + 1) << shift) - 1;
+  }
+}
@@ -0,0 +1,17 @@
+/**
+ * Interface for listening to items running low on stock in an item register. The listener
+ * is told every time an item gets fewer items in stock than its reorder threshold, and
+ * is told again only after the item has been at or above the threshold in between.
+ */
+@FunctionalInterface
+public interface LowStockListener {
+
+  /**
+   * Method called when an item gets fewer items in stock than its reorder threshold, after
+   * the change is made to the register. Should not change the register.
+
+   * @param item The item.
+   * @param reorderThreshold Reorder threshold of the item.
+   */
+  void stockBelowThreshold(Item item, int reorderThreshold);
+}
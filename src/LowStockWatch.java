@@ -0,0 +1,252 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * Class holding the items that have fewer items in stock than their reorder threshold,
+ * sorted by how critical they are. Used by the ItemRegister class, which updates the watch
+ * every time the number in stock of an item changes, so the low items can be listed without
+ * checking the other items.
+ *
+ * <p>The most critical item is the one with the lowest number in stock compared to its
+ * threshold. Items that are equally critical are sorted in the order they were added to the
+ * register.
+ *
+ * <p>An item with a threshold of its own is only kept while it is low. An item using the
+ * threshold of its category is always kept, in a set for its category sorted by number in
+ * stock, so the low items of a category are the start of the set. Changing the threshold of
+ * a category then only moves where the low items end, and only the items that become low
+ * are visited. The low items are listed by merging the items with a threshold of their own
+ * and the start of every category set.
+ */
+class LowStockWatch {
+
+  /**
+   * Order of the entries with a threshold of their own: by number in stock divided by
+   * threshold, then by sequence number. The fractions are compared by multiplying across,
+   * so no rounding is needed.
+   */
+  private static final Comparator<Entry> ORDER = (first, second) -> {
+    int compared = Long.compare((long) first.numberOfItemsInStock * second.reorderThreshold,
+        (long) second.numberOfItemsInStock * first.reorderThreshold);
+    return compared != 0 ? compared : Long.compare(first.sequence, second.sequence);
+  };
+
+  /**
+   * Order of the entries using the threshold of their category: by number in stock, then
+   * by sequence number.
+   */
+  private static final Comparator<Entry> STOCK_ORDER = Comparator
+      .<Entry>comparingInt(entry -> entry.numberOfItemsInStock)
+      .thenComparingLong(entry -> entry.sequence);
+
+  /**
+   * Defining the variables. Entries holds the entry of every item in the watch by key.
+   * LowItems holds the low items with a threshold of their own, sorted by how critical they
+   * are, and categoryItems the items of every category using its threshold, sorted by
+   * number in stock. ReorderThresholds holds the threshold of every category.
+   */
+  private final HashMap<String, Entry> entries;
+  private final TreeSet<Entry> lowItems;
+  private final List<TreeSet<Entry>> categoryItems;
+  private final int[] reorderThresholds;
+
+  /**
+   * Constructor for low stock watch.
+
+   * @param reorderThresholds Reorder threshold of every category, indexed by the ordinal
+   *                          of the category. 0 if the category has no threshold.
+   */
+  LowStockWatch(int[] reorderThresholds) {
+    entries = new HashMap<>();
+    lowItems = new TreeSet<>(ORDER);
+    categoryItems = new ArrayList<>();
+    for (int i = 0; i < reorderThresholds.length; i++) {
+      categoryItems.add(new TreeSet<>(STOCK_ORDER));
+    }
+    this.reorderThresholds = reorderThresholds.clone();
+  }
+
+  /**
+   * Method to update the watch with the number in stock and threshold of an item.
+
+   * @param key Normalized item number of the item.
+   * @param sequence Sequence number of the item in the item table.
+   * @param itemCategory Category of the item.
+   * @param numberOfItemsInStock Number of items in stock.
+   * @param reorderThreshold Reorder threshold of the item, or 0 if it uses the threshold
+   *                         of its category.
+   * @return True if the item was not low before, but is now.
+   */
+  boolean update(String key, long sequence, ItemCategory itemCategory,
+                 int numberOfItemsInStock, int reorderThreshold) {
+    Entry oldEntry = entries.get(key);
+
+    if (oldEntry != null && oldEntry.numberOfItemsInStock == numberOfItemsInStock
+        && oldEntry.reorderThreshold == reorderThreshold) {
+      return false;
+    }
+    boolean wasLow = oldEntry != null && isLow(oldEntry);
+    if (oldEntry != null) {
+      remove(key);
+    }
+    Entry entry = new Entry(key, sequence, itemCategory.ordinal(), numberOfItemsInStock,
+        reorderThreshold);
+
+    if (reorderThreshold == 0) {
+      entries.put(key, entry);
+      categoryItems.get(entry.category).add(entry);
+    } else if (numberOfItemsInStock < reorderThreshold) {
+      entries.put(key, entry);
+      lowItems.add(entry);
+    }
+    return !wasLow && isLow(entry);
+  }
+
+  /**
+   * Method to change the threshold of a category. Only visits the items that become low.
+
+   * @param itemCategory The category.
+   * @param reorderThreshold Reorder threshold, or 0 to remove the threshold.
+   * @return Normalized item numbers of the items that were not low before, but are now.
+   */
+  ArrayList<String> setReorderThreshold(ItemCategory itemCategory, int reorderThreshold) {
+    int oldReorderThreshold = reorderThresholds[itemCategory.ordinal()];
+    ArrayList<String> keys = new ArrayList<>();
+
+    reorderThresholds[itemCategory.ordinal()] = reorderThreshold;
+    if (reorderThreshold > oldReorderThreshold) {
+      for (Entry entry : categoryItems.get(itemCategory.ordinal())
+          .subSet(bound(oldReorderThreshold), bound(reorderThreshold))) {
+        keys.add(entry.key);
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * Method to remove a deleted item from the watch.
+
+   * @param key Normalized item number of the item.
+   */
+  void remove(String key) {
+    Entry entry = entries.remove(key);
+
+    if (entry != null) {
+      if (entry.reorderThreshold == 0) {
+        categoryItems.get(entry.category).remove(entry);
+      } else {
+        lowItems.remove(entry);
+      }
+    }
+  }
+
+  /**
+   * Method to list the low items, most critical first. Takes time proportional to the
+   * number of low items, times the logarithm of the number of categories.
+
+   * @return Normalized item numbers of the low items.
+   */
+  ArrayList<String> keys() {
+    ArrayList<Iterator<Entry>> sources = new ArrayList<>();
+    sources.add(lowItems.iterator());
+    for (int category = 0; category < reorderThresholds.length; category++) {
+      if (reorderThresholds[category] > 0) {
+        sources.add(categoryItems.get(category)
+            .headSet(bound(reorderThresholds[category])).iterator());
+      }
+    }
+    Entry[] heads = new Entry[sources.size()];
+    PriorityQueue<Integer> next = new PriorityQueue<>(Math.max(1, heads.length),
+        (first, second) -> compare(heads[first], heads[second]));
+    ArrayList<String> keys = new ArrayList<>();
+
+    for (int source = 0; source < heads.length; source++) {
+      if (sources.get(source).hasNext()) {
+        heads[source] = sources.get(source).next();
+        next.add(source);
+      }
+    }
+    while (!next.isEmpty()) {
+      int source = next.poll();
+      keys.add(heads[source].key);
+      if (sources.get(source).hasNext()) {
+        heads[source] = sources.get(source).next();
+        next.add(source);
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * Method to find the threshold an entry is compared with.
+
+   * @param entry The entry.
+   * @return Its own threshold, or else the threshold of its category.
+   */
+  private int reorderThreshold(Entry entry) {
+    return entry.reorderThreshold > 0 ? entry.reorderThreshold
+        : reorderThresholds[entry.category];
+  }
+
+  /**
+   * Method to check if an entry is low.
+
+   * @param entry The entry.
+   * @return True if it has fewer items in stock than its threshold.
+   */
+  private boolean isLow(Entry entry) {
+    return entry.numberOfItemsInStock < reorderThreshold(entry);
+  }
+
+  /**
+   * Method to compare how critical two low entries are, the same way as ORDER, but with
+   * the threshold of the category for an entry without its own.
+
+   * @param first The first entry.
+   * @param second The second entry.
+   * @return Negative if the first entry is more critical, positive if it is less.
+   */
+  private int compare(Entry first, Entry second) {
+    int compared = Long.compare(
+        (long) first.numberOfItemsInStock * reorderThreshold(second),
+        (long) second.numberOfItemsInStock * reorderThreshold(first));
+    return compared != 0 ? compared : Long.compare(first.sequence, second.sequence);
+  }
+
+  /**
+   * Method to make an entry that comes before every entry in a category set with the
+   * given number in stock or more.
+
+   * @param numberOfItemsInStock Number in stock.
+   * @return The entry.
+   */
+  private static Entry bound(int numberOfItemsInStock) {
+    return new Entry(null, Long.MIN_VALUE, 0, numberOfItemsInStock, 0);
+  }
+
+  /**
+   * Class holding the number in stock and threshold of an item, as last updated.
+   */
+  private static final class Entry {
+
+    private final String key;
+    private final long sequence;
+    private final int category;
+    private final int numberOfItemsInStock;
+    private final int reorderThreshold;
+
+    private Entry(String key, long sequence, int category, int numberOfItemsInStock,
+                  int reorderThreshold) {
+      this.key = key;
+      this.sequence = sequence;
+      this.category = category;
+      this.numberOfItemsInStock = numberOfItemsInStock;
+      this.reorderThreshold = reorderThreshold;
+    }
+  }
+}
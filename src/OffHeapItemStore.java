@@ -0,0 +1,366 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Class holding items outside the Java heap, used by the ItemTable class when a register
+ * is made with ItemStorage.OFF_HEAP. Every item is kept as a record of bytes in a direct
+ * ByteBuffer, so a register with millions of items holds a few large buffers instead of
+ * millions of objects, which the garbage collector would otherwise have to visit.
+ *
+ * <p>A record starts with the numeric fields at fixed places, followed by the texts, each
+ * as its length and its UTF-8 bytes. The item name, brand name and colour are kept as their
+ * codes in the string dictionaries of the table, and only written in the record when the
+ * dictionary is full. A record is found by its address: the index of its buffer in the
+ * high 32 bits and its place in the buffer in the low 32 bits.
+ *
+ * <p>The buffers are split into records of a multiple of 16 bytes. A freed record is kept
+ * in a list for its size and given to the next record of that size. Records larger than
+ * MAX_POOLED_SIZE get a buffer of their own, which is dropped when the record is freed.
+ * Getting an item makes a new Item from its record, so the Item objects only live as long
+ * as the caller uses them.
+ *
+ * <p>A store can be shared by a table and its copies, as long as a record is only changed by
+ * the one table that owns it. Every record counts the references to it, one for every tree
+ * of slots holding it, and it is freed when the last reference is released. Reading never
+ * locks, and adding a record or changing its references locks only the store.
+ */
+class OffHeapItemStore {
+
+  /**
+   * Defining the size of a buffer, the sizes records are rounded up to, and the largest
+   * record kept in a buffer shared with other records.
+   */
+  private static final int BUFFER_SIZE = 1 << 20;
+  private static final int ALIGNMENT = 16;
+  private static final int MAX_POOLED_SIZE = 4096;
+
+  /**
+   * Defining the place of every field in a record. SIZE holds the number of bytes taken
+   * by the record, REFERENCES the number of references to it, and TEXTS is where the texts
+   * start.
+   */
+  private static final int SIZE = 0;
+  private static final int PRICE = 4;
+  private static final int NUMBER_OF_ITEMS_IN_STOCK = 8;
+  private static final int REORDER_THRESHOLD = 12;
+  private static final int WEIGHT = 16;
+  private static final int LENGTH = 24;
+  private static final int HEIGHT = 32;
+  private static final int ITEM_NAME = 40;
+  private static final int BRAND_NAME = 44;
+  private static final int COLOUR = 48;
+  private static final int CATEGORY = 52;
+  private static final int REFERENCES = 56;
+  private static final int TEXTS = 60;
+
+  /**
+   * Defining the categories, indexed by the ordinal kept in the records.
+   */
+  private static final ItemCategory[] CATEGORIES = ItemCategory.values();
+
+  /**
+   * Defining the variables. Buffers holds every buffer by its index, or null when a buffer
+   * of a large record is dropped. It is replaced, never changed, when a buffer is added,
+   * so a thread reading a record never locks. Current is the index of the buffer new records
+   * are put in, and offset the first unused byte of it. FreeRecords holds the freed records
+   * of every size, divided by ALIGNMENT, and freeCounts the number of them.
+   */
+  private final StringDictionary names;
+  private final StringDictionary brands;
+  private final StringDictionary colours;
+  private volatile ByteBuffer[] buffers;
+  private int current;
+  private int offset;
+  private final long[][] freeRecords;
+  private final int[] freeCounts;
+
+  /**
+   * Constructor for an empty off-heap item store.
+
+   * @param names Dictionary of the item names.
+   * @param brands Dictionary of the brand names.
+   * @param colours Dictionary of the colours.
+   */
+  OffHeapItemStore(StringDictionary names, StringDictionary brands, StringDictionary colours) {
+    this.names = names;
+    this.brands = brands;
+    this.colours = colours;
+    buffers = new ByteBuffer[0];
+    offset = BUFFER_SIZE;
+    freeRecords = new long[MAX_POOLED_SIZE / ALIGNMENT + 1][];
+    freeCounts = new int[freeRecords.length];
+  }
+
+  /**
+   * Method to write an item into a new record, with one reference.
+
+   * @param item The item.
+   * @return Address of the record.
+   */
+  long add(Item item) {
+    int nameCode = names.code(item.getItemName());
+    int brandCode = brands.code(item.getBrandName());
+    int colourCode = colours.code(item.getColour());
+    byte[] itemNumber = utf8(item.getItemNumber());
+    byte[] itemDescription = utf8(item.getItemDescription());
+    byte[] itemName = nameCode < 0 ? utf8(item.getItemName()) : null;
+    byte[] brandName = brandCode < 0 ? utf8(item.getBrandName()) : null;
+    byte[] colour = colourCode < 0 ? utf8(item.getColour()) : null;
+    int size = TEXTS + Integer.BYTES * 2 + itemNumber.length + itemDescription.length
+        + textSize(itemName) + textSize(brandName) + textSize(colour);
+
+    long record = allocate(size);
+    ByteBuffer buffer = buffer(record);
+    int start = (int) record;
+
+    buffer.putInt(start + PRICE, item.getPrice());
+    buffer.putInt(start + NUMBER_OF_ITEMS_IN_STOCK, item.getNumberOfItemsInStock());
+    buffer.putInt(start + REORDER_THRESHOLD, item.getReorderThreshold());
+    buffer.putDouble(start + WEIGHT, item.getWeight());
+    buffer.putDouble(start + LENGTH, item.getLength());
+    buffer.putDouble(start + HEIGHT, item.getHeight());
+    buffer.putInt(start + ITEM_NAME, nameCode);
+    buffer.putInt(start + BRAND_NAME, brandCode);
+    buffer.putInt(start + COLOUR, colourCode);
+    buffer.put(start + CATEGORY, (byte) item.getCategory().ordinal());
+    int position = putText(buffer, start + TEXTS, itemNumber);
+    position = putText(buffer, position, itemDescription);
+    position = putText(buffer, position, itemName);
+    position = putText(buffer, position, brandName);
+    putText(buffer, position, colour);
+    return record;
+  }
+
+  /**
+   * Method to make an item from a record. Every call makes a new Item.
+
+   * @param record Address of the record.
+   * @return The item.
+   */
+  Item item(long record) {
+    ByteBuffer buffer = buffer(record);
+    int start = (int) record;
+    int position = start + TEXTS;
+    String itemNumber = text(buffer, position);
+    position += Integer.BYTES + buffer.getInt(position);
+    String itemDescription = text(buffer, position);
+    position += Integer.BYTES + buffer.getInt(position);
+    int nameCode = buffer.getInt(start + ITEM_NAME);
+    int brandCode = buffer.getInt(start + BRAND_NAME);
+    int colourCode = buffer.getInt(start + COLOUR);
+    String itemName;
+    String brandName;
+    String colour;
+
+    if (nameCode >= 0) {
+      itemName = names.text(nameCode);
+    } else {
+      itemName = text(buffer, position);
+      position += Integer.BYTES + buffer.getInt(position);
+    }
+    if (brandCode >= 0) {
+      brandName = brands.text(brandCode);
+    } else {
+      brandName = text(buffer, position);
+      position += Integer.BYTES + buffer.getInt(position);
+    }
+    colour = colourCode >= 0 ? colours.text(colourCode) : text(buffer, position);
+    return new Item(itemNumber, itemName, itemDescription, buffer.getInt(start + PRICE),
+        brandName, buffer.getDouble(start + WEIGHT), buffer.getDouble(start + LENGTH),
+        buffer.getDouble(start + HEIGHT), colour,
+        buffer.getInt(start + NUMBER_OF_ITEMS_IN_STOCK),
+        CATEGORIES[buffer.get(start + CATEGORY)],
+        buffer.getInt(start + REORDER_THRESHOLD));
+  }
+
+  /**
+   * Method to write the price, number in stock and reorder threshold of an item into its
+   * record, after they are changed. The record must be owned by the table changing it.
+
+   * @param record Address of the record.
+   * @param item The changed item.
+   */
+  void update(long record, Item item) {
+    ByteBuffer buffer = buffer(record);
+    int start = (int) record;
+
+    buffer.putInt(start + PRICE, item.getPrice());
+    buffer.putInt(start + NUMBER_OF_ITEMS_IN_STOCK, item.getNumberOfItemsInStock());
+    buffer.putInt(start + REORDER_THRESHOLD, item.getReorderThreshold());
+  }
+
+  /**
+   * Method to make a copy of a record, with one reference, for a table changing an item it
+   * does not own.
+
+   * @param record Address of the record.
+   * @return Address of the copy.
+   */
+  long copy(long record) {
+    ByteBuffer buffer = buffer(record);
+    int size = buffer.getInt((int) record + SIZE);
+    long copy = allocate(size);
+
+    buffer(copy).put((int) copy + Integer.BYTES, buffer, (int) record + Integer.BYTES,
+        size - Integer.BYTES);
+    buffer(copy).putInt((int) copy + REFERENCES, 1);
+    return copy;
+  }
+
+  /**
+   * Method to add a reference to a record, when another tree of slots starts holding it.
+
+   * @param record Address of the record.
+   */
+  synchronized void retain(long record) {
+    ByteBuffer buffer = buffer(record);
+    int start = (int) record;
+
+    buffer.putInt(start + REFERENCES, buffer.getInt(start + REFERENCES) + 1);
+  }
+
+  /**
+   * Method to remove a reference to a record, when a tree of slots stops holding it. The
+   * record is freed when it was the last reference.
+
+   * @param record Address of the record.
+   */
+  synchronized void release(long record) {
+    ByteBuffer buffer = buffer(record);
+    int start = (int) record;
+    int references = buffer.getInt(start + REFERENCES) - 1;
+
+    buffer.putInt(start + REFERENCES, references);
+    if (references == 0) {
+      free(record);
+    }
+  }
+
+  /**
+   * Method to free a record, so its bytes can be used by another record.
+
+   * @param record Address of the record.
+   */
+  private void free(long record) {
+    int index = (int) (record >>> 32);
+    int size = buffers[index].getInt((int) record + SIZE);
+
+    if (size > MAX_POOLED_SIZE) {
+      ByteBuffer[] newBuffers = buffers.clone();
+      newBuffers[index] = null;
+      buffers = newBuffers;
+      return;
+    }
+    int sizeClass = size / ALIGNMENT;
+    long[] records = freeRecords[sizeClass];
+    if (records == null || freeCounts[sizeClass] == records.length) {
+      records = records == null ? new long[16] : Arrays.copyOf(records, records.length * 2);
+      freeRecords[sizeClass] = records;
+    }
+    records[freeCounts[sizeClass]++] = record;
+  }
+
+  /**
+   * Method to find room for a record, reusing a freed record of the same size if there is
+   * one. The size is rounded up to a multiple of ALIGNMENT and written first in the record,
+   * followed by one reference.
+
+   * @param neededSize Number of bytes the record needs.
+   * @return Address of the record.
+   */
+  private synchronized long allocate(int neededSize) {
+    int size = (neededSize + ALIGNMENT - 1) & -ALIGNMENT;
+    long record;
+
+    if (size > MAX_POOLED_SIZE) {
+      record = (long) addBuffer(size) << 32;
+    } else if (freeCounts[size / ALIGNMENT] > 0) {
+      record = freeRecords[size / ALIGNMENT][--freeCounts[size / ALIGNMENT]];
+    } else {
+      if (offset + size > BUFFER_SIZE) {
+        current = addBuffer(BUFFER_SIZE);
+        offset = 0;
+      }
+      record = (long) current << 32 | offset;
+      offset += size;
+    }
+    buffer(record).putInt((int) record + SIZE, size);
+    buffer(record).putInt((int) record + REFERENCES, 1);
+    return record;
+  }
+
+  /**
+   * Method to add a buffer at the end of the list of buffers.
+
+   * @param size Capacity of the buffer.
+   * @return Index of the buffer.
+   */
+  private int addBuffer(int size) {
+    ByteBuffer[] newBuffers = Arrays.copyOf(buffers, buffers.length + 1);
+    newBuffers[buffers.length] = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+    buffers = newBuffers;
+    return buffers.length - 1;
+  }
+
+  /**
+   * Method to find the buffer holding a record.
+
+   * @param record Address of the record.
+   * @return The buffer.
+   */
+  private ByteBuffer buffer(long record) {
+    return buffers[(int) (record >>> 32)];
+  }
+
+  /**
+   * Method to encode a text as UTF-8.
+
+   * @param text The text.
+   * @return The bytes of the text.
+   */
+  private static byte[] utf8(String text) {
+    return text.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Method to find the number of bytes a text takes in a record.
+
+   * @param text The bytes of the text, or null if it is not written in the record.
+   * @return Number of bytes.
+   */
+  private static int textSize(byte[] text) {
+    return text == null ? 0 : Integer.BYTES + text.length;
+  }
+
+  /**
+   * Method to write a text into a record.
+
+   * @param buffer Buffer holding the record.
+   * @param position Where the text is written.
+   * @param text The bytes of the text, or null if it is not written in the record.
+   * @return Where the next text is written.
+   */
+  private static int putText(ByteBuffer buffer, int position, byte[] text) {
+    if (text == null) {
+      return position;
+    }
+    buffer.putInt(position, text.length);
+    buffer.put(position + Integer.BYTES, text);
+    return position + Integer.BYTES + text.length;
+  }
+
+  /**
+   * Method to read a text from a record.
+
+   * @param buffer Buffer holding the record.
+   * @param position Where the text is written.
+   * @return The text.
+   */
+  private static String text(ByteBuffer buffer, int position) {
+    byte[] text = new byte[buffer.getInt(position)];
+    buffer.get(position + Integer.BYTES, text);
+    return new String(text, StandardCharsets.UTF_8);
+  }
+}
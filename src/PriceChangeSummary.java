@@ -0,0 +1,106 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class representing the result of changing the prices of many items at once, with
+ * discountPrices() or changePrices() in the ItemRegister class. Holds every item whose
+ * price was changed, in the order the items were added to the register, with its old and
+ * new price. Items matching the query whose price stayed the same are only counted.
+ */
+public class PriceChangeSummary {
+
+  /**
+   * Defining the variables. The old and new price of an item has the same index as its
+   * item number.
+   */
+  private final int numberOfItemsMatched;
+  private final List<String> itemNumbers;
+  private final int[] oldPrices;
+  private final int[] newPrices;
+
+  /**
+   * Constructor for price change summary.
+
+   * @param numberOfItemsMatched Number of items matching the query.
+   * @param itemNumbers Item numbers of the changed items.
+   * @param oldPrices Price of every changed item before the change.
+   * @param newPrices Price of every changed item after the change.
+   */
+  PriceChangeSummary(int numberOfItemsMatched, List<String> itemNumbers, int[] oldPrices,
+                     int[] newPrices) {
+    this.numberOfItemsMatched = numberOfItemsMatched;
+    this.itemNumbers = List.copyOf(itemNumbers);
+    this.oldPrices = oldPrices;
+    this.newPrices = newPrices;
+  }
+
+  /**
+   * Get method for the number of items matching the query, whether their price was
+   * changed or not.
+
+   * @return Number of items matched.
+   */
+  public int getNumberOfItemsMatched() {
+    return numberOfItemsMatched;
+  }
+
+  /**
+   * Method to find the number of items whose price was changed.
+
+   * @return Number of items changed.
+   */
+  public int getNumberOfItemsChanged() {
+    return itemNumbers.size();
+  }
+
+  /**
+   * Get method for the item numbers of the changed items.
+
+   * @return Read-only list of the item numbers, in the order the items were added.
+   */
+  public List<String> getItemNumbers() {
+    return itemNumbers;
+  }
+
+  /**
+   * Method to find the price of a changed item before the change.
+
+   * @param index Index of the item in getItemNumbers().
+   * @return The old price.
+   */
+  public int getOldPrice(int index) {
+    return oldPrices[index];
+  }
+
+  /**
+   * Method to find the price of a changed item after the change.
+
+   * @param index Index of the item in getItemNumbers().
+   * @return The new price.
+   */
+  public int getNewPrice(int index) {
+    return newPrices[index];
+  }
+
+  /**
+   * Method to find how much the prices of all the changed items went up together,
+   * one of each item. Negative if they went down.
+
+   * @return Sum of the new prices minus the sum of the old prices, given in kr.
+   */
+  public long getTotalPriceChange() {
+    return Arrays.stream(newPrices).asLongStream().sum()
+        - Arrays.stream(oldPrices).asLongStream().sum();
+  }
+
+  /**
+   * To string method for price change summary.
+
+   * @return The number of items matched and changed, and the total price change.
+   */
+  @Override
+  public String toString() {
+    return "Items matched: " + numberOfItemsMatched + ", items changed: "
+        + getNumberOfItemsChanged() + ", total price change: " + getTotalPriceChange() + " kr";
+  }
+}
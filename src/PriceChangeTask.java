@@ -0,0 +1,95 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Class finding the new prices of many items at once, used by the ItemRegister class when
+ * the prices of every item matching a query are changed. Checking the query and finding
+ * the new price of an item does not change anything, so a large array of items is split in
+ * halves until the parts are small, and the parts are checked in parallel in the common
+ * fork/join pool. The prices are then changed by the register, one item at a time.
+ */
+class PriceChangeTask extends RecursiveAction {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Defining the number of items below which a part is checked by one thread.
+   */
+  static final int THRESHOLD = 4096;
+
+  /**
+   * Defining the new price of an item that does not match the query.
+   */
+  static final long NOT_MATCHED = Long.MIN_VALUE;
+
+  /**
+   * Defining the variables. NewPrices receives the new price of every item, which is
+   * given as a long so a price that would not fit in an int can be reported.
+   */
+  private final Item[] items;
+  private final ItemQuery query;
+  private final LongUnaryOperator newPrice;
+  private final long[] newPrices;
+  private final int from;
+  private final int to;
+
+  /**
+   * Constructor for price change task.
+
+   * @param items The items to check.
+   * @param query Query the items must match.
+   * @param newPrice Finds the new price from the old price.
+   * @param newPrices Receives the new price of every item, or NOT_MATCHED.
+   * @param from Index of the first item in the part, inclusive.
+   * @param to Index of the last item in the part, exclusive.
+   */
+  private PriceChangeTask(Item[] items, ItemQuery query, LongUnaryOperator newPrice,
+                          long[] newPrices, int from, int to) {
+    this.items = items;
+    this.query = query;
+    this.newPrice = newPrice;
+    this.newPrices = newPrices;
+    this.from = from;
+    this.to = to;
+  }
+
+  /**
+   * Method to find the new price of every item matching a query.
+
+   * @param items The items to check.
+   * @param query Query the items must match. Must be safe to check from several threads.
+   * @param newPrice Finds the new price from the old price.
+   * @return The new price of every item, at the same index, or NOT_MATCHED.
+   */
+  static long[] newPrices(Item[] items, ItemQuery query, LongUnaryOperator newPrice) {
+    long[] newPrices = new long[items.length];
+    PriceChangeTask task = new PriceChangeTask(items, query, newPrice, newPrices, 0,
+        items.length);
+
+    if (items.length < THRESHOLD) {
+      task.compute();
+    } else {
+      ForkJoinPool.commonPool().invoke(task);
+    }
+    return newPrices;
+  }
+
+  /**
+   * Method to check the items in the part, splitting it in halves checked in parallel
+   * if it is large.
+   */
+  @Override
+  protected void compute() {
+    if (to - from < THRESHOLD) {
+      for (int i = from; i < to; i++) {
+        newPrices[i] = query.matches(items[i])
+            ? newPrice.applyAsLong(items[i].getPrice()) : NOT_MATCHED;
+      }
+    } else {
+      int middle = (from + to) >>> 1;
+      invokeAll(new PriceChangeTask(items, query, newPrice, newPrices, from, middle),
+          new PriceChangeTask(items, query, newPrice, newPrices, middle, to));
+    }
+  }
+}
@@ -0,0 +1,186 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * Class representing an index of the items sorted by price, one sorted set per category.
+ * Used by the ItemRegister class to find the items within a price range, or the cheapest
+ * items, without checking the other items. Items with the same price are sorted in the
+ * order they were added to the register.
+ */
+class PriceIndex {
+
+  /**
+   * Order of the entries: by price, then by sequence number.
+   */
+  private static final Comparator<PriceEntry> ORDER =
+      Comparator.comparingInt((PriceEntry entry) -> entry.price)
+          .thenComparingLong(entry -> entry.sequence);
+
+  /**
+   * The entries of the items in each category.
+   */
+  private final EnumMap<ItemCategory, TreeSet<PriceEntry>> entries;
+
+  /**
+   * Constructor for price index.
+   */
+  PriceIndex() {
+    entries = new EnumMap<>(ItemCategory.class);
+
+    for (ItemCategory itemCategory : ItemCategory.values()) {
+      entries.put(itemCategory, new TreeSet<>(ORDER));
+    }
+  }
+
+  /**
+   * Method to add an item to the index.
+
+   * @param key Normalized item number of the item.
+   * @param sequence Sequence number of the item in the item table.
+   * @param price Price of the item.
+   * @param itemCategory Category of the item.
+   */
+  void add(String key, long sequence, int price, ItemCategory itemCategory) {
+    entries.get(itemCategory).add(new PriceEntry(price, sequence, key));
+  }
+
+  /**
+   * Method to remove a deleted item from the index.
+
+   * @param sequence Sequence number of the item in the item table.
+   * @param price Price of the item.
+   * @param itemCategory Category of the item.
+   */
+  void remove(long sequence, int price, ItemCategory itemCategory) {
+    entries.get(itemCategory).remove(new PriceEntry(price, sequence, null));
+  }
+
+  /**
+   * Method to update the index when the price of an item is changed.
+
+   * @param key Normalized item number of the item.
+   * @param sequence Sequence number of the item in the item table.
+   * @param oldPrice Price of the item before the change.
+   * @param newPrice Price of the item after the change.
+   * @param itemCategory Category of the item.
+   */
+  void update(String key, long sequence, int oldPrice, int newPrice,
+              ItemCategory itemCategory) {
+    if (oldPrice != newPrice) {
+      remove(sequence, oldPrice, itemCategory);
+      add(key, sequence, newPrice, itemCategory);
+    }
+  }
+
+  /**
+   * Method to find the items within a price range, cheapest first. Takes logarithmic time
+   * to find the start of the range, and then constant time for every item found.
+
+   * @param minPrice Lowest price, inclusive.
+   * @param maxPrice Highest price, inclusive.
+   * @param itemCategory Category of the items, or null for every category.
+   * @param limit Highest number of items to find.
+   * @return Normalized item numbers of the found items, cheapest first.
+   */
+  ArrayList<String> keys(int minPrice, int maxPrice, ItemCategory itemCategory, int limit) {
+    ArrayList<String> keys = new ArrayList<>();
+    PriceEntry from = new PriceEntry(minPrice, Long.MIN_VALUE, null);
+    PriceEntry to = new PriceEntry(maxPrice, Long.MAX_VALUE, null);
+
+    if (itemCategory != null) {
+      Iterator<PriceEntry> range = entries.get(itemCategory).subSet(from, true, to, true)
+          .iterator();
+      while (keys.size() < limit && range.hasNext()) {
+        keys.add(range.next().key);
+      }
+      return keys;
+    }
+    PriorityQueue<Head> heads = new PriorityQueue<>(
+        Comparator.comparing((Head head) -> head.entry, ORDER));
+    for (TreeSet<PriceEntry> categoryEntries : entries.values()) {
+      NavigableSet<PriceEntry> range = categoryEntries.subSet(from, true, to, true);
+      Head.next(range.iterator(), heads);
+    }
+    while (keys.size() < limit && !heads.isEmpty()) {
+      Head head = heads.poll();
+      keys.add(head.entry.key);
+      Head.next(head.rest, heads);
+    }
+    return keys;
+  }
+
+  /**
+   * Method to count the items within a price range, counting no further than a limit, so
+   * that checking if a range is small takes no longer than the limit.
+
+   * @param minPrice Lowest price, inclusive.
+   * @param maxPrice Highest price, inclusive.
+   * @param itemCategory Category of the items, or null for every category.
+   * @param limit Highest number to count to.
+   * @return Number of items in the range, or limit if there are at least that many.
+   */
+  int count(int minPrice, int maxPrice, ItemCategory itemCategory, int limit) {
+    PriceEntry from = new PriceEntry(minPrice, Long.MIN_VALUE, null);
+    PriceEntry to = new PriceEntry(maxPrice, Long.MAX_VALUE, null);
+    int count = 0;
+
+    for (ItemCategory category : entries.keySet()) {
+      if (itemCategory == null || itemCategory == category) {
+        Iterator<PriceEntry> range = entries.get(category).subSet(from, true, to, true)
+            .iterator();
+        while (count < limit && range.hasNext()) {
+          range.next();
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Class holding the price, sequence number and key of an item in the index.
+   */
+  private static final class PriceEntry {
+
+    private final int price;
+    private final long sequence;
+    private final String key;
+
+    private PriceEntry(int price, long sequence, String key) {
+      this.price = price;
+      this.sequence = sequence;
+      this.key = key;
+    }
+  }
+
+  /**
+   * Class holding the next entry of one category while the categories are merged.
+   */
+  private static final class Head {
+
+    private final PriceEntry entry;
+    private final Iterator<PriceEntry> rest;
+
+    private Head(PriceEntry entry, Iterator<PriceEntry> rest) {
+      this.entry = entry;
+      this.rest = rest;
+    }
+
+    /**
+     * Method to add the next entry of a category to the merge, if there is one.
+
+     * @param entries The remaining entries of the category.
+     * @param heads The next entry of every category.
+     */
+    private static void next(Iterator<PriceEntry> entries, PriorityQueue<Head> heads) {
+      if (entries.hasNext()) {
+        heads.add(new Head(entries.next(), entries));
+      }
+    }
+  }
+}
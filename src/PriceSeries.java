@@ -0,0 +1,228 @@
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * Class holding the prices of one item over time, used by the ItemPriceHistory class.
+ * Prices are only appended, at times that never go down.
+ *
+ * <p>The first price and its time are kept as they are. Every following price is kept as
+ * two numbers: the time since the price before, and the difference from the price before,
+ * both written as varints, which take one byte for every seven bits that are needed. Since
+ * prices usually change by small amounts, and the times of changes are close compared to
+ * the whole range of times, a price change usually takes three to six bytes.
+ *
+ * <p>Varints can only be read from the start, so every BLOCK_SIZE prices the time, price
+ * and place in the bytes are also kept as they are. Finding the price at a time is then a
+ * binary search over the blocks, and reading at most BLOCK_SIZE prices in one block.
+ */
+class PriceSeries {
+
+  /**
+   * Defining the number of prices in a block.
+   */
+  static final int BLOCK_SIZE = 16;
+
+  /**
+   * Defining the price returned for a time before the first price.
+   */
+  static final int NO_PRICE = -1;
+
+  /**
+   * Defining the largest number of bytes a varint can take.
+   */
+  private static final int MAX_VARINT_BYTES = 10;
+
+  /**
+   * Defining the variables. Bytes holds every price after the first, of which length
+   * bytes are used, and size is the number of prices in total. BlockTimes, blockPrices and
+   * blockOffsets hold the first price of every block after the first, and the place in
+   * the bytes right after it. They are null until there is a second block.
+   */
+  private final long firstTime;
+  private final int firstPrice;
+  private long lastTime;
+  private int lastPrice;
+  private byte[] bytes;
+  private int length;
+  private int size;
+  private long[] blockTimes;
+  private int[] blockPrices;
+  private int[] blockOffsets;
+
+  /**
+   * Constructor for price series.
+
+   * @param time Time of the first price, in milliseconds since the epoch.
+   * @param price The first price.
+   */
+  PriceSeries(long time, int price) {
+    firstTime = time;
+    firstPrice = price;
+    lastTime = time;
+    lastPrice = price;
+    size = 1;
+  }
+
+  /**
+   * Method to add a price, unless it is the same as the last price. A time before the
+   * time of the last price is taken as the time of the last price, so the times never go
+   * down even if the clock does.
+
+   * @param time Time of the price, in milliseconds since the epoch.
+   * @param price The price.
+   */
+  void add(long time, int price) {
+    if (price == lastPrice) {
+      return;
+    }
+    long timeSinceLast = Math.max(0, time - lastTime);
+
+    if (bytes == null) {
+      bytes = new byte[4 * MAX_VARINT_BYTES];
+    } else if (bytes.length - length < 2 * MAX_VARINT_BYTES) {
+      bytes = Arrays.copyOf(bytes, bytes.length * 2);
+    }
+    writeVarint(timeSinceLast);
+    writeVarint(zigZag((long) price - lastPrice));
+    lastTime += timeSinceLast;
+    lastPrice = price;
+
+    if (size % BLOCK_SIZE == 0) {
+      int block = size / BLOCK_SIZE - 1;
+      if (blockTimes == null) {
+        blockTimes = new long[4];
+        blockPrices = new int[4];
+        blockOffsets = new int[4];
+      } else if (block == blockTimes.length) {
+        blockTimes = Arrays.copyOf(blockTimes, block * 2);
+        blockPrices = Arrays.copyOf(blockPrices, block * 2);
+        blockOffsets = Arrays.copyOf(blockOffsets, block * 2);
+      }
+      blockTimes[block] = lastTime;
+      blockPrices[block] = lastPrice;
+      blockOffsets[block] = length;
+    }
+    size++;
+  }
+
+  /**
+   * Method to find the price at a time: the last price added at or before it. Takes
+   * logarithmic time.
+
+   * @param time The time, in milliseconds since the epoch.
+   * @return The price, or NO_PRICE if the first price came after the time.
+   */
+  int priceAt(long time) {
+    if (time < firstTime) {
+      return NO_PRICE;
+    }
+    if (time >= lastTime) {
+      return lastPrice;
+    }
+    int blocks = blockTimes == null ? 0 : (size - 1) / BLOCK_SIZE;
+    int low = 0;
+    int high = blocks;
+
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (blockTimes[middle] <= time) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return read(low, time, null);
+  }
+
+  /**
+   * Method to read every price in order.
+
+   * @param prices Receives the time and price of every price.
+   */
+  void forEach(BiConsumer<Long, Integer> prices) {
+    int blocks = blockTimes == null ? 0 : (size - 1) / BLOCK_SIZE;
+
+    for (int block = 0; block <= blocks; block++) {
+      read(block, Long.MAX_VALUE, prices);
+    }
+  }
+
+  /**
+   * Method to read the prices in one block, up to a time.
+
+   * @param block Number of the block. Block 0 starts with the first price, and block b
+   *              with the price kept at index b - 1 in the block arrays.
+   * @param until Time after which no more prices are read.
+   * @param prices Receives the time and price of every price read, or null.
+   * @return The last price read.
+   */
+  private int read(int block, long until, BiConsumer<Long, Integer> prices) {
+    long time = block == 0 ? firstTime : blockTimes[block - 1];
+    int price = block == 0 ? firstPrice : blockPrices[block - 1];
+    int position = block == 0 ? 0 : blockOffsets[block - 1];
+    int end = Math.min(size, (block + 1) * BLOCK_SIZE);
+
+    if (prices != null) {
+      prices.accept(time, price);
+    }
+    for (int i = block * BLOCK_SIZE + 1; i < end; i++) {
+      long timeSinceLast = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = bytes[position++];
+        timeSinceLast |= (long) (b & 0x7F) << shift;
+        shift += 7;
+      } while (b < 0);
+      long difference = 0;
+      shift = 0;
+      do {
+        b = bytes[position++];
+        difference |= (long) (b & 0x7F) << shift;
+        shift += 7;
+      } while (b < 0);
+      time += timeSinceLast;
+      if (time > until) {
+        return price;
+      }
+      price += (int) ((difference >>> 1) ^ -(difference & 1));
+      if (prices != null) {
+        prices.accept(time, price);
+      }
+    }
+    return price;
+  }
+
+  /**
+   * Method to find the number of prices.
+
+   * @return Number of prices.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Method to write a number as a varint.
+
+   * @param value The number, at least 0.
+   */
+  private void writeVarint(long value) {
+    while ((value & ~0x7FL) != 0) {
+      bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    bytes[length++] = (byte) value;
+  }
+
+  /**
+   * Method to map a number that can be negative to one that is not, so small negative
+   * numbers are also written in few bytes.
+
+   * @param value The number.
+   * @return 2 * value for a value of at least 0, otherwise -2 * value - 1.
+   */
+  private static long zigZag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+}
@@ -0,0 +1,43 @@
+/**
+ * Class representing one line in a batch of stock changes, used by
+ * applyStockDeltas(stockDeltas) in the ItemRegister class.
+ */
+public class StockDelta {
+
+  /**
+   * Defining the variables. A positive delta adds items to stock, a negative delta
+   * removes items from stock.
+   */
+  private final String itemNumber;
+  private final int delta;
+
+  /**
+   * Constructor for stock delta. The values are checked when the batch is applied,
+   * so all the illegal lines in a batch can be reported at once.
+
+   * @param itemNumber Item number of the item whose stock is changed.
+   * @param delta Number of items added to (positive) or removed from (negative) stock.
+   */
+  public StockDelta(String itemNumber, int delta) {
+    this.itemNumber = itemNumber;
+    this.delta = delta;
+  }
+
+  /**
+   * Get method for item number.
+
+   * @return Item number.
+   */
+  public String getItemNumber() {
+    return itemNumber;
+  }
+
+  /**
+   * Get method for delta.
+
+   * @return Number of items added to (positive) or removed from (negative) stock.
+   */
+  public int getDelta() {
+    return delta;
+  }
+}
@@ -0,0 +1,128 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class giving every different text a small number, its code, used by the ItemTable class
+ * for fields that many items share, such as brand names and colours. Items with equal
+ * texts are then given the same String, so it is only kept once, and comparing the texts
+ * of two items is the same as comparing two codes.
+ *
+ * <p>Texts are only added, never removed, so a code stays valid for as long as the
+ * dictionary exists. The dictionary holds at most a fixed number of texts, so a field that
+ * turns out to have a different text for almost every item does not grow it forever.
+ * A dictionary can be shared by tables on different threads: finding a text never locks,
+ * and adding one locks only the dictionary.
+ */
+class StringDictionary {
+
+  /**
+   * Defining the variables. Codes holds the code of every text, and foldedCodes the codes
+   * of every text that is equal when ignoring case, keyed by the text normalized the same
+   * way as an item number. Texts holds the text of every code, and size the number of
+   * codes in use, which is written after the text, so a thread that sees the size also
+   * sees every text below it.
+   */
+  private final int capacity;
+  private final ConcurrentHashMap<String, Integer> codes;
+  private final ConcurrentHashMap<String, int[]> foldedCodes;
+  private volatile String[] texts;
+  private volatile int size;
+
+  /**
+   * Constructor for an empty string dictionary.
+
+   * @param capacity Highest number of texts.
+   */
+  StringDictionary(int capacity) {
+    this.capacity = capacity;
+    codes = new ConcurrentHashMap<>();
+    foldedCodes = new ConcurrentHashMap<>();
+    texts = new String[16];
+  }
+
+  /**
+   * Method to find the code of a text, adding the text if it is not in the dictionary.
+
+   * @param text The text.
+   * @return Code of the text, or -1 if it is not in the dictionary and the dictionary is
+   *         full.
+   */
+  int code(String text) {
+    Integer code = codes.get(text);
+    return code != null ? code : add(text);
+  }
+
+  /**
+   * Method to add a text to the dictionary, unless another thread has just added it.
+
+   * @param text The text.
+   * @return Code of the text, or -1 if the dictionary is full.
+   */
+  private synchronized int add(String text) {
+    Integer existing = codes.get(text);
+    if (existing != null) {
+      return existing;
+    }
+    int code = size;
+    if (code == capacity) {
+      return -1;
+    }
+    if (code == texts.length) {
+      texts = Arrays.copyOf(texts, Math.min(capacity, code * 2));
+    }
+    texts[code] = text;
+    size = code + 1;
+    codes.put(text, code);
+    foldedCodes.merge(ItemRegister.normalizedItemNumber(text), new int[] {code},
+        (old, added) -> {
+          int[] merged = Arrays.copyOf(old, old.length + 1);
+          merged[old.length] = code;
+          return merged;
+        });
+    return code;
+  }
+
+  /**
+   * Method to find the String kept for a text, so equal texts share one String.
+
+   * @param text The text.
+   * @return The String kept in the dictionary, or the given text if the dictionary is full.
+   */
+  String shared(String text) {
+    int code = code(text);
+    return code < 0 ? text : text(code);
+  }
+
+  /**
+   * Method to get the text of a code.
+
+   * @param code The code.
+   * @return The text.
+   */
+  String text(int code) {
+    if (code < 0 || code >= size) {
+      throw new IllegalArgumentException("Code " + code + " is not in the dictionary.");
+    }
+    return texts[code];
+  }
+
+  /**
+   * Method to find the codes of every text that is equal to a text when ignoring case.
+   * Takes constant time.
+
+   * @param text The text.
+   * @return The codes, which must not be changed. Empty if there are none.
+   */
+  int[] codesIgnoringCase(String text) {
+    return foldedCodes.getOrDefault(ItemRegister.normalizedItemNumber(text), new int[0]);
+  }
+
+  /**
+   * Method to check if the dictionary is full, in which case new texts have no code.
+
+   * @return True if no more texts can be added.
+   */
+  boolean isFull() {
+    return size == capacity;
+  }
+}